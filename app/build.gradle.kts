@@ -1,3 +1,5 @@
+import com.example.tugis3.coord.catalog.ProjectionCatalogCompiler
+
 plugins {
     alias(libs.plugins.android.application)
     alias(libs.plugins.kotlin.android)
@@ -38,6 +40,32 @@ tasks.register("createFirebasePlaceholder") {
     }
 }
 
+// Projeksions.csv -> projections.idx (ikili katalog indeksi). Uygulama CSV'yi çalışma zamanında ayrıştırmaz.
+abstract class CompileProjectionCatalogTask : DefaultTask() {
+    @get:InputFile
+    @get:PathSensitive(PathSensitivity.NONE)
+    abstract val csvFile: RegularFileProperty
+
+    @get:OutputDirectory
+    abstract val outputDir: DirectoryProperty
+
+    @TaskAction
+    fun compile() {
+        val result = ProjectionCatalogCompiler.compile(csvFile.get().asFile.readText(Charsets.UTF_8))
+        val out = outputDir.get().file(ProjectionCatalogCompiler.ASSET_NAME).asFile
+        out.parentFile.mkdirs()
+        out.writeBytes(result.bytes)
+        logger.lifecycle("[catalog] ${result.rowCount} projeksiyon, ${result.bytes.size / 1024} KiB, atlanan ${result.skipped.size}")
+        result.skipped.take(10).forEach { logger.warn("[catalog] atlandı: $it") }
+    }
+}
+
+val compileProjectionCatalog = tasks.register<CompileProjectionCatalogTask>("compileProjectionCatalog") {
+    group = "build"
+    description = "Projeksions.csv kataloğunu ikili indekse derler."
+    csvFile.set(rootProject.layout.projectDirectory.file("Projeksions.csv"))
+}
+
 android {
     namespace = "com.example.tugis3"
     compileSdk = 36
@@ -90,6 +118,19 @@ android {
             excludes += "/META-INF/{AL2.0,LGPL2.1}"
         }
     }
+
+    // Katalog indeksi sıkıştırılmadan paketlenir; cihazda doğrudan bellek eşlemeli açılır
+    androidResources {
+        noCompress += "idx"
+    }
+
+    sourceSets["main"].java.srcDir("src/catalog/kotlin")
+}
+
+androidComponents {
+    onVariants { variant ->
+        variant.sources.assets?.addGeneratedSourceDirectory(compileProjectionCatalog, CompileProjectionCatalogTask::outputDir)
+    }
 }
 
 java {
@@ -103,6 +144,7 @@ dependencies {
     implementation(project(":core:data"))
     implementation(project(":core:ui"))
     implementation(project(":core:cad"))
+    implementation(project(":core:geo"))
 
     // Core Android
     implementation(libs.androidx.core.ktx)
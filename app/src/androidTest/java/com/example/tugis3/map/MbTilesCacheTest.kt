@@ -0,0 +1,121 @@
+package com.example.tugis3.map
+
+import android.database.sqlite.SQLiteDatabase
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNotNull
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import java.io.File
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+/**
+ * MBTiles önbelleği: bütçe aşımında LRU tahliyesi ve bellekte biriken erişim zamanlarının diske yazılması.
+ * Saat enjekte edilir; aynı milisaniyede yazılan karolar sıralamayı belirsizleştirmesin.
+ */
+@RunWith(AndroidJUnit4::class)
+class MbTilesCacheTest {
+    private lateinit var file: File
+    private var now = 0L
+    private val tile = ByteArray(300) { it.toByte() }
+
+    @Before
+    fun setup() {
+        val ctx = ApplicationProvider.getApplicationContext<android.content.Context>()
+        file = File(ctx.cacheDir, "mbtiles_test_${System.nanoTime()}.mbtiles")
+    }
+
+    @After
+    fun tearDown() {
+        SQLiteDatabase.deleteDatabase(file)
+    }
+
+    private fun openCache(maxBytes: Long = 1_000) = MbTilesCache(file, maxBytes) { now }
+
+    private fun MbTilesCache.putAt(t: Long, x: Int) { now = t; put(15, x, 100, tile) }
+
+    @Test
+    fun evictsLeastRecentlyWrittenDownToNinetyPercent() {
+        val cache = openCache()
+        cache.putAt(1, 0); cache.putAt(2, 1); cache.putAt(3, 2)
+        assertEquals(900L, cache.stats.value.storedBytes)
+
+        cache.putAt(4, 3) // 1200 B > 1000 -> hedef 900 B
+        assertFalse(cache.contains(15, 0, 100))
+        assertTrue((1..3).all { cache.contains(15, it, 100) })
+        with(cache.stats.value) {
+            assertEquals(900L, storedBytes)
+            assertEquals(3L, tileCount)
+            assertEquals(1L, evictedTiles)
+        }
+        cache.close()
+    }
+
+    @Test
+    fun pendingTouchesAreFlushedBeforeEviction() {
+        val cache = openCache()
+        cache.putAt(1, 0); cache.putAt(2, 1); cache.putAt(3, 2)
+        now = 10
+        assertNotNull(cache.get(15, 0, 100)) // erişim yalnızca bellekte bekliyor
+
+        cache.putAt(11, 3)
+        assertTrue(cache.contains(15, 0, 100))
+        assertFalse(cache.contains(15, 1, 100))
+        cache.close()
+    }
+
+    @Test
+    fun closeFlushesTouchesToDisk() {
+        openCache().apply {
+            putAt(1, 0); putAt(2, 1)
+            now = 5
+            get(15, 0, 100)
+            close()
+        }
+        val reopened = openCache()
+        assertEquals(600L, reopened.stats.value.storedBytes)
+        reopened.putAt(6, 2); reopened.putAt(7, 3)
+        assertTrue(reopened.contains(15, 0, 100))
+        assertFalse(reopened.contains(15, 1, 100))
+        assertNull(reopened.get(15, 1, 100))
+        assertEquals(1L, reopened.stats.value.misses)
+        reopened.close()
+    }
+
+    @Test
+    fun concurrentReadsAndEvictingWritesKeepSizeAccounting() {
+        val cache = MbTilesCache(file, 30_000)
+        val pool = Executors.newFixedThreadPool(4)
+        val errors = java.util.concurrent.ConcurrentLinkedQueue<Throwable>()
+        repeat(3) { r ->
+            pool.execute {
+                runCatching { repeat(2_000) { i -> cache.get(15, (i * 7 + r) % 400, 100) } }.onFailure { errors += it }
+            }
+        }
+        pool.execute {
+            runCatching { repeat(400) { x -> cache.put(15, x, 100, tile) } }.onFailure { errors += it }
+        }
+        pool.shutdown()
+        assertTrue(pool.awaitTermination(60, TimeUnit.SECONDS))
+        assertTrue(errors.joinToString(), errors.isEmpty())
+        cache.flushTouches()
+
+        val stats = cache.stats.value
+        assertTrue(stats.storedBytes <= 30_000)
+        SQLiteDatabase.openDatabase(file.path, null, SQLiteDatabase.OPEN_READONLY).use { db ->
+            db.rawQuery("SELECT SUM(size), COUNT(*) FROM tiles", null).use { c ->
+                assertTrue(c.moveToFirst())
+                assertEquals(stats.storedBytes, c.getLong(0))
+                assertEquals(stats.tileCount, c.getLong(1))
+            }
+        }
+        cache.close()
+    }
+}
@@ -0,0 +1,207 @@
+package com.example.tugis3.coord.catalog
+
+import java.io.ByteArrayOutputStream
+import java.io.DataOutputStream
+import kotlin.math.abs
+import kotlin.math.floor
+import kotlin.math.roundToInt
+
+/**
+ * Projeksions.csv -> ikili katalog indeksi (projections.idx) derleyicisi.
+ *
+ * Bu dosya hem uygulamaya hem buildSrc'ye derlenir: Gradle `compileProjectionCatalog` görevi indeksi
+ * derleme zamanında asset olarak üretir, uygulama ise yalnız asset eksikse çalışma zamanında kullanır.
+ * Bu yüzden yalnız JDK + Kotlin stdlib kullanır.
+ *
+ * Biçim (big-endian):
+ * ```
+ * başlık   : MAGIC, VERSION, rowCount, stringCount, stringsOff, rowIndexOff, countryOff, ellipsoidOff, epsgOff, 0
+ * strings  : (stringCount + 1) × int mutlak ofset, ardından UTF-8 baytları (tekilleştirilmiş havuz)
+ * rowIndex : rowCount × int mutlak satır ofseti
+ * satır    : country, name, ellipsoid, projection, geoid (u16 string id), mode (u8), epsg (int),
+ *            mask (int) + mask'taki her bit için bir double (sıfır alanlar yazılmaz)
+ * gruplar  : groupCount, groupCount × (stringId, first, count), ardından satır id dizisi
+ * epsg     : count, count × (epsg, row) epsg'ye göre sıralı
+ * ```
+ */
+object ProjectionCatalogCompiler {
+    const val ASSET_NAME = "projections.idx"
+    const val MAGIC = 0x54504331 // "TPC1"
+    const val VERSION = 1
+    const val HEADER_SIZE = 40
+    const val NO_STRING = 0xFFFF
+
+    // Satırdaki double alanların mask bit sırası
+    const val F_A = 0
+    const val F_INV_F = 1
+    const val F_CM = 2
+    const val F_FN = 3
+    const val F_FE = 4
+    const val F_K = 5
+    const val F_LAT0 = 6
+    const val F_SP1 = 7
+    const val F_SP2 = 8
+    const val F_AZIMUTH = 9
+    const val F_GRID_ANGLE = 10
+    const val F_DX = 11
+    const val F_DY = 12
+    const val F_DZ = 13
+    const val F_RX = 14
+    const val F_RY = 15
+    const val F_RZ = 16
+    const val F_PPM = 17
+    const val FIELD_COUNT = 18
+
+    /** CSV sütun sırası: ülke, ad, elipsoit, a, 1/f, projeksiyon, CM, FN, FE, k, lat0, SP1, SP2, azimut, ızgara açısı, mode, DX..K(ppm), geoid. */
+    private val FIELD_COLUMNS = intArrayOf(3, 4, 6, 7, 8, 9, 10, 11, 12, 13, 14, 16, 17, 18, 19, 20, 21, 22)
+    private const val COL_MODE = 15
+    private const val COL_GEOID = 23
+    private val EPSG_IN_NAME = Regex("""EPSG[:\s]*(\d{4,5})""", RegexOption.IGNORE_CASE)
+    private val TM_TYPES = setOf("Transverse_Mercator", "Transverse Mercator", "UTM", "Gauss_Kruger")
+    /** Katalogda "Hotine_Oblique_Mercator" yazan ama EPSG'de varyant B (9815) olan satırların ad öneki. */
+    private const val HOM_VARIANT_B_PREFIX = "OCRS "
+
+    private class Row(
+        val country: String, val name: String, val ellipsoid: String, val projection: String, val geoid: String?,
+        val mode: Int, val values: DoubleArray, val epsg: Int
+    )
+
+    /** Katalog sayımı ve atlanan satırlar (derleme günlüğü için). */
+    class Result(val bytes: ByteArray, val rowCount: Int, val skipped: List<String>)
+
+    fun compile(csv: String): Result {
+        val skipped = mutableListOf<String>()
+        val rows = ArrayList<Row>(2048)
+        val lines = csv.removePrefix("\uFEFF").lines()
+        var i = 0
+        while (i < lines.size) {
+            var line = lines[i++].trimEnd('\r')
+            if (line.isBlank() || line.startsWith("#") || line.startsWith("//")) continue
+            // Katalogda bazı satırlar projeksiyon adından sonra bölünmüş; devamı ',' ile başlar
+            while (line.split(',').size < 7 && i < lines.size && lines[i].startsWith(",")) line += lines[i++].trimEnd('\r')
+            val parts = line.split(',').map { it.trim() }
+            val name = parts.getOrNull(1).orEmpty()
+            val a = parts.getOrNull(3)?.toDoubleOrNull()
+            val invF = parts.getOrNull(4)?.toDoubleOrNull()
+            if (parts.size < 13 || name.isEmpty() || a == null || invF == null) {
+                skipped += "Satır $i: ${line.take(60)}"
+                continue
+            }
+            val values = DoubleArray(FIELD_COUNT) { f -> parts.getOrNull(FIELD_COLUMNS[f])?.toDoubleOrNull() ?: 0.0 }
+            val projection = projectionOf(name, parts[5])
+            rows += Row(
+                country = normalizeCountry(parts[0]),
+                name = name,
+                ellipsoid = parts[2],
+                projection = projection,
+                geoid = parts.getOrNull(COL_GEOID)?.takeIf { it.isNotEmpty() },
+                mode = parts.getOrNull(COL_MODE)?.toDoubleOrNull()?.toInt() ?: 0,
+                values = values,
+                epsg = deriveEpsg(name, projection, values)
+            )
+        }
+        return Result(write(rows), rows.size, skipped)
+    }
+
+    /**
+     * Oregon OCRS bölgelerinde false E/N projeksiyon merkezindedir (EPSG 9815); bu satırlar varyant B'yi
+     * seçen "Oblique_Mercator" tipine çevrilir. Diğer Hotine satırları (Alaska, GDM2000 RSO) varyant A'dır.
+     */
+    fun projectionOf(name: String, projection: String): String =
+        if (projection == "Hotine_Oblique_Mercator" && name.startsWith(HOM_VARIANT_B_PREFIX)) "Oblique_Mercator" else projection
+
+    /** Eski ekranla aynı gruplama: ABD ilçe/eyalet alt katalogları "USA" altında toplanır. */
+    fun normalizeCountry(raw: String): String {
+        val c = raw.trim()
+        return when {
+            c.startsWith("USA COUNTY") -> "USA"
+            c.equals("US", true) -> "USA"
+            else -> c
+        }
+    }
+
+    /** Addaki "EPSG1234" etiketi, yoksa WGS84 UTM parametrelerinden 326xx/327xx; bulunamazsa 0. */
+    fun deriveEpsg(name: String, projection: String, v: DoubleArray): Int {
+        EPSG_IN_NAME.find(name)?.let { return it.groupValues[1].toInt() }
+        if (projection !in TM_TYPES) return 0
+        if (abs(v[F_A] - 6378137.0) > 1e-3 || abs(v[F_INV_F] - 298.257223563) > 1e-6) return 0
+        if (abs(v[F_K] - 0.9996) > 1e-9 || abs(v[F_FE] - 500000.0) > 1e-6 || v[F_LAT0] != 0.0) return 0
+        val cm = v[F_CM] - 360.0 * floor((v[F_CM] + 180.0) / 360.0)
+        val zone = ((cm + 183.0) / 6.0).roundToInt()
+        if (zone !in 1..60 || abs(zone * 6 - 183 - cm) > 1e-6) return 0
+        return when {
+            v[F_FN] == 0.0 -> 32600 + zone
+            v[F_FN] == 10000000.0 -> 32700 + zone
+            else -> 0
+        }
+    }
+
+    private fun write(rows: List<Row>): ByteArray {
+        val pool = LinkedHashMap<String, Int>()
+        fun id(s: String?): Int = if (s == null) NO_STRING else pool.getOrPut(s) { pool.size }
+        val rowIds = rows.map { r -> intArrayOf(id(r.country), id(r.name), id(r.ellipsoid), id(r.projection), id(r.geoid)) }
+        check(pool.size < NO_STRING) { "String havuzu u16 sınırını aştı: ${pool.size}" }
+        val strings = pool.keys.map { it.toByteArray(Charsets.UTF_8) }
+
+        val body = ByteArrayOutputStream(rows.size * 96)
+        val out = DataOutputStream(body)
+        fun pos() = HEADER_SIZE + out.size()
+
+        val stringsOff = pos()
+        var p = stringsOff + (strings.size + 1) * 4
+        for (b in strings) { out.writeInt(p); p += b.size }
+        out.writeInt(p)
+        strings.forEach { out.write(it) }
+
+        // Satırlar değişken uzunlukta; önce kayıtları ayrı tamponda üret
+        val records = ByteArrayOutputStream(rows.size * 64)
+        val rec = DataOutputStream(records)
+        val rowOffsets = IntArray(rows.size)
+        rows.forEachIndexed { idx, r ->
+            rowOffsets[idx] = rec.size()
+            rowIds[idx].forEach { rec.writeShort(it) }
+            rec.writeByte(r.mode)
+            rec.writeInt(r.epsg)
+            var mask = 0
+            for (f in 0 until FIELD_COUNT) if (r.values[f] != 0.0) mask = mask or (1 shl f)
+            rec.writeInt(mask)
+            for (f in 0 until FIELD_COUNT) if (mask and (1 shl f) != 0) rec.writeDouble(r.values[f])
+        }
+        val rowIndexOff = pos()
+        val recordsOff = rowIndexOff + rows.size * 4
+        rowOffsets.forEach { out.writeInt(recordsOff + it) }
+        records.writeTo(out)
+
+        val countryOff = pos()
+        writeGroups(out, rows.indices.groupBy { rowIds[it][0] }, pool)
+        val ellipsoidOff = pos()
+        writeGroups(out, rows.indices.groupBy { rowIds[it][2] }, pool)
+        val epsgOff = pos()
+        val epsg = rows.indices.filter { rows[it].epsg != 0 }.sortedWith(compareBy({ rows[it].epsg }, { it }))
+        out.writeInt(epsg.size)
+        epsg.forEach { out.writeInt(rows[it].epsg); out.writeInt(it) }
+        out.flush()
+
+        val header = ByteArrayOutputStream(HEADER_SIZE)
+        DataOutputStream(header).apply {
+            writeInt(MAGIC); writeInt(VERSION); writeInt(rows.size); writeInt(strings.size)
+            writeInt(stringsOff); writeInt(rowIndexOff); writeInt(countryOff); writeInt(ellipsoidOff); writeInt(epsgOff)
+            writeInt(0)
+        }
+        return header.toByteArray() + body.toByteArray()
+    }
+
+    /** Gruplar ada göre sıralı yazılır; ekran listeyi satır çözmeden doğrudan gösterebilir. */
+    private fun writeGroups(out: DataOutputStream, groups: Map<Int, List<Int>>, pool: Map<String, Int>) {
+        val names = arrayOfNulls<String>(pool.size)
+        pool.forEach { (s, i) -> names[i] = s }
+        val sorted = groups.entries.filter { names[it.key]!!.isNotEmpty() }.sortedBy { names[it.key] }
+        out.writeInt(sorted.size)
+        var first = 0
+        for ((sid, list) in sorted) {
+            out.writeInt(sid); out.writeInt(first); out.writeInt(list.size)
+            first += list.size
+        }
+        for ((_, list) in sorted) list.forEach { out.writeInt(it) }
+    }
+}
@@ -0,0 +1,211 @@
+package com.example.tugis3.coord.catalog
+
+import android.content.Context
+import android.util.Log
+import com.example.tugis3.coord.catalog.ProjectionCatalogCompiler as Fmt
+import java.io.FileInputStream
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+
+/**
+ * Derleme zamanında üretilen projeksiyon kataloğu indeksinin ([ProjectionCatalogCompiler]) okuyucusu.
+ *
+ * Açılış yalnız başlığı okur; satırlar [entry] çağrılana kadar çözülmez. Ülke/elipsoit grupları ve EPSG
+ * indeksi dosyada hazır olduğundan liste ekranı 2000+ satırı ayrıştırmadan açılır. Okumalar mutlak
+ * konumlu olduğu için örnek thread-safe'dir.
+ */
+class ProjectionCatalogIndex private constructor(private val buf: ByteBuffer) {
+
+    /** Çözülmüş katalog satırı; açılar derece, DX..RZ metre / yay saniyesi, [scalePpm] ppm. */
+    data class Entry(
+        val row: Int,
+        val country: String,
+        val name: String,
+        val ellipsoidName: String,
+        val projection: String,
+        val geoidFile: String?,
+        val semiMajor: Double,
+        val invF: Double,
+        val centralMeridianDeg: Double,
+        val falseNorthing: Double,
+        val falseEasting: Double,
+        val scale: Double,
+        val latitudeOrigin: Double,
+        val stdParallel1: Double,
+        val stdParallel2: Double,
+        val azimuthDeg: Double,
+        val gridAngleDeg: Double,
+        /** Katalog datum modu: 0 ve 1 Helmert (yerel -> WGS84), 2 Bursa-Wolf (WGS84 -> yerel). 4 katalogda geçmez. */
+        val datumMode: Int,
+        val dx: Double, val dy: Double, val dz: Double,
+        val rx: Double, val ry: Double, val rz: Double,
+        val scalePpm: Double,
+        val epsg: Int?
+    )
+
+    /** Ülke veya elipsoit grubu: ad ve satır sayısı (satırlar çözülmeden). */
+    data class Group(val name: String, val size: Int)
+
+    val size: Int = buf.getInt(8)
+    private val stringCount = buf.getInt(12)
+    private val stringsOff = buf.getInt(16)
+    private val rowIndexOff = buf.getInt(20)
+    private val countryOff = buf.getInt(24)
+    private val ellipsoidOff = buf.getInt(28)
+    private val epsgOff = buf.getInt(32)
+    private val epsgCount = buf.getInt(epsgOff)
+
+    private val strings = arrayOfNulls<String>(stringCount)
+    private val lowerStrings = arrayOfNulls<String>(stringCount)
+
+    init {
+        require(buf.getInt(0) == Fmt.MAGIC && buf.getInt(4) == Fmt.VERSION) { "Geçersiz katalog indeksi" }
+    }
+
+    private fun string(id: Int): String {
+        strings[id]?.let { return it }
+        val start = buf.getInt(stringsOff + id * 4)
+        val end = buf.getInt(stringsOff + (id + 1) * 4)
+        val bytes = ByteArray(end - start)
+        for (i in bytes.indices) bytes[i] = buf.get(start + i)
+        return String(bytes, Charsets.UTF_8).also { strings[id] = it }
+    }
+
+    private fun lower(id: Int): String = lowerStrings[id] ?: string(id).lowercase().also { lowerStrings[id] = it }
+
+    private fun rowOffset(row: Int) = buf.getInt(rowIndexOff + row * 4)
+    private fun stringId(row: Int, field: Int) = buf.getShort(rowOffset(row) + field * 2).toInt() and 0xFFFF
+
+    fun name(row: Int): String = string(stringId(row, 1))
+    fun country(row: Int): String = string(stringId(row, 0))
+
+    fun entry(row: Int): Entry {
+        require(row in 0 until size) { "Satır dışı: $row" }
+        var p = rowOffset(row)
+        val ids = IntArray(5) { buf.getShort(p + it * 2).toInt() and 0xFFFF }
+        p += 10
+        val mode = buf.get(p).toInt() and 0xFF
+        val epsg = buf.getInt(p + 1)
+        val mask = buf.getInt(p + 5)
+        p += 9
+        val v = DoubleArray(Fmt.FIELD_COUNT)
+        for (f in 0 until Fmt.FIELD_COUNT) if (mask and (1 shl f) != 0) { v[f] = buf.getDouble(p); p += 8 }
+        return Entry(
+            row = row,
+            country = string(ids[0]),
+            name = string(ids[1]),
+            ellipsoidName = string(ids[2]),
+            projection = string(ids[3]),
+            geoidFile = ids[4].takeIf { it != Fmt.NO_STRING }?.let(::string),
+            semiMajor = v[Fmt.F_A], invF = v[Fmt.F_INV_F],
+            centralMeridianDeg = v[Fmt.F_CM], falseNorthing = v[Fmt.F_FN], falseEasting = v[Fmt.F_FE],
+            scale = v[Fmt.F_K], latitudeOrigin = v[Fmt.F_LAT0],
+            stdParallel1 = v[Fmt.F_SP1], stdParallel2 = v[Fmt.F_SP2],
+            azimuthDeg = v[Fmt.F_AZIMUTH], gridAngleDeg = v[Fmt.F_GRID_ANGLE],
+            datumMode = mode,
+            dx = v[Fmt.F_DX], dy = v[Fmt.F_DY], dz = v[Fmt.F_DZ],
+            rx = v[Fmt.F_RX], ry = v[Fmt.F_RY], rz = v[Fmt.F_RZ],
+            scalePpm = v[Fmt.F_PPM],
+            epsg = epsg.takeIf { it != 0 }
+        )
+    }
+
+    fun countries(): List<Group> = groups(countryOff)
+    fun ellipsoids(): List<Group> = groups(ellipsoidOff)
+    fun rowsOfCountry(name: String): IntArray = groupRows(countryOff, name)
+    fun rowsOfEllipsoid(name: String): IntArray = groupRows(ellipsoidOff, name)
+
+    private fun groups(off: Int): List<Group> {
+        val n = buf.getInt(off)
+        return List(n) { i ->
+            val g = off + 4 + i * 12
+            Group(string(buf.getInt(g)), buf.getInt(g + 8))
+        }
+    }
+
+    private fun groupRows(off: Int, name: String): IntArray {
+        val n = buf.getInt(off)
+        // Gruplar ada göre sıralı
+        var lo = 0
+        var hi = n - 1
+        while (lo <= hi) {
+            val mid = (lo + hi) ushr 1
+            val g = off + 4 + mid * 12
+            val c = string(buf.getInt(g)).compareTo(name)
+            when {
+                c < 0 -> lo = mid + 1
+                c > 0 -> hi = mid - 1
+                else -> {
+                    val rowsOff = off + 4 + n * 12 + buf.getInt(g + 4) * 4
+                    return IntArray(buf.getInt(g + 8)) { buf.getInt(rowsOff + it * 4) }
+                }
+            }
+        }
+        return IntArray(0)
+    }
+
+    /** EPSG koduna ait satırlar (katalog sırasıyla); yoksa boş. */
+    fun rowsByEpsg(code: Int): IntArray {
+        // Alt sınır ikili araması
+        var lo = 0
+        var hi = epsgCount
+        while (lo < hi) {
+            val mid = (lo + hi) ushr 1
+            if (buf.getInt(epsgOff + 4 + mid * 8) < code) lo = mid + 1 else hi = mid
+        }
+        var end = lo
+        while (end < epsgCount && buf.getInt(epsgOff + 4 + end * 8) == code) end++
+        return IntArray(end - lo) { buf.getInt(epsgOff + 4 + (lo + it) * 8 + 4) }
+    }
+
+    /**
+     * Ad / ülke / EPSG araması. Sayısal sorgu ("32636", "EPSG:2320") önce EPSG indeksinde aranır;
+     * ardından ad ve ülke (büyük/küçük harf duyarsız) içerme eşleşmeleri satır sırasıyla eklenir.
+     */
+    fun search(query: String, limit: Int = 200): IntArray {
+        val q = query.trim()
+        if (q.isEmpty()) return IntArray(0)
+        val out = LinkedHashSet<Int>()
+        q.removePrefix("EPSG").removePrefix("epsg").trimStart(':', ' ').toIntOrNull()?.let { code ->
+            for (row in rowsByEpsg(code)) if (out.size < limit) out += row
+        }
+        val lq = q.lowercase()
+        var row = 0
+        while (row < size && out.size < limit) {
+            if (lower(stringId(row, 1)).contains(lq) || lower(stringId(row, 0)).contains(lq)) out += row
+            row++
+        }
+        return out.toIntArray()
+    }
+
+    companion object {
+        private const val TAG = "ProjectionCatalog"
+        private const val CSV_FALLBACK = "Projeksions.csv"
+        @Volatile private var instance: ProjectionCatalogIndex? = null
+
+        fun wrap(bytes: ByteArray): ProjectionCatalogIndex = ProjectionCatalogIndex(ByteBuffer.wrap(bytes))
+
+        /**
+         * Uygulama genelinde tek indeks. Asset sıkıştırılmadan paketlendiği için (noCompress) doğrudan
+         * bellek eşlemeli açılır; eşlenemezse baytlar okunur, indeks hiç yoksa asset CSV'den derlenir.
+         */
+        fun get(context: Context): ProjectionCatalogIndex = instance ?: synchronized(this) {
+            instance ?: open(context.applicationContext).also { instance = it }
+        }
+
+        private fun open(context: Context): ProjectionCatalogIndex {
+            val assets = context.assets
+            runCatching {
+                assets.openFd(Fmt.ASSET_NAME).use { fd ->
+                    FileInputStream(fd.fileDescriptor).channel.use { ch ->
+                        return ProjectionCatalogIndex(ch.map(FileChannel.MapMode.READ_ONLY, fd.startOffset, fd.length))
+                    }
+                }
+            }
+            runCatching { return wrap(assets.open(Fmt.ASSET_NAME).use { it.readBytes() }) }
+            Log.w(TAG, "${Fmt.ASSET_NAME} yok; $CSV_FALLBACK çalışma zamanında derleniyor")
+            val csv = runCatching { assets.open(CSV_FALLBACK).use { it.reader(Charsets.UTF_8).readText() } }.getOrDefault("")
+            return wrap(Fmt.compile(csv).bytes)
+        }
+    }
+}
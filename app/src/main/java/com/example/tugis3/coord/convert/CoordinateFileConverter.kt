@@ -0,0 +1,215 @@
+package com.example.tugis3.coord.convert
+
+import com.example.tugis3.coord.transform.CoordinateTransformer
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.currentCoroutineContext
+import kotlinx.coroutines.ensureActive
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.flow
+import kotlinx.coroutines.flow.flowOn
+import java.io.BufferedReader
+import java.io.FilterInputStream
+import java.io.InputStream
+import java.io.InputStreamReader
+import java.io.Writer
+import java.util.ArrayDeque
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ForkJoinPool
+import java.util.concurrent.Future
+
+/**
+ * CSV/TXT nokta dosyalarını akış halinde dönüştürür.
+ *
+ * Okuyucu satırları [chunkSize]'lık parçalara toplar; her parça havuzda ayrıştırılır, toplu
+ * ([CoordinateTransformer.forwardBatch] / [CoordinateTransformer.inverseBatch]) dönüştürülür ve metne
+ * çevrilir. Yazıcı parçaları gönderim sırasıyla bekleyip yazar, böylece çıktı girişle aynı sıradadır.
+ * Aynı anda en çok [maxInFlight] parça bellekte tutulur; dosya boyutundan bağımsız olarak bellek sınırlıdır.
+ *
+ * Koordinat sütunları yerinde değiştirilir, diğer sütunlar (nokta adı, yükseklik, kod) aynen kalır.
+ * Sayı olarak okunamayan satırlar (başlık, yorum, bozuk kayıt) değiştirilmeden yazılır ve [Progress.skipped]'e sayılır.
+ *
+ * @param source giriş projeksiyonu; null ise giriş coğrafi (enlem, boylam derece)
+ * @param target çıkış projeksiyonu; null ise çıkış coğrafi
+ */
+class CoordinateFileConverter(
+    private val source: CoordinateTransformer?,
+    private val target: CoordinateTransformer?,
+    private val layout: Layout = Layout(),
+    private val chunkSize: Int = DEFAULT_CHUNK,
+    private val maxInFlight: Int = Runtime.getRuntime().availableProcessors() * 2,
+    private val pool: ForkJoinPool = ForkJoinPool.commonPool()
+) {
+    /**
+     * Satır düzeni. [northColumn] enlem / kuzey, [eastColumn] boylam / doğu sütunudur (0 tabanlı).
+     * [delimiter] null ise ilk veri satırından (`,` `;` sekme, yoksa boşluk) belirlenir.
+     */
+    data class Layout(
+        val northColumn: Int = 1,
+        val eastColumn: Int = 2,
+        val delimiter: Char? = null,
+        val headerLines: Int = 0,
+        val geographicDecimals: Int = 9,
+        val projectedDecimals: Int = 3
+    )
+
+    data class Progress(
+        val lines: Long,
+        val converted: Long,
+        val skipped: Long,
+        val bytesRead: Long,
+        /** Bilinmiyorsa -1. */
+        val totalBytes: Long,
+        val done: Boolean = false
+    ) {
+        val fraction: Float get() = if (totalBytes > 0) (bytesRead.toDouble() / totalBytes).toFloat().coerceIn(0f, 1f) else 0f
+    }
+
+    private class Chunk(val lines: Array<String?>, val count: Int, val delimiter: Char)
+    private class Converted(val text: CharSequence, val count: Int, val converted: Int)
+
+    init {
+        require(chunkSize > 0 && maxInFlight > 0)
+        require(layout.northColumn != layout.eastColumn && layout.northColumn >= 0 && layout.eastColumn >= 0)
+    }
+
+    /**
+     * [input]'u okuyup [output]'a yazar; her parça yazıldıkça ilerleme yayar. Akış iptal edildiğinde
+     * okuma durur, bekleyen parçalar iptal edilir. Akışlar çağıran tarafından kapatılır.
+     */
+    fun convert(input: InputStream, output: Writer, totalBytes: Long = -1): Flow<Progress> = flow {
+        val counting = CountingStream(input)
+        val reader = BufferedReader(InputStreamReader(counting, Charsets.UTF_8), 1 shl 16)
+        val pending = ArrayDeque<Future<Converted>>(maxInFlight)
+        var lines = 0L
+        var converted = 0L
+        var delimiter = layout.delimiter
+
+        suspend fun drainOne() {
+            val r = try {
+                pending.removeFirst().get()
+            } catch (e: ExecutionException) {
+                throw e.cause ?: e
+            }
+            output.append(r.text)
+            lines += r.count
+            converted += r.converted
+            emit(Progress(lines, converted, lines - converted, counting.count, totalBytes))
+        }
+
+        try {
+            repeat(layout.headerLines) {
+                val h = reader.readLine() ?: return@repeat
+                output.append(h).append('\n')
+                lines++
+            }
+            while (true) {
+                currentCoroutineContext().ensureActive()
+                val buf = arrayOfNulls<String>(chunkSize)
+                var n = 0
+                while (n < chunkSize) {
+                    val line = reader.readLine() ?: break
+                    buf[n++] = line
+                }
+                if (n == 0) break
+                val d = delimiter ?: detectDelimiter(buf, n).also { delimiter = it }
+                val chunk = Chunk(buf, n, d)
+                if (pending.size >= maxInFlight) drainOne()
+                pending.addLast(pool.submit<Converted> { process(chunk) })
+                if (n < chunkSize) break
+            }
+            while (pending.isNotEmpty()) drainOne()
+            output.flush()
+            emit(Progress(lines, converted, lines - converted, counting.count, totalBytes, done = true))
+        } finally {
+            // İptal / hata: kuyruktaki parçaları bırak
+            pending.forEach { it.cancel(false) }
+        }
+    }.flowOn(Dispatchers.IO)
+
+    /** Bir parçayı ayrıştırır, toplu dönüştürür ve çıktı metnini üretir (havuz thread'inde). */
+    private fun process(chunk: Chunk): Converted {
+        val n = chunk.count
+        val a = DoubleArray(n)
+        val b = DoubleArray(n)
+        val ok = BooleanArray(n)
+        val fields = arrayOfNulls<Array<String>>(n)
+        for (i in 0 until n) {
+            val f = split(chunk.lines[i]!!, chunk.delimiter)
+            val north = f.getOrNull(layout.northColumn)?.trim()?.toDoubleOrNull()
+            val east = f.getOrNull(layout.eastColumn)?.trim()?.toDoubleOrNull()
+            if (north != null && east != null && north.isFinite() && east.isFinite()) {
+                a[i] = north; b[i] = east; ok[i] = true; fields[i] = f
+            }
+        }
+        // a/b: giriş (enlem, boylam) ya da (N, E); lat/lon ara adım, outN/outE çıkış
+        val lat: DoubleArray
+        val lon: DoubleArray
+        if (source != null) {
+            lat = DoubleArray(n); lon = DoubleArray(n)
+            source.inverseBatch(b, a, lat, lon, 0, n)
+        } else {
+            lat = a; lon = b
+        }
+        val outN: DoubleArray
+        val outE: DoubleArray
+        if (target != null) {
+            outE = DoubleArray(n); outN = DoubleArray(n)
+            target.forwardBatch(lat, lon, outE, outN, 0, n)
+        } else {
+            outN = lat; outE = lon
+        }
+        val decimals = if (target == null) layout.geographicDecimals else layout.projectedDecimals
+        val sb = StringBuilder(n * 48)
+        var converted = 0
+        for (i in 0 until n) {
+            val f = fields[i]
+            if (!ok[i] || f == null || !outN[i].isFinite() || !outE[i].isFinite()) {
+                sb.append(chunk.lines[i]).append('\n')
+                continue
+            }
+            f[layout.northColumn] = format(outN[i], decimals)
+            f[layout.eastColumn] = format(outE[i], decimals)
+            for (k in f.indices) {
+                if (k > 0) sb.append(chunk.delimiter)
+                sb.append(f[k])
+            }
+            sb.append('\n')
+            converted++
+        }
+        return Converted(sb, n, converted)
+    }
+
+    private fun split(line: String, delimiter: Char): Array<String> =
+        if (delimiter == ' ') line.trim().split(WHITESPACE).toTypedArray()
+        else line.split(delimiter).toTypedArray()
+
+    private fun detectDelimiter(lines: Array<String?>, count: Int): Char {
+        for (i in 0 until count) {
+            val l = lines[i] ?: continue
+            if (l.isBlank()) continue
+            for (c in CANDIDATES) if (l.indexOf(c) >= 0) return c
+            return ' '
+        }
+        return ','
+    }
+
+    /** Okunan bayt sayacı (ilerleme yüzdesi için). */
+    private class CountingStream(input: InputStream) : FilterInputStream(input) {
+        @Volatile var count = 0L
+            private set
+
+        override fun read(): Int = super.read().also { if (it >= 0) count++ }
+        override fun read(b: ByteArray, off: Int, len: Int): Int = super.read(b, off, len).also { if (it > 0) count += it }
+        override fun skip(n: Long): Long = super.skip(n).also { count += it }
+    }
+
+    companion object {
+        const val DEFAULT_CHUNK = 4096
+        private val CANDIDATES = charArrayOf(',', ';', '\t')
+        private val WHITESPACE = Regex("\\s+")
+
+        /** Ondalık ayracı her zaman nokta olan, yerel ayardan bağımsız biçimleme. */
+        internal fun format(v: Double, decimals: Int): String =
+            java.math.BigDecimal.valueOf(v).setScale(decimals, java.math.RoundingMode.HALF_UP).toPlainString()
+    }
+}
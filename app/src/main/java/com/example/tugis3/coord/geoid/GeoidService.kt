@@ -0,0 +1,111 @@
+package com.example.tugis3.coord.geoid
+
+import android.content.Context
+import android.util.Log
+import com.example.tugis3.coord.transform.NoOpTransformer
+import com.example.tugis3.coord.transform.ProjectionEngine
+import com.example.tugis3.data.db.entity.PointEntity
+import com.example.tugis3.data.db.entity.ProjectEntity
+import com.example.tugis3.ui.project.coord.loadCoordParam
+import dagger.hilt.android.qualifiers.ApplicationContext
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.withContext
+import java.io.File
+import javax.inject.Inject
+import javax.inject.Singleton
+
+/**
+ * Geoit ayrımı (N) kaynağı: "Geoit Dosyası" ekranındaki `geoidPath` ızgarası, yoksa / dışındaysa
+ * "Dikey Kontrol" ekranındaki sabit `geoidSep`.
+ *
+ * Izgara [refresh] ile (IO thread'inde) açılır ve yol / değişiklik zamanı aynı kaldıkça yeniden açılmaz;
+ * [separation] epoch başına senkron çağrılabilir.
+ */
+@Singleton
+class GeoidService @Inject constructor(
+    @ApplicationContext private val context: Context
+) {
+    private class Loaded(val path: String, val modified: Long, val grid: GeoidGrid)
+
+    @Volatile private var loaded: Loaded? = null
+    @Volatile private var constantSep: Double? = null
+
+    /** Ayarları yeniden okur; ızgara yolu değiştiyse dosyayı eşler. NTv2 değişiklik zamanları da yeniden okunur. */
+    suspend fun refresh() = withContext(Dispatchers.IO) {
+        ProjectionEngine.refresh()
+        constantSep = loadCoordParam(context, "VerticalControlParametersActivity", "geoidSep").trim().toDoubleOrNull()
+        val raw = loadCoordParam(context, "GeoidFileActivity", "geoidPath").trim()
+        val interpolation = loadCoordParam(context, "GeoidFileActivity", "interpolation").trim().uppercase()
+            .let { name -> GeoidGrid.Interpolation.entries.firstOrNull { it.name == name } ?: GeoidGrid.Interpolation.BILINEAR }
+        if (raw.isEmpty()) { loaded = null; return@withContext }
+        val file = resolve(raw)
+        val current = loaded
+        if (current != null && current.path == file.path && current.modified == file.lastModified()) {
+            current.grid.interpolation = interpolation
+            return@withContext
+        }
+        loaded = runCatching { Loaded(file.path, file.lastModified(), GeoidGrid.open(file)) }
+            .onSuccess { Log.i(TAG, "Geoit yüklendi: ${it.grid}") }
+            .onFailure { Log.w(TAG, "Geoit açılamadı: ${file.path}", it) }
+            .getOrNull()
+            ?.also { it.grid.interpolation = interpolation }
+    }
+
+    /** Geoit ayrımı N (metre); ne ızgara ne sabit değer yoksa null. */
+    fun separation(latDeg: Double, lonDeg: Double): Double? {
+        loaded?.grid?.undulation(latDeg, lonDeg)?.takeIf { !it.isNaN() }?.let { return it }
+        return constantSep
+    }
+
+    /** H = h - N. */
+    fun orthometricHeight(latDeg: Double?, lonDeg: Double?, ellipsoidalHeight: Double?): Double? {
+        if (latDeg == null || lonDeg == null || ellipsoidalHeight == null) return null
+        return separation(latDeg, lonDeg)?.let { ellipsoidalHeight - it }
+    }
+
+    /**
+     * Kaydedilecek yükseklik: H (geoit modeli yoksa h) üzerine projenin düşey lokalizasyon düzlemi.
+     * Kalibrasyon noktalarının srcHeight'ı da aynı yüzeyde ([orthometricHeight] ?: h) alınır.
+     */
+    fun localHeight(project: ProjectEntity?, latDeg: Double?, lonDeg: Double?, ellipsoidalHeight: Double?): Double? {
+        if (latDeg == null || lonDeg == null || ellipsoidalHeight == null) return ellipsoidalHeight
+        val h = orthometricHeight(latDeg, lonDeg, ellipsoidalHeight) ?: ellipsoidalHeight
+        return ProjectionEngine.localizedHeight(project, latDeg, lonDeg, h)
+    }
+
+    /**
+     * Enlem/boylamı olmayan (elle girilen, içe aktarılan) nokta için H = h - N; konum proje
+     * projeksiyonunun tersiyle N/E'den bulunur. Projeksiyonu olmayan projede null.
+     */
+    fun orthometricHeight(project: ProjectEntity?, northing: Double, easting: Double, ellipsoidalHeight: Double?): Double? {
+        if (ellipsoidalHeight == null || (loaded == null && constantSep == null)) return null
+        val transformer = ProjectionEngine.forProject(project)
+        if (transformer === NoOpTransformer) return constantSep?.let { ellipsoidalHeight - it }
+        val (lat, lon) = runCatching { transformer.inverse(easting, northing) }.getOrNull() ?: return null
+        if (lat.isNaN() || lon.isNaN()) return null
+        return orthometricHeight(lat, lon, ellipsoidalHeight)
+    }
+
+    /** Kaydedilecek noktanın [PointEntity.orthoHeight] alanını doldurur (zaten doluysa dokunmaz). */
+    fun withOrthometricHeight(point: PointEntity, project: ProjectEntity?): PointEntity {
+        if (point.orthoHeight != null || point.ellipsoidalHeight == null) return point
+        val h = if (point.latDeg != null && point.lonDeg != null) {
+            orthometricHeight(point.latDeg, point.lonDeg, point.ellipsoidalHeight)
+        } else {
+            orthometricHeight(project, point.northing, point.easting, point.ellipsoidalHeight)
+        }
+        return if (h == null) point else point.copy(orthoHeight = h)
+    }
+
+    /** Göreli yollar uygulamanın dış dosyalar dizinindeki `geoid/` altında aranır. */
+    private fun resolve(path: String): File {
+        val f = File(path)
+        if (f.isAbsolute) return f
+        val base = context.getExternalFilesDir(null) ?: context.filesDir
+        return File(File(base, "geoid"), path)
+    }
+
+    private companion object {
+        const val TAG = "GeoidService"
+    }
+}
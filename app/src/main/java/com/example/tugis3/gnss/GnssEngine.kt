@@ -1,16 +1,15 @@
 package com.example.tugis3.gnss
 
-import com.example.tugis3.Tugis3Application
 import android.location.GnssStatus
 import android.location.Location
 import android.location.LocationListener
 import android.location.LocationManager
 import android.os.Build
 import android.os.Bundle
+import android.os.Looper
 import com.example.tugis3.gnss.model.FixType
 import com.example.tugis3.gnss.model.GnssObservation
 import com.example.tugis3.gnss.nmea.NmeaParser
-import java.io.File
 import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.Job
@@ -47,6 +46,8 @@ class GnssEngine(
 
     private val nmeaParser = NmeaParser()
     private var lastNmea: GnssObservation? = null
+    private var lastMotionMs = 0L
+    private val motionMaxAgeMs = 1_500L // RMC gelmeyen epoch'ta hız / yön bu süreden sonra düşer
 
     // Son 3 fix kalitesinin 3 saniyelik kayan penceresi (RTK sabitleme kararlılığı için)
     private val recentFixQualities = mutableListOf<Pair<Long, FixType>>()
@@ -92,13 +93,16 @@ class GnssEngine(
         }
     }
 
-    fun start() {
+    /**
+     * Konum/uydu callback'lerini [looper] üzerinde kaydeder. Varsayılan ana looper'dır;
+     * [GnssPipeline] kendi ingest thread'ini verir, böylece callback'ler UI thread'ini meşgul etmez.
+     */
+    fun start(looper: Looper = Looper.getMainLooper()) {
         if (running) return
         running = true
-        // Eski yaklaşımda coroutine context kayması nedeniyle bazı cihazlarda Handler main looper olmadan oluşturulup crash oluyordu.
-        // Her durumda ana looper üzerinden handler ile kayıt yap.
-        val mainLooper = android.os.Looper.getMainLooper()
-        val handler = android.os.Handler(mainLooper)
+        // Eski yaklaşımda coroutine context kayması nedeniyle bazı cihazlarda Handler looper olmadan oluşturulup crash oluyordu.
+        // Her durumda açık bir looper üzerinden handler ile kayıt yap.
+        val handler = android.os.Handler(looper)
         gnssJob = mainScope.launch {
             try {
                 // API seviyesinden bağımsız olarak handler parametresiyle kaydet (tutarlılık için)
@@ -113,9 +117,9 @@ class GnssEngine(
                 } else {
                     locationManager.registerGnssStatusCallback(statusCallback, handler)
                 }
-                // Konum güncellemeleri ana looper üzerinden
+                // Konum güncellemeleri verilen looper üzerinden
                 locationManager.requestLocationUpdates(
-                    LocationManager.GPS_PROVIDER, 500L, 0f, this@GnssEngine, mainLooper
+                    LocationManager.GPS_PROVIDER, 500L, 0f, this@GnssEngine, looper
                 )
             } catch (e: SecurityException) {
                 // izin yok -> motoru durdur
@@ -174,14 +178,7 @@ class GnssEngine(
 
     fun ingestNmea(line: String) {
         _nmeaLineCount.value = _nmeaLineCount.value + 1
-        if (NmeaLogConfig.enabled) {
-            runCatching {
-                val dir = File(Tugis3Application.appContext.filesDir, "logs")
-                if (!dir.exists()) dir.mkdirs()
-                val f = File(dir, "nmea.log")
-                f.appendText(line + "\n")
-            }.getOrElse { }
-        }
+        // Dosya logu GnssPipeline'ın log thread'inde tutulur
         val parsed = nmeaParser.parse(line) ?: return
         val base = _observation.value
 
@@ -240,8 +237,13 @@ class GnssEngine(
             else -> base?.vrms
         }
 
+        // Hız / yön yalnız RMC'de gelir; bir sonraki RMC'ye kadar taşınır, gelmezse bayat değer tutulmaz
+        val now = System.currentTimeMillis()
+        if (parsed.speedMps != null || parsed.courseDeg != null) lastMotionMs = now
+        val motionFresh = now - lastMotionMs <= motionMaxAgeMs
+
         val merged = GnssObservation(
-            epochMillis = System.currentTimeMillis(),
+            epochMillis = now,
             latDeg = parsed.latDeg ?: base?.latDeg,
             lonDeg = parsed.lonDeg ?: base?.lonDeg,
             ellipsoidalHeight = parsed.heightEllipsoidal ?: base?.ellipsoidalHeight,
@@ -253,6 +255,8 @@ class GnssEngine(
             pdop = pdopVal,
             hdop = hdopVal,
             vdop = vdopVal,
+            speedMps = parsed.speedMps ?: base?.speedMps?.takeIf { motionFresh },
+            courseDeg = parsed.courseDeg ?: base?.courseDeg?.takeIf { motionFresh },
             rawNmea = line
         )
         lastNmea = merged
@@ -286,6 +290,8 @@ class GnssEngine(
             pdop = baseNmea?.pdop,
             hdop = baseNmea?.hdop,
             vdop = baseNmea?.vdop,
+            speedMps = if (location.hasSpeed()) location.speed.toDouble() else null,
+            courseDeg = if (location.hasBearing()) location.bearing.toDouble() else null,
             rawNmea = baseNmea?.rawNmea
         )
         _observation.value = obs
@@ -0,0 +1,172 @@
+package com.example.tugis3.gnss
+
+import android.Manifest
+import android.content.Context
+import android.content.Intent
+import android.content.pm.PackageManager
+import android.os.Handler
+import android.os.HandlerThread
+import android.util.Log
+import androidx.core.content.ContextCompat
+import com.example.tugis3.gnss.model.FixType
+import com.example.tugis3.gnss.model.GnssObservation
+import com.example.tugis3.ntrip.NtripClient
+import com.example.tugis3.service.GnssService
+import dagger.hilt.android.qualifiers.ApplicationContext
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.android.asCoroutineDispatcher
+import kotlinx.coroutines.asCoroutineDispatcher
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.flow.asStateFlow
+import kotlinx.coroutines.launch
+import java.io.BufferedWriter
+import java.io.File
+import java.io.FileWriter
+import java.util.concurrent.Executors
+import javax.inject.Inject
+import javax.inject.Singleton
+
+/**
+ * GNSS alım hattı: alıcı bağlantısı, NTRIP düzeltmeleri, NMEA çözümleme ve loglama tek yerde.
+ *
+ * ViewModel'ler motoru doğrudan başlatıp durdurmaz; [acquire]/[release] ile abone olur.
+ * İlk abonede hat ve [GnssService] (foreground) başlar, son abone ayrıldıktan sonra
+ * [STOP_GRACE_MS] kadar beklenir; ekran geçişlerinde motor yeniden başlatılmaz.
+ * Ayrıştırma ve konum callback'leri `gnss-ingest`, dosya logu `gnss-log` thread'inde çalışır.
+ */
+@Singleton
+class GnssPipeline @Inject constructor(
+    @ApplicationContext private val context: Context,
+    private val engine: GnssEngine,
+    private val ntripClient: NtripClient
+) {
+    private val ingestThread = HandlerThread("gnss-ingest").apply { start() }
+    private val ingestDispatcher = Handler(ingestThread.looper).asCoroutineDispatcher("gnss-ingest")
+    private val logDispatcher = Executors.newSingleThreadExecutor { r -> Thread(r, "gnss-log").apply { isDaemon = true } }
+        .asCoroutineDispatcher()
+    private val scope = CoroutineScope(SupervisorJob() + ingestDispatcher)
+
+    private val owners = HashSet<Any>()
+    private var stopJob: Job? = null
+    private var wiringJobs: List<Job> = emptyList()
+    private val nmeaBuffer = StringBuilder()
+    private var logWriter: BufferedWriter? = null
+    private var pendingLogLines = 0
+
+    private val _running = MutableStateFlow(false)
+    val running: StateFlow<Boolean> = _running.asStateFlow()
+
+    val observation: StateFlow<GnssObservation?> get() = engine.observation
+
+    /** [owner] için hattı tutar; aynı owner birden fazla kez çağırabilir. */
+    fun acquire(owner: Any) {
+        synchronized(owners) {
+            owners.add(owner)
+            stopJob?.cancel(); stopJob = null
+            if (!_running.value) startLocked()
+        }
+    }
+
+    fun release(owner: Any) {
+        synchronized(owners) {
+            if (!owners.remove(owner) || owners.isNotEmpty() || !_running.value) return
+            stopJob?.cancel()
+            stopJob = scope.launch {
+                delay(STOP_GRACE_MS)
+                synchronized(owners) { if (owners.isEmpty()) stopLocked() }
+            }
+        }
+    }
+
+    val subscriberCount: Int get() = synchronized(owners) { owners.size }
+
+    fun applyCorrection(rtcm: ByteArray) {
+        scope.launch { engine.applyCorrection(rtcm) }
+    }
+
+    private fun startLocked() {
+        _running.value = true
+        engine.start(ingestThread.looper)
+        wiringJobs = listOf(
+            scope.launch { ntripClient.events.collect { ev -> if (ev is NtripClient.Event.Data) onNtripBytes(ev.bytes) } },
+            scope.launch { engine.observation.collect { obs -> obs?.let(::feedNtripPosition) } }
+        )
+        // Konum izni yoksa foreground (location) servis başlatılamaz; hat yine de süreç içinde çalışır
+        if (ContextCompat.checkSelfPermission(context, Manifest.permission.ACCESS_FINE_LOCATION) == PackageManager.PERMISSION_GRANTED) {
+            runCatching {
+                ContextCompat.startForegroundService(context, Intent(context, GnssService::class.java).setAction(GnssService.ACTION_ATTACH))
+            }.onFailure { Log.w(TAG, "GnssService başlatılamadı, hat servis olmadan çalışıyor", it) }
+        }
+    }
+
+    private fun stopLocked() {
+        _running.value = false
+        wiringJobs.forEach { it.cancel() }
+        wiringJobs = emptyList()
+        engine.stop()
+        scope.launch(logDispatcher) { runCatching { logWriter?.close() }; logWriter = null }
+        runCatching { context.stopService(Intent(context, GnssService::class.java)) }
+    }
+
+    private fun onNtripBytes(raw: ByteArray) {
+        if (NtripClient.isRtcmMessage(raw)) {
+            engine.applyCorrection(raw)
+            return
+        }
+        // Parça parça gelen NMEA akışını satırlara böl
+        for (b in raw) {
+            val c = b.toInt() and 0xFF
+            if (c == 0x0A || c == 0x0D) {
+                if (nmeaBuffer.isNotEmpty()) {
+                    val line = nmeaBuffer.toString().trim()
+                    nmeaBuffer.clear()
+                    if (line.startsWith('$') && line.length > 6) {
+                        engine.ingestNmea(line)
+                        logNmea(line)
+                    }
+                }
+            } else if (c in 0x20..0x7E) {
+                if (nmeaBuffer.length < MAX_NMEA_LINE) nmeaBuffer.append(c.toChar()) else nmeaBuffer.clear()
+            }
+        }
+    }
+
+    private fun feedNtripPosition(obs: GnssObservation) {
+        val lat = obs.latDeg ?: return
+        val lon = obs.lonDeg ?: return
+        if (obs.predicted) return
+        val fixQ = when (obs.fixType) {
+            FixType.RTK_FIX -> 4
+            FixType.RTK_FLOAT -> 5
+            FixType.DGPS -> 2
+            FixType.PPP -> 6
+            FixType.SINGLE, FixType.NO_FIX, FixType.MANUAL -> 1
+        }
+        ntripClient.updatePosition(lat, lon, obs.ellipsoidalHeight, fixQ, obs.satellitesInUse ?: 0)
+    }
+
+    private fun logNmea(line: String) {
+        if (!NmeaLogConfig.enabled) return
+        scope.launch(logDispatcher) {
+            runCatching {
+                val w = logWriter ?: File(context.filesDir, "logs").let { dir ->
+                    if (!dir.exists()) dir.mkdirs()
+                    FileWriter(File(dir, "nmea.log"), true).buffered().also { logWriter = it }
+                }
+                w.append(line).append('\n')
+                if (++pendingLogLines >= LOG_FLUSH_LINES) { w.flush(); pendingLogLines = 0 }
+            }
+        }
+    }
+
+    companion object {
+        private const val TAG = "GnssPipeline"
+        const val STOP_GRACE_MS = 15_000L
+        private const val MAX_NMEA_LINE = 1500
+        private const val LOG_FLUSH_LINES = 20
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.tugis3.gnss
+
+import com.example.tugis3.gnss.model.GnssObservation
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.channelFlow
+import kotlinx.coroutines.isActive
+import kotlinx.coroutines.launch
+import java.util.concurrent.atomic.AtomicReference
+import kotlin.math.cos
+import kotlin.math.sin
+import kotlin.math.sqrt
+
+/**
+ * Hız tabanlı konum öngörücü (yalnız görüntüleme içindir).
+ *
+ * 1–10 Hz gelen epoch'lar arasında, son hız vektörüyle konumu ekran yenileme hızında ileri taşır.
+ * Hız, RMC SOG/COG varsa ondan, yoksa ardışık fix farkından (üstel yumuşatma ile) tahmin edilir.
+ * Öngörü [maxHorizonMs] ile sınırlıdır; alıcı durağansa devre dışı kalır ve ham konum döner.
+ * Kayıt edilen koordinatlar her zaman ham epoch'lardan alınmalıdır.
+ */
+class PositionPredictor(
+    private val maxHorizonMs: Long = DEFAULT_MAX_HORIZON_MS,
+    private val stationarySpeedMps: Double = DEFAULT_STATIONARY_SPEED_MPS,
+    private val smoothing: Double = DEFAULT_SMOOTHING
+) {
+    data class Predicted(val lat: Double, val lon: Double, val extrapolated: Boolean)
+
+    private var lastTime = 0L
+    private var lastLat = Double.NaN
+    private var lastLon = Double.NaN
+    private var vEast = 0.0
+    private var vNorth = 0.0
+    private var hasVelocity = false
+
+    val isMoving: Boolean
+        @Synchronized get() = hasVelocity && sqrt(vEast * vEast + vNorth * vNorth) >= stationarySpeedMps
+
+    /** Yeni ham epoch. [speedMps]/[courseDeg] verilirse (RMC) doğrudan hız olarak kullanılır. */
+    @Synchronized
+    fun update(timeMs: Long, lat: Double, lon: Double, speedMps: Double? = null, courseDeg: Double? = null) {
+        if (speedMps != null && courseDeg != null) {
+            val c = Math.toRadians(courseDeg)
+            vEast = speedMps * sin(c)
+            vNorth = speedMps * cos(c)
+            hasVelocity = true
+        } else if (!lastLat.isNaN() && timeMs > lastTime) {
+            val dt = (timeMs - lastTime) / 1000.0
+            if (dt < MIN_VELOCITY_DT_S) {
+                // Aynı epoch'un ikinci cümlesi (GGA/RMC): hız türetmek için çok kısa
+            } else if (dt <= MAX_VELOCITY_GAP_S) {
+                val ve = Math.toRadians(lon - lastLon) * EARTH_RADIUS * cos(Math.toRadians(lat)) / dt
+                val vn = Math.toRadians(lat - lastLat) * EARTH_RADIUS / dt
+                if (hasVelocity) {
+                    vEast += smoothing * (ve - vEast)
+                    vNorth += smoothing * (vn - vNorth)
+                } else {
+                    vEast = ve; vNorth = vn
+                }
+                hasVelocity = true
+            } else {
+                // Uzun kesinti: eski hız artık geçerli değil
+                vEast = 0.0; vNorth = 0.0; hasVelocity = false
+            }
+        }
+        lastTime = timeMs
+        lastLat = lat
+        lastLon = lon
+    }
+
+    /** [nowMs] anı için görüntülenecek konum; fix yoksa null. */
+    @Synchronized
+    fun predict(nowMs: Long): Predicted? {
+        if (lastLat.isNaN()) return null
+        if (!isMoving) return Predicted(lastLat, lastLon, false)
+        val dt = (nowMs - lastTime).coerceIn(0L, maxHorizonMs) / 1000.0
+        if (dt == 0.0) return Predicted(lastLat, lastLon, false)
+        val dLat = Math.toDegrees(vNorth * dt / EARTH_RADIUS)
+        val dLon = Math.toDegrees(vEast * dt / (EARTH_RADIUS * cos(Math.toRadians(lastLat)).coerceAtLeast(1e-6)))
+        return Predicted(lastLat + dLat, lastLon + dLon, true)
+    }
+
+    @Synchronized
+    fun reset() {
+        lastTime = 0L; lastLat = Double.NaN; lastLon = Double.NaN
+        vEast = 0.0; vNorth = 0.0; hasVelocity = false
+    }
+
+    companion object {
+        const val DEFAULT_MAX_HORIZON_MS = 1_000L
+        const val DEFAULT_STATIONARY_SPEED_MPS = 0.2
+        const val DEFAULT_SMOOTHING = 0.5
+        const val DISPLAY_FRAME_MS = 33L
+        private const val MIN_VELOCITY_DT_S = 0.05
+        private const val MAX_VELOCITY_GAP_S = 5.0
+        private const val EARTH_RADIUS = 6_371_000.0
+    }
+}
+
+/**
+ * Ham gözlem akışını görüntüleme akışına çevirir: her ham epoch aynen iletilir,
+ * alıcı hareket halindeyken epoch'lar arasında [frameMs] aralıklarla öngörülen kopyalar yayınlanır
+ * (`predicted = true`, `epochMillis` ham epoch'un zamanı olarak kalır).
+ */
+fun Flow<GnssObservation?>.extrapolatedForDisplay(
+    predictor: PositionPredictor = PositionPredictor(),
+    frameMs: Long = PositionPredictor.DISPLAY_FRAME_MS,
+    clock: () -> Long = System::currentTimeMillis
+): Flow<GnssObservation?> = channelFlow {
+    val latest = AtomicReference<GnssObservation?>(null)
+    launch {
+        collect { obs ->
+            val lat = obs?.latDeg
+            val lon = obs?.lonDeg
+            if (lat != null && lon != null) predictor.update(obs.epochMillis, lat, lon, obs.speedMps, obs.courseDeg) else predictor.reset()
+            latest.set(obs)
+            send(obs)
+        }
+    }
+    launch {
+        while (isActive) {
+            delay(frameMs)
+            val obs = latest.get() ?: continue
+            if (!predictor.isMoving) continue
+            val p = predictor.predict(clock()) ?: continue
+            if (p.extrapolated) send(obs.copy(latDeg = p.lat, lonDeg = p.lon, predicted = true))
+        }
+    }
+}
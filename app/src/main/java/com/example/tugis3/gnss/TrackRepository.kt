@@ -15,7 +15,7 @@ import java.util.TimeZone
 
 /** Basit hafif track (iz) kaydı yöneticisi. */
 object TrackRepository {
-    data class TrackPoint(val lat: Double, val lon: Double, val time: Long, val fixType: FixType?)
+    data class TrackPoint(val lat: Double, val lon: Double, val time: Long, val fixType: FixType?, val alt: Double? = null)
     private const val BASE_MIN_DISTANCE_SMALL = 0.05
     private const val LARGE_TRACK_MIN_DISTANCE = 0.2
 
@@ -26,36 +26,20 @@ object TrackRepository {
     private val _recording = MutableStateFlow(false)
     val recording: StateFlow<Boolean> = _recording.asStateFlow()
 
-    private val _totalDistance = MutableStateFlow(0.0)
-    val totalDistance: StateFlow<Double> = _totalDistance.asStateFlow()
-
-    private val _rtkFixDistance = MutableStateFlow(0.0)
-    val rtkFixDistance: StateFlow<Double> = _rtkFixDistance.asStateFlow()
-
-    private val _rtkFloatDistance = MutableStateFlow(0.0)
-    val rtkFloatDistance: StateFlow<Double> = _rtkFloatDistance.asStateFlow()
+    // Tüm istatistikler tek snapshot olarak yayınlanır (mesafe/süre/hız tutarlı okunur)
+    private val accumulator = TrackStatsAccumulator()
+    private val _stats = MutableStateFlow(TrackStats.EMPTY)
+    val stats: StateFlow<TrackStats> = _stats.asStateFlow()
 
     private val _exportSuggestion = MutableStateFlow(false)
     val exportSuggestion: StateFlow<Boolean> = _exportSuggestion.asStateFlow()
 
-    private val _startTime = MutableStateFlow<Long?>(null)
-    val startTime: StateFlow<Long?> = _startTime.asStateFlow()
     private val _endTime = MutableStateFlow<Long?>(null)
     val endTime: StateFlow<Long?> = _endTime.asStateFlow()
 
-    private val _durationMillis = MutableStateFlow<Long?>(null)
-    val durationMillis: StateFlow<Long?> = _durationMillis.asStateFlow()
-
     private val isoFmt = SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.US).apply { timeZone = TimeZone.getTimeZone("UTC") }
     private fun iso(ms: Long?): String = ms?.let { isoFmt.format(Date(it)) } ?: ""
 
-    private fun updateDuration() {
-        val st = _startTime.value
-        val et = _endTime.value ?: _points.value.lastOrNull()?.time
-        val dur = if (st != null && et != null && et >= st) et - st else null
-        _durationMillis.value = dur
-    }
-
     fun consumeExportSuggestion() { _exportSuggestion.value = false }
 
     fun setRecording(enabled: Boolean) {
@@ -63,58 +47,60 @@ object TrackRepository {
         _recording.value = enabled
         if (!prev && enabled) {
             // yeni kayıt
-            _startTime.value = null
             _endTime.value = null
-            _durationMillis.value = null
         }
         if (prev && !enabled && _points.value.isNotEmpty()) {
             _endTime.value = _points.value.last().time
-            updateDuration()
             _exportSuggestion.value = true
         }
     }
 
-    suspend fun addPoint(lat: Double, lon: Double, fix: FixType?, time: Long = System.currentTimeMillis()) {
+    suspend fun addPoint(lat: Double, lon: Double, fix: FixType?, time: Long = System.currentTimeMillis(), alt: Double? = null) {
         if (!_recording.value) return
         mutex.withLock {
             val current = _points.value
             val last = current.lastOrNull()
-            val minDist = if (current.size >= 100_000) LARGE_TRACK_MIN_DISTANCE else BASE_MIN_DISTANCE_SMALL
+            val minDist = minDistanceForSize(current.size)
             var distInc = 0.0
             if (last != null) {
                 val d = haversineMeters(last.lat, last.lon, lat, lon)
                 if (d < minDist) return
                 distInc = d
             }
-            _points.value = current + TrackPoint(lat, lon, time, fix)
-            if (_startTime.value == null) _startTime.value = time
-            _totalDistance.value = _totalDistance.value + distInc
-            if (fix == FixType.RTK_FIX) _rtkFixDistance.value = _rtkFixDistance.value + distInc
-            if (fix == FixType.RTK_FLOAT) _rtkFloatDistance.value = _rtkFloatDistance.value + distInc
-            updateDuration()
+            _points.value = current + TrackPoint(lat, lon, time, fix, alt)
+            accumulator.add(time, fix, alt, distInc)
+            _stats.value = accumulator.snapshot()
         }
     }
 
-    suspend fun clear() { mutex.withLock { _points.value = emptyList(); _totalDistance.value = 0.0; _rtkFixDistance.value = 0.0; _rtkFloatDistance.value = 0.0; _exportSuggestion.value = false; _startTime.value = null; _endTime.value = null; _durationMillis.value = null } }
+    suspend fun clear() {
+        mutex.withLock {
+            _points.value = emptyList()
+            accumulator.reset()
+            _stats.value = TrackStats.EMPTY
+            _exportSuggestion.value = false
+            _endTime.value = null
+        }
+    }
 
     private fun ts(): String = SimpleDateFormat("yyyyMMdd_HHmmss", Locale.US).format(Date())
 
     private fun dir(context: Context): File = (context.getExternalFilesDir("track") ?: context.filesDir).apply { if (!exists()) mkdirs() }
 
-    fun minDistanceForSize(size: Int): Double = if (size >= 100_000) 0.2 else 0.05
+    fun minDistanceForSize(size: Int): Double = if (size >= 100_000) LARGE_TRACK_MIN_DISTANCE else BASE_MIN_DISTANCE_SMALL
 
     fun exportGpx(context: Context, simplifyScale: Double? = null): Result<File> = runCatching {
         val snapshot = _points.value
         require(snapshot.isNotEmpty()) { "Kayıt yok" }
         val file = File(dir(context), "track_${ts()}.gpx")
-        val total = _totalDistance.value
-        val rtk = _rtkFixDistance.value
-        val floatDist = _rtkFloatDistance.value
-        val dur = (_durationMillis.value ?: 0L)
-        val st = _startTime.value
-        val et = _endTime.value ?: snapshot.lastOrNull()?.time
-        val durSec = if (dur > 0) dur / 1000.0 else 0.0
-        val avgMps = if (durSec > 0) total / durSec else 0.0
+        val stats = _stats.value
+        val total = stats.totalDistance
+        val rtk = stats.rtkFixDistance
+        val floatDist = stats.rtkFloatDistance
+        val dur = (stats.durationMillis ?: 0L)
+        val st = stats.startTime
+        val et = _endTime.value ?: stats.lastTime
+        val avgMps = stats.averageSpeedMps
         val avgKmh = avgMps * 3.6
         val stIso = iso(st)
         val etIso = iso(et)
@@ -134,6 +120,14 @@ object TrackRepository {
             out.appendLine("      <endTime>${etIso}</endTime>")
             out.appendLine("      <averageSpeedMps>${avgMps}</averageSpeedMps>")
             out.appendLine("      <averageSpeedKmh>${avgKmh}</averageSpeedKmh>")
+            out.appendLine("      <movingMillis>${stats.movingMillis}</movingMillis>")
+            out.appendLine("      <stoppedMillis>${stats.stoppedMillis}</stoppedMillis>")
+            out.appendLine("      <speedP50Mps>${stats.speedP50Mps}</speedP50Mps>")
+            out.appendLine("      <speedP95Mps>${stats.speedP95Mps}</speedP95Mps>")
+            out.appendLine("      <maxSpeedMps>${stats.maxSpeedMps}</maxSpeedMps>")
+            out.appendLine("      <elevationGainMeters>${stats.elevationGain}</elevationGainMeters>")
+            out.appendLine("      <elevationLossMeters>${stats.elevationLoss}</elevationLossMeters>")
+            out.appendLine("      <fixSegmentCount>${stats.fixSegmentCount}</fixSegmentCount>")
             out.appendLine("      <minDistanceMeters>${minDistUsed}</minDistanceMeters>")
             out.appendLine("      <simplifyScale>${scaleVal}</simplifyScale>")
             out.appendLine("    </extensions>")
@@ -141,7 +135,8 @@ object TrackRepository {
             out.appendLine("  <trk><name>Track ${ts()}</name><trkseg>")
             snapshot.forEach { p ->
                 val isoTime = iso(p.time)
-                out.appendLine("    <trkpt lat=\"${p.lat}\" lon=\"${p.lon}\"><time>${isoTime}</time><extensions><fixType>${p.fixType?.name ?: ""}</fixType></extensions></trkpt>")
+                val ele = p.alt?.let { "<ele>${it}</ele>" } ?: ""
+                out.appendLine("    <trkpt lat=\"${p.lat}\" lon=\"${p.lon}\">${ele}<time>${isoTime}</time><extensions><fixType>${p.fixType?.name ?: ""}</fixType></extensions></trkpt>")
             }
             out.appendLine("  </trkseg></trk>")
             out.appendLine("</gpx>")
@@ -166,18 +161,18 @@ object TrackRepository {
         val gpx = exportGpx(context, simplifyScale).getOrThrow()
         val csv = exportCsv(context).getOrThrow()
         val zipFile = File(dir(context), "track_${ts()}.zip")
-        val total = _totalDistance.value
-        val rtk = _rtkFixDistance.value
-        val floatDist = _rtkFloatDistance.value
-        val dur = (_durationMillis.value ?: 0L)
-        val st = _startTime.value
-        val et = _endTime.value ?: _points.value.lastOrNull()?.time
-        val durSec = if (dur > 0) dur / 1000.0 else 0.0
-        val avgMps = if (durSec > 0) total / durSec else 0.0
+        val stats = _stats.value
+        val total = stats.totalDistance
+        val rtk = stats.rtkFixDistance
+        val floatDist = stats.rtkFloatDistance
+        val dur = (stats.durationMillis ?: 0L)
+        val st = stats.startTime
+        val et = _endTime.value ?: stats.lastTime
+        val avgMps = stats.averageSpeedMps
         val avgKmh = avgMps * 3.6
         val stIso = iso(st)
         val etIso = iso(et)
-        val minDistUsed = minDistanceForSize(_points.value.size)
+        val minDistUsed = minDistanceForSize(stats.pointCount)
         val scaleVal = simplifyScale ?: 1.0
         fun fmtDur(ms: Long): String {
             val s = ms / 1000
@@ -192,19 +187,29 @@ object TrackRepository {
             appendLine("Toplam Mesafe (m): ${"%.3f".format(Locale.US, total)}")
             appendLine("RTK FIX Mesafe (m): ${"%.3f".format(Locale.US, rtk)}")
             appendLine("RTK FLOAT Mesafe (m): ${"%.3f".format(Locale.US, floatDist)}")
-            appendLine("Nokta Sayısı: ${_points.value.size}")
+            appendLine("Nokta Sayısı: ${stats.pointCount}")
             appendLine("Süre (ms): ${dur}")
             appendLine("Süre (formatlı): ${fmtDur(dur)}")
             appendLine("Başlangıç: ${stIso}")
             appendLine("Bitiş: ${etIso}")
             appendLine("Ortalama Hız (m/s): ${"%.3f".format(Locale.US, avgMps)}")
             appendLine("Ortalama Hız (km/h): ${"%.3f".format(Locale.US, avgKmh)}")
+            appendLine("Hareketli Süre (formatlı): ${fmtDur(stats.movingMillis)}")
+            appendLine("Duraklama Süresi (formatlı): ${fmtDur(stats.stoppedMillis)}")
+            appendLine("Hareketli Ort. Hız (km/h): ${"%.3f".format(Locale.US, stats.movingSpeedMps * 3.6)}")
+            appendLine("Hız p50/p90/p95 (km/h): ${"%.2f".format(Locale.US, stats.speedP50Mps * 3.6)} / ${"%.2f".format(Locale.US, stats.speedP90Mps * 3.6)} / ${"%.2f".format(Locale.US, stats.speedP95Mps * 3.6)}")
+            appendLine("Maks. Hız (km/h): ${"%.2f".format(Locale.US, stats.maxSpeedMps * 3.6)}")
+            appendLine("Yükselti Kazancı/Kaybı (m): ${"%.2f".format(Locale.US, stats.elevationGain)} / ${"%.2f".format(Locale.US, stats.elevationLoss)}")
+            appendLine("Fix Segment Sayısı: ${stats.fixSegmentCount}")
             appendLine("Min Nokta Aralığı (m): ${minDistUsed}")
             appendLine("Simplify Ölçeği: ${scaleVal}")
             val rtkPerc = if (total>0) (rtk/total*100.0) else 0.0
             val floatPerc = if (total>0) (floatDist/total*100.0) else 0.0
             appendLine("RTK FIX Oran (%): ${"%.2f".format(Locale.US, rtkPerc)}")
             appendLine("RTK FLOAT Oran (%): ${"%.2f".format(Locale.US, floatPerc)}")
+            stats.distanceByFix.entries.sortedByDescending { it.key.accuracyLevel }.forEach { (fix, d) ->
+                appendLine("${fix.displayName} Mesafe (m): ${"%.3f".format(Locale.US, d)}")
+            }
             appendLine()
             appendLine("Dosyalar:")
             appendLine("- ${gpx.name}")
@@ -0,0 +1,207 @@
+package com.example.tugis3.gnss
+
+import com.example.tugis3.gnss.model.FixType
+import kotlin.math.abs
+
+/**
+ * Track kaydının anlık istatistik özeti (değişmez snapshot).
+ * Harita başlığı ve export README aynı nesneyi okur; liste üzerinden yeniden hesap yapılmaz.
+ */
+data class TrackStats(
+    val pointCount: Int = 0,
+    val totalDistance: Double = 0.0,
+    val distanceByFix: Map<FixType, Double> = emptyMap(),
+    val startTime: Long? = null,
+    val lastTime: Long? = null,
+    val movingMillis: Long = 0L,
+    val stoppedMillis: Long = 0L,
+    val maxSpeedMps: Double = 0.0,
+    val speedP50Mps: Double = 0.0,
+    val speedP90Mps: Double = 0.0,
+    val speedP95Mps: Double = 0.0,
+    val elevationGain: Double = 0.0,
+    val elevationLoss: Double = 0.0,
+    val fixSegmentCount: Int = 0
+) {
+    val rtkFixDistance: Double get() = distanceByFix[FixType.RTK_FIX] ?: 0.0
+    val rtkFloatDistance: Double get() = distanceByFix[FixType.RTK_FLOAT] ?: 0.0
+
+    val durationMillis: Long? get() {
+        val st = startTime ?: return null
+        val et = lastTime ?: return null
+        return if (et >= st) et - st else null
+    }
+
+    /** Toplam süre üzerinden ortalama hız (m/s). */
+    val averageSpeedMps: Double get() {
+        val dur = durationMillis ?: 0L
+        return if (dur > 0) totalDistance / (dur / 1000.0) else 0.0
+    }
+
+    /** Yalnız hareketli süre üzerinden ortalama hız (m/s). */
+    val movingSpeedMps: Double get() = if (movingMillis > 0) totalDistance / (movingMillis / 1000.0) else 0.0
+
+    companion object { val EMPTY = TrackStats() }
+}
+
+/**
+ * Nokta başına O(1) güncellenen track istatistik biriktiricisi.
+ * Thread-safe değildir; TrackRepository mutex'i altında kullanılır.
+ */
+class TrackStatsAccumulator(
+    private val movingSpeedThreshold: Double = MOVING_SPEED_MPS,
+    private val elevationHysteresis: Double = ELEVATION_HYSTERESIS_M
+) {
+    private val fixTypes = FixType.values()
+    private val distByFix = DoubleArray(fixTypes.size)
+    private var unknownFixDistance = 0.0
+    private var count = 0
+    private var total = 0.0
+    private var startTime: Long? = null
+    private var lastTime: Long? = null
+    private var lastFix: FixType? = null
+    private var segments = 0
+    private var moving = 0L
+    private var stopped = 0L
+    private var maxSpeed = 0.0
+    private val p50 = P2Quantile(0.50)
+    private val p90 = P2Quantile(0.90)
+    private val p95 = P2Quantile(0.95)
+    private var elevRef: Double? = null
+    private var gain = 0.0
+    private var loss = 0.0
+
+    /**
+     * Yeni noktayı ekler. [distFromPrev] bir önceki kabul edilen noktadan olan mesafedir
+     * (ilk noktada 0). Mesafe, yeni noktanın fix tipine yazılır.
+     */
+    fun add(time: Long, fix: FixType?, alt: Double?, distFromPrev: Double) {
+        val prevTime = lastTime
+        if (count == 0 || fix != lastFix) segments++
+        count++
+        if (startTime == null) startTime = time
+        lastTime = time
+        lastFix = fix
+        total += distFromPrev
+        if (fix != null) distByFix[fix.ordinal] += distFromPrev else unknownFixDistance += distFromPrev
+
+        if (prevTime != null) {
+            val dt = time - prevTime
+            if (dt > 0) {
+                val speed = distFromPrev / (dt / 1000.0)
+                if (speed >= movingSpeedThreshold) moving += dt else stopped += dt
+                if (speed > maxSpeed) maxSpeed = speed
+                p50.add(speed); p90.add(speed); p95.add(speed)
+            }
+        }
+
+        if (alt != null && !alt.isNaN()) {
+            val ref = elevRef
+            if (ref == null) {
+                elevRef = alt
+            } else {
+                val dh = alt - ref
+                // Gürültüyü biriktirmemek için histerezis: eşik aşılınca referans güncellenir
+                if (abs(dh) >= elevationHysteresis) {
+                    if (dh > 0) gain += dh else loss -= dh
+                    elevRef = alt
+                }
+            }
+        }
+    }
+
+    fun reset() {
+        distByFix.fill(0.0)
+        unknownFixDistance = 0.0
+        count = 0; total = 0.0
+        startTime = null; lastTime = null; lastFix = null
+        segments = 0; moving = 0L; stopped = 0L; maxSpeed = 0.0
+        p50.reset(); p90.reset(); p95.reset()
+        elevRef = null; gain = 0.0; loss = 0.0
+    }
+
+    fun snapshot(): TrackStats {
+        val byFix = HashMap<FixType, Double>(fixTypes.size)
+        for (i in fixTypes.indices) if (distByFix[i] > 0.0) byFix[fixTypes[i]] = distByFix[i]
+        return TrackStats(
+            pointCount = count,
+            totalDistance = total,
+            distanceByFix = byFix,
+            startTime = startTime,
+            lastTime = lastTime,
+            movingMillis = moving,
+            stoppedMillis = stopped,
+            maxSpeedMps = maxSpeed,
+            speedP50Mps = p50.value(),
+            speedP90Mps = p90.value(),
+            speedP95Mps = p95.value(),
+            elevationGain = gain,
+            elevationLoss = loss,
+            fixSegmentCount = segments
+        )
+    }
+
+    companion object {
+        const val MOVING_SPEED_MPS = 0.3
+        const val ELEVATION_HYSTERESIS_M = 0.5
+    }
+}
+
+/**
+ * P² (Jain & Chlamtac) akış kantil tahmincisi: 5 işaretçi, O(1) bellek ve güncelleme.
+ * İlk 5 örnekte kesin değer döner.
+ */
+class P2Quantile(private val p: Double) {
+    private val q = DoubleArray(5)
+    private val n = IntArray(5)
+    private val desired = DoubleArray(5)
+    private val inc = doubleArrayOf(0.0, p / 2, p, (1 + p) / 2, 1.0)
+    private var count = 0
+
+    fun add(x: Double) {
+        if (count < 5) {
+            q[count++] = x
+            if (count == 5) {
+                q.sort()
+                for (i in 0 until 5) n[i] = i + 1
+                desired[0] = 1.0; desired[1] = 1 + 2 * p; desired[2] = 1 + 4 * p; desired[3] = 3 + 2 * p; desired[4] = 5.0
+            }
+            return
+        }
+        val k = when {
+            x < q[0] -> { q[0] = x; 0 }
+            x >= q[4] -> { q[4] = x; 3 }
+            else -> { var i = 1; while (x >= q[i]) i++; i - 1 }
+        }
+        for (i in k + 1 until 5) n[i]++
+        for (i in 0 until 5) desired[i] += inc[i]
+        for (i in 1..3) {
+            val d = desired[i] - n[i]
+            if ((d >= 1 && n[i + 1] - n[i] > 1) || (d <= -1 && n[i - 1] - n[i] < -1)) {
+                val s = if (d > 0) 1 else -1
+                val qp = parabolic(i, s)
+                q[i] = if (q[i - 1] < qp && qp < q[i + 1]) qp else linear(i, s)
+                n[i] += s
+            }
+        }
+        count++
+    }
+
+    private fun parabolic(i: Int, s: Int): Double =
+        q[i] + s.toDouble() / (n[i + 1] - n[i - 1]) *
+            ((n[i] - n[i - 1] + s) * (q[i + 1] - q[i]) / (n[i + 1] - n[i]) +
+                (n[i + 1] - n[i] - s) * (q[i] - q[i - 1]) / (n[i] - n[i - 1]))
+
+    private fun linear(i: Int, s: Int): Double = q[i] + s * (q[i + s] - q[i]) / (n[i + s] - n[i])
+
+    fun value(): Double {
+        if (count == 0) return 0.0
+        if (count < 5) {
+            val sorted = q.copyOf(count).apply { sort() }
+            return sorted[Math.round((count - 1) * p).toInt()]
+        }
+        return q[2]
+    }
+
+    fun reset() { count = 0 }
+}
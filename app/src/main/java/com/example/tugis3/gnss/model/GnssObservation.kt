@@ -14,6 +14,10 @@ data class GnssObservation(
     val pdop: Double? = null,
     val hdop: Double? = null,
     val vdop: Double? = null,
+    val speedMps: Double? = null,
+    val courseDeg: Double? = null,
+    /** true ise konum görüntüleme için ileri kestirilmiştir; kayıtta kullanılmaz. */
+    val predicted: Boolean = false,
     val rawNmea: String? = null
 )
 
@@ -19,6 +19,8 @@ class NmeaParser {
         val vdop: Double? = null,
         val pdop: Double? = null,
         val fixType: FixType? = null,
+        val speedMps: Double? = null,
+        val courseDeg: Double? = null,
         val raw: String
     )
 
@@ -69,9 +71,14 @@ class NmeaParser {
         }
         val lat = dmToDeg(f.getOrNull(3), f.getOrNull(4))
         val lon = dmToDeg(f.getOrNull(5), f.getOrNull(6))
+        // SOG knot cinsinden; COG gerçek kuzeye göre derece (durağanken boş olabilir)
+        val speed = f.getOrNull(7)?.toDoubleOrNull()?.let { it * KNOT_TO_MPS }
+        val course = f.getOrNull(8)?.toDoubleOrNull()
         return Parsed(
             latDeg = lat,
             lonDeg = lon,
+            speedMps = speed,
+            courseDeg = course,
             raw = raw,
             // RMC kendi başına fix tipini ayırt etmez – SINGLE varsay.
             fixType = FixType.SINGLE
@@ -151,4 +158,8 @@ class NmeaParser {
         val hex = cs.toString(16).uppercase().padStart(2, '0')
         return hex == provided.uppercase()
     }
+
+    private companion object {
+        const val KNOT_TO_MPS = 0.514444
+    }
 }
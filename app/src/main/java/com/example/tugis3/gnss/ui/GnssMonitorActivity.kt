@@ -93,6 +93,7 @@ private fun GnssMonitorScreen(vm: GnssMonitorViewModel = hiltViewModel()) {
     var nmeaLogging by remember { mutableStateOf(NmeaLogConfig.enabled) }
     val satellites by vm.satellites.collectAsState()
     val nmeaCount by vm.nmeaLineCount.collectAsState()
+    val orthoHeight by vm.orthoHeight.collectAsState()
 
     LaunchedEffect(Unit) {
         vm.uiEvents.collect { e ->
@@ -219,7 +220,7 @@ private fun GnssMonitorScreen(vm: GnssMonitorViewModel = hiltViewModel()) {
                 val ageSec = remember(obs?.epochMillis) { ((System.currentTimeMillis() - (obs?.epochMillis ?: 0)) / 1000.0) }
                 val stale = ageSec > 5.0
                 GnssObservationCard(obs!!.fixType, obs!!.latDeg, obs!!.lonDeg, obs!!.ellipsoidalHeight,
-                    obs!!.satellitesInUse, obs!!.satellitesVisible, obs!!.hrms, obs!!.vrms, ageSec, stale)
+                    obs!!.satellitesInUse, obs!!.satellitesVisible, obs!!.hrms, obs!!.vrms, ageSec, stale, orthoHeight)
             }
             // SKY PLOT + SNR Bars
             if (satellites.isNotEmpty()) {
@@ -275,7 +276,8 @@ private fun GnssObservationCard(
     hrms: Double?,
     vrms: Double?,
     ageSec: Double = 0.0,
-    stale: Boolean = false
+    stale: Boolean = false,
+    orthoHeight: Double? = null
 ) {
     val containerColor = when (fix) {
         FixType.NO_FIX -> MaterialTheme.colorScheme.errorContainer
@@ -301,6 +303,7 @@ private fun GnssObservationCard(
         Text("Enlem: " + (lat?.let { String.format(Locale.US, "%.8f", it) } ?: "-"))
         Text("Boylam: " + (lon?.let { String.format(Locale.US, "%.8f", it) } ?: "-"))
         Text("Elipsoit Yükseklik: " + (h?.let { String.format(Locale.US, "%.3f m", it) } ?: "-"))
+        orthoHeight?.let { Text("Ortometrik Yükseklik: " + String.format(Locale.US, "%.3f m", it)) }
         Text("Uydu (Kullanılan/Görülen): $used/$vis")
         Text(
             "HRMS: " + (hrms?.let { String.format(Locale.US, "%.2f m", it) } ?: "-") +
@@ -6,7 +6,9 @@ import com.example.tugis3.data.db.entity.PointEntity
 import com.example.tugis3.data.repository.PointRepository
 import com.example.tugis3.data.repository.ProjectRepository
 import com.example.tugis3.gnss.GnssEngine
+import com.example.tugis3.gnss.GnssPipeline
 import com.example.tugis3.gnss.model.GnssObservation
+import com.example.tugis3.coord.geoid.GeoidService
 import com.example.tugis3.coord.transform.ProjectionEngine
 import dagger.hilt.android.lifecycle.HiltViewModel
 import kotlinx.coroutines.flow.*
@@ -16,8 +18,10 @@ import javax.inject.Inject
 @HiltViewModel
 class GnssMonitorViewModel @Inject constructor(
     private val engine: GnssEngine,
+    private val gnssPipeline: GnssPipeline,
     private val projectRepo: ProjectRepository,
-    private val pointRepo: PointRepository
+    private val pointRepo: PointRepository,
+    private val geoid: GeoidService
 ) : ViewModel() {
 
     sealed class UiEvent { data class Saved(val pointName: String): UiEvent(); data class Error(val message: String): UiEvent() }
@@ -30,6 +34,11 @@ class GnssMonitorViewModel @Inject constructor(
     val observation: StateFlow<GnssObservation?> = engine.observation
         .stateIn(viewModelScope, SharingStarted.WhileSubscribed(5_000), null)
 
+    /** Epoch başına ortometrik yükseklik (H = h - N); geoit yoksa null. */
+    val orthoHeight: StateFlow<Double?> = observation
+        .map { obs -> obs?.let { geoid.orthometricHeight(it.latDeg, it.lonDeg, it.ellipsoidalHeight) } }
+        .stateIn(viewModelScope, SharingStarted.WhileSubscribed(5_000), null)
+
     val projects = projectRepo.observeProjects()
         .stateIn(viewModelScope, SharingStarted.WhileSubscribed(5_000), emptyList())
 
@@ -74,6 +83,7 @@ class GnssMonitorViewModel @Inject constructor(
         .stateIn(viewModelScope, SharingStarted.WhileSubscribed(5_000), 0L)
 
     init {
+        viewModelScope.launch { geoid.refresh() }
         // Observation akışını dinleyip fix istatistiklerini güncelle
         viewModelScope.launch {
             observation.collect { obs ->
@@ -87,8 +97,8 @@ class GnssMonitorViewModel @Inject constructor(
 
     fun setActiveProject(id: Long) = viewModelScope.launch { projectRepo.setActive(id) }
 
-    fun start() = engine.start()
-    fun stop() = engine.stop()
+    fun start() = gnssPipeline.acquire(this)
+    fun stop() = gnssPipeline.release(this)
 
     fun createAndActivateProject(name: String, description: String?) = viewModelScope.launch {
         projectRepo.createProject(name, description, activate = true)
@@ -100,6 +110,7 @@ class GnssMonitorViewModel @Inject constructor(
         val lat = obs.latDeg ?: run { _uiEvents.tryEmit(UiEvent.Error("Konum çözülmedi (lat)")); return@launch }
         val lon = obs.lonDeg ?: run { _uiEvents.tryEmit(UiEvent.Error("Konum çözülmedi (lon)")); return@launch }
         runCatching {
+            geoid.refresh()
             val transformer = ProjectionEngine.forProject(proj)
             val (northing, easting) = transformer.forward(lat, lon)
             val name = "P" + System.currentTimeMillis().toString().takeLast(6)
@@ -110,7 +121,7 @@ class GnssMonitorViewModel @Inject constructor(
                     northing = northing,
                     easting = easting,
                     ellipsoidalHeight = obs.ellipsoidalHeight,
-                    orthoHeight = null, // TODO: Geoid hesaplanınca doldur
+                    orthoHeight = geoid.orthometricHeight(lat, lon, obs.ellipsoidalHeight),
                     latDeg = obs.latDeg,
                     lonDeg = obs.lonDeg,
                     fixType = obs.fixType.name,
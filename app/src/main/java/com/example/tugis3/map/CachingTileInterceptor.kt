@@ -0,0 +1,72 @@
+package com.example.tugis3.map
+
+import android.content.Context
+import android.webkit.WebResourceRequest
+import android.webkit.WebResourceResponse
+import okhttp3.OkHttpClient
+import okhttp3.Request
+import java.io.ByteArrayInputStream
+import java.io.File
+import java.util.concurrent.TimeUnit
+
+/**
+ * WebView karo isteklerini [MbTilesCache] üzerinden karşılar.
+ * shouldInterceptRequest arka plan thread'inde çağrılır; ağ erişimi burada senkron yapılabilir.
+ * Leaflet js/css gibi statik kaynaklar da çevrimdışı açılış için dosya önbelleğinde tutulur.
+ */
+class CachingTileInterceptor(
+    context: Context,
+    private val cache: MbTilesCache = MbTilesCache.getInstance(context)
+) {
+    private val staticDir = File(context.applicationContext.cacheDir, "webres").apply { mkdirs() }
+
+    private val http = OkHttpClient.Builder()
+        .connectTimeout(10, TimeUnit.SECONDS)
+        .readTimeout(15, TimeUnit.SECONDS)
+        .build()
+
+    fun intercept(request: WebResourceRequest): WebResourceResponse? {
+        if (request.method != "GET") return null
+        val url = request.url.toString()
+        TILE_URL.matchEntire(url)?.let { m ->
+            val (z, x, y) = m.destructured
+            val bytes = tile(z.toInt(), x.toInt(), y.toInt()) ?: return notFound()
+            return WebResourceResponse("image/png", null, ByteArrayInputStream(bytes))
+        }
+        if (STATIC_URL.matches(url)) {
+            val bytes = staticResource(url) ?: return null
+            val mime = if (url.endsWith(".css")) "text/css" else "application/javascript"
+            return WebResourceResponse(mime, "UTF-8", ByteArrayInputStream(bytes))
+        }
+        return null
+    }
+
+    /** Önce önbellek, sonra ağ; ağdan gelen karo önbelleğe yazılır. */
+    fun tile(z: Int, x: Int, y: Int): ByteArray? =
+        cache.get(z, x, y) ?: fetchTile(z, x, y)?.also { cache.put(z, x, y, it) }
+
+    private fun fetchTile(z: Int, x: Int, y: Int): ByteArray? {
+        val host = SUBDOMAINS[(x + y) % SUBDOMAINS.size]
+        return download("https://$host.tile.openstreetmap.org/$z/$x/$y.png")
+    }
+
+    private fun staticResource(url: String): ByteArray? {
+        val file = File(staticDir, url.hashCode().toUInt().toString(16) + "_" + url.substringAfterLast('/'))
+        if (file.exists()) return file.readBytes()
+        return download(url)?.also { bytes -> runCatching { file.writeBytes(bytes) } }
+    }
+
+    private fun download(url: String): ByteArray? = runCatching {
+        val req = Request.Builder().url(url).header("User-Agent", USER_AGENT).build()
+        http.newCall(req).execute().use { resp -> if (resp.isSuccessful) resp.body?.bytes() else null }
+    }.getOrNull()
+
+    private fun notFound() = WebResourceResponse("image/png", null, 404, "Not Found", emptyMap(), ByteArrayInputStream(ByteArray(0)))
+
+    companion object {
+        private val TILE_URL = Regex("^https://[abc]\\.tile\\.openstreetmap\\.org/(\\d+)/(\\d+)/(\\d+)\\.png$")
+        private val STATIC_URL = Regex("^https://unpkg\\.com/leaflet@[^/]+/dist/leaflet\\.(js|css)$")
+        private val SUBDOMAINS = arrayOf("a", "b", "c")
+        private const val USER_AGENT = "tugis3-android (offline basemap cache)"
+    }
+}
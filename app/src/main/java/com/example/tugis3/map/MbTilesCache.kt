@@ -0,0 +1,213 @@
+package com.example.tugis3.map
+
+import android.content.ContentValues
+import android.content.Context
+import android.database.sqlite.SQLiteDatabase
+import android.util.Log
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.flow.asStateFlow
+import java.io.File
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * MBTiles (SQLite) tabanlı yerel karo önbelleği.
+ *
+ * - `tiles` tablosu MBTiles şemasına uyar (TMS satır sırası); LRU için ek `last_access` / `size` sütunları tutulur.
+ * - Toplam boyut [maxBytes] bütçesini aşınca en eski erişilen karolar silinir.
+ * - Erişim zamanları her okumada yazılmaz; bellekte biriktirilip toplu güncellenir.
+ * - Toplu ön yükleme (seed) yoktur: OSM karo kullanım politikası toplu indirmeyi yasaklar,
+ *   önbellek yalnızca haritada gerçekten görüntülenen karolarla dolar.
+ */
+class MbTilesCache(
+    file: File,
+    @Volatile var maxBytes: Long = DEFAULT_MAX_BYTES,
+    private val clock: () -> Long = System::currentTimeMillis
+) {
+    data class Stats(
+        val hits: Long = 0,
+        val misses: Long = 0,
+        val bytesServed: Long = 0,
+        val storedBytes: Long = 0,
+        val tileCount: Long = 0,
+        val evictedTiles: Long = 0
+    ) {
+        val hitRatio: Double get() = if (hits + misses > 0) hits.toDouble() / (hits + misses) else 0.0
+    }
+
+    private val db: SQLiteDatabase = SQLiteDatabase.openOrCreateDatabase(file, null).apply {
+        enableWriteAheadLogging()
+        execSQL("CREATE TABLE IF NOT EXISTS metadata (name TEXT, value TEXT)")
+        execSQL(
+            "CREATE TABLE IF NOT EXISTS tiles (zoom_level INTEGER, tile_column INTEGER, tile_row INTEGER, " +
+                "tile_data BLOB, last_access INTEGER NOT NULL DEFAULT 0, size INTEGER NOT NULL DEFAULT 0)"
+        )
+        execSQL("CREATE UNIQUE INDEX IF NOT EXISTS tile_index ON tiles (zoom_level, tile_column, tile_row)")
+        execSQL("CREATE INDEX IF NOT EXISTS tile_lru ON tiles (last_access)")
+    }
+
+    private val hits = AtomicLong()
+    private val misses = AtomicLong()
+    private val bytesServed = AtomicLong()
+    private val evicted = AtomicLong()
+    private val storedBytes = AtomicLong()
+    private val tileCount = AtomicLong()
+    private val pendingTouches = ConcurrentHashMap<Long, Long>()
+    private val writeLock = Any()
+
+    private val _stats = MutableStateFlow(Stats())
+    val stats: StateFlow<Stats> = _stats.asStateFlow()
+
+    init {
+        db.rawQuery("SELECT COALESCE(SUM(size),0), COUNT(*) FROM tiles", null).use { c ->
+            if (c.moveToFirst()) { storedBytes.set(c.getLong(0)); tileCount.set(c.getLong(1)) }
+        }
+        if (queryMetadata("name") == null) {
+            writeMetadata("name", "tugis3-cache")
+            writeMetadata("format", "png")
+            writeMetadata("type", "baselayer")
+        }
+        publishStats()
+    }
+
+    /** XYZ koordinatlı karoyu döner; yoksa null (miss sayılır). */
+    fun get(z: Int, x: Int, y: Int): ByteArray? {
+        val row = TileMath.xyzToTmsRow(y, z)
+        val data = db.rawQuery(
+            "SELECT tile_data FROM tiles WHERE zoom_level=? AND tile_column=? AND tile_row=?",
+            arrayOf(z.toString(), x.toString(), row.toString())
+        ).use { c -> if (c.moveToFirst()) c.getBlob(0) else null }
+        if (data == null) {
+            misses.incrementAndGet()
+        } else {
+            hits.incrementAndGet()
+            bytesServed.addAndGet(data.size.toLong())
+            pendingTouches[key(z, x, row)] = clock()
+            if (pendingTouches.size >= TOUCH_FLUSH_THRESHOLD) flushTouches()
+        }
+        publishStats()
+        return data
+    }
+
+    fun contains(z: Int, x: Int, y: Int): Boolean =
+        db.rawQuery(
+            "SELECT 1 FROM tiles WHERE zoom_level=? AND tile_column=? AND tile_row=?",
+            arrayOf(z.toString(), x.toString(), TileMath.xyzToTmsRow(y, z).toString())
+        ).use { it.moveToFirst() }
+
+    fun put(z: Int, x: Int, y: Int, data: ByteArray) {
+        val row = TileMath.xyzToTmsRow(y, z)
+        synchronized(writeLock) {
+            val previous = db.rawQuery(
+                "SELECT size FROM tiles WHERE zoom_level=? AND tile_column=? AND tile_row=?",
+                arrayOf(z.toString(), x.toString(), row.toString())
+            ).use { c -> if (c.moveToFirst()) c.getLong(0) else -1L }
+            val cv = ContentValues(6).apply {
+                put("zoom_level", z); put("tile_column", x); put("tile_row", row)
+                put("tile_data", data); put("last_access", clock()); put("size", data.size)
+            }
+            db.insertWithOnConflict("tiles", null, cv, SQLiteDatabase.CONFLICT_REPLACE)
+            if (previous >= 0) storedBytes.addAndGet(data.size - previous)
+            else { storedBytes.addAndGet(data.size.toLong()); tileCount.incrementAndGet() }
+            if (storedBytes.get() > maxBytes) evictLocked()
+        }
+        publishStats()
+    }
+
+    /** Bütçenin %90'ına inene kadar en eski erişilen karoları siler. */
+    private fun evictLocked() {
+        flushTouches()
+        val target = (maxBytes * 0.9).toLong()
+        db.beginTransaction()
+        try {
+            while (storedBytes.get() > target) {
+                var freed = 0L
+                var removed = 0
+                db.rawQuery("SELECT rowid, size FROM tiles ORDER BY last_access ASC LIMIT ?", arrayOf(EVICT_BATCH.toString())).use { c ->
+                    while (c.moveToNext() && storedBytes.get() - freed > target) {
+                        db.delete("tiles", "rowid=?", arrayOf(c.getLong(0).toString()))
+                        freed += c.getLong(1)
+                        removed++
+                    }
+                }
+                if (removed == 0) break
+                storedBytes.addAndGet(-freed)
+                tileCount.addAndGet(-removed.toLong())
+                evicted.addAndGet(removed.toLong())
+            }
+            db.setTransactionSuccessful()
+        } finally {
+            db.endTransaction()
+        }
+    }
+
+    /**
+     * Bellekte biriken erişim zamanlarını tek transaction ile yazar.
+     * Yazma kilidi altında çalışır; aksi halde eş zamanlı [put] / tahliye transaction'ı ile çakışır.
+     */
+    fun flushTouches() {
+        if (pendingTouches.isEmpty()) return
+        synchronized(writeLock) {
+            val snapshot = HashMap(pendingTouches)
+            if (snapshot.isEmpty()) return
+            snapshot.forEach { (k, t) -> pendingTouches.remove(k, t) }
+            db.beginTransaction()
+            try {
+                val stmt = db.compileStatement("UPDATE tiles SET last_access=? WHERE zoom_level=? AND tile_column=? AND tile_row=?")
+                snapshot.forEach { (k, t) ->
+                    stmt.bindLong(1, t)
+                    stmt.bindLong(2, k ushr 58)
+                    stmt.bindLong(3, (k ushr 29) and COORD_MASK)
+                    stmt.bindLong(4, k and COORD_MASK)
+                    stmt.executeUpdateDelete()
+                }
+                db.setTransactionSuccessful()
+            } finally {
+                db.endTransaction()
+            }
+        }
+    }
+
+    fun clear() {
+        synchronized(writeLock) {
+            pendingTouches.clear()
+            db.delete("tiles", null, null)
+            storedBytes.set(0); tileCount.set(0)
+        }
+        publishStats()
+    }
+
+    fun close() {
+        runCatching { flushTouches() }.onFailure { Log.w(TAG, "touch flush failed", it) }
+        db.close()
+    }
+
+    private fun queryMetadata(name: String): String? =
+        db.rawQuery("SELECT value FROM metadata WHERE name=?", arrayOf(name)).use { if (it.moveToFirst()) it.getString(0) else null }
+
+    private fun writeMetadata(name: String, value: String) {
+        db.insert("metadata", null, ContentValues(2).apply { put("name", name); put("value", value) })
+    }
+
+    private fun publishStats() {
+        _stats.value = Stats(hits.get(), misses.get(), bytesServed.get(), storedBytes.get(), tileCount.get(), evicted.get())
+    }
+
+    private fun key(z: Int, x: Int, row: Int): Long = (z.toLong() shl 58) or (x.toLong() shl 29) or row.toLong()
+
+    companion object {
+        private const val TAG = "MbTilesCache"
+        const val DEFAULT_MAX_BYTES = 256L * 1024 * 1024
+        private const val TOUCH_FLUSH_THRESHOLD = 64
+        private const val EVICT_BATCH = 256
+        private const val COORD_MASK = (1L shl 29) - 1
+
+        @Volatile private var instance: MbTilesCache? = null
+
+        fun getInstance(context: Context): MbTilesCache =
+            instance ?: synchronized(this) {
+                instance ?: MbTilesCache(File(context.applicationContext.filesDir, "basemap_cache.mbtiles")).also { instance = it }
+            }
+    }
+}
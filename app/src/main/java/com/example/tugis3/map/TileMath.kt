@@ -0,0 +1,25 @@
+package com.example.tugis3.map
+
+import kotlin.math.PI
+import kotlin.math.floor
+import kotlin.math.ln
+import kotlin.math.tan
+
+/** Web Mercator (XYZ / slippy map) karo hesapları. */
+object TileMath {
+    const val MAX_LAT = 85.05112878
+
+    fun lonToTileX(lon: Double, zoom: Int): Int {
+        val n = 1 shl zoom
+        return floor((lon + 180.0) / 360.0 * n).toInt().coerceIn(0, n - 1)
+    }
+
+    fun latToTileY(lat: Double, zoom: Int): Int {
+        val n = 1 shl zoom
+        val r = Math.toRadians(lat.coerceIn(-MAX_LAT, MAX_LAT))
+        return floor((1.0 - ln(tan(r) + 1.0 / kotlin.math.cos(r)) / PI) / 2.0 * n).toInt().coerceIn(0, n - 1)
+    }
+
+    /** MBTiles TMS satırı (y ekseni ters). */
+    fun xyzToTmsRow(y: Int, zoom: Int): Int = (1 shl zoom) - 1 - y
+}
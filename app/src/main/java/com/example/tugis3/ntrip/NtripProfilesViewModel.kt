@@ -5,6 +5,7 @@ import androidx.lifecycle.viewModelScope
 import com.example.tugis3.data.repository.NtripProfileRepository
 import com.example.tugis3.data.db.entity.NtripProfileEntity
 import com.example.tugis3.gnss.GnssEngine
+import com.example.tugis3.gnss.GnssPipeline
 import com.example.tugis3.ntrip.NtripClient.Event
 import dagger.hilt.android.lifecycle.HiltViewModel
 import kotlinx.coroutines.flow.MutableStateFlow
@@ -19,7 +20,6 @@ import kotlin.system.measureTimeMillis
 import java.util.concurrent.atomic.AtomicLong
 import com.example.tugis3.data.repository.NtripSessionRepository
 import com.example.tugis3.data.db.entity.NtripSessionEntity
-import com.example.tugis3.gnss.model.FixType
 import kotlinx.coroutines.flow.combine
 import kotlinx.coroutines.delay
 import kotlinx.coroutines.Job
@@ -29,6 +29,7 @@ class NtripProfilesViewModel @Inject constructor(
     private val repo: NtripProfileRepository,
     private val client: NtripClient,
     private val gnssEngine: GnssEngine,
+    private val gnssPipeline: GnssPipeline,
     private val sessionRepo: NtripSessionRepository
 ) : ViewModel() {
 
@@ -47,7 +48,6 @@ class NtripProfilesViewModel @Inject constructor(
         .map { list -> list.map { it.toUi() } }
         .stateIn(viewModelScope, SharingStarted.WhileSubscribed(5000), emptyList())
 
-    private val nmeaBuffer = StringBuilder()
 
     private val _rtcmBytes = MutableStateFlow(0L)
     val rtcmBytes: StateFlow<Long> = _rtcmBytes
@@ -109,25 +109,8 @@ class NtripProfilesViewModel @Inject constructor(
                 }
             }
         }
-        // GNSS pozisyonunu NTRIP client'a besle
-        viewModelScope.launch {
-            gnssEngine.observation.collect { obs ->
-                obs?.let {
-                    val fixQ = when (it.fixType) {
-                        FixType.RTK_FIX -> 4
-                        FixType.RTK_FLOAT -> 5
-                        FixType.DGPS -> 2
-                        FixType.PPP -> 6
-                        FixType.SINGLE, FixType.NO_FIX, FixType.MANUAL -> 1
-                    }
-                    if (it.latDeg != null && it.lonDeg != null) {
-                        client.updatePosition(
-                            it.latDeg, it.lonDeg, it.ellipsoidalHeight, fixQ, it.satellitesInUse ?: 0
-                        )
-                    }
-                }
-            }
-        }
+        // Düzeltme/NMEA akışı ve konum beslemesi GnssPipeline'da; ekran açıkken hat ayakta kalsın
+        gnssPipeline.acquire(this)
         // Diff age ticker
         diffAgeJob = viewModelScope.launch {
             while (true) {
@@ -144,6 +127,7 @@ class NtripProfilesViewModel @Inject constructor(
 
     override fun onCleared() {
         diffAgeJob?.cancel()
+        gnssPipeline.release(this)
         super.onCleared()
     }
 
@@ -166,7 +150,6 @@ class NtripProfilesViewModel @Inject constructor(
             _rtcmBytes.value += raw.size
             _lastRtcmTimestamp.value = System.currentTimeMillis()
             accumulateRate(raw.size)
-            gnssEngine.applyCorrection(raw)
             correctionPackets++
             // RTCM Type kaba çıkarım: D3 | len hi | len lo | msg type bits
             if (raw.size > 3 && raw[0].toInt() and 0xFF == 0xD3) {
@@ -182,23 +165,9 @@ class NtripProfilesViewModel @Inject constructor(
             }
             return
         }
-        // Muhtemel çoklu NMEA chunk'ı içinde satır kırıkları olabilir
-        for (b in raw) {
-            val c = b.toInt() and 0xFF
-            if (c == 0x0A || c == 0x0D) {
-                if (nmeaBuffer.isNotEmpty()) {
-                    val line = nmeaBuffer.toString().trim()
-                    nmeaBuffer.clear()
-                    if (line.startsWith('$') && line.length > 6) {
-                        _nmeaBytes.value += line.length
-                        accumulateRate(line.length)
-                        gnssEngine.ingestNmea(line)
-                    }
-                }
-            } else if (c in 0x20..0x7E || c == '$'.code.toInt()) {
-                if (nmeaBuffer.length < 1500) nmeaBuffer.append(c.toChar()) else nmeaBuffer.clear()
-            }
-        }
+        // NMEA satırları GnssPipeline tarafından ayrıştırılır; burada yalnız istatistik
+        _nmeaBytes.value += raw.size
+        accumulateRate(raw.size)
     }
 
     private fun accumulateRate(added: Int) {
@@ -6,42 +6,80 @@ import android.app.PendingIntent
 import android.app.Service
 import android.content.Context
 import android.content.Intent
+import android.content.pm.ServiceInfo
 import android.os.Build
 import android.os.IBinder
 import android.util.Log
 import androidx.core.app.NotificationCompat
+import androidx.core.app.ServiceCompat
 import com.example.tugis3.R
 import com.example.tugis3.Tugis3Application
+import com.example.tugis3.gnss.GnssPipeline
 import com.example.tugis3.gnss.GnssPositionRepository
+import com.example.tugis3.gnss.model.FixType
 import com.example.tugis3.ui.map.MapActivity
+import dagger.hilt.android.AndroidEntryPoint
 import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.Job
-import kotlinx.coroutines.flow.collectLatest
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.flow.SharingStarted
+import kotlinx.coroutines.flow.combine
+import kotlinx.coroutines.flow.flow
+import kotlinx.coroutines.flow.stateIn
 import kotlinx.coroutines.launch
+import java.util.Locale
+import javax.inject.Inject
 
+/**
+ * GNSS hattının foreground servisi. Süreci ekran geçişlerinden bağımsız ayakta tutar;
+ * alım [GnssPipeline] içindeki thread'lerde yürür. Bildirim ve inaktivite denetimi [NOTIFY_INTERVAL_MS]'lik bir saatle yürür.
+ *
+ * - [ACTION_ATTACH]: hat tarafından başlatılır, servis hattı tutmaz (son abone gidince hat servisi durdurur).
+ * - [ACTION_START]: kullanıcı isteğiyle başlatılır, servis kendisi de abone olur ([ACTION_STOP] ile bırakır).
+ */
+@AndroidEntryPoint
 class GnssService : Service() {
 
     companion object {
         private const val TAG = "GnssService"
         private const val NOTIF_ID = 4101
         const val ACTION_START = "com.example.tugis3.action.GNSS_START"
+        const val ACTION_ATTACH = "com.example.tugis3.action.GNSS_ATTACH"
         const val ACTION_STOP = "com.example.tugis3.action.GNSS_STOP"
         private const val INACTIVITY_SECONDS = 180L
+        private const val NOTIFY_INTERVAL_MS = 1_000L
     }
 
+    @Inject lateinit var pipeline: GnssPipeline
+
     private val serviceJob = Job()
     private val scope = CoroutineScope(Dispatchers.Default + serviceJob)
     private var started = false
+    /** Yalnız [ACTION_START] modunda servis hattın abonesidir; [ACTION_ATTACH] modunda değil. */
+    @Volatile private var holdsPipeline = false
+
+    private data class NotifState(val fix: FixType?, val lat: Double?, val lon: Double?, val timestamp: Long)
 
     override fun onBind(intent: Intent?): IBinder? = null
 
     override fun onStartCommand(intent: Intent?, flags: Int, startId: Int): Int {
         when (intent?.action) {
             ACTION_STOP -> {
+                releasePipeline()
                 stopSelf(); return START_NOT_STICKY
             }
-            else -> startForegroundIfNeeded()
+            ACTION_START -> {
+                if (!startForegroundIfNeeded()) return START_NOT_STICKY
+                pipeline.acquire(this)
+                holdsPipeline = true
+            }
+            ACTION_ATTACH -> if (!startForegroundIfNeeded()) return START_NOT_STICKY
+            else -> {
+                // Sistem tarafından yeniden başlatıldı: hat çalışmıyorsa tutacak bir şey yok
+                if (!pipeline.running.value) { stopSelf(); return START_NOT_STICKY }
+                if (!startForegroundIfNeeded()) return START_NOT_STICKY
+            }
         }
         return START_STICKY
     }
@@ -51,25 +89,51 @@ class GnssService : Service() {
         Log.d(TAG, "GNSS Service created")
     }
 
-    private fun startForegroundIfNeeded() {
-        if (started) return
+    private fun startForegroundIfNeeded(): Boolean {
+        if (started) return true
+        val type = if (Build.VERSION.SDK_INT >= 29) ServiceInfo.FOREGROUND_SERVICE_TYPE_LOCATION else 0
+        val ok = runCatching { ServiceCompat.startForeground(this, NOTIF_ID, buildNotification("GNSS izleme başlıyor"), type) }
+            .onFailure { Log.w(TAG, "startForeground başarısız", it) }
+            .isSuccess
+        if (!ok) { stopSelf(); return false }
         started = true
-        startForeground(NOTIF_ID, buildNotification("GNSS izleme başlıyor"))
+        val nm = getSystemService(Context.NOTIFICATION_SERVICE) as NotificationManager
+        // Motor gözlemi ve harici (Bluetooth) konum akışından en yenisi
+        val latest = combine(pipeline.observation, GnssPositionRepository.position) { obs, pos ->
+            val obsTs = obs?.epochMillis ?: 0L
+            if (obs != null && obs.latDeg != null && obsTs >= pos.timestamp) NotifState(obs.fixType, obs.latDeg, obs.lonDeg, obsTs)
+            else NotifState(pos.fixType, pos.lat, pos.lon, pos.timestamp)
+        }.stateIn(scope, SharingStarted.Eagerly, null)
+        val startedAt = System.currentTimeMillis()
         scope.launch {
-            GnssPositionRepository.position.collectLatest { pos ->
-                val fixName = pos.fixType?.displayName ?: "Fix Yok"
-                val latStr = pos.lat?.let { String.format("%.6f", it) } ?: "--"
-                val lonStr = pos.lon?.let { String.format("%.6f", it) } ?: "--"
-                val age = (System.currentTimeMillis() - pos.timestamp) / 1000
-                val content = "$fixName | $latStr,$lonStr | ${age}s"
-                val nm = getSystemService(Context.NOTIFICATION_SERVICE) as NotificationManager
-                nm.notify(NOTIF_ID, buildNotification(content))
-                if (age > INACTIVITY_SECONDS) {
+            // Veri kesilse de yaş ve inaktivite her saniye yeniden değerlendirilir
+            var lastText: String? = null
+            flow { while (true) { emit(Unit); delay(NOTIFY_INTERVAL_MS) } }.collect {
+                val st = latest.value ?: return@collect
+                val fixName = st.fix?.displayName ?: "Fix Yok"
+                val latStr = st.lat?.let { String.format(Locale.US, "%.6f", it) } ?: "--"
+                val lonStr = st.lon?.let { String.format(Locale.US, "%.6f", it) } ?: "--"
+                val now = System.currentTimeMillis()
+                val age = (now - st.timestamp) / 1000
+                val text = "$fixName | $latStr,$lonStr | ${age}s"
+                if (text != lastText) { nm.notify(NOTIF_ID, buildNotification(text)); lastText = text }
+                // Hiç veri gelmediyse süre servisin başlangıcından sayılır
+                val idle = (now - maxOf(st.timestamp, startedAt)) / 1000
+                // Servisin kendi aboneliği dışında hattı tutan (ekran / ViewModel) varsa kapanılmaz
+                val others = pipeline.subscriberCount - if (holdsPipeline) 1 else 0
+                if (idle > INACTIVITY_SECONDS && others <= 0) {
                     Log.d(TAG, "İnaktif > $INACTIVITY_SECONDS sn, servis kapanıyor")
+                    releasePipeline()
                     stopSelf()
                 }
             }
         }
+        return true
+    }
+
+    private fun releasePipeline() {
+        holdsPipeline = false
+        pipeline.release(this)
     }
 
     private fun buildNotification(content: String): Notification {
@@ -91,7 +155,8 @@ class GnssService : Service() {
 
     override fun onDestroy() {
         super.onDestroy()
+        releasePipeline()
         serviceJob.cancel()
         Log.d(TAG, "GNSS Service destroyed")
     }
-}
\ No newline at end of file
+}
@@ -85,7 +85,7 @@ class CadApplicationActivity : ComponentActivity() {
             if (pu != null) {
                 LaunchedEffect(pu) {
                     viewModel.loadFromUri(contentResolver, pu)
-                    snackbar.showSnackbar("Dosya yüklendi: ${pu.lastPathSegment ?: "seçildi"}")
+                    snackbar.showSnackbar("Dosya yükleniyor: ${pu.lastPathSegment ?: "seçildi"}")
                     logScope.launch { runCatching { measurementLogRepository.log(null, null, "CAD_LOAD", pu.lastPathSegment) } }
                     pendingUri = null
                 }
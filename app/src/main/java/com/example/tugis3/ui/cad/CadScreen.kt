@@ -50,6 +50,8 @@ import com.example.tugis3.core.cad.model.CadText
 import com.example.tugis3.core.cad.model.Point
 import com.example.tugis3.core.cad.model.CadPolygon
 import com.example.tugis3.core.cad.model.CadPoint
+import com.example.tugis3.core.cad.model.CadInsert
+import com.example.tugis3.core.cad.model.PackedCoords
 import com.google.maps.android.compose.GoogleMap
 import com.google.maps.android.compose.Marker
 import com.google.maps.android.compose.Polyline
@@ -88,6 +90,7 @@ fun CadScreen(vm: CadViewModel, snackbarHost: SnackbarHostState) {
     val undoDepth by vm.undoDepth.collectAsState()
     val redoDepth by vm.redoDepth.collectAsState()
     val snapTolPx by vm.snapTolerancePx.collectAsState()
+    val importProgress by vm.importProgress.collectAsState()
     val scope = rememberCoroutineScope()
 
     val bounds = remember(entities) { computeBounds(entities) }
@@ -146,6 +149,20 @@ fun CadScreen(vm: CadViewModel, snackbarHost: SnackbarHostState) {
         ) {
             Column(Modifier.padding(8.dp)) {
                 Text(status, style = MaterialTheme.typography.bodySmall)
+                importProgress?.takeIf { it.running }?.let { ip ->
+                    Row(verticalAlignment = Alignment.CenterVertically) {
+                        Column(Modifier.weight(1f)) {
+                            if (ip.totalBytes > 0) LinearProgressIndicator(progress = { ip.fraction }, modifier = Modifier.fillMaxWidth())
+                            else LinearProgressIndicator(modifier = Modifier.fillMaxWidth())
+                            Text(
+                                "İçe aktarılıyor: ${ip.parsed} okundu, ${ip.saved} kaydedildi" +
+                                    if (ip.firstGeometryMs >= 0) " | ilk geometri ${ip.firstGeometryMs} ms" else "",
+                                style = MaterialTheme.typography.bodySmall
+                            )
+                        }
+                        TextButton(onClick = { vm.cancelImport() }) { Text("İptal") }
+                    }
+                }
                 if (picked.size >= 2) {
                     Text(
                         "Seçim: ${picked.size} nokta | Toplam mesafe: ${"%.3f".format(vm.totalDistance())}",
@@ -321,6 +338,11 @@ fun CadScreen(vm: CadViewModel, snackbarHost: SnackbarHostState) {
                                 val ll = vm.localToLatLon(e.position.x, e.position.y)
                                 if (ll!=null) Marker(state = com.google.maps.android.compose.rememberMarkerState(position = LatLng(ll.first,ll.second)), title = "P", alpha = if (isSelected) 1f else 0.8f)
                             }
+                            is CadInsert -> {
+                                // Haritada blok geometrisi açılmaz; yerleşim noktası işaretlenir
+                                val ll = vm.localToLatLon(e.position.x, e.position.y)
+                                if (ll!=null) Marker(state = com.google.maps.android.compose.rememberMarkerState(position = LatLng(ll.first,ll.second)), title = e.block.name, alpha = if (isSelected) 1f else 0.8f)
+                            }
                         }
                     }
                 }
@@ -444,6 +466,7 @@ private fun SelectedEntityInfo(entity: CadEntity, vm: CadViewModel, modifier: Mo
             }
             is CadText -> "Text \"${entity.text}\" h=${entity.height}"
             is CadPoint -> "Point (${String.format(Locale.US, "%.3f", entity.position.x)}, ${String.format(Locale.US, "%.3f", entity.position.y)})"
+            is CadInsert -> "Insert ${entity.block.name} | öğe=${entity.block.entities.size} S=${String.format(Locale.US, "%.3f", entity.scaleX)}/${String.format(Locale.US, "%.3f", entity.scaleY)} R=${String.format(Locale.US, "%.1f", entity.rotationDeg)}°"
         }
         base + " | Layer=${entity.layer}" + (entity.colorIndex?.let { " | ACI=$it" } ?: "")
     }
@@ -485,6 +508,7 @@ private fun CadCanvas(
                 is CadArc -> add(e.center)
                 is CadText -> add(e.position)
                 is CadPoint -> add(e.position)
+                is CadInsert -> add(e.position)
             }
         }
     }
@@ -500,88 +524,89 @@ private fun CadCanvas(
     }
 
     fun entityHitTest(off: Offset, scale: Float, pan: Offset, w: Float, h: Float): Pair<CadEntity, Float>? {
-        var best: CadEntity? = null
-        var bestD = Float.MAX_VALUE
-        entities.forEach { e ->
+        fun toScreen(p: Point): Offset = (worldToScreen(p, w.toDouble(), h.toDouble(), bounds) * scale) + pan
+
+        // Öğenin dokunma noktasına piksel uzaklığı; blok öğeleri yerleşim dönüşümüyle o anda ölçülür
+        fun hitPx(e: CadEntity, pl: Placement): Float {
+            var bestD = Float.MAX_VALUE
             when(e) {
                 is CadLine -> {
-                    val s = (worldToScreen(e.start, w.toDouble(), h.toDouble(), bounds) * scale) + pan
-                    val e2 = (worldToScreen(e.end, w.toDouble(), h.toDouble(), bounds) * scale) + pan
-                    val d = lineDistancePx(s,e2,off)
-                    if (d < bestD) { bestD = d; best = e }
+                    val s = toScreen(pl.point(e.start))
+                    val e2 = toScreen(pl.point(e.end))
+                    bestD = lineDistancePx(s,e2,off)
                 }
                 is CadPolyline -> {
-                    val pts = e.points.map { (worldToScreen(it, w.toDouble(), h.toDouble(), bounds) * scale) + pan }
+                    val pts = e.points.map { toScreen(pl.point(it)) }
                     for (i in 1 until pts.size) {
                         val d = lineDistancePx(pts[i-1], pts[i], off)
-                        if (d < bestD) { bestD = d; best = e }
+                        if (d < bestD) bestD = d
                     }
                     if (e.isClosed && pts.size>2) {
                         val d = lineDistancePx(pts.last(), pts.first(), off)
-                        if (d < bestD) { bestD = d; best = e }
+                        if (d < bestD) bestD = d
                     }
                 }
                 is CadPolygon -> {
-                    val pts = e.rings.first().map { (worldToScreen(it, w.toDouble(), h.toDouble(), bounds) * scale) + pan }
+                    val pts = e.rings.first().map { toScreen(pl.point(it)) }
                     for (i in 1 until pts.size) {
                         val d = lineDistancePx(pts[i-1], pts[i], off)
-                        if (d < bestD) { bestD = d; best = e }
+                        if (d < bestD) bestD = d
                     }
                     if (pts.size > 2) {
                         val d = lineDistancePx(pts.last(), pts.first(), off)
-                        if (d < bestD) { bestD = d; best = e }
+                        if (d < bestD) bestD = d
                     }
                 }
                 is CadCircle -> {
-                    val c = (worldToScreen(e.center, w.toDouble(), h.toDouble(), bounds) * scale) + pan
-                    val r = worldRadiusToPx(e.radius, bounds, w.toInt(), h.toInt(), scale)
-                    val d = abs((c - off).getDistance() - r)
-                    if (d < bestD) { bestD = d; best = e }
+                    val c = toScreen(pl.point(e.center))
+                    val r = worldRadiusToPx(pl.radius(e.radius), bounds, w.toInt(), h.toInt(), scale)
+                    bestD = abs((c - off).getDistance() - r)
                 }
                 is CadArc -> {
-                    val c = (worldToScreen(e.center, w.toDouble(), h.toDouble(), bounds) * scale) + pan
-                    val r = worldRadiusToPx(e.radius, bounds, w.toInt(), h.toInt(), scale)
+                    val c = toScreen(pl.point(e.center))
+                    val r = worldRadiusToPx(pl.radius(e.radius), bounds, w.toInt(), h.toInt(), scale)
                     val v = off - c
                     val ang = Math.toDegrees(atan2((-v.y).toDouble(), v.x.toDouble())).let { if (it < 0) it + 360 else it }
-                    val start = e.startAngleDeg
-                    val end = e.endAngleDeg
+                    val (start, end) = pl.arc(e.startAngleDeg, e.endAngleDeg)
                     val inRange = if (start <= end) (ang >= start && ang <= end) else (ang >= start || ang <= end)
-                    if (inRange) {
-                        val d = abs(v.getDistance() - r)
-                        if (d < bestD) { bestD = d; best = e }
-                    }
+                    if (inRange) bestD = abs(v.getDistance() - r)
                 }
-                is CadText -> {
-                    val pos = (worldToScreen(e.position, w.toDouble(), h.toDouble(), bounds) * scale) + pan
-                    val d = (pos - off).getDistance()
-                    if (d < bestD) { bestD = d; best = e }
-                }
-                is CadPoint -> {
-                    val pos = (worldToScreen(e.position, w.toDouble(), h.toDouble(), bounds) * scale) + pan
-                    val d = (pos - off).getDistance()
-                    if (d < bestD) { bestD = d; best = e }
+                is CadText -> bestD = (toScreen(pl.point(e.position)) - off).getDistance()
+                is CadPoint -> bestD = (toScreen(pl.point(e.position)) - off).getDistance()
+                is CadInsert -> {
+                    // Kaba ret: dokunma, yerleşim kutusunun 40 px dışındaysa blok öğeleri dolaşılmaz
+                    val b = e.bounds()
+                    val p0 = toScreen(pl.point(Point(b.minX, b.minY)))
+                    val p1 = toScreen(pl.point(Point(b.maxX, b.maxY)))
+                    val slack = 40f
+                    if (off.x < min(p0.x, p1.x) - slack || off.x > max(p0.x, p1.x) + slack ||
+                        off.y < min(p0.y, p1.y) - slack || off.y > max(p0.y, p1.y) + slack) return Float.MAX_VALUE
+                    val child = pl.then(e)
+                    e.block.entities.forEach { c -> val d = hitPx(c, child); if (d < bestD) bestD = d }
                 }
             }
+            return bestD
+        }
+
+        var best: CadEntity? = null
+        var bestD = Float.MAX_VALUE
+        entities.forEach { e ->
+            val d = hitPx(e, Placement.IDENTITY)
+            if (d < bestD) { bestD = d; best = e }
         }
         return best?.let { it to bestD }
     }
 
     fun entityBounding(e: CadEntity): Bounds = when(e) {
         is CadLine -> Bounds(min(e.start.x,e.end.x), min(e.start.y,e.end.y), max(e.start.x,e.end.x), max(e.start.y,e.end.y))
-        is CadPolyline -> {
-            val xs = e.points.map{it.x}
-            val ys = e.points.map{it.y}
-            Bounds(xs.minOrNull()?:0.0, ys.minOrNull()?:0.0, xs.maxOrNull()?:0.0, ys.maxOrNull()?:0.0)
-        }
-        is CadPolygon -> {
-            val ring = e.rings.first()
-            val xs = ring.map{it.x}; val ys = ring.map{it.y}
-            Bounds(xs.minOrNull()?:0.0, ys.minOrNull()?:0.0, xs.maxOrNull()?:0.0, ys.maxOrNull()?:0.0)
-        }
+        // Paketli köşelerin sınırı oluşturulurken bir kez hesaplanır
+        is CadPolyline -> e.points.bounds.let { Bounds(it.minX, it.minY, it.maxX, it.maxY) }
+        is CadPolygon -> e.rings.first().bounds.let { Bounds(it.minX, it.minY, it.maxX, it.maxY) }
         is CadCircle -> Bounds(e.center.x - e.radius, e.center.y - e.radius, e.center.x + e.radius, e.center.y + e.radius)
         is CadArc -> Bounds(e.center.x - e.radius, e.center.y - e.radius, e.center.x + e.radius, e.center.y + e.radius)
         is CadText -> Bounds(e.position.x, e.position.y, e.position.x, e.position.y)
         is CadPoint -> Bounds(e.position.x, e.position.y, e.position.x, e.position.y)
+        is CadInsert -> e.bounds().let { Bounds(it.minX, it.minY, it.maxX, it.maxY) }
     }
 
     fun overlaps(a: Bounds, b: Bounds) = a.maxX >= b.minX && a.minX <= b.maxX && a.maxY >= b.minY && a.minY <= b.maxY
@@ -668,53 +693,53 @@ private fun CadCanvas(
         fun applyTransform(o: Offset): Offset = Offset(o.x * scale + pan.x, o.y * scale + pan.y)
 
         val drawEntities = entities.filter { overlaps(entityBounding(it), vis) }
-        drawEntities.forEach { e ->
-            val highlighted = (e === selectedEntity)
+
+        // Paketli köşeler doğrudan okunur; kimlik yerleşiminde köşe başına Vec2 / ara liste üretilmez
+        fun screenAt(pts: PackedCoords, i: Int, pl: Placement): Offset = applyTransform(
+            if (pl === Placement.IDENTITY) worldToScreen(pts.x(i), pts.y(i), w.toDouble(), h.toDouble(), bounds)
+            else worldToScreen(pl.point(pts[i]), w.toDouble(), h.toDouble(), bounds)
+        )
+        fun drawRing(pts: PackedCoords, pl: Placement, color: Color, width: Float, closed: Boolean, pathEffect: PathEffect? = null) {
+            if (pts.size < 2) return
+            val first = screenAt(pts, 0, pl)
+            var prev = first
+            for (i in 1 until pts.size) {
+                val cur = screenAt(pts, i, pl)
+                drawLine(color, prev, cur, width, pathEffect = pathEffect)
+                prev = cur
+            }
+            if (closed) drawLine(color, prev, first, width, pathEffect = pathEffect)
+        }
+
+        // Blok öğeleri kopyalanmaz: yerleşim dönüşümü (pl) her köşeye çizim anında uygulanır
+        fun drawEntity(e: CadEntity, highlighted: Boolean, pl: Placement, aci: Int?) {
             when (e) {
                 is CadLine -> {
-                    val baseColor = if (highlighted) Color.Yellow else aciToColor(e.colorIndex)
-                    val s = applyTransform(worldToScreen(e.start, w.toDouble(), h.toDouble(), bounds))
-                    val e2 = applyTransform(worldToScreen(e.end, w.toDouble(), h.toDouble(), bounds))
+                    val baseColor = if (highlighted) Color.Yellow else aciToColor(aci)
+                    val s = applyTransform(worldToScreen(pl.point(e.start), w.toDouble(), h.toDouble(), bounds))
+                    val e2 = applyTransform(worldToScreen(pl.point(e.end), w.toDouble(), h.toDouble(), bounds))
                     drawLine(baseColor, s, e2, strokeWidth = (if (highlighted) 4f else 2f) * scale)
                 }
                 is CadPolyline -> {
-                    val baseColor = if (highlighted) Color.Yellow else aciToColor(e.colorIndex)
-                    val pts = e.points.map { applyTransform(worldToScreen(it, w.toDouble(), h.toDouble(), bounds)) }
-                    for (i in 1 until pts.size) drawLine(baseColor, pts[i-1], pts[i], (if (highlighted) 4f else 2f) * scale)
-                    if (e.isClosed && pts.size > 2) drawLine(baseColor, pts.last(), pts.first(), (if (highlighted) 4f else 2f) * scale)
+                    val baseColor = if (highlighted) Color.Yellow else aciToColor(aci)
+                    drawRing(e.points, pl, baseColor, (if (highlighted) 4f else 2f) * scale, e.isClosed && e.points.size > 2)
                 }
                 is CadPolygon -> {
-                    val baseColor = if (highlighted) Color.Yellow else aciToColor(e.colorIndex)
-                    val outer = e.rings.first()
-                    val pts = outer.map { applyTransform(worldToScreen(it, w.toDouble(), h.toDouble(), bounds)) }
-                    for (i in 1 until pts.size) drawLine(baseColor, pts[i-1], pts[i], (if (highlighted) 4f else 2f) * scale)
-                    if (pts.size > 2) drawLine(baseColor, pts.last(), pts.first(), (if (highlighted) 4f else 2f) * scale)
+                    val baseColor = if (highlighted) Color.Yellow else aciToColor(aci)
+                    drawRing(e.rings.first(), pl, baseColor, (if (highlighted) 4f else 2f) * scale, true)
                     if (e.rings.size > 1) {
                         val dash = PathEffect.dashPathEffect(floatArrayOf(12f * scale, 8f * scale), 0f)
-                        e.rings.drop(1).forEach { hole ->
-                            if (hole.size < 2) return@forEach
-                            val hpts = hole.map { applyTransform(worldToScreen(it, w.toDouble(), h.toDouble(), bounds)) }
-                            for (i in 1 until hpts.size) drawLine(
-                                color = baseColor.copy(alpha = 0.6f),
-                                start = hpts[i-1],
-                                end = hpts[i],
-                                strokeWidth = (if (highlighted) 3f else 1.5f) * scale,
-                                pathEffect = dash
-                            )
-                            if (hpts.size > 2) drawLine(
-                                color = baseColor.copy(alpha = 0.6f),
-                                start = hpts.last(),
-                                end = hpts.first(),
-                                strokeWidth = (if (highlighted) 3f else 1.5f) * scale,
-                                pathEffect = dash
-                            )
+                        for (k in 1 until e.rings.size) {
+                            val hole = e.rings[k]
+                            if (hole.size < 2) continue
+                            drawRing(hole, pl, baseColor.copy(alpha = 0.6f), (if (highlighted) 3f else 1.5f) * scale, hole.size > 2, dash)
                         }
                     }
                 }
                 is CadCircle -> {
-                    val baseColor = if (highlighted) Color.Yellow else aciToColor(e.colorIndex)
-                    val c = applyTransform(worldToScreen(e.center, w.toDouble(), h.toDouble(), bounds))
-                    val radiusPx = worldRadiusToPx(e.radius, bounds, w.toInt(), h.toInt(), scale)
+                    val baseColor = if (highlighted) Color.Yellow else aciToColor(aci)
+                    val c = applyTransform(worldToScreen(pl.point(e.center), w.toDouble(), h.toDouble(), bounds))
+                    val radiusPx = worldRadiusToPx(pl.radius(e.radius), bounds, w.toInt(), h.toInt(), scale)
                     drawCircle(
                         color = baseColor.copy(alpha = 0.9f),
                         center = c,
@@ -723,12 +748,13 @@ private fun CadCanvas(
                     )
                 }
                 is CadArc -> {
-                    val baseColor = if (highlighted) Color.Yellow else aciToColor(e.colorIndex)
-                    val c = applyTransform(worldToScreen(e.center, w.toDouble(), h.toDouble(), bounds))
-                    val radiusPx = worldRadiusToPx(e.radius, bounds, w.toInt(), h.toInt(), scale)
-                    var sweep = e.endAngleDeg - e.startAngleDeg
-                    if (sweep == 0.0) sweep = 360.0
-                    val startAndroid = -e.startAngleDeg.toFloat()
+                    val baseColor = if (highlighted) Color.Yellow else aciToColor(aci)
+                    val c = applyTransform(worldToScreen(pl.point(e.center), w.toDouble(), h.toDouble(), bounds))
+                    val radiusPx = worldRadiusToPx(pl.radius(e.radius), bounds, w.toInt(), h.toInt(), scale)
+                    val (startDeg, endDeg) = pl.arc(e.startAngleDeg, e.endAngleDeg)
+                    var sweep = endDeg - startDeg
+                    if (sweep <= 0.0) sweep += 360.0
+                    val startAndroid = -startDeg.toFloat()
                     val sweepAndroid = -sweep.toFloat()
                     val leftTop = Offset(c.x - radiusPx, c.y - radiusPx)
                     val sizeArc = androidx.compose.ui.geometry.Size(radiusPx * 2f, radiusPx * 2f)
@@ -743,18 +769,23 @@ private fun CadCanvas(
                     )
                 }
                 is CadText -> {
-                    val baseColor = if (highlighted) Color.Yellow else aciToColor(e.colorIndex)
-                    val pos = applyTransform(worldToScreen(e.position, w.toDouble(), h.toDouble(), bounds))
+                    val baseColor = if (highlighted) Color.Yellow else aciToColor(aci)
+                    val pos = applyTransform(worldToScreen(pl.point(e.position), w.toDouble(), h.toDouble(), bounds))
                     // nativeCanvas kaldırıldı: metin yerine basit gösterge
                     drawCircle(color = baseColor, center = pos, radius = (3f * scale).coerceAtLeast(2f))
                 }
                 is CadPoint -> {
-                    val baseColor = if (highlighted) Color.Yellow else aciToColor(e.colorIndex)
-                    val c = applyTransform(worldToScreen(e.position, w.toDouble(), h.toDouble(), bounds))
+                    val baseColor = if (highlighted) Color.Yellow else aciToColor(aci)
+                    val c = applyTransform(worldToScreen(pl.point(e.position), w.toDouble(), h.toDouble(), bounds))
                     drawCircle(color = baseColor, center = c, radius = (4f * scale).coerceAtLeast(2f))
                 }
+                is CadInsert -> {
+                    val child = pl.then(e)
+                    e.block.entities.forEach { c -> drawEntity(c, highlighted, child, e.effectiveColor(c)) }
+                }
             }
         }
+        drawEntities.forEach { e -> drawEntity(e, e === selectedEntity, Placement.IDENTITY, e.colorIndex) }
         // Bu kodu Compose ortamında doğrudan kullanmak yerine, Text composable ile gösterin.
         if (gridVisible) drawGrid(bounds, scale, pan)
         snapPointScreen?.let { sp ->
@@ -807,9 +838,11 @@ private fun niceStep(raw: Double): Double {
     return nice * scale
 }
 
-private fun worldToScreen(pt: Point, w: Double, h: Double, b: Bounds): Offset {
-    val sx = (pt.x - b.minX) / b.width
-    val sy = 1 - (pt.y - b.minY) / b.height // y ekseni ters
+private fun worldToScreen(pt: Point, w: Double, h: Double, b: Bounds): Offset = worldToScreen(pt.x, pt.y, w, h, b)
+
+private fun worldToScreen(x: Double, y: Double, w: Double, h: Double, b: Bounds): Offset {
+    val sx = (x - b.minX) / b.width
+    val sy = 1 - (y - b.minY) / b.height // y ekseni ters
     return Offset((sx * w).toFloat(), (sy * h).toFloat())
 }
 
@@ -878,6 +911,39 @@ fun getBitmapFromView(view: View): Bitmap {
     return bitmap
 }
 
+/**
+ * Blok yerleşimi zinciri (iç içe INSERT). Blok öğeleri yerel koordinatta kalır; nokta, yarıçap ve yay
+ * açıları çizim / seçim anında dünya koordinatına çevrilir. Eşit olmayan ölçekte yarıçap ortalama ölçekle yaklaşıktır.
+ */
+private class Placement private constructor(private val insert: CadInsert?, private val parent: Placement?) {
+    fun point(p: Point): Point {
+        val q = insert?.toWorld(p) ?: return p
+        return parent?.point(q) ?: q
+    }
+
+    fun radius(r: Double): Double {
+        val q = insert?.let { r * it.linearScale } ?: return r
+        return parent?.radius(q) ?: q
+    }
+
+    /** Yay açılarını dünya açısına çevirir (0..360); aynalamada başlangıç / bitiş yer değiştirir. */
+    fun arc(startDeg: Double, endDeg: Double): Pair<Double, Double> {
+        val ins = insert ?: return startDeg to endDeg
+        val s = norm360(ins.toWorldAngle(startDeg))
+        val e = norm360(ins.toWorldAngle(endDeg))
+        val q = if (ins.isMirrored) e to s else s to e
+        return parent?.arc(q.first, q.second) ?: q
+    }
+
+    fun then(child: CadInsert): Placement = Placement(child, this)
+
+    private fun norm360(a: Double): Double = ((a % 360.0) + 360.0) % 360.0
+
+    companion object {
+        val IDENTITY = Placement(null, null)
+    }
+}
+
 // Bounds ve computeBounds geri eklendi
 private data class Bounds(val minX: Double, val minY: Double, val maxX: Double, val maxY: Double) {
     val width: Double get() = maxX - minX
@@ -893,12 +959,13 @@ private fun computeBounds(entities: List<CadEntity>): Bounds {
     entities.forEach { e ->
         when (e) {
             is CadLine -> { acc(e.start); acc(e.end) }
-            is CadPolyline -> e.points.forEach(::acc)
-            is CadPolygon -> e.rings.first().forEach(::acc)
+            is CadPolyline -> e.points.bounds.let { acc(Point(it.minX, it.minY)); acc(Point(it.maxX, it.maxY)) }
+            is CadPolygon -> e.rings.first().bounds.let { acc(Point(it.minX, it.minY)); acc(Point(it.maxX, it.maxY)) }
             is CadCircle -> { acc(Point(e.center.x - e.radius, e.center.y - e.radius)); acc(Point(e.center.x + e.radius, e.center.y + e.radius)) }
             is CadArc -> { acc(Point(e.center.x - e.radius, e.center.y - e.radius)); acc(Point(e.center.x + e.radius, e.center.y + e.radius)) }
             is CadText -> acc(e.position)
             is CadPoint -> acc(e.position)
+            is CadInsert -> e.bounds().let { acc(Point(it.minX, it.minY)); acc(Point(it.maxX, it.maxY)) }
         }
     }
     if (minX == Double.POSITIVE_INFINITY) return Bounds(0.0,0.0,1.0,1.0)
@@ -9,15 +9,20 @@ import com.example.tugis3.core.cad.model.*
 import com.example.tugis3.core.cad.repository.CadRepository
 import com.example.tugis3.coord.transform.NoOpTransformer
 import com.example.tugis3.coord.transform.ProjectionEngine
+import com.example.tugis3.data.db.entity.CadLayerEntity
 import com.example.tugis3.data.db.entity.SurveyPointEntity
 import com.example.tugis3.data.repository.CadPersistenceRepository
 import com.example.tugis3.data.repository.CadPersistenceRepository.CadItem
 import com.example.tugis3.data.repository.ProjectRepository
 import com.example.tugis3.data.repository.SurveyPointRepository
 import com.example.tugis3.gnss.GnssEngine
+import com.example.tugis3.gnss.GnssPipeline
 import com.example.tugis3.gnss.model.GnssObservation
 import dagger.hilt.android.lifecycle.HiltViewModel
+import kotlinx.coroutines.CancellationException
 import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.channels.Channel
 import kotlinx.coroutines.flow.*
 import kotlinx.coroutines.launch
 import java.io.File
@@ -33,6 +38,7 @@ class CadViewModel @Inject constructor(
     private val projectRepo: ProjectRepository,
     private val surveyPointRepo: SurveyPointRepository,
     private val gnssEngine: GnssEngine,
+    private val gnssPipeline: GnssPipeline,
     private val cadStore: CadPersistenceRepository
 ) : ViewModel() {
 
@@ -45,12 +51,6 @@ class CadViewModel @Inject constructor(
     private val _mode = MutableStateFlow(MeasurementMode.DISTANCE)
     val mode: StateFlow<MeasurementMode> = _mode
 
-    // -------- Layers --------
-    private val _layers = MutableStateFlow<List<String>>(emptyList())
-    val layers: StateFlow<List<String>> = _layers
-    private val _activeLayers = MutableStateFlow<Set<String>>(emptySet())
-    val activeLayers: StateFlow<Set<String>> = _activeLayers
-
     // -------- Snap (Pixel) & Grid --------
     private val _snapEnabled = MutableStateFlow(false)
     val snapEnabled: StateFlow<Boolean> = _snapEnabled
@@ -92,16 +92,77 @@ class CadViewModel @Inject constructor(
     private val activeProject = projectRepo.observeActiveProject()
         .stateIn(viewModelScope, SharingStarted.WhileSubscribed(5_000), null)
 
+    /** Değişmeyen satırlar yeniden çözülmez; silinen seçili entity seçimden düşer. */
     private val cadItems: StateFlow<List<CadItem>> = activeProject
-        .flatMapLatest { p -> if (p==null) flowOf(emptyList()) else cadStore.observe(p.id) }
+        .flatMapLatest { p ->
+            if (p==null) flowOf(emptyList()) else cadStore.observeChanges(p.id)
+                .onEach { s ->
+                    if (_selectedId.value in s.diff.removed) _selectedId.value = null
+                    if (_importPending.value.isNotEmpty()) {
+                        val maxId = maxRowId(s.items)
+                        _importPending.update { l -> l.filterNot { it.isPersistedIn(maxId) } }
+                    }
+                }
+                .map { s -> s.items }
+                .distinctUntilChanged { a, b -> a === b }
+        }
         .stateIn(viewModelScope, SharingStarted.WhileSubscribed(5_000), emptyList())
 
-    val entities: StateFlow<List<CadEntity>> = cadItems.map { it.map { c -> c.entity } }
+    // -------- Layers --------
+    /** Görünürlük yalnız `cad_layers.visible`'da tutulur; gizli katmanların entity'leri hiç yüklenmez. */
+    private val layerRows: StateFlow<List<CadLayerEntity>> = activeProject
+        .flatMapLatest { p -> if (p==null) flowOf(emptyList()) else cadStore.observeLayers(p.id) }
+        .stateIn(viewModelScope, SharingStarted.WhileSubscribed(5_000), emptyList())
+    val layers: StateFlow<List<String>> = layerRows.map { ls -> ls.map { it.name } }
+        .stateIn(viewModelScope, SharingStarted.WhileSubscribed(5_000), emptyList())
+    val activeLayers: StateFlow<Set<String>> = layerRows.map { ls -> ls.filter { it.visible == 1 }.mapTo(HashSet()) { it.name } }
+        .stateIn(viewModelScope, SharingStarted.WhileSubscribed(5_000), emptySet())
+
+    // -------- Import --------
+    /**
+     * Aşamalı DXF içe aktarımının durumu; [firstGeometryMs] ilk partinin ekrana ulaşma süresi.
+     * [failed] kaydedilemeyen (geri alınan partilerdeki ya da kodlanamayan) entity sayısı, [lastError] son kayıt hatası.
+     */
+    data class ImportProgress(
+        val bytesRead: Long = 0,
+        val totalBytes: Long = -1,
+        val parsed: Long = 0,
+        val saved: Long = 0,
+        val failed: Long = 0,
+        val lastError: String? = null,
+        val firstGeometryMs: Long = -1,
+        val running: Boolean = true
+    ) {
+        val fraction: Float get() = if (totalBytes > 0) (bytesRead.toDouble() / totalBytes).toFloat().coerceIn(0f, 1f) else 0f
+    }
+    private val _importProgress = MutableStateFlow<ImportProgress?>(null)
+    val importProgress: StateFlow<ImportProgress?> = _importProgress
+    /**
+     * Ayrıştırılmış bir içe aktarım partisi. Kayıttan sonra [savedUpTo] görünür katmanlardaki en büyük satır
+     * id'sidir; [cadItems] o satırı içerene dek parti bellekten çizilmeye devam eder, böylece kayıt ile Room'un
+     * yeniden yayını arasında geometri kaybolmaz. Kimlikle karşılaştırılır (büyük listeler eşitlikle taranmasın).
+     */
+    private class PendingBatch(val entities: List<CadEntity>, val savedUpTo: Long? = null) {
+        fun isPersistedIn(maxRowId: Long) = savedUpTo != null && savedUpTo <= maxRowId
+    }
+    /** Henüz [cadItems]'ta görünmeyen partiler (kayıt sırasıyla). */
+    private val _importPending = MutableStateFlow<List<PendingBatch>>(emptyList())
+    private var importJob: Job? = null
+
+    val entities: StateFlow<List<CadEntity>> = combine(cadItems, _importPending, layerRows) { items, pending, layers ->
+        val saved = items.map { c -> c.entity }
+        val maxId = if (pending.isEmpty()) 0L else maxRowId(items)
+        val shown = pending.filterNot { it.isPersistedIn(maxId) }
+        if (shown.isEmpty()) saved else {
+            // Bellekteki partiler sorgudan geçmediğinden gizli katmanlar burada süzülür
+            val hidden = layers.filter { it.visible == 0 }.mapTo(HashSet()) { it.name }
+            saved + shown.flatMap { it.entities }.filter { it.layer !in hidden }
+        }
+    }
         .stateIn(viewModelScope, SharingStarted.WhileSubscribed(5_000), emptyList())
 
-    val filteredEntities: StateFlow<List<CadEntity>> = combine(entities, _activeLayers) { ents, act ->
-        if (act.isEmpty()) emptyList() else ents.filter { it.layer in act }
-    }.stateIn(viewModelScope, SharingStarted.WhileSubscribed(5_000), emptyList())
+    /** Gizli katmanlar sorguda elendiğinden [entities] ile aynıdır. */
+    val filteredEntities: StateFlow<List<CadEntity>> = entities
 
     val simplifiedFilteredEntities: StateFlow<List<CadEntity>> = filteredEntities.map { ents ->
         val threshold = 500
@@ -150,7 +211,6 @@ class CadViewModel @Inject constructor(
 
     // -------- Init --------
     init {
-        viewModelScope.launch { entities.collect { refreshLayersFromEntities(it) } }
         loadSampleIfEmpty()
         startGnss()
         observeStakeout()
@@ -162,25 +222,34 @@ class CadViewModel @Inject constructor(
     }
 
     // -------- Layer Ops --------
-    private fun refreshLayersFromEntities(list: List<CadEntity>) {
-        val ls = list.map { it.layer }.distinct().sorted()
-        _layers.value = ls
-        if (_activeLayers.value.isEmpty()) _activeLayers.value = ls.toSet()
+    fun setAllLayers(enableAll: Boolean) {
+        val proj = activeProject.value ?: return
+        viewModelScope.launch { cadStore.setAllLayersVisible(proj.id, enableAll); dropSavedPending() }
+    }
+    fun toggleLayer(layer: String) {
+        val proj = activeProject.value ?: return
+        viewModelScope.launch { cadStore.setLayerVisible(proj.id, layer, layer !in activeLayers.value); dropSavedPending() }
     }
-    fun setAllLayers(enableAll: Boolean) { _activeLayers.value = if (enableAll) _layers.value.toSet() else emptySet() }
-    fun toggleLayer(layer: String) { _activeLayers.value = _activeLayers.value.let { if (layer in it) it - layer else it + layer } }
+
+    /**
+     * Görünürlük değişince [PendingBatch.savedUpTo] satırı gizlenmiş olabilir; kayıtlı partiler zaten
+     * değişiklikten sonraki sorguda olduğundan bellekten bırakılır.
+     */
+    private fun dropSavedPending() = _importPending.update { l -> l.filter { it.savedUpTo == null } }
 
     // -------- Sample Data --------
     private fun loadSampleIfEmpty() { viewModelScope.launch(Dispatchers.IO) {
         try {
             val proj = activeProject.value ?: return@launch
-            if (cadItems.first().isNotEmpty()) return@launch
-            addEntityPersist(CadLine(Point(0.0,0.0), Point(50.0,0.0), layer = "BASE"))
-            addEntityPersist(CadLine(Point(50.0,0.0), Point(50.0,40.0), layer = "BASE"))
-            addEntityPersist(CadLine(Point(50.0,40.0), Point(0.0,40.0), layer = "BASE"))
-            addEntityPersist(CadLine(Point(0.0,40.0), Point(0.0,0.0), layer = "BASE"))
-            addEntityPersist(CadCircle(Point(25.0,20.0), 10.0, layer = "CIRC"))
-            addEntityPersist(CadText(Point(5.0,42.0), 2.5, "SAMPLE", layer = "TXT"))
+            if (cadStore.count(proj.id) > 0) return@launch
+            cadStore.addEntities(proj.id, sequenceOf(
+                CadLine(Point(0.0,0.0), Point(50.0,0.0), layer = "BASE"),
+                CadLine(Point(50.0,0.0), Point(50.0,40.0), layer = "BASE"),
+                CadLine(Point(50.0,40.0), Point(0.0,40.0), layer = "BASE"),
+                CadLine(Point(0.0,40.0), Point(0.0,0.0), layer = "BASE"),
+                CadCircle(Point(25.0,20.0), 10.0, layer = "CIRC"),
+                CadText(Point(5.0,42.0), 2.5, "SAMPLE", layer = "TXT")
+            ))
         } catch (_: Exception) {}
     } }
     fun loadSample() = loadSampleIfEmpty()
@@ -196,8 +265,9 @@ class CadViewModel @Inject constructor(
     fun toggleGrid() { _gridVisible.value = !_gridVisible.value }
 
     // -------- GNSS / Transform --------
-    private fun startGnss() { gnssEngine.start() }
-    fun stopGnss() { gnssEngine.stop() }
+    private fun startGnss() { gnssPipeline.acquire(this) }
+    fun stopGnss() { gnssPipeline.release(this) }
+    override fun onCleared() { stopGnss(); super.onCleared() }
     fun localToLatLon(e: Double, n: Double) = runCatching { activeProject.value?.let { ProjectionEngine.forProject(it).inverse(e,n) } }.getOrNull()
     fun latLonToLocal(lat: Double, lon: Double) = runCatching { activeProject.value?.let { ProjectionEngine.forProject(it).forward(lat,lon) } }.getOrNull()
     fun currentLatLon(): Pair<Double,Double>? { val o = observation.value ?: return null; val la = o.latDeg ?: return null; val lo = o.lonDeg ?: return null; return la to lo }
@@ -256,7 +326,10 @@ class CadViewModel @Inject constructor(
         }
         is CadText -> entity.position.x to entity.position.y
         is CadPoint -> entity.position.x to entity.position.y
-        else -> e to n
+        is CadInsert -> entity.explode()
+            .map { nearestPointOnEntity(it, e, n) }
+            .minByOrNull { (x, y) -> hypot(x - e, y - n) }
+            ?: (entity.position.x to entity.position.y)
     }
     private fun nearestAngleOnArc(test: Double, start: Double, end: Double): Double {
         fun norm(a: Double) = (a + 360) % 360
@@ -402,12 +475,74 @@ class CadViewModel @Inject constructor(
     fun addCircle(c: Point, r: Double, layer: String = "0") { viewModelScope.launch { addEntityPersist(CadCircle(c,r,layer=layer)) } }
     fun addText(p: Point, text: String, h: Double = 2.5, layer: String = "0") { viewModelScope.launch { addEntityPersist(CadText(p,h,text,layer=layer)) } }
     fun addPolyline(points: List<Point>, closed: Boolean, layer: String = "0") { viewModelScope.launch { addEntityPersist(CadPolyline(points,isClosed=closed,layer=layer)) } }
-    fun loadFromUri(resolver: android.content.ContentResolver, uri: android.net.Uri) { viewModelScope.launch(Dispatchers.IO) {
-        val proj = activeProject.value ?: return@launch
-        val ents = runCatching { repo.loadDxf(resolver, uri) }.getOrElse { emptyList() }
-        ents.forEach { cadStore.addEntity(proj.id, it) }
-        _status.value = "Imported ${ents.size} entities"
-    } }
+    /**
+     * DXF'i aşamalı içe aktarır: partiler ayrıştırıldıkça çizilir, arka planda parti başına tek işlemle
+     * kaydedilir. [cancelImport] ile durdurulabilir; kaydedilmiş partiler kalır.
+     */
+    fun loadFromUri(resolver: android.content.ContentResolver, uri: android.net.Uri) {
+        val proj = activeProject.value ?: return
+        importJob?.cancel()
+        importJob = viewModelScope.launch {
+            _importProgress.value = ImportProgress()
+            // Kayıt ayrıştırmayı yavaşlatmasın; sınırlı kuyruk bellek kullanımını sınırlar
+            val saveQueue = Channel<PendingBatch>(capacity = 4)
+            val saver = launch(Dispatchers.IO) {
+                for (batch in saveQueue) {
+                    // Parti tek işlemde yazılır; hata olursa parti geri alınır, içe aktarma sürer ve sonda raporlanır
+                    var error: String? = null
+                    val n = try {
+                        cadStore.addEntities(proj.id, batch.entities.asSequence())
+                    } catch (e: CancellationException) {
+                        throw e
+                    } catch (e: Exception) {
+                        error = e.message ?: e.javaClass.simpleName; 0
+                    }
+                    // Kaydedilen parti Room yeniden yayınlayana dek çizilir; geri alınan parti hemen bırakılır
+                    val saved = if (n > 0) PendingBatch(batch.entities, cadStore.lastVisibleId(proj.id)) else null
+                    val shownUpTo = maxRowId(cadItems.value)
+                    _importPending.update { l -> l.mapNotNull { if (it === batch) saved else it }.filterNot { it.isPersistedIn(shownUpTo) } }
+                    _importProgress.update {
+                        it?.copy(saved = it.saved + n, failed = it.failed + batch.entities.size - n, lastError = error ?: it.lastError)
+                    }
+                }
+            }
+            try {
+                repo.streamDxf(resolver, uri).collect { b ->
+                    if (b.entities.isNotEmpty()) {
+                        val batch = PendingBatch(b.entities)
+                        _importPending.update { it + batch }
+                        saveQueue.send(batch)
+                    }
+                    _importProgress.update {
+                        (it ?: ImportProgress()).copy(
+                            bytesRead = b.bytesRead, totalBytes = b.totalBytes,
+                            parsed = b.entityCount, firstGeometryMs = b.firstGeometryMs
+                        )
+                    }
+                }
+                saveQueue.close()
+                saver.join()
+                val p = _importProgress.value ?: ImportProgress()
+                _status.value = buildString {
+                    append("Imported ${p.parsed} entities: ${p.saved} kaydedildi")
+                    if (p.failed > 0) append(", ${p.failed} kaydedilemedi (son hata: ${p.lastError ?: "kodlanamayan entity"})")
+                    append(" (ilk geometri ${p.firstGeometryMs} ms)")
+                }
+            } catch (e: CancellationException) {
+                _status.value = "Import iptal edildi: ${_importProgress.value?.saved ?: 0} entity kaydedildi"
+                throw e
+            } catch (e: Exception) {
+                _status.value = "Import hatası: ${e.message}; ${_importProgress.value?.saved ?: 0} entity kaydedildi"
+            } finally {
+                saveQueue.close()
+                // Kaydedilmemişler bırakılır; kaydedilenler cadItems'ta görününce düşer
+                _importPending.update { l -> l.filter { it.savedUpTo != null } }
+                _importProgress.update { it?.copy(running = false) }
+            }
+        }
+    }
+    fun cancelImport() { importJob?.cancel() }
+    private fun maxRowId(items: List<CadItem>): Long = items.maxOfOrNull { it.id } ?: 0L
     fun undoEntityLast() { val last = cadItems.value.maxByOrNull { it.id }?.id ?: return; viewModelScope.launch { cadStore.deleteEntity(last) } }
     fun exportAllGeoJson(context: android.content.Context, circleSegments: Int = 64, arcSegAngle: Double = 10.0): Result<File> = runCatching {
         val ents = entities.value; require(ents.isNotEmpty()) { "Entity yok" }
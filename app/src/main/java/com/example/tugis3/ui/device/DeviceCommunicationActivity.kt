@@ -223,7 +223,7 @@ class DeviceCommunicationViewModel : androidx.lifecycle.ViewModel() {
                     )
                     // Track kaydı açıksa nokta ekle (fix tipini geçir)
                     if (parsed.latDeg != null && parsed.lonDeg != null) {
-                        viewModelScope.launch { TrackRepository.addPoint(parsed.latDeg, parsed.lonDeg, parsed.fixType) }
+                        viewModelScope.launch { TrackRepository.addPoint(parsed.latDeg, parsed.lonDeg, parsed.fixType, alt = parsed.heightEllipsoidal) }
                     }
                 }
             } catch (e: Exception) {
@@ -7,6 +7,8 @@ import android.location.Location
 import android.location.LocationManager
 import android.os.Bundle
 import android.os.Looper
+import android.webkit.WebResourceRequest
+import android.webkit.WebResourceResponse
 import android.webkit.WebSettings
 import android.webkit.WebView
 import android.webkit.WebViewClient
@@ -35,8 +37,11 @@ import androidx.lifecycle.ViewModelProvider
 import androidx.lifecycle.lifecycleScope
 import androidx.lifecycle.viewmodel.compose.viewModel
 import com.example.tugis3.gnss.GnssPositionRepository
+import com.example.tugis3.gnss.PositionPredictor
 import com.example.tugis3.gnss.TrackRepository
 import com.example.tugis3.gnss.model.FixType
+import com.example.tugis3.map.CachingTileInterceptor
+import com.example.tugis3.map.MbTilesCache
 import com.example.tugis3.settings.AppSettings
 import com.google.android.gms.location.*
 import kotlinx.coroutines.Dispatchers
@@ -282,13 +287,14 @@ fun MapScreen(onRequestLocation: () -> Unit = {}, vm: MapViewModel = viewModel()
     // Track state
     val trackPoints by TrackRepository.points.collectAsState()
     val trackRecording by TrackRepository.recording.collectAsState()
-    val totalDist by TrackRepository.totalDistance.collectAsState()
-    val rtkDist by TrackRepository.rtkFixDistance.collectAsState()
-    val floatDist by TrackRepository.rtkFloatDistance.collectAsState()
+    val trackStats by TrackRepository.stats.collectAsState()
+    val totalDist = trackStats.totalDistance
+    val rtkDist = trackStats.rtkFixDistance
+    val floatDist = trackStats.rtkFloatDistance
     val exportSuggest by TrackRepository.exportSuggestion.collectAsState()
-    val startTime by TrackRepository.startTime.collectAsState()
+    val startTime = trackStats.startTime
     val endTime by TrackRepository.endTime.collectAsState()
-    val repoDuration by TrackRepository.durationMillis.collectAsState()
+    val repoDuration = trackStats.durationMillis
 
     // Added smoothing window state (default 30s)
     var smoothWindowSec by remember { mutableStateOf(30) }
@@ -306,7 +312,7 @@ fun MapScreen(onRequestLocation: () -> Unit = {}, vm: MapViewModel = viewModel()
     // Canlı süre hesaplama (tick değiştikçe recomposition tetiklenir)
     val liveDurationMillis = remember(trackRecording, startTime, endTime, repoDuration, liveTick) {
         when {
-            trackRecording && startTime != null -> System.currentTimeMillis() - startTime!!
+            trackRecording && startTime != null -> System.currentTimeMillis() - startTime
             else -> repoDuration
         }
     }
@@ -320,6 +326,11 @@ fun MapScreen(onRequestLocation: () -> Unit = {}, vm: MapViewModel = viewModel()
     val simplifyScale by AppSettings.simplifyScaleFlow(ctx).collectAsState(initial = 1.0)
     val scopeSettings = rememberCoroutineScope()
 
+    // Çevrimdışı altlık önbelleği (MBTiles)
+    val tileCache = remember { MbTilesCache.getInstance(ctx) }
+    val tileInterceptor = remember { CachingTileInterceptor(ctx, tileCache) }
+    val tileStats by tileCache.stats.collectAsState()
+
     // WebView referansları marker / polyline güncelleme için önce gerekli
     val webViewRef = remember { mutableStateOf<WebView?>(null) }
     var lastApplied by remember { mutableStateOf<Pair<Double, Double>?>(null) }
@@ -342,8 +353,23 @@ fun MapScreen(onRequestLocation: () -> Unit = {}, vm: MapViewModel = viewModel()
     // ViewModel fallback konumları
     val initLat by vm.latitude.collectAsState()
     val initLon by vm.longitude.collectAsState()
-    val effectiveLat = latRepo ?: initLat
-    val effectiveLon = lonRepo ?: initLon
+    // Marker gecikmesini gizlemek için epoch'lar arası hız tabanlı öngörü (yalnız görüntü)
+    val markerPredictor = remember { PositionPredictor() }
+    var predictedLatLon by remember { mutableStateOf<Pair<Double, Double>?>(null) }
+    LaunchedEffect(pos.timestamp) {
+        if (latRepo != null && lonRepo != null) markerPredictor.update(pos.timestamp, latRepo, lonRepo) else markerPredictor.reset()
+        predictedLatLon = null
+    }
+    LaunchedEffect(Unit) {
+        while (true) {
+            delay(PositionPredictor.DISPLAY_FRAME_MS)
+            predictedLatLon = if (markerPredictor.isMoving) {
+                markerPredictor.predict(System.currentTimeMillis())?.takeIf { it.extrapolated }?.let { it.lat to it.lon }
+            } else null
+        }
+    }
+    val effectiveLat = predictedLatLon?.first ?: latRepo ?: initLat
+    val effectiveLon = predictedLatLon?.second ?: lonRepo ?: initLon
 
     fun fixColor(ft: FixType?): String = when (ft) {
         FixType.RTK_FIX -> "#2E7D32"
@@ -753,8 +779,10 @@ fun MapScreen(onRequestLocation: () -> Unit = {}, vm: MapViewModel = viewModel()
                     if (smoothSpeedKmh > 0.001) append(" | Avg${smoothWindowSec}s: ${"%.2f".format(smoothSpeedKmh)} km/h")
                 }
                 if (instSpeedKmh > 0.05) append(" | Inst: ${"%.2f".format(instSpeedKmh)} km/h")
-                if (trackRecording) append(" | Track Pts: ${trackPoints.size}")
+                if (trackStats.elevationGain > 0.0 || trackStats.elevationLoss > 0.0) append(" | ↑${"%.1f".format(trackStats.elevationGain)} ↓${"%.1f".format(trackStats.elevationLoss)} m")
+                if (trackRecording) append(" | Track Pts: ${trackStats.pointCount}")
                 append(" | Scl:${"%.2f".format(simplifyScale)}")
+                if (tileStats.hits + tileStats.misses > 0) append(" | Tile: %${"%.0f".format(tileStats.hitRatio * 100)} ${"%.1f".format(tileStats.bytesServed / 1_048_576.0)} MB")
             }
             Text(info, color = Color.White, style = MaterialTheme.typography.bodySmall, textAlign = TextAlign.Start)
             Spacer(Modifier.height(4.dp))
@@ -811,6 +839,9 @@ fun MapScreen(onRequestLocation: () -> Unit = {}, vm: MapViewModel = viewModel()
                     settings.domStorageEnabled = true
                     settings.cacheMode = WebSettings.LOAD_DEFAULT
                     webViewClient = object : WebViewClient() {
+                        override fun shouldInterceptRequest(view: WebView?, request: WebResourceRequest?): WebResourceResponse? =
+                            request?.let { tileInterceptor.intercept(it) } ?: super.shouldInterceptRequest(view, request)
+
                         override fun onPageFinished(view: WebView?, url: String?) {
                             super.onPageFinished(view, url)
                             if (effectiveLat != null && effectiveLon != null) {
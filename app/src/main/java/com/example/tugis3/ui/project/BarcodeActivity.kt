@@ -25,6 +25,7 @@ import javax.inject.Inject
 import com.example.tugis3.data.repository.ProjectRepository
 import com.example.tugis3.data.repository.PointRepository
 import com.example.tugis3.data.db.entity.PointEntity
+import com.example.tugis3.coord.geoid.GeoidService
 import kotlinx.coroutines.flow.SharingStarted
 import kotlinx.coroutines.flow.stateIn
 import kotlinx.coroutines.flow.map
@@ -49,7 +50,8 @@ class BarcodeActivity : ComponentActivity() {
 @HiltViewModel
 class BarcodeViewModel @Inject constructor(
     private val projectRepo: ProjectRepository,
-    private val pointRepo: PointRepository
+    private val pointRepo: PointRepository,
+    private val geoid: GeoidService
 ) : ViewModel() {
     val activeProject = projectRepo.observeActiveProject()
         .stateIn(viewModelScope, SharingStarted.WhileSubscribed(5_000), null)
@@ -72,15 +74,19 @@ class BarcodeViewModel @Inject constructor(
         }
         viewModelScope.launch {
             runCatching {
+                geoid.refresh()
                 pointRepo.upsert(
-                    PointEntity(
-                        projectId = proj.id,
-                        name = name.trim(),
-                        northing = northing,
-                        easting = easting,
-                        ellipsoidalHeight = height,
-                        featureCode = "BARCODE",
-                        description = desc?.ifBlank { null }
+                    geoid.withOrthometricHeight(
+                        PointEntity(
+                            projectId = proj.id,
+                            name = name.trim(),
+                            northing = northing,
+                            easting = easting,
+                            ellipsoidalHeight = height,
+                            featureCode = "BARCODE",
+                            description = desc?.ifBlank { null }
+                        ),
+                        proj
                     )
                 )
             }.onSuccess { _messages.tryEmit("Kaydedildi (#$it)") }
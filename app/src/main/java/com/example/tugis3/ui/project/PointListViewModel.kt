@@ -2,7 +2,9 @@ package com.example.tugis3.ui.project
 
 import androidx.lifecycle.ViewModel
 import androidx.lifecycle.viewModelScope
+import com.example.tugis3.coord.geoid.GeoidService
 import com.example.tugis3.data.db.entity.PointEntity
+import com.example.tugis3.data.db.entity.ProjectEntity
 import com.example.tugis3.data.repository.PointRepository
 import com.example.tugis3.data.repository.ProjectRepository
 import dagger.hilt.android.lifecycle.HiltViewModel
@@ -15,7 +17,8 @@ import javax.inject.Inject
 @HiltViewModel
 class PointListViewModel @Inject constructor(
     private val projectRepo: ProjectRepository,
-    private val pointRepo: PointRepository
+    private val pointRepo: PointRepository,
+    private val geoid: GeoidService
 ) : ViewModel() {
 
     val activeProject = projectRepo.observeActiveProject()
@@ -90,15 +93,19 @@ class PointListViewModel @Inject constructor(
                 } else if (pointRepo.isNameTaken(proj.id, finalName)) {
                     throw IllegalArgumentException("İsim zaten kullanılıyor")
                 }
+                geoid.refresh()
                 pointRepo.upsert(
-                    PointEntity(
-                        projectId = proj.id,
-                        name = finalName,
-                        northing = n,
-                        easting = e,
-                        ellipsoidalHeight = h,
-                        featureCode = featureCode?.ifBlank { null },
-                        description = description?.ifBlank { null }
+                    geoid.withOrthometricHeight(
+                        PointEntity(
+                            projectId = proj.id,
+                            name = finalName,
+                            northing = n,
+                            easting = e,
+                            ellipsoidalHeight = h,
+                            featureCode = featureCode?.ifBlank { null },
+                            description = description?.ifBlank { null }
+                        ),
+                        proj
                     )
                 )
             }
@@ -125,7 +132,19 @@ class PointListViewModel @Inject constructor(
         } else if (pointRepo.isNameTaken(proj.id, finalName, excludeId = id)) {
             return@launch
         }
-        pointRepo.updateFull(id, finalName, n, e, h, code?.ifBlank { null }, desc?.ifBlank { null })
+        geoid.refresh()
+        pointRepo.updateFull(id, finalName, n, e, h, code?.ifBlank { null }, desc?.ifBlank { null }, orthoHeightFor(id, proj, n, e, h))
+    }
+
+    /**
+     * Düzenlenen noktanın H'si. Geoit modeli yoksa (veya nokta dışındaysa) kayıtlı H silinmez;
+     * h değiştiyse aynı geoit ayrımıyla kaydırılır.
+     */
+    private suspend fun orthoHeightFor(id: Long, proj: ProjectEntity, n: Double, e: Double, h: Double?): Double? {
+        geoid.orthometricHeight(proj, n, e, h)?.let { return it }
+        val existing = pointRepo.getById(id) ?: return null
+        val oldH = existing.ellipsoidalHeight
+        return existing.orthoHeight?.let { if (h != null && oldH != null) it + (h - oldH) else it }
     }
 
     fun attemptAddManual(
@@ -162,7 +181,8 @@ class PointListViewModel @Inject constructor(
             }
         }
         return runCatching {
-            pointRepo.updateFull(id, finalName, n, e, h, code?.ifBlank { null }, desc?.ifBlank { null })
+            geoid.refresh()
+            pointRepo.updateFull(id, finalName, n, e, h, code?.ifBlank { null }, desc?.ifBlank { null }, orthoHeightFor(id, proj, n, e, h))
         }
     }
 
@@ -198,6 +218,7 @@ class PointListViewModel @Inject constructor(
         val proj = activeProject.value ?: return@launch onResult(ImportResult(0,0))
         var added = 0
         var failed = 0
+        geoid.refresh()
         raw.lineSequence()
             .map { it.trim() }
             .filter { it.isNotBlank() && !it.startsWith("#") }
@@ -213,14 +234,17 @@ class PointListViewModel @Inject constructor(
                 val desc = parts.getOrNull(5)?.ifBlank { null }
                 if (n == null || e == null) { failed++; return@forEach }
                 pointRepo.upsert(
-                    PointEntity(
-                        projectId = proj.id,
-                        name = name,
-                        northing = n,
-                        easting = e,
-                        ellipsoidalHeight = h,
-                        featureCode = code,
-                        description = desc
+                    geoid.withOrthometricHeight(
+                        PointEntity(
+                            projectId = proj.id,
+                            name = name,
+                            northing = n,
+                            easting = e,
+                            ellipsoidalHeight = h,
+                            featureCode = code,
+                            description = desc
+                        ),
+                        proj
                     )
                 )
                 added++
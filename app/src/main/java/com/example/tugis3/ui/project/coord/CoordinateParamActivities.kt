@@ -22,11 +22,18 @@ import androidx.compose.ui.platform.LocalContext
 import androidx.compose.ui.text.input.ImeAction
 import androidx.compose.ui.text.input.KeyboardType
 import androidx.compose.ui.unit.dp
+import com.example.tugis3.coord.transform.Ntv2Grid
+import com.example.tugis3.data.repository.ProjectRepository
 import com.example.tugis3.ui.theme.Tugis3Theme
 import dagger.hilt.android.AndroidEntryPoint
+import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.first
 import kotlinx.coroutines.flow.firstOrNull
 import kotlinx.coroutines.launch
+import kotlinx.coroutines.withContext
+import java.io.File
+import javax.inject.Inject
 import androidx.datastore.preferences.core.edit
 import androidx.datastore.preferences.core.stringPreferencesKey
 import androidx.datastore.preferences.preferencesDataStore
@@ -54,6 +61,10 @@ private suspend fun loadParam(context: Context, key: String): String {
     return loaded
 }
 
+/** Ekran dışından (ör. GeoidService) kayıtlı parametreyi okur; anahtar ekranlardaki "activityId:key" düzenidir. */
+suspend fun loadCoordParam(context: Context, activityId: String, key: String): String =
+    loadParam(context, "$activityId:$key")
+
 // Basit, cancellation-safe firstOrNull wrapper
 private suspend fun <T> Flow<T>.firstOrNullSafe(): T? = try { firstOrNull() } catch (_: Exception) { null }
 
@@ -128,12 +139,15 @@ private fun paramDefinitions(activityId: String): List<ParamDef> = when(activity
         ParamDef(key = "trend", label = "Trend", numeric = true)
     )
     "GridFileActivity" -> listOf(
-        ParamDef(key = "gridPath", label = "Grid Path"),
+        ParamDef(key = "gridPath", label = "Grid Path (NTv2 .gsb)"),
         ParamDef(key = "checksum", label = "Checksum"),
         ParamDef(key = "version", label = "Version")
     )
     "GeoidFileActivity" -> listOf(
-        ParamDef(key = "geoidPath", label = "Geoid Path"),
+        ParamDef(key = "geoidPath", label = "Geoid Path (.pgm / .gsf)"),
+        ParamDef(key = "interpolation", label = "Enterpolasyon (BILINEAR / BIQUADRATIC)", validator = {
+            if (it.isBlank() || it.trim().uppercase() in listOf("BILINEAR", "BIQUADRATIC")) null else "BILINEAR veya BIQUADRATIC"
+        }),
         ParamDef(key = "modelName", label = "Model Name"),
         ParamDef(key = "version", label = "Version")
     )
@@ -173,7 +187,11 @@ private fun Double.format(dec: Int): String = runCatching { "% .${dec}f".format(
 
 @OptIn(ExperimentalMaterial3Api::class)
 @Composable
-private fun GenericParamScreen(activityId: String, onBack: () -> Unit) {
+private fun GenericParamScreen(
+    activityId: String,
+    onSaved: suspend (Map<String, String>) -> String? = { null },
+    onBack: () -> Unit
+) {
     val scope = rememberCoroutineScope()
     val snackbarHostState = remember { SnackbarHostState() }
     var dirty by remember { mutableStateOf(false) }
@@ -300,7 +318,8 @@ private fun GenericParamScreen(activityId: String, onBack: () -> Unit) {
                 saveParam(context, key, fs.text.value.trim())
             }
             dirty = false
-            snackbarHostState.showSnackbar("Kaydedildi")
+            val message = onSaved(fieldStates.associate { it.def.key to it.text.value.trim() })
+            snackbarHostState.showSnackbar(message ?: "Kaydedildi")
         }
     }
 
@@ -451,9 +470,13 @@ private fun GenericParamScreen(activityId: String, onBack: () -> Unit) {
 
 abstract class BaseParamActivity: ComponentActivity() {
     abstract val id: String
+
+    /** Kayıttan sonra ekranın ek işi; dönen mesaj "Kaydedildi" yerine gösterilir. */
+    open suspend fun onParamsSaved(values: Map<String, String>): String? = null
+
     override fun onCreate(savedInstanceState: Bundle?) {
         super.onCreate(savedInstanceState)
-        setContent { Tugis3Theme { GenericParamScreen(id) { finish() } } }
+        setContent { Tugis3Theme { GenericParamScreen(id, onSaved = ::onParamsSaved) { finish() } } }
     }
 }
 
@@ -462,6 +485,25 @@ abstract class BaseParamActivity: ComponentActivity() {
 @AndroidEntryPoint class FourParamsActivity: BaseParamActivity() { override val id = "FourParamsActivity" }
 @AndroidEntryPoint class VerticalControlParametersActivity: BaseParamActivity() { override val id = "VerticalControlParametersActivity" }
 @AndroidEntryPoint class VerticalAdjustmentParametersActivity: BaseParamActivity() { override val id = "VerticalAdjustmentParametersActivity" }
-@AndroidEntryPoint class GridFileActivity: BaseParamActivity() { override val id = "GridFileActivity" }
+@AndroidEntryPoint class GridFileActivity: BaseParamActivity() {
+    override val id = "GridFileActivity"
+    @Inject lateinit var projectRepo: ProjectRepository
+
+    /** NTv2 dosyası doğrulanıp aktif projeye yazılır; ProjectionEngine datum kaydırmasını oradan kurar. */
+    override suspend fun onParamsSaved(values: Map<String, String>): String? {
+        val project = projectRepo.observeActiveProject().first() ?: return "Aktif proje yok; ızgara projeye bağlanmadı"
+        val raw = values["gridPath"].orEmpty()
+        if (raw.isBlank()) {
+            projectRepo.updateDatumGrid(project.id, null)
+            return "Izgara kaldırıldı"
+        }
+        // Göreli yollar uygulamanın dış dosyalar dizinindeki grid/ altında aranır
+        val file = File(raw).takeIf { it.isAbsolute } ?: File(File(getExternalFilesDir(null) ?: filesDir, "grid"), raw)
+        val grid = withContext(Dispatchers.IO) { runCatching { Ntv2Grid.open(file) } }
+            .getOrElse { return "NTv2 açılamadı: ${it.message}" }
+        projectRepo.updateDatumGrid(project.id, file.absolutePath)
+        return "NTv2 bağlandı: ${grid.fromSystem} -> ${grid.toSystem}, ${grid.subgridCount} alt ızgara"
+    }
+}
 @AndroidEntryPoint class GeoidFileActivity: BaseParamActivity() { override val id = "GeoidFileActivity" }
 @AndroidEntryPoint class LocalOffsetsActivity: BaseParamActivity() { override val id = "LocalOffsetsActivity" }
@@ -28,12 +28,17 @@ import dagger.hilt.android.AndroidEntryPoint
 import dagger.hilt.android.lifecycle.HiltViewModel
 import androidx.lifecycle.ViewModel
 import androidx.lifecycle.viewModelScope
+import com.example.tugis3.coord.catalog.ProjectionCatalogIndex
+import com.example.tugis3.coord.transform.DatumTransformation
+import com.example.tugis3.coord.transform.ProjectionFactory
 import com.example.tugis3.data.repository.ProjectRepository
 import com.example.tugis3.prefs.PrefsRepository
+import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.flow.SharingStarted
 import kotlinx.coroutines.flow.combine
 import kotlinx.coroutines.flow.stateIn
 import kotlinx.coroutines.launch
+import kotlinx.coroutines.withContext
 import kotlin.math.abs
 import kotlin.math.roundToInt
 import javax.inject.Inject
@@ -100,41 +105,62 @@ class ProjectionParametersViewModel @Inject constructor(
         projectRepo.updateUtmCompat(id, zone, north, epsg)
     }
 
-    suspend fun applyDefinition(def: ProjectionDefinition) {
+    /**
+     * Katalog satırını projeye yazar. Desteklenmeyen projeksiyon veya geçersiz datum parametrelerinde
+     * hiçbir alan yazılmaz ve kullanıcıya gösterilecek hata döner; başarıda null.
+     */
+    suspend fun applyDefinition(def: ProjectionDefinition): String? {
         val (_, projId) = uiState.value
-        val id = projId ?: return
-        // Elipsoid
-        def.ellipsoidName?.let { name ->
-            if (def.semiMajor != null && def.invF != null) {
-                projectRepo.updateEllipsoid(id, name, def.semiMajor, def.invF)
-            }
+        val id = projId ?: return "Aktif proje yok"
+        if (!ProjectionFactory.isSupported(def.projection)) return "${def.name}: ${def.projection} projeksiyonu desteklenmiyor"
+        if (def.datumMode != null) {
+            DatumTransformation.validateParameters(
+                def.datumDx ?: 0.0, def.datumDy ?: 0.0, def.datumDz ?: 0.0,
+                def.datumRx ?: 0.0, def.datumRy ?: 0.0, def.datumRz ?: 0.0,
+                def.datumScalePpm ?: 0.0
+            )?.let { return "${def.name}: $it" }
         }
-        // Projeksiyon türü ve parametreleri
         val type = def.projection
         val cm = def.centralMeridianDeg
-        val fn = def.falseNorthing
-        val fe = def.falseEasting
-        val k0 = def.scale
-        val lat0 = def.latitudeOrigin
-        val sp1 = def.stdParallel1
-        val sp2 = def.stdParallel2
-        projectRepo.updateProjectionAdvanced(id, type, cm, fn, fe, k0, lat0, sp1, sp2)
-
         // UTM türet (sadece TM ve cm uygun ise)
-        if (type == "Transverse_Mercator") {
-            val zone = cm?.let { (((it + 183.0) / 6.0).roundToInt()).takeIf { z -> z in 1..60 && abs(z*6 - 183 - cm) < 1e-6 } }
+        val zone = if (type == "Transverse_Mercator") {
+            cm?.let { (((it + 183.0) / 6.0).roundToInt()).takeIf { z -> z in 1..60 && abs(z*6 - 183 - cm) < 1e-6 } }
+        } else null
+        // Tüm alanlar tek işlemde: gözlemciler (ProjectionEngine) yarım uygulanmış tanımı görmez
+        projectRepo.updateProject(id) { p ->
+            val ellipsoid = if (def.ellipsoidName != null && def.semiMajor != null && def.invF != null) {
+                p.copy(ellipsoidName = def.ellipsoidName, semiMajorA = def.semiMajor, invFlattening = def.invF)
+            } else p
+            val projected = ellipsoid.copy(
+                projectionType = type,
+                projCentralMeridianDeg = cm,
+                projFalseNorthing = def.falseNorthing,
+                projFalseEasting = def.falseEasting,
+                projScaleFactor = def.scale,
+                projLatOrigin = def.latitudeOrigin,
+                projStdParallel1 = def.stdParallel1,
+                projStdParallel2 = def.stdParallel2,
+                projAzimuthDeg = def.azimuthDeg,
+                projGridAngleDeg = def.gridAngleDeg,
+                datumMode = def.datumMode,
+                datumDx = def.datumDx, datumDy = def.datumDy, datumDz = def.datumDz,
+                datumRx = def.datumRx, datumRy = def.datumRy, datumRz = def.datumRz,
+                datumScalePpm = def.datumScalePpm
+            )
             if (zone != null) {
-                val north = (lat0 ?: 0.0) >= 0
-                val epsg = (if (north) 32600 else 32700) + zone
-                projectRepo.updateUtm(id, zone, north, epsg)
-            }
+                val north = (def.latitudeOrigin ?: 0.0) >= 0
+                projected.copy(utmZone = zone, utmNorthHemisphere = north, epsgCode = (if (north) 32600 else 32700) + zone)
+            } else projected
         }
+        return null
     }
 
     fun clearAdvanced() = viewModelScope.launch {
         val (_, projId) = uiState.value
         val id = projId ?: return@launch
         projectRepo.updateProjectionAdvanced(id, null, null, null, null, null, null, null, null)
+        projectRepo.updateProjectionOblique(id, null, null)
+        projectRepo.updateDatum(id, null, null, null, null, null, null, null, null)
     }
 
     fun saveAdvanced(
@@ -203,7 +229,19 @@ data class ProjectionDefinition(
     val scale: Double?,
     val latitudeOrigin: Double?,
     val stdParallel1: Double?,
-    val stdParallel2: Double?
+    val stdParallel2: Double?,
+    // Oblique Mercator (Hotine) için merkez hattı azimutu ve ızgara açısı
+    val azimuthDeg: Double? = null,
+    val gridAngleDeg: Double? = null,
+    // WGS84 <-> yerel datum (katalog modu; DX..RZ metre / yay saniyesi, ölçek ppm). Null ise dönüşüm yok.
+    val datumMode: Int? = null,
+    val datumDx: Double? = null,
+    val datumDy: Double? = null,
+    val datumDz: Double? = null,
+    val datumRx: Double? = null,
+    val datumRy: Double? = null,
+    val datumRz: Double? = null,
+    val datumScalePpm: Double? = null
 )
 
 // Gelişmiş: CSV parse sonucu uyarıları ile birlikte döndür
@@ -252,6 +290,65 @@ private fun parseProjectionCsvValidated(raw:String): ProjectionCatalog {
     return ProjectionCatalog(defs, warnings)
 }
 
+private const val GROUP_ROW_LIMIT = 200
+
+private fun ProjectionCatalogIndex.Entry.toDefinition(): ProjectionDefinition {
+    // Azimut: Oblique Mercator'da αc, Krovak'ta koni ekseninin eş-enlemi αC
+    val oblique = projection.endsWith("Oblique_Mercator") || projection == "Krovak_Oblique_Conic_Conformal"
+    val hasDatum = dx != 0.0 || dy != 0.0 || dz != 0.0 || rx != 0.0 || ry != 0.0 || rz != 0.0 || scalePpm != 0.0
+    return ProjectionDefinition(
+        country = country,
+        name = name,
+        ellipsoidName = ellipsoidName,
+        semiMajor = semiMajor,
+        invF = invF,
+        projection = projection,
+        centralMeridianDeg = centralMeridianDeg,
+        falseNorthing = falseNorthing,
+        falseEasting = falseEasting,
+        scale = scale,
+        latitudeOrigin = latitudeOrigin,
+        stdParallel1 = stdParallel1,
+        stdParallel2 = stdParallel2,
+        azimuthDeg = azimuthDeg.takeIf { oblique },
+        gridAngleDeg = gridAngleDeg.takeIf { oblique },
+        datumMode = datumMode.takeIf { hasDatum },
+        datumDx = dx.takeIf { hasDatum },
+        datumDy = dy.takeIf { hasDatum },
+        datumDz = dz.takeIf { hasDatum },
+        datumRx = rx.takeIf { hasDatum },
+        datumRy = ry.takeIf { hasDatum },
+        datumRz = rz.takeIf { hasDatum },
+        datumScalePpm = scalePpm.takeIf { hasDatum }
+    )
+}
+
+// Favori anahtarı adla başlar; indekste yalnız aynı adlı satırlar çözülür
+private fun resolveFavorites(
+    index: ProjectionCatalogIndex?,
+    extras: List<ProjectionDefinition>,
+    keys: Set<String>
+): List<ProjectionDefinition> {
+    val extraMap = extras.associateBy { defKey(it) }
+    return keys.mapNotNull { k ->
+        extraMap[k] ?: index?.let { idx ->
+            val name = k.substringBefore('|')
+            idx.search(name).asSequence()
+                .filter { idx.name(it) == name }
+                .map { idx.entry(it).toDefinition() }
+                .firstOrNull { defKey(it) == k }
+        }
+    }
+}
+
+// İndeks grupları ile ek/özel tanımların gruplarını birleştir
+private fun mergeGroups(base: List<ProjectionCatalogIndex.Group>, extra: List<String?>): List<ProjectionCatalogIndex.Group> {
+    val counts = LinkedHashMap<String, Int>()
+    base.forEach { counts[it.name] = it.size }
+    extra.forEach { n -> n?.takeIf { it.isNotBlank() }?.let { counts[it] = (counts[it] ?: 0) + 1 } }
+    return counts.map { (n, c) -> ProjectionCatalogIndex.Group(n, c) }.sortedBy { it.name }
+}
+
 private fun defKey(def: ProjectionDefinition): String = listOf(
     def.name.orEmpty(),
     def.projection.orEmpty(),
@@ -295,7 +392,14 @@ private fun ProjectionRow(
                 Text(def.name ?: "(adsız)", style = MaterialTheme.typography.labelLarge)
                 Row(horizontalArrangement = Arrangement.spacedBy(6.dp)) {
                     def.ellipsoidName?.let { Text(it, style = MaterialTheme.typography.labelSmall) }
-                    def.projection?.let { Text(it, style = MaterialTheme.typography.labelSmall) }
+                    def.projection?.let {
+                        val supported = ProjectionFactory.isSupported(it)
+                        Text(
+                            if (supported) it else "$it (desteklenmiyor)",
+                            style = MaterialTheme.typography.labelSmall,
+                            color = if (supported) LocalContentColor.current else MaterialTheme.colorScheme.error
+                        )
+                    }
                     def.centralMeridianDeg?.let { Text("CM=${it}", style = MaterialTheme.typography.labelSmall) }
                 }
             }
@@ -310,6 +414,37 @@ private fun ProjectionRow(
     HorizontalDivider()
 }
 
+// Ülke / elipsoit grupları; bir grubun satırları yalnız açıldığında çözülür
+@Composable
+private fun CatalogGroupList(
+    groups: List<ProjectionCatalogIndex.Group>,
+    expanded: String?,
+    onExpand: (String?) -> Unit,
+    rowsOf: (String) -> List<ProjectionDefinition>,
+    favoriteKeys: Set<String>,
+    onApply: (ProjectionDefinition) -> Unit,
+    onToggleFavorite: (ProjectionDefinition) -> Unit,
+    modifier: Modifier
+) {
+    LazyColumn(modifier) {
+        items(groups, key = { it.name }) { g ->
+            val isExpanded = expanded == g.name
+            Column(Modifier.fillMaxWidth().clickable { onExpand(if (isExpanded) null else g.name) }.padding(vertical = 6.dp)) {
+                Row(Modifier.fillMaxWidth(), horizontalArrangement = Arrangement.SpaceBetween, verticalAlignment = Alignment.CenterVertically) {
+                    Text("${g.name} (${g.size})", style = MaterialTheme.typography.bodyMedium)
+                    Text(if (isExpanded) "-" else "+", style = MaterialTheme.typography.labelLarge)
+                }
+                if (isExpanded) {
+                    val defs = remember(g.name) { rowsOf(g.name) }
+                    defs.forEach { d -> key(defKey(d)) { ProjectionRow(d, defKey(d) in favoriteKeys, onApply, onToggleFavorite) } }
+                    if (g.size > defs.size) Text("… ${g.size - defs.size} daha", style = MaterialTheme.typography.labelSmall)
+                }
+            }
+            HorizontalDivider()
+        }
+    }
+}
+
 @OptIn(ExperimentalMaterial3Api::class)
 @Composable
 private fun ProjectionParametersScreen(vm: ProjectionParametersViewModel, onBack: () -> Unit) {
@@ -336,29 +471,18 @@ private fun ProjectionParametersScreen(vm: ProjectionParametersViewModel, onBack
     val centralMeridianDeg = remember(zoneInt) { zoneInt?.let { it * 6 - 183 } }
     val k0 = 0.9996
 
-    // CSV yükleme sade
-    val rawCatalogResult = remember(context) {
-        runCatching {
-            val baseText = try { context.assets.open("Projeksions.csv").use { it.reader(Charsets.UTF_8).readText() } } catch (_: Exception) {
-                try { File(context.filesDir.parentFile?.parentFile, "Projeksions.csv").takeIf { it.exists() }?.readText().orEmpty() } catch (_: Exception) { "" }
-            }
-            val baseCat = parseProjectionCsvValidated(baseText)
-            val extraText = try { context.assets.open("AdditionalProjections.csv").use { it.reader(Charsets.UTF_8).readText() } } catch (_: Exception) { "" }
-            val extraCat = if (extraText.isNotBlank()) parseProjectionCsvValidated(extraText) else ProjectionCatalog(emptyList(), emptyList())
-            val normalizedBase = baseCat.list.map { d ->
-                val c = d.country?.trim().orEmpty()
-                val norm = when {
-                    c.startsWith("USA COUNTY") -> "USA"
-                    c.equals("US", true) -> "USA"
-                    else -> c
-                }
-                if (norm == d.country) d else d.copy(country = norm)
-            }
-            val normalizedExtra = extraCat.list.map { d -> d.copy(country = d.country?.trim()) }
-            ProjectionCatalog(normalizedBase + normalizedExtra, baseCat.warnings + extraCat.warnings)
-        }.getOrElse { ProjectionCatalog(emptyList(), listOf("Okuma hatası: ${it.message}")) }
+    // Katalog derleme zamanında üretilen indeksten açılır; satırlar yalnız gösterilirken çözülür
+    val catalogLoad by produceState<Result<ProjectionCatalogIndex>?>(null, context) {
+        value = withContext(Dispatchers.IO) { runCatching { ProjectionCatalogIndex.get(context) } }
     }
-    val catalogResult = rawCatalogResult
+    val catalogIndex = catalogLoad?.getOrNull()
+    // Ek tanımlar küçük bir CSV; doğrudan ayrıştırılır
+    val extraCatalog = remember(context) {
+        val extraText = try { context.assets.open("AdditionalProjections.csv").use { it.reader(Charsets.UTF_8).readText() } } catch (_: Exception) { "" }
+        val extraCat = if (extraText.isNotBlank()) parseProjectionCsvValidated(extraText) else ProjectionCatalog(emptyList(), emptyList())
+        extraCat.copy(list = extraCat.list.map { d -> d.copy(country = d.country?.trim()) })
+    }
+    val catalogWarnings = extraCatalog.warnings + listOfNotNull(catalogLoad?.exceptionOrNull()?.let { "Katalog indeksi açılamadı: ${it.message}" })
     var showImportDialog by remember { mutableStateOf(false) }
     var importText by remember { mutableStateOf("") }
     var importError by remember { mutableStateOf<String?>(null) }
@@ -371,8 +495,8 @@ private fun ProjectionParametersScreen(vm: ProjectionParametersViewModel, onBack
         }
     }
     fun persistCustom() { runCatching { writeCustomDefinitions(customDefsFile, customDefs) } }
-    var loadedLimit by remember { mutableStateOf(300) }
-    val allDefinitions = remember(catalogResult.list, customDefs, loadedLimit) { (catalogResult.list + customDefs).take(loadedLimit) }
+    val extraDefinitions = extraCatalog.list + customDefs
+    val catalogSize = (catalogIndex?.size ?: 0) + extraDefinitions.size
     var filter by remember { mutableStateOf("") }
 
     fun exportProjections(): File? {
@@ -380,8 +504,7 @@ private fun ProjectionParametersScreen(vm: ProjectionParametersViewModel, onBack
         val time = SimpleDateFormat("yyyyMMdd_HHmmss", Locale.US).format(Date())
         val outFile = File(context.filesDir, "projection_export_${time}.json")
         val current = vm.uiState.value.first
-        val favoritesMap = allDefinitions.associateBy { defKey(it) }
-        val favorites = vm.favoriteKeys.value.mapNotNull { favoritesMap[it] }
+        val favorites = resolveFavorites(catalogIndex, extraDefinitions, vm.favoriteKeys.value)
         val exportObj = mapOf(
             "currentProjectProjection" to mapOf(
                 "projectionType" to current.projType,
@@ -429,9 +552,13 @@ private fun ProjectionParametersScreen(vm: ProjectionParametersViewModel, onBack
             if (obj.has("customDefinitions")) obj.getAsJsonArray("customDefinitions").forEach { el -> toDef(el)?.let { added += it } }
             toDef(element)?.let { added += it }
         }
-        val existingKeys = (allDefinitions).map { defKey(it) }.toMutableSet()
+        val existingKeys = extraDefinitions.map { defKey(it) }.toMutableSet()
         var count = 0
-        added.forEach { d -> val k = defKey(d); if (k !in existingKeys) { customDefs += d; existingKeys += k; count++ } }
+        added.forEach { d ->
+            val k = defKey(d)
+            val inCatalog = resolveFavorites(catalogIndex, emptyList(), setOf(k)).isNotEmpty()
+            if (k !in existingKeys && !inCatalog) { customDefs += d; existingKeys += k; count++ }
+        }
         if (count > 0) {
             persistCustom()
             Log.i("ProjectionParams", "$count yeni tanım eklendi")
@@ -651,32 +778,47 @@ private fun ProjectionParametersScreen(vm: ProjectionParametersViewModel, onBack
         AlertDialog(
             onDismissRequest = { showCatalog = false },
             confirmButton = { TextButton(onClick = { showCatalog = false }) { Text("Kapat") } },
-            title = { Text("Projeksiyon Kataloğu (${allDefinitions.size})") },
+            title = { Text("Projeksiyon Kataloğu ($catalogSize)") },
             text = {
                 var catalogTab by remember { mutableStateOf(0) }
                 var expandedCountry by remember { mutableStateOf<String?>(null) }
                 var expandedEllipsoid by remember { mutableStateOf<String?>(null) }
                 val favoriteKeys by vm.favoriteKeys.collectAsState()
-                val favoritesDefs = remember(allDefinitions, favoriteKeys) {
-                    val keyMap = allDefinitions.associateBy { defKey(it) }
-                    favoriteKeys.mapNotNull { keyMap[it] }
+                val favoritesDefs = remember(catalogIndex, extraDefinitions, favoriteKeys) {
+                    resolveFavorites(catalogIndex, extraDefinitions, favoriteKeys)
                 }
-                val countries = remember(allDefinitions) { allDefinitions.mapNotNull { it.country?.takeIf { c -> c.isNotBlank() } }.distinct().sorted() }
-                val ellipsoids = remember(allDefinitions) { allDefinitions.mapNotNull { it.ellipsoidName?.takeIf { e -> e.isNotBlank() } }.distinct().sorted() }
-                val defsByCountry = remember(allDefinitions) { allDefinitions.groupBy { it.country.orEmpty() } }
-                val defsByEllipsoid = remember(allDefinitions) { allDefinitions.groupBy { it.ellipsoidName.orEmpty() } }
+                // Grup adları ve sayıları indekste hazır; satır çözümü yok
+                val countries = remember(catalogIndex, extraDefinitions) {
+                    mergeGroups(catalogIndex?.countries().orEmpty(), extraDefinitions.map { it.country })
+                }
+                val ellipsoids = remember(catalogIndex, extraDefinitions) {
+                    mergeGroups(catalogIndex?.ellipsoids().orEmpty(), extraDefinitions.map { it.ellipsoidName })
+                }
+                // Ad / ülke / EPSG araması: indeks yalnız eşleşen satırları çözer
+                val searchResults = remember(catalogIndex, extraDefinitions, filter) {
+                    if (filter.isBlank()) emptyList() else {
+                        val fromIndex = catalogIndex?.let { idx -> idx.search(filter, GROUP_ROW_LIMIT).map { idx.entry(it).toDefinition() } }.orEmpty()
+                        fromIndex + extraDefinitions.filter { d -> (d.name ?: "").contains(filter, true) || (d.country ?: "").contains(filter, true) }
+                    }
+                }
+                fun countryRows(c: String): List<ProjectionDefinition> =
+                    catalogIndex?.let { idx -> idx.rowsOfCountry(c).take(GROUP_ROW_LIMIT).map { idx.entry(it).toDefinition() } }.orEmpty() +
+                        extraDefinitions.filter { it.country == c }
+                fun ellipsoidRows(e: String): List<ProjectionDefinition> =
+                    catalogIndex?.let { idx -> idx.rowsOfEllipsoid(e).take(GROUP_ROW_LIMIT).map { idx.entry(it).toDefinition() } }.orEmpty() +
+                        extraDefinitions.filter { it.ellipsoidName == e }
                 val hasFavorites = favoritesDefs.isNotEmpty()
                 Column(Modifier.fillMaxWidth(), verticalArrangement = Arrangement.spacedBy(8.dp)) {
-                    if (catalogResult.warnings.isNotEmpty()) {
+                    if (catalogWarnings.isNotEmpty()) {
                         ElevatedCard(Modifier.fillMaxWidth()) {
                             Column(Modifier.padding(8.dp), verticalArrangement = Arrangement.spacedBy(4.dp)) {
                                 Text("Uyarılar", style = MaterialTheme.typography.labelLarge)
-                                catalogResult.warnings.take(4).forEach { Text(it, style = MaterialTheme.typography.labelSmall) }
-                                if (catalogResult.warnings.size > 4) Text("… ${catalogResult.warnings.size - 4} daha", style = MaterialTheme.typography.labelSmall)
+                                catalogWarnings.take(4).forEach { Text(it, style = MaterialTheme.typography.labelSmall) }
+                                if (catalogWarnings.size > 4) Text("… ${catalogWarnings.size - 4} daha", style = MaterialTheme.typography.labelSmall)
                             }
                         }
                     }
-                    OutlinedTextField(value = filter, onValueChange = { filter = it }, singleLine = true, label = { Text("Ara") }, modifier = Modifier.fillMaxWidth())
+                    OutlinedTextField(value = filter, onValueChange = { filter = it }, singleLine = true, label = { Text("Ara (ad, ülke, EPSG)") }, modifier = Modifier.fillMaxWidth())
                     val tabs = buildList { if (hasFavorites) add("Favoriler"); add("Ülke"); add("Elipsoid") }
                     val effectiveIndex = when {
                         !hasFavorites && catalogTab > 1 -> 0
@@ -694,70 +836,58 @@ private fun ProjectionParametersScreen(vm: ProjectionParametersViewModel, onBack
                     HorizontalDivider()
                     val listModifier = Modifier.height(320.dp)
                     val applyDef: (ProjectionDefinition) -> Unit = { def ->
-                        scope.launch { vm.applyDefinition(def) }
-                        def.centralMeridianDeg?.let { cmVal ->
-                            val z = ((cmVal + 183.0) / 6.0)
-                            if (abs(z - z.roundToInt()) < 1e-6) {
-                                val zi = z.roundToInt(); if (zi in 1..60) zone = zi.toString()
+                        scope.launch {
+                            // Desteklenmeyen tip veya geçersiz datum: satır uygulanmaz, hata gösterilir
+                            vm.applyDefinition(def)?.let { err -> snack.showSnackbar(err); return@launch }
+                            def.centralMeridianDeg?.let { cmVal ->
+                                val z = ((cmVal + 183.0) / 6.0)
+                                if (abs(z - z.roundToInt()) < 1e-6) {
+                                    val zi = z.roundToInt(); if (zi in 1..60) zone = zi.toString()
+                                }
                             }
+                            showAdvanced = true
+                            showCatalog = false
+                            snack.showSnackbar("${def.name} uygulandı")
                         }
-                        showAdvanced = true
-                        scope.launch { snack.showSnackbar("${def.name} uygulandı") }
-                        showCatalog = false
                     }
                     val toggleFav: (ProjectionDefinition) -> Unit = { d -> vm.toggleFavorite(defKey(d)) }
                     when {
-                        allDefinitions.isEmpty() -> Text("Katalog boş veya yüklenemedi", style = MaterialTheme.typography.bodyMedium)
+                        catalogLoad == null -> Text("Katalog yükleniyor…", style = MaterialTheme.typography.bodyMedium)
+                        catalogSize == 0 -> Text("Katalog boş veya yüklenemedi", style = MaterialTheme.typography.bodyMedium)
                         hasFavorites && effectiveIndex == 0 -> {
-                            if (favoritesDefs.isEmpty()) Text("Henüz favori yok", style = MaterialTheme.typography.labelSmall) else {
-                                val favFiltered = favoritesDefs.filter { def ->
-                                    filter.isBlank() || (def.name ?: "").contains(filter, true) || (def.country ?: "").contains(filter, true)
-                                }
-                                LazyColumn(listModifier) {
-                                    items(favFiltered, key = { defKey(it) }) { def -> ProjectionRow(def, defKey(def) in favoriteKeys, applyDef, toggleFav) }
-                                }
+                            val favFiltered = favoritesDefs.filter { def ->
+                                filter.isBlank() || (def.name ?: "").contains(filter, true) || (def.country ?: "").contains(filter, true)
                             }
-                        }
-                        (hasFavorites && effectiveIndex == 1) || (!hasFavorites && effectiveIndex == 0) -> {
-                            val countryFiltered = if (filter.isBlank()) countries else countries.filter { it.contains(filter, true) }
                             LazyColumn(listModifier) {
-                                items(countryFiltered, key = { it }) { c ->
-                                    val defs = defsByCountry[c].orEmpty().let { list -> if (filter.isBlank()) list else list.filter { d -> (d.name ?: "").contains(filter, true) || (d.ellipsoidName ?: "").contains(filter, true) } }
-                                    val expanded = expandedCountry == c
-                                    Column(Modifier.fillMaxWidth().clickable { expandedCountry = if (expanded) null else c }.padding(vertical = 6.dp)) {
-                                        Row(Modifier.fillMaxWidth(), horizontalArrangement = Arrangement.SpaceBetween, verticalAlignment = Alignment.CenterVertically) {
-                                            Text("$c (${defs.size})", style = MaterialTheme.typography.bodyMedium)
-                                            Text(if (expanded) "-" else "+", style = MaterialTheme.typography.labelLarge)
-                                        }
-                                        if (expanded) {
-                                            defs.take(200).forEach { d -> key(defKey(d)) { ProjectionRow(d, defKey(d) in favoriteKeys, applyDef, toggleFav) } }
-                                            if (defs.size > 200) Text("… ${defs.size - 200} daha", style = MaterialTheme.typography.labelSmall)
-                                        }
-                                    }
-                                    HorizontalDivider()
-                                }
+                                items(favFiltered, key = { defKey(it) }) { def -> ProjectionRow(def, defKey(def) in favoriteKeys, applyDef, toggleFav) }
                             }
                         }
-                        else -> {
-                            val ellipsoidFiltered = if (filter.isBlank()) ellipsoids else ellipsoids.filter { it.contains(filter, true) }
+                        filter.isNotBlank() -> {
+                            if (searchResults.isEmpty()) Text("Eşleşme yok", style = MaterialTheme.typography.labelSmall)
                             LazyColumn(listModifier) {
-                                items(ellipsoidFiltered, key = { it }) { eName ->
-                                    val defs = defsByEllipsoid[eName].orEmpty().let { list -> if (filter.isBlank()) list else list.filter { d -> (d.name ?: "").contains(filter, true) || (d.country ?: "").contains(filter, true) } }
-                                    val expanded = expandedEllipsoid == eName
-                                    Column(Modifier.fillMaxWidth().clickable { expandedEllipsoid = if (expanded) null else eName }.padding(vertical = 6.dp)) {
-                                        Row(Modifier.fillMaxWidth(), horizontalArrangement = Arrangement.SpaceBetween, verticalAlignment = Alignment.CenterVertically) {
-                                            Text("$eName (${defs.size})", style = MaterialTheme.typography.bodyMedium)
-                                            Text(if (expanded) "-" else "+", style = MaterialTheme.typography.labelLarge)
-                                        }
-                                        if (expanded) {
-                                            defs.take(200).forEach { d -> key(defKey(d)) { ProjectionRow(d, defKey(d) in favoriteKeys, applyDef, toggleFav) } }
-                                            if (defs.size > 200) Text("… ${defs.size - 200} daha", style = MaterialTheme.typography.labelSmall)
-                                        }
-                                    }
-                                    HorizontalDivider()
-                                }
+                                items(searchResults) { d -> ProjectionRow(d, defKey(d) in favoriteKeys, applyDef, toggleFav) }
                             }
                         }
+                        (hasFavorites && effectiveIndex == 1) || (!hasFavorites && effectiveIndex == 0) -> CatalogGroupList(
+                            groups = countries,
+                            expanded = expandedCountry,
+                            onExpand = { expandedCountry = it },
+                            rowsOf = ::countryRows,
+                            favoriteKeys = favoriteKeys,
+                            onApply = applyDef,
+                            onToggleFavorite = toggleFav,
+                            modifier = listModifier
+                        )
+                        else -> CatalogGroupList(
+                            groups = ellipsoids,
+                            expanded = expandedEllipsoid,
+                            onExpand = { expandedEllipsoid = it },
+                            rowsOf = ::ellipsoidRows,
+                            favoriteKeys = favoriteKeys,
+                            onApply = applyDef,
+                            onToggleFavorite = toggleFav,
+                            modifier = listModifier
+                        )
                     }
                 }
             }
@@ -7,6 +7,7 @@ import android.hardware.SensorEventListener
 import android.hardware.SensorManager
 import androidx.lifecycle.AndroidViewModel
 import androidx.lifecycle.viewModelScope
+import com.example.tugis3.coord.geoid.GeoidService
 import com.example.tugis3.coord.transform.NoOpTransformer
 import com.example.tugis3.coord.transform.ProjectionEngine
 import com.example.tugis3.data.db.entity.PointEntity
@@ -14,6 +15,7 @@ import com.example.tugis3.data.repository.PointRepository
 import com.example.tugis3.data.repository.ProjectRepository
 import com.example.tugis3.data.repository.SurveyPointRepository
 import com.example.tugis3.gnss.GnssEngine
+import com.example.tugis3.gnss.GnssPipeline
 import dagger.hilt.android.lifecycle.HiltViewModel
 import kotlinx.coroutines.flow.MutableStateFlow
 import kotlinx.coroutines.flow.SharingStarted
@@ -35,7 +37,9 @@ class ARViewModel @Inject constructor(
     private val projectRepo: ProjectRepository,
     private val pointRepo: PointRepository,
     private val surveyPointRepo: SurveyPointRepository,
-    private val gnss: GnssEngine
+    private val gnss: GnssEngine,
+    private val gnssPipeline: GnssPipeline,
+    private val geoid: GeoidService
 ) : AndroidViewModel(app), SensorEventListener {
 
     data class Target(
@@ -171,6 +175,7 @@ class ARViewModel @Inject constructor(
         val tgt = st.target ?: return
         if (!st.canCapture) return
         viewModelScope.launch {
+            geoid.refresh()
             surveyPointRepo.insert(
                 com.example.tugis3.data.db.entity.SurveyPointEntity(
                     projectId = proj.id,
@@ -178,7 +183,7 @@ class ARViewModel @Inject constructor(
                     code = "AR_STK",
                     latitude = st.lat,
                     longitude = st.lon,
-                    elevation = st.ellH,
+                    elevation = geoid.localHeight(proj, st.lat, st.lon, st.ellH),
                     northing = st.curN,
                     easting = st.curE,
                     zone = proj.utmZone?.let { it.toString()+ if (proj.utmNorthHemisphere) "N" else "S" },
@@ -208,8 +213,8 @@ class ARViewModel @Inject constructor(
         }
     }
 
-    fun startEngine() = gnss.start()
-    fun stopEngine() = gnss.stop()
+    fun startEngine() = gnssPipeline.acquire(this)
+    fun stopEngine() = gnssPipeline.release(this)
 
     override fun onCleared() {
         sensorManager.unregisterListener(this)
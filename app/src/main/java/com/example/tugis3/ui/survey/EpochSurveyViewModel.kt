@@ -2,12 +2,14 @@ package com.example.tugis3.ui.survey
 
 import androidx.lifecycle.ViewModel
 import androidx.lifecycle.viewModelScope
+import com.example.tugis3.coord.geoid.GeoidService
 import com.example.tugis3.coord.transform.NoOpTransformer
 import com.example.tugis3.coord.transform.ProjectionEngine
 import com.example.tugis3.data.db.entity.SurveyPointEntity
 import com.example.tugis3.data.repository.ProjectRepository
 import com.example.tugis3.data.repository.SurveyPointRepository
 import com.example.tugis3.gnss.GnssEngine
+import com.example.tugis3.gnss.GnssPipeline
 import com.example.tugis3.gnss.model.GnssObservation
 import dagger.hilt.android.lifecycle.HiltViewModel
 import kotlinx.coroutines.Job
@@ -21,7 +23,9 @@ import kotlin.math.sqrt
 class EpochSurveyViewModel @Inject constructor(
     private val projectRepo: ProjectRepository,
     private val surveyRepo: SurveyPointRepository,
-    private val gnss: GnssEngine
+    private val gnss: GnssEngine,
+    private val gnssPipeline: GnssPipeline,
+    private val geoid: GeoidService
 ) : ViewModel() {
 
     data class Config(
@@ -156,6 +160,7 @@ class EpochSurveyViewModel @Inject constructor(
         if (!s.isCompleted || s.avgLat == null || s.avgLon == null) return
         val proj = activeProject.value ?: return
         viewModelScope.launch {
+            geoid.refresh()
             val transformer = ProjectionEngine.forProject(proj)
             val (easting, northing) = if (transformer !== NoOpTransformer) transformer.forward(s.avgLat, s.avgLon) else (s.avgLon * 111000) to (s.avgLat * 111000)
             surveyRepo.insert(
@@ -165,7 +170,7 @@ class EpochSurveyViewModel @Inject constructor(
                     code = s.config.pointCode ?: "EPOCH",
                     latitude = s.avgLat,
                     longitude = s.avgLon,
-                    elevation = s.avgEllH,
+                    elevation = geoid.localHeight(proj, s.avgLat, s.avgLon, s.avgEllH),
                     northing = northing,
                     easting = easting,
                     zone = proj.utmZone?.let { it.toString() + if (proj.utmNorthHemisphere) "N" else "S" },
@@ -184,8 +189,8 @@ class EpochSurveyViewModel @Inject constructor(
 
     private fun List<Double>.averageOrNull(): Double? = if (isEmpty()) null else average()
 
-    fun startEngine() = gnss.start()
-    fun stopEngine() = gnss.stop()
+    fun startEngine() = gnssPipeline.acquire(this)
+    fun stopEngine() = gnssPipeline.release(this)
 
     override fun onCleared() {
         stop()
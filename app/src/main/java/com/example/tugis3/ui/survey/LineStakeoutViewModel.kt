@@ -8,7 +8,10 @@ import com.example.tugis3.data.repository.PointRepository
 import com.example.tugis3.data.repository.ProjectRepository
 import com.example.tugis3.data.repository.SurveyPointRepository
 import com.example.tugis3.gnss.GnssEngine
+import com.example.tugis3.gnss.GnssPipeline
+import com.example.tugis3.gnss.extrapolatedForDisplay
 import com.example.tugis3.gnss.model.GnssObservation
+import com.example.tugis3.coord.geoid.GeoidService
 import com.example.tugis3.coord.transform.NoOpTransformer
 import com.example.tugis3.coord.transform.ProjectionEngine
 import com.example.tugis3.prefs.PrefsRepository
@@ -25,7 +28,9 @@ class LineStakeoutViewModel @Inject constructor(
     private val pointRepo: PointRepository,
     private val surveyPointRepo: SurveyPointRepository,
     private val gnss: GnssEngine,
-    private val prefs: PrefsRepository
+    private val gnssPipeline: GnssPipeline,
+    private val prefs: PrefsRepository,
+    private val geoid: GeoidService
 ) : ViewModel() {
 
     data class LineDef(
@@ -100,6 +105,9 @@ class LineStakeoutViewModel @Inject constructor(
 
     val observation = gnss.observation.stateIn(viewModelScope, SharingStarted.WhileSubscribed(5_000), null)
 
+    // Hat göstergeleri için ileri kestirilmiş konum; kayıt ham gözlemden yapılır
+    private val displayObservation = gnss.observation.extrapolatedForDisplay()
+
     private val lineFlow = combine(
         _selectedStartName,
         _selectedEndName,
@@ -131,7 +139,7 @@ class LineStakeoutViewModel @Inject constructor(
     }
 
     val state = combine(
-        observation,
+        displayObservation,
         lineFlow,
         activeProject,
         stakeInterval,
@@ -150,6 +158,24 @@ class LineStakeoutViewModel @Inject constructor(
         val sim = args[6] as Boolean
         val simLat = args[7] as Double
         val simChain = args[8] as Double
+        evaluate(obs, line, project, interval, latTol, chainTol, if (sim) simLat else 0.0, if (sim) simChain else 0.0)
+    }.stateIn(
+        viewModelScope,
+        SharingStarted.WhileSubscribed(5_000),
+        LineStakeoutState(null, null, null, null, null, null, null, emptyList(), null, false, false)
+    )
+
+    /** Gözlemin hatta göre zincir / yanal ofseti ve tolerans durumu; [simLat]/[simChain] simülasyon ötelemesidir. */
+    private fun evaluate(
+        obs: GnssObservation?,
+        line: LineDef?,
+        project: com.example.tugis3.data.db.entity.ProjectEntity?,
+        interval: Double,
+        latTol: Double,
+        chainTol: Double,
+        simLat: Double,
+        simChain: Double
+    ): LineStakeoutState =
         if (obs == null || line == null || !line.valid || project == null) {
             LineStakeoutState(obs, line, null, null, null, null, null, emptyList(), null, false, false)
         } else {
@@ -172,12 +198,8 @@ class LineStakeoutViewModel @Inject constructor(
             }
             val dx = rawE - sE
             val dy = rawN - sN
-            var projected = (dx * dE + dy * dN) / length
-            var cross = (dy * dE - dx * dN) / length
-            if (sim) {
-                projected += simChain
-                cross += simLat
-            }
+            val projected = (dx * dE + dy * dN) / length + simChain
+            val cross = (dy * dE - dx * dN) / length + simLat
             val chain = projected.coerceIn(0.0, length)
             val offset = cross
             val bearingLine = (Math.toDegrees(atan2(dE, dN)) + 360.0) % 360.0
@@ -194,11 +216,6 @@ class LineStakeoutViewModel @Inject constructor(
             val chainWithin = nearest?.let { abs(it.chain - chain) <= chainTol } ?: false
             LineStakeoutState(obs, line, length, chain, offset, bearingLine, bearingToEnd, stations, nearest, lateralWithin, chainWithin)
         }
-    }.stateIn(
-        viewModelScope,
-        SharingStarted.WhileSubscribed(5_000),
-        LineStakeoutState(null, null, null, null, null, null, null, emptyList(), null, false, false)
-    )
 
     fun toggleSim() { _sim.value = !_sim.value }
     fun setSimLat(v:Double){ _simLat.value = v }
@@ -220,25 +237,32 @@ class LineStakeoutViewModel @Inject constructor(
     fun setManualEnd(e:Double?, n:Double?){ _selectedEndName.value = null; _manualEnd.value = e to n }
     fun clearLine(){ _selectedStartName.value = null; _selectedEndName.value = null; _manualStart.value = null to null; _manualEnd.value = null to null }
 
-    fun startEngine() = gnss.start()
-    fun stopEngine() = gnss.stop()
+    fun startEngine() = gnssPipeline.acquire(this)
+    fun stopEngine() = gnssPipeline.release(this)
 
     fun saveStakeIfWithin() {
         val st = state.value
         val proj = activeProject.value ?: return
-        val obs = st.observation ?: return
-        if (!(st.lateralWithin && st.chainWithin)) return
+        val obs = gnss.observation.value ?: return
+        // Ekrandaki durum ileri kestirilmiş konumdandır; kaydedilecek ham gözlem toleransı ayrıca sağlamalı
+        val sim = _sim.value
+        val raw = evaluate(
+            obs, st.line, proj, _stakeInterval.value, _latTol.value, _chainTol.value,
+            if (sim) _simLat.value else 0.0, if (sim) _simChain.value else 0.0
+        )
+        if (!(raw.lateralWithin && raw.chainWithin)) return
         viewModelScope.launch {
+            geoid.refresh()
             val transformer = ProjectionEngine.forProject(proj)
             val (easting, northing) = if (obs.latDeg!=null && obs.lonDeg!=null) transformer.forward(obs.latDeg, obs.lonDeg) else (0.0 to 0.0)
             surveyPointRepo.insert(
                 SurveyPointEntity(
                     projectId = proj.id,
-                    name = (st.line?.name ?: "HAT") + "_" + String.format(java.util.Locale.US, "%.1f", st.chain ?: 0.0),
+                    name = (raw.line?.name ?: "HAT") + "_" + String.format(java.util.Locale.US, "%.1f", raw.chain ?: 0.0),
                     code = "LINE_STK",
                     latitude = obs.latDeg,
                     longitude = obs.lonDeg,
-                    elevation = obs.ellipsoidalHeight,
+                    elevation = geoid.localHeight(proj, obs.latDeg, obs.lonDeg, obs.ellipsoidalHeight),
                     northing = northing,
                     easting = easting,
                     zone = proj.utmZone?.let { it.toString() + if (proj.utmNorthHemisphere) "N" else "S" },
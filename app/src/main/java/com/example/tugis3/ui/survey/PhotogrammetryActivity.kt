@@ -168,7 +168,7 @@ fun PhotogrammetryScreen(onBackPressed: () -> Unit, vm: PhotogrammetryViewModel
                         ui.gcps.forEach { g ->
                             Card(Modifier.fillMaxWidth().padding(vertical = 2.dp), colors = CardDefaults.cardColors(containerColor = MaterialTheme.colorScheme.surfaceVariant)) {
                                 Row(Modifier.fillMaxWidth().padding(8.dp), horizontalArrangement = Arrangement.SpaceBetween, verticalAlignment = Alignment.CenterVertically) {
-                                    Column { Text(g.pointName, fontWeight = FontWeight.Medium); Text("E:${String.format(Locale.US, "%.2f", g.e)} N:${String.format(Locale.US, "%.2f", g.n)} Z:${g.z?.let { String.format(Locale.US, "%.2f", it) } ?: "-"}", style = MaterialTheme.typography.bodySmall) }
+                                    Column { Text(g.pointName, fontWeight = FontWeight.Medium); Text("E:${String.format(Locale.US, "%.2f", g.e)} N:${String.format(Locale.US, "%.2f", g.n)} Z:${g.z?.let { String.format(Locale.US, "%.2f", it) } ?: "-"}${g.h?.let { String.format(Locale.US, " H:%.2f", it) } ?: ""}", style = MaterialTheme.typography.bodySmall) }
                                     IconButton(onClick = { vm.removeGcp(g.pointName) }) { Icon(Icons.Default.Delete, null, tint = MaterialTheme.colorScheme.error) }
                                 }
                             }
@@ -257,30 +257,7 @@ fun PhotogrammetryScreen(onBackPressed: () -> Unit, vm: PhotogrammetryViewModel
             } },
             confirmButton = { Button(onClick = {
                 val e = gE.toDoubleOrNull(); val n = gN.toDoubleOrNull(); val z = gZ.toDoubleOrNull()
-                if (e!=null && n!=null) vm.addGcpFromPoint(
-                    com.example.tugis3.data.db.entity.PointEntity(
-                        id = 0L,
-                        projectId = 0L,
-                        name = gName,
-                        northing = n,
-                        easting = e,
-                        ellipsoidalHeight = z,
-                        orthoHeight = null,
-                        latDeg = null,
-                        lonDeg = null,
-                        fixType = null,
-                        hrms = null,
-                        pdop = null,
-                        hdop = null,
-                        vdop = null,
-                        featureCode = null,
-                        description = null,
-                        deleted = 0,
-                        deletedAt = null,
-                        createdAt = System.currentTimeMillis(),
-                        updatedAt = System.currentTimeMillis()
-                    )
-                )
+                if (e!=null && n!=null) vm.addManualGcp(gName, e, n, z)
                 showGcpDialog = false
             }) { Text("Ekle") } },
             dismissButton = { TextButton(onClick = { showGcpDialog = false }) { Text("İptal") } }
@@ -3,6 +3,7 @@ package com.example.tugis3.ui.survey
 import android.app.Application
 import androidx.lifecycle.AndroidViewModel
 import androidx.lifecycle.viewModelScope
+import com.example.tugis3.coord.geoid.GeoidService
 import com.example.tugis3.coord.transform.NoOpTransformer
 import com.example.tugis3.coord.transform.ProjectionEngine
 import com.example.tugis3.data.db.entity.PointEntity
@@ -10,6 +11,7 @@ import com.example.tugis3.data.repository.PointRepository
 import com.example.tugis3.data.repository.ProjectRepository
 import com.example.tugis3.data.repository.SurveyPointRepository
 import com.example.tugis3.gnss.GnssEngine
+import com.example.tugis3.gnss.GnssPipeline
 import dagger.hilt.android.lifecycle.HiltViewModel
 import kotlinx.coroutines.flow.*
 import kotlinx.coroutines.launch
@@ -29,7 +31,9 @@ class PhotogrammetryViewModel @Inject constructor(
     private val projectRepo: ProjectRepository,
     private val pointRepo: PointRepository,
     private val surveyPointRepo: SurveyPointRepository,
-    private val gnss: GnssEngine
+    private val gnss: GnssEngine,
+    private val gnssPipeline: GnssPipeline,
+    private val geoid: GeoidService
 ) : AndroidViewModel(app) {
 
     // Konfigürasyon
@@ -53,7 +57,8 @@ class PhotogrammetryViewModel @Inject constructor(
         val isTurn: Boolean
     )
 
-    data class Gcp(val pointName: String, val e: Double, val n: Double, val z: Double?)
+    /** [z] elipsoidal, [h] ortometrik (geoit modeli varsa) yükseklik. */
+    data class Gcp(val pointName: String, val e: Double, val n: Double, val z: Double?, val h: Double? = null)
 
     data class PhotoShot(
         val index: Int,
@@ -101,7 +106,7 @@ class PhotogrammetryViewModel @Inject constructor(
         .stateIn(viewModelScope, SharingStarted.WhileSubscribed(5_000), emptyList())
 
     init {
-        gnss.start()
+        gnssPipeline.acquire(this)
         // GNSS fix güncellendikçe hasFix ve origin (ilk plan üretiminde kullanılabilir) güncelle
         viewModelScope.launch {
             observation.collect { obs ->
@@ -194,7 +199,19 @@ class PhotogrammetryViewModel @Inject constructor(
 
     fun addGcpFromPoint(p: PointEntity) {
         if (_ui.value.gcps.any { it.pointName == p.name }) return
-        _ui.update { state -> state.copy(gcps = state.gcps + Gcp(p.name, p.easting, p.northing, p.ellipsoidalHeight)) }
+        _ui.update { state -> state.copy(gcps = state.gcps + Gcp(p.name, p.easting, p.northing, p.ellipsoidalHeight, p.orthoHeight)) }
+    }
+
+    /** Elle girilen GCP; ortometrik yükseklik geoit modelinden (proje projeksiyonunun tersiyle) hesaplanır. */
+    fun addManualGcp(name: String, e: Double, n: Double, z: Double?) = viewModelScope.launch {
+        val proj = activeProject.value
+        geoid.refresh()
+        addGcpFromPoint(
+            geoid.withOrthometricHeight(
+                PointEntity(projectId = proj?.id ?: 0L, name = name, northing = n, easting = e, ellipsoidalHeight = z),
+                proj
+            )
+        )
     }
 
     fun removeGcp(name: String) { _ui.update { it.copy(gcps = it.gcps.filterNot { g -> g.pointName == name }) } }
@@ -238,8 +255,8 @@ class PhotogrammetryViewModel @Inject constructor(
     fun exportGcpCsv(): Result<File> = runCatching {
         val f = File(exportDir(), timeStampName("gcps", "csv"))
         f.printWriter().use { pw ->
-            pw.println("name,e,n,z")
-            _ui.value.gcps.forEach { g -> pw.println("${g.pointName},${g.e},${g.n},${g.z ?: ""}") }
+            pw.println("name,e,n,z,H")
+            _ui.value.gcps.forEach { g -> pw.println("${g.pointName},${g.e},${g.n},${g.z ?: ""},${g.h ?: ""}") }
         }
         f
     }
@@ -264,7 +281,7 @@ class PhotogrammetryViewModel @Inject constructor(
     }
 
     override fun onCleared() {
-        gnss.stop()
+        gnssPipeline.release(this)
         super.onCleared()
     }
 }
@@ -9,7 +9,10 @@ import com.example.tugis3.data.repository.PointRepository
 import com.example.tugis3.data.repository.ProjectRepository
 import com.example.tugis3.data.repository.SurveyPointRepository
 import com.example.tugis3.gnss.GnssEngine
+import com.example.tugis3.gnss.GnssPipeline
+import com.example.tugis3.gnss.extrapolatedForDisplay
 import com.example.tugis3.gnss.model.GnssObservation
+import com.example.tugis3.coord.geoid.GeoidService
 import com.example.tugis3.coord.transform.NoOpTransformer
 import com.example.tugis3.coord.transform.ProjectionEngine
 import com.example.tugis3.coord.transform.CoordinateTransformer
@@ -28,7 +31,9 @@ class PointStakeoutViewModel @Inject constructor(
     private val pointRepo: PointRepository,
     private val surveyPointRepo: SurveyPointRepository,
     private val gnss: GnssEngine,
-    private val prefs: PrefsRepository
+    private val gnssPipeline: GnssPipeline,
+    private val prefs: PrefsRepository,
+    private val geoid: GeoidService
 ) : ViewModel() {
 
     data class StakeoutTarget(
@@ -65,6 +70,9 @@ class PointStakeoutViewModel @Inject constructor(
     val observation = gnss.observation
         .stateIn(viewModelScope, SharingStarted.WhileSubscribed(5_000), null)
 
+    // Ok/mesafe göstergesi için epoch'lar arası ileri kestirilmiş konum; kayıt ham gözlemden yapılır
+    private val displayObservation = gnss.observation.extrapolatedForDisplay()
+
     private val targetFlow: Flow<StakeoutTarget?> = combine(_manualTarget, _selectedPointName, projectPoints) { manual, selectedName, list ->
         manual ?: run {
             if (selectedName == null) return@run null
@@ -129,7 +137,7 @@ class PointStakeoutViewModel @Inject constructor(
     }
 
     val stakeoutState: StateFlow<StakeoutState> = combine(
-        observation,
+        displayObservation,
         targetFlow,
         activeProject,
         horizTol,
@@ -147,8 +155,21 @@ class PointStakeoutViewModel @Inject constructor(
         val sim = arr[5] as Boolean
         val sN = arr[6] as Double
         val sE = arr[7] as Double
+        evaluate(obs, target, project, hTol, vTol, if (sim) sN else 0.0, if (sim) sE else 0.0)
+    }.stateIn(viewModelScope, SharingStarted.WhileSubscribed(5_000), StakeoutState(null,null,null,null,null,null,null,false,false,false))
+
+    /** Gözlemin hedefe göre farkları ve tolerans durumu; [simN]/[simE] simülasyon ötelemesidir. */
+    private fun evaluate(
+        obs: GnssObservation?,
+        target: StakeoutTarget?,
+        project: ProjectEntity?,
+        hTol: Double,
+        vTol: Double,
+        simN: Double,
+        simE: Double
+    ): StakeoutState {
         if (obs == null || project == null || target?.easting == null || target.northing == null) {
-            return@combine StakeoutState(obs, target, null, null, null, null, null, false, false, false)
+            return StakeoutState(obs, target, null, null, null, null, null, false, false, false)
         }
         val transformer = ProjectionEngine.forProject(project)
         val (baseE, baseN) = if (obs.latDeg != null && obs.lonDeg != null) {
@@ -159,8 +180,8 @@ class PointStakeoutViewModel @Inject constructor(
                 (obs.lonDeg * 111000) to (obs.latDeg * 111000)
             }
         } else 0.0 to 0.0
-        val curE = if (sim) baseE + sE else baseE
-        val curN = if (sim) baseN + sN else baseN
+        val curE = baseE + simE
+        val curN = baseN + simN
         val offsetN = target.northing - curN
         val offsetE = target.easting - curE
         val horizontal = sqrt(offsetN*offsetN + offsetE*offsetE)
@@ -168,8 +189,8 @@ class PointStakeoutViewModel @Inject constructor(
         val bearing = ((Math.toDegrees(atan2(offsetE, offsetN)) + 360) % 360)
         val withinH = horizontal <= hTol
         val withinV = if (vertDiff != null) abs(vertDiff) <= vTol else false
-        StakeoutState(obs, target, horizontal, vertDiff, offsetN, offsetE, bearing, withinH, withinV, withinH && withinV)
-    }.stateIn(viewModelScope, SharingStarted.WhileSubscribed(5_000), StakeoutState(null,null,null,null,null,null,null,false,false,false))
+        return StakeoutState(obs, target, horizontal, vertDiff, offsetN, offsetE, bearing, withinH, withinV, withinH && withinV)
+    }
 
     fun toggleSimulation() { _simulate.value = !_simulate.value }
     fun setSimOffsetN(v:Double){ _simOffsetN.value = v }
@@ -196,16 +217,20 @@ class PointStakeoutViewModel @Inject constructor(
         _manualTarget.value = StakeoutTarget(null, easting, northing, elevation)
     }
 
-    fun startEngine() = gnss.start()
-    fun stopEngine() = gnss.stop()
+    fun startEngine() = gnssPipeline.acquire(this)
+    fun stopEngine() = gnssPipeline.release(this)
 
     fun acceptStakeout(save: Boolean = true) {
         val st = stakeoutState.value
         val proj = activeProject.value ?: return
-        if (!st.withinAll) return
-        val obs = st.observation ?: return
+        val obs = gnss.observation.value ?: return
+        // Ekrandaki durum ileri kestirilmiş konumdandır; kaydedilecek ham gözlem toleransı ayrıca sağlamalı
+        val sim = _simulate.value
+        val raw = evaluate(obs, st.target, proj, _hTol.value, _vTol.value, if (sim) _simOffsetN.value else 0.0, if (sim) _simOffsetE.value else 0.0)
+        if (!raw.withinAll) return
         if (!save) return
         viewModelScope.launch {
+            geoid.refresh()
             val transformer = ProjectionEngine.forProject(proj)
             val (easting, northing) = if (obs.latDeg != null && obs.lonDeg != null) transformer.forward(obs.latDeg, obs.lonDeg) else (0.0 to 0.0)
             surveyPointRepo.insert(
@@ -215,7 +240,7 @@ class PointStakeoutViewModel @Inject constructor(
                     code = "STK",
                     latitude = obs.latDeg,
                     longitude = obs.lonDeg,
-                    elevation = obs.ellipsoidalHeight,
+                    elevation = geoid.localHeight(proj, obs.latDeg, obs.lonDeg, obs.ellipsoidalHeight),
                     northing = northing,
                     easting = easting,
                     zone = proj.utmZone?.let { it.toString() + if (proj.utmNorthHemisphere) "N" else "S" },
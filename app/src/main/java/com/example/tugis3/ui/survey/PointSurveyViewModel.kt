@@ -2,6 +2,7 @@ package com.example.tugis3.ui.survey
 
 import androidx.lifecycle.ViewModel
 import androidx.lifecycle.viewModelScope
+import com.example.tugis3.coord.geoid.GeoidService
 import com.example.tugis3.coord.transform.ProjectionEngine
 import com.example.tugis3.data.db.entity.SurveyPointEntity
 import com.example.tugis3.data.repository.ProjectRepository
@@ -16,7 +17,8 @@ import javax.inject.Inject
 @HiltViewModel
 class PointSurveyViewModel @Inject constructor(
     private val projectRepo: ProjectRepository,
-    private val surveyPointRepo: SurveyPointRepository
+    private val surveyPointRepo: SurveyPointRepository,
+    private val geoid: GeoidService
 ) : ViewModel() {
 
     val activeProject = projectRepo.observeActiveProject()
@@ -64,13 +66,14 @@ class PointSurveyViewModel @Inject constructor(
                     }
                 }
             }
+            geoid.refresh()
             val entity = SurveyPointEntity(
                 projectId = project.id,
                 name = name,
                 code = code?.ifBlank { null },
                 latitude = latitude,
                 longitude = longitude,
-                elevation = elevation,
+                elevation = geoid.localHeight(project, latitude, longitude, elevation),
                 northing = n,
                 easting = e,
                 zone = z,
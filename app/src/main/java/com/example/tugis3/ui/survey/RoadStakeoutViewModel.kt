@@ -2,12 +2,14 @@ package com.example.tugis3.ui.survey
 
 import androidx.lifecycle.ViewModel
 import androidx.lifecycle.viewModelScope
+import com.example.tugis3.coord.geoid.GeoidService
 import com.example.tugis3.coord.transform.NoOpTransformer
 import com.example.tugis3.coord.transform.ProjectionEngine
 import com.example.tugis3.data.db.entity.SurveyPointEntity
 import com.example.tugis3.data.repository.ProjectRepository
 import com.example.tugis3.data.repository.SurveyPointRepository
 import com.example.tugis3.gnss.GnssEngine
+import com.example.tugis3.gnss.GnssPipeline
 import com.example.tugis3.gnss.model.GnssObservation
 import dagger.hilt.android.lifecycle.HiltViewModel
 import kotlinx.coroutines.flow.*
@@ -76,7 +78,9 @@ data class RoadStakeoutUiState(
 class RoadStakeoutViewModel @Inject constructor(
     private val projectRepo: ProjectRepository,
     private val surveyPointRepo: SurveyPointRepository,
-    private val gnssEngine: GnssEngine
+    private val gnssEngine: GnssEngine,
+    private val gnssPipeline: GnssPipeline,
+    private val geoid: GeoidService
 ) : ViewModel() {
 
     private val _ui = MutableStateFlow(initialState())
@@ -139,8 +143,13 @@ class RoadStakeoutViewModel @Inject constructor(
         modify { copy(roadPoints = list) }
     }
 
-    fun startEngine() = gnssEngine.start()
-    fun stopEngine() = gnssEngine.stop()
+    fun startEngine() = gnssPipeline.acquire(this)
+    fun stopEngine() = gnssPipeline.release(this)
+
+    override fun onCleared() {
+        stopEngine()
+        super.onCleared()
+    }
 
     fun saveStakePoint() {
         val st = _ui.value
@@ -151,6 +160,7 @@ class RoadStakeoutViewModel @Inject constructor(
         val lon = obs.lonDeg
         if (lat == null || lon == null) return
         viewModelScope.launch {
+            geoid.refresh()
             val transformer = ProjectionEngine.forProject(proj)
             val (easting, northing) = if (transformer !== NoOpTransformer) transformer.forward(lat, lon) else (lon*111000) to (lat*111000)
             surveyPointRepo.insert(
@@ -163,7 +173,7 @@ class RoadStakeoutViewModel @Inject constructor(
                     code = "ROAD_STK",
                     latitude = lat,
                     longitude = lon,
-                    elevation = obs.ellipsoidalHeight,
+                    elevation = geoid.localHeight(proj, lat, lon, obs.ellipsoidalHeight),
                     northing = northing,
                     easting = easting,
                     zone = proj.utmZone?.let { it.toString() + if (proj.utmNorthHemisphere) "N" else "S" },
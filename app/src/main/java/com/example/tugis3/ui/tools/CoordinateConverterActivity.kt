@@ -2,7 +2,9 @@ package com.example.tugis3.ui.tools
 
 import android.os.Bundle
 import androidx.activity.ComponentActivity
+import androidx.activity.compose.rememberLauncherForActivityResult
 import androidx.activity.compose.setContent
+import androidx.activity.result.contract.ActivityResultContracts
 import androidx.compose.foundation.layout.*
 import androidx.compose.foundation.rememberScrollState
 import androidx.compose.foundation.text.KeyboardOptions
@@ -18,6 +20,7 @@ import androidx.compose.ui.Modifier
 import androidx.compose.ui.text.font.FontWeight
 import androidx.compose.ui.text.input.KeyboardType
 import androidx.compose.ui.unit.dp
+import androidx.hilt.navigation.compose.hiltViewModel
 import com.example.tugis3.ui.theme.Tugis3Theme
 import dagger.hilt.android.AndroidEntryPoint
 import kotlin.math.cos
@@ -259,6 +262,114 @@ fun CoordinateConverterScreen(onBackPressed: () -> Unit) {
                     }
                 }
             }
+
+            FileConversionCard()
+        }
+    }
+}
+
+/** Dosya dönüşümü: CSV/TXT nokta dosyasını akışlı, sıralı ve iptal edilebilir şekilde dönüştürür. */
+@Composable
+private fun FileConversionCard(vm: CoordinateFileConvertViewModel = hiltViewModel()) {
+    val st by vm.state.collectAsState()
+    val openLauncher = rememberLauncherForActivityResult(ActivityResultContracts.OpenDocument()) { uri ->
+        if (uri != null) vm.setInput(uri, uri.lastPathSegment)
+    }
+    val createLauncher = rememberLauncherForActivityResult(ActivityResultContracts.CreateDocument("text/csv")) { uri ->
+        if (uri != null) vm.setOutput(uri, uri.lastPathSegment)
+    }
+    val systems = CoordinateFileConvertViewModel.System.entries
+
+    Card {
+        Column(
+            modifier = Modifier.padding(16.dp),
+            verticalArrangement = Arrangement.spacedBy(8.dp)
+        ) {
+            Text(
+                "Dosya Dönüşümü",
+                style = MaterialTheme.typography.titleMedium,
+                fontWeight = FontWeight.Bold
+            )
+            Row(
+                modifier = Modifier.fillMaxWidth(),
+                horizontalArrangement = Arrangement.SpaceBetween,
+                verticalAlignment = Alignment.CenterVertically
+            ) {
+                Text("Girdi:")
+                CoordinateSystemDropdown(
+                    selectedValue = st.source.label,
+                    options = systems.map { it.label },
+                    onValueChange = { label -> vm.setSource(systems.first { it.label == label }) }
+                )
+            }
+            Row(
+                modifier = Modifier.fillMaxWidth(),
+                horizontalArrangement = Arrangement.SpaceBetween,
+                verticalAlignment = Alignment.CenterVertically
+            ) {
+                Text("Çıktı:")
+                CoordinateSystemDropdown(
+                    selectedValue = st.target.label,
+                    options = systems.map { it.label },
+                    onValueChange = { label -> vm.setTarget(systems.first { it.label == label }) }
+                )
+            }
+            Row(horizontalArrangement = Arrangement.spacedBy(8.dp)) {
+                OutlinedTextField(
+                    value = st.zoneText,
+                    onValueChange = vm::setZone,
+                    label = { Text("Dilim / DOM") },
+                    modifier = Modifier.weight(1f),
+                    keyboardOptions = KeyboardOptions(keyboardType = KeyboardType.Number)
+                )
+                OutlinedTextField(
+                    value = st.northColumnText,
+                    onValueChange = vm::setNorthColumn,
+                    label = { Text("Kuzey sütunu") },
+                    modifier = Modifier.weight(1f),
+                    keyboardOptions = KeyboardOptions(keyboardType = KeyboardType.Number)
+                )
+                OutlinedTextField(
+                    value = st.eastColumnText,
+                    onValueChange = vm::setEastColumn,
+                    label = { Text("Doğu sütunu") },
+                    modifier = Modifier.weight(1f),
+                    keyboardOptions = KeyboardOptions(keyboardType = KeyboardType.Number)
+                )
+            }
+            Row(verticalAlignment = Alignment.CenterVertically) {
+                Checkbox(checked = st.headerLines > 0, onCheckedChange = { vm.setHeaderLines(if (it) 1 else 0) })
+                Text("İlk satır başlık")
+                if (st.source == CoordinateFileConvertViewModel.System.UTM || st.target == CoordinateFileConvertViewModel.System.UTM) {
+                    Spacer(Modifier.width(16.dp))
+                    Checkbox(checked = st.northHemisphere, onCheckedChange = vm::setNorthHemisphere)
+                    Text("Kuzey yarıküre (UTM)")
+                }
+            }
+            Row(horizontalArrangement = Arrangement.spacedBy(8.dp)) {
+                OutlinedButton(onClick = { openLauncher.launch(arrayOf("text/*")) }, modifier = Modifier.weight(1f), enabled = !st.running) {
+                    Text(st.inputName ?: "Girdi dosyası")
+                }
+                OutlinedButton(onClick = { createLauncher.launch("donusum.csv") }, modifier = Modifier.weight(1f), enabled = !st.running) {
+                    Text(st.outputName ?: "Çıktı dosyası")
+                }
+            }
+            st.progress?.let { p ->
+                if (p.totalBytes > 0) LinearProgressIndicator(progress = { p.fraction }, modifier = Modifier.fillMaxWidth())
+                else if (st.running) LinearProgressIndicator(modifier = Modifier.fillMaxWidth())
+                Text("${p.lines} satır, ${p.converted} nokta", style = MaterialTheme.typography.bodySmall)
+            }
+            st.message?.let {
+                Text(it, style = MaterialTheme.typography.bodySmall,
+                    color = if (it.startsWith("Hata")) MaterialTheme.colorScheme.error else MaterialTheme.colorScheme.onSurfaceVariant)
+            }
+            if (st.running) {
+                OutlinedButton(onClick = vm::cancel, modifier = Modifier.fillMaxWidth()) { Text("İptal") }
+            } else {
+                Button(onClick = vm::start, enabled = st.input != null && st.output != null, modifier = Modifier.fillMaxWidth()) {
+                    Text("Dosyayı Dönüştür")
+                }
+            }
         }
     }
 }
@@ -0,0 +1,145 @@
+package com.example.tugis3.ui.tools
+
+import android.content.Context
+import android.net.Uri
+import androidx.lifecycle.ViewModel
+import androidx.lifecycle.viewModelScope
+import com.example.tugis3.coord.convert.CoordinateFileConverter
+import com.example.tugis3.coord.transform.CoordinateTransformer
+import com.example.tugis3.coord.transform.KruegerTransverseMercator
+import com.example.tugis3.coord.transform.ProjectionEngine
+import com.example.tugis3.coord.transform.UtmTransformer
+import com.example.tugis3.data.repository.ProjectRepository
+import dagger.hilt.android.lifecycle.HiltViewModel
+import dagger.hilt.android.qualifiers.ApplicationContext
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.SharingStarted
+import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.flow.asStateFlow
+import kotlinx.coroutines.flow.stateIn
+import kotlinx.coroutines.flow.update
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.withContext
+import javax.inject.Inject
+
+/** Dosya tabanlı koordinat dönüşümü: seçilen giriş / çıkış dosyası arasında akışlı dönüşüm. */
+@HiltViewModel
+class CoordinateFileConvertViewModel @Inject constructor(
+    @ApplicationContext private val context: Context,
+    projectRepo: ProjectRepository
+) : ViewModel() {
+
+    enum class System(val label: String) {
+        GEOGRAPHIC("Coğrafi (Enlem/Boylam)"),
+        UTM("UTM"),
+        TM3("TM3 (3°)"),
+        PROJECT("Aktif Proje")
+    }
+
+    data class State(
+        val input: Uri? = null,
+        val inputName: String? = null,
+        val output: Uri? = null,
+        val outputName: String? = null,
+        val source: System = System.GEOGRAPHIC,
+        val target: System = System.UTM,
+        /** UTM dilimi ya da TM3 merkez meridyeni. */
+        val zoneText: String = "35",
+        /** UTM yarıküresi; güneyde sahte kuzey 10 000 000 m. */
+        val northHemisphere: Boolean = true,
+        val northColumnText: String = "2",
+        val eastColumnText: String = "3",
+        val headerLines: Int = 0,
+        val running: Boolean = false,
+        val progress: CoordinateFileConverter.Progress? = null,
+        val message: String? = null
+    )
+
+    private val _state = MutableStateFlow(State())
+    val state: StateFlow<State> = _state.asStateFlow()
+
+    private val activeProject = projectRepo.observeActiveProject()
+        .stateIn(viewModelScope, SharingStarted.Eagerly, null)
+
+    private var job: Job? = null
+
+    fun setInput(uri: Uri?, name: String?) = _state.update { it.copy(input = uri, inputName = name, progress = null, message = null) }
+    fun setOutput(uri: Uri?, name: String?) = _state.update { it.copy(output = uri, outputName = name, progress = null, message = null) }
+    fun setSource(s: System) = _state.update { it.copy(source = s) }
+    fun setTarget(s: System) = _state.update { it.copy(target = s) }
+    fun setZone(text: String) = _state.update { it.copy(zoneText = text) }
+    fun setNorthHemisphere(north: Boolean) = _state.update { it.copy(northHemisphere = north) }
+    fun setNorthColumn(text: String) = _state.update { it.copy(northColumnText = text) }
+    fun setEastColumn(text: String) = _state.update { it.copy(eastColumnText = text) }
+    fun setHeaderLines(n: Int) = _state.update { it.copy(headerLines = n.coerceAtLeast(0)) }
+
+    /** null: coğrafi. */
+    private fun transformerFor(system: System, st: State): CoordinateTransformer? {
+        val zone = st.zoneText.trim().toIntOrNull()
+        return when (system) {
+            System.GEOGRAPHIC -> null
+            System.UTM -> UtmTransformer(requireNotNull(zone) { "Dilim geçersiz" }, st.northHemisphere, WGS84_A, WGS84_INV_F)
+            System.TM3 -> KruegerTransverseMercator(
+                semiMajor = WGS84_A, invF = WGS84_INV_F,
+                centralMeridianDeg = requireNotNull(zone) { "Merkez meridyen geçersiz" }.toDouble(),
+                latOriginDeg = 0.0, scaleFactor = 1.0, falseE = 500000.0, falseN = 0.0
+            )
+            System.PROJECT -> ProjectionEngine.forProject(activeProject.value ?: error("Aktif proje yok"))
+        }
+    }
+
+    fun start() {
+        val st = _state.value
+        val input = st.input ?: return
+        val output = st.output ?: return
+        if (st.running) return
+        job = viewModelScope.launch {
+            _state.update { it.copy(running = true, message = null, progress = null) }
+            try {
+                val layout = CoordinateFileConverter.Layout(
+                    northColumn = (st.northColumnText.trim().toIntOrNull() ?: error("Kuzey sütunu geçersiz")) - 1,
+                    eastColumn = (st.eastColumnText.trim().toIntOrNull() ?: error("Doğu sütunu geçersiz")) - 1,
+                    headerLines = st.headerLines
+                )
+                val converter = CoordinateFileConverter(
+                    source = transformerFor(st.source, st),
+                    target = transformerFor(st.target, st),
+                    layout = layout
+                )
+                val total = withContext(Dispatchers.IO) {
+                    runCatching { context.contentResolver.openAssetFileDescriptor(input, "r")?.use { it.length } }.getOrNull() ?: -1L
+                }
+                withContext(Dispatchers.IO) {
+                    val ins = context.contentResolver.openInputStream(input) ?: error("Giriş dosyası açılamadı")
+                    ins.use {
+                        val os = context.contentResolver.openOutputStream(output, "wt") ?: error("Çıkış dosyası açılamadı")
+                        os.bufferedWriter(Charsets.UTF_8).use { w ->
+                            converter.convert(ins, w, total).collect { p -> _state.update { s -> s.copy(progress = p) } }
+                        }
+                    }
+                }
+                val p = _state.value.progress
+                _state.update { it.copy(message = "Tamamlandı: ${p?.converted ?: 0} nokta, ${p?.skipped ?: 0} satır atlandı") }
+            } catch (e: CancellationException) {
+                _state.update { it.copy(message = "İptal edildi") }
+                throw e
+            } catch (e: Exception) {
+                _state.update { it.copy(message = "Hata: ${e.message}") }
+            } finally {
+                _state.update { it.copy(running = false) }
+            }
+        }
+    }
+
+    fun cancel() {
+        job?.cancel()
+    }
+
+    private companion object {
+        const val WGS84_A = 6378137.0
+        const val WGS84_INV_F = 298.257223563
+    }
+}
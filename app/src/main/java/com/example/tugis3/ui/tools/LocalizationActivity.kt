@@ -58,6 +58,7 @@ private fun LocalizationScreen(onBack: () -> Unit, vm: LocalizationViewModel = a
     val st by vm.state.collectAsState()
     var northText by remember(st.dstNorthText) { mutableStateOf(st.dstNorthText) }
     var eastText by remember(st.dstEastText) { mutableStateOf(st.dstEastText) }
+    var heightText by remember(st.dstHeightText) { mutableStateOf(st.dstHeightText) }
     var weightText by remember(st.weightText) { mutableStateOf(st.weightText) }
 
     Scaffold(
@@ -115,6 +116,12 @@ private fun LocalizationScreen(onBack: () -> Unit, vm: LocalizationViewModel = a
                             modifier = Modifier.weight(1f)
                         )
                     }
+                    OutlinedTextField(
+                        value = heightText,
+                        onValueChange = { heightText = it; vm.setDstHeight(it) },
+                        label = { Text("Hedef Yükseklik (ops.)") },
+                        modifier = Modifier.fillMaxWidth()
+                    )
                     Row(horizontalArrangement = Arrangement.spacedBy(8.dp), verticalAlignment = Alignment.CenterVertically) {
                         OutlinedTextField(
                             value = weightText,
@@ -131,13 +138,23 @@ private fun LocalizationScreen(onBack: () -> Unit, vm: LocalizationViewModel = a
                 item {
                     val r = st.solveResult!!
                     Card { Column(Modifier.padding(16.dp), verticalArrangement = Arrangement.spacedBy(4.dp)) {
-                        Text("Çözüm", fontWeight = FontWeight.Bold)
+                        Text(if (r.live) "Çözüm (ön izleme)" else "Çözüm", fontWeight = FontWeight.Bold)
                         Row(Modifier.fillMaxWidth(), horizontalArrangement = Arrangement.SpaceBetween) { Text("Scale:"); Text(String.format(Locale.US, "%.8f", r.scale)) }
                         Row(Modifier.fillMaxWidth(), horizontalArrangement = Arrangement.SpaceBetween) { Text("Rot (°):"); Text(String.format(Locale.US, "%.6f", r.rotDeg)) }
                         Row(Modifier.fillMaxWidth(), horizontalArrangement = Arrangement.SpaceBetween) { Text("Tx:"); Text(String.format(Locale.US, "%.3f", r.tx)) }
                         Row(Modifier.fillMaxWidth(), horizontalArrangement = Arrangement.SpaceBetween) { Text("Ty:"); Text(String.format(Locale.US, "%.3f", r.ty)) }
                         Row(Modifier.fillMaxWidth(), horizontalArrangement = Arrangement.SpaceBetween) { Text("RMS:"); Text(String.format(Locale.US, "%.3f", r.rms)) }
                         Row(Modifier.fillMaxWidth(), horizontalArrangement = Arrangement.SpaceBetween) { Text("Nokta:"); Text(r.pointCount.toString()) }
+                        if (r.outlierCount > 0) {
+                            Row(Modifier.fillMaxWidth(), horizontalArrangement = Arrangement.SpaceBetween) {
+                                Text("Elenen:", color = MaterialTheme.colorScheme.error); Text(r.outlierCount.toString(), color = MaterialTheme.colorScheme.error) }
+                        }
+                        r.vertical?.let { v ->
+                            Row(Modifier.fillMaxWidth(), horizontalArrangement = Arrangement.SpaceBetween) { Text("dH:"); Text(String.format(Locale.US, "%.3f", v.offset)) }
+                            Row(Modifier.fillMaxWidth(), horizontalArrangement = Arrangement.SpaceBetween) {
+                                Text("Eğim N/E (ppm):"); Text(String.format(Locale.US, "%.1f / %.1f", v.slopeN * 1e6, v.slopeE * 1e6)) }
+                        }
+                        r.rmsVertical?.let { Row(Modifier.fillMaxWidth(), horizontalArrangement = Arrangement.SpaceBetween) { Text("RMS (H):"); Text(String.format(Locale.US, "%.3f", it)) } }
                     } }
                 }
             }
@@ -162,10 +179,11 @@ private fun LocalizationScreen(onBack: () -> Unit, vm: LocalizationViewModel = a
                             style = MaterialTheme.typography.bodySmall
                         )
                         if (p.residualE != null && p.residualN != null) {
+                            val dh = p.residualH?.let { " dH=%.3f".format(Locale.US, it) } ?: ""
                             Text(
-                                "dE=%.003f dN=%.003f".format(Locale.US, p.residualE, p.residualN),
+                                "dE=%.003f dN=%.003f".format(Locale.US, p.residualE, p.residualN) + dh + if (p.outlier) " (elendi)" else "",
                                 style = MaterialTheme.typography.labelSmall,
-                                color = MaterialTheme.colorScheme.secondary
+                                color = if (p.outlier) MaterialTheme.colorScheme.error else MaterialTheme.colorScheme.secondary
                             )
                         }
                     }
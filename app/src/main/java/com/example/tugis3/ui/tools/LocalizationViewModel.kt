@@ -2,25 +2,30 @@ package com.example.tugis3.ui.tools
 
 import androidx.lifecycle.ViewModel
 import androidx.lifecycle.viewModelScope
+import com.example.tugis3.coord.geoid.GeoidService
 import com.example.tugis3.coord.transform.ProjectionEngine
 import com.example.tugis3.data.db.entity.CalibrationPointEntity
 import com.example.tugis3.data.repository.CalibrationPointRepository
+import com.example.tugis3.data.repository.LocalizationSolver
 import com.example.tugis3.data.repository.ProjectRepository
+import com.example.tugis3.data.repository.toSolverPoint
 import com.example.tugis3.gnss.GnssEngine
+import com.example.tugis3.gnss.GnssPipeline
 import dagger.hilt.android.lifecycle.HiltViewModel
 import kotlinx.coroutines.ExperimentalCoroutinesApi
 import kotlinx.coroutines.flow.*
 import kotlinx.coroutines.launch
 import javax.inject.Inject
-import kotlin.math.cos
-import kotlin.math.sin
+import kotlin.math.sqrt
 
 @OptIn(ExperimentalCoroutinesApi::class)
 @HiltViewModel
 class LocalizationViewModel @Inject constructor(
     private val projectRepo: ProjectRepository,
     private val calibRepo: CalibrationPointRepository,
-    private val gnss: GnssEngine
+    private val gnss: GnssEngine,
+    private val gnssPipeline: GnssPipeline,
+    private val geoid: GeoidService
 ) : ViewModel() {
 
     data class SolvePreview(
@@ -29,13 +34,20 @@ class LocalizationViewModel @Inject constructor(
         val tx: Double,
         val ty: Double,
         val rms: Double,
-        val pointCount: Int
+        val pointCount: Int,
+        val vertical: LocalizationSolver.VerticalParams? = null,
+        val rmsVertical: Double? = null,
+        val outlierCount: Int = 0,
+        /** true: dahil noktalardan anlık (elemesiz) ön izleme; false: uygulanmış dayanıklı çözüm. */
+        val live: Boolean = false
     )
 
     data class CalibrationPointUi(
         val entity: CalibrationPointEntity,
         val residualE: Double? = null,
-        val residualN: Double? = null
+        val residualN: Double? = null,
+        val residualH: Double? = null,
+        val outlier: Boolean = false
     )
 
     data class State(
@@ -46,6 +58,7 @@ class LocalizationViewModel @Inject constructor(
         val canAdd: Boolean = false,
         val dstNorthText: String = "",
         val dstEastText: String = "",
+        val dstHeightText: String = "",
         val weightText: String = "1.0",
         val solving: Boolean = false,
         val solveResult: SolvePreview? = null,
@@ -69,38 +82,81 @@ class LocalizationViewModel @Inject constructor(
 
     private var lastSolveParams: CalibrationPointRepository.SolveResult? = null
 
+    // Dahil noktaların normal denklem toplamları; işaret değişimi O(1) güncelleme
+    private var accumulator = LocalizationSolver.Accumulator()
+    private val accumulated = HashMap<Long, LocalizationSolver.Point>()
+    // Son uygulanan çözümden sonra dahil küme değişti mi
+    private var dirty = true
+
     init {
         viewModelScope.launch {
             combine(activeProject, observation, calibPoints) { proj, obs, pts -> Triple(proj, obs, pts) }
                 .collect { (proj, obs, pts) ->
                     val canAdd = proj != null && obs?.latDeg != null && obs.lonDeg != null && obs.fixType.isDifferential() && _state.value.dstNorthText.isNotBlank() && _state.value.dstEastText.isNotBlank()
-                    val residualMapped = mapResiduals(pts, lastSolveParams)
+                    val live = syncAccumulator(pts)
                     _state.update {
                         it.copy(
                             projectId = proj?.id,
-                            points = residualMapped,
+                            points = mapResiduals(pts, live),
                             observationFix = obs?.fixType?.name,
                             pdop = obs?.pdop,
                             canAdd = canAdd,
-                            status = buildStatus(proj, obs, pts)
+                            status = buildStatus(proj, obs, pts),
+                            solveResult = if (dirty) live else it.solveResult
                         )
                     }
                 }
         }
     }
 
-    private fun mapResiduals(list: List<CalibrationPointEntity>, params: CalibrationPointRepository.SolveResult?): List<CalibrationPointUi> {
-        if (params == null) return list.map { CalibrationPointUi(it) }
-        val cosR = cos(params.rotRad)
-        val sinR = sin(params.rotRad)
+    /**
+     * Dahil nokta kümesindeki farkları toplamlara uygular ve anlık çözümü döndürür. Küme son uygulanan
+     * çözümden beri değişmediyse ya da çözüm için yetersizse null.
+     */
+    private fun syncAccumulator(list: List<CalibrationPointEntity>): SolvePreview? {
+        val current = list.filter { it.include == 1 }.associate { it.id to it.toSolverPoint() }
+        var changed = false
+        val iter = accumulated.entries.iterator()
+        while (iter.hasNext()) {
+            val (id, p) = iter.next()
+            if (current[id] != p) { accumulator.remove(p); iter.remove(); changed = true }
+        }
+        for ((id, p) in current) if (id !in accumulated) { accumulator.add(p); accumulated[id] = p; changed = true }
+        if (accumulated.isEmpty()) accumulator = LocalizationSolver.Accumulator()
+        if (changed) dirty = true
+        if (!dirty || accumulator.count < 2) return null
+        val sim = runCatching { accumulator.similarity() }.getOrNull() ?: return null
+        val vertical = accumulator.vertical()
+        val residuals = accumulated.values.map { LocalizationSolver.residual(it, sim, vertical) }
+        return SolvePreview(
+            scale = sim.scale,
+            rotDeg = Math.toDegrees(sim.rot),
+            tx = sim.tx,
+            ty = sim.ty,
+            rms = sqrt(residuals.sumOf { r -> r.dE * r.dE + r.dN * r.dN } / (2.0 * residuals.size)),
+            pointCount = accumulator.count,
+            vertical = vertical,
+            rmsVertical = residuals.mapNotNull { r -> r.dH }.takeIf { h -> h.isNotEmpty() }
+                ?.let { h -> sqrt(h.sumOf { d -> d * d } / h.size) },
+            live = true
+        )
+    }
+
+    private fun mapResiduals(list: List<CalibrationPointEntity>, live: SolvePreview?): List<CalibrationPointUi> {
+        val applied = lastSolveParams.takeIf { !dirty }
+        val liveSim = live?.let { LocalizationSolver.SimilarityParams(it.scale, Math.toRadians(it.rotDeg), it.tx, it.ty) }
         return list.map { e ->
-            val predE = params.scale * (cosR * e.srcEast - sinR * e.srcNorth) + params.tx
-            val predN = params.scale * (sinR * e.srcEast + cosR * e.srcNorth) + params.ty
-            CalibrationPointUi(
-                entity = e,
-                residualE = e.dstEast - predE,
-                residualN = e.dstNorth - predN
-            )
+            when {
+                liveSim != null -> {
+                    val r = LocalizationSolver.residual(e.toSolverPoint(), liveSim, live?.vertical)
+                    CalibrationPointUi(e, r.dE, r.dN, r.dH)
+                }
+                applied != null -> {
+                    val r = applied.residuals[e.id] ?: LocalizationSolver.residual(e.toSolverPoint(), applied.similarity, applied.vertical)
+                    CalibrationPointUi(e, r.dE, r.dN, r.dH, outlier = r.outlier)
+                }
+                else -> CalibrationPointUi(e)
+            }
         }
     }
 
@@ -114,6 +170,7 @@ class LocalizationViewModel @Inject constructor(
 
     fun setDstNorth(text: String) { _state.update { it.copy(dstNorthText = text) } }
     fun setDstEast(text: String) { _state.update { it.copy(dstEastText = text) } }
+    fun setDstHeight(text: String) { _state.update { it.copy(dstHeightText = text) } }
     fun setWeight(text: String) { _state.update { it.copy(weightText = text) } }
 
     fun addPoint() {
@@ -123,20 +180,26 @@ class LocalizationViewModel @Inject constructor(
         val lon = obs.lonDeg ?: return
         val dstN = _state.value.dstNorthText.toDoubleOrNull() ?: return
         val dstE = _state.value.dstEastText.toDoubleOrNull() ?: return
+        val dstH = _state.value.dstHeightText.toDoubleOrNull()
         val w = _state.value.weightText.toDoubleOrNull() ?: 1.0
-        val transformer = ProjectionEngine.forProject(proj)
+        // Kaynak koordinat mevcut lokalizasyon uygulanmadan alınır; aksi halde yeniden çözüm kendi üstüne biner
+        val transformer = ProjectionEngine.forProject(proj.copy(locScale = null, locRotRad = null, locTx = null, locTy = null))
         val (easting, northing) = transformer.forward(lat, lon)
         viewModelScope.launch {
+            geoid.refresh()
             calibRepo.add(
                 projectId = proj.id,
                 srcNorth = northing,
                 srcEast = easting,
                 dstNorth = dstN,
                 dstEast = dstE,
-                weight = w
+                weight = w,
+                // Düzlem ortometrik yüksekliğe (geoit yoksa elipsoidal) göre çözülür; kayıt yolları da aynı yüzeyi kullanır
+                srcHeight = geoid.orthometricHeight(lat, lon, obs.ellipsoidalHeight) ?: obs.ellipsoidalHeight,
+                dstHeight = dstH
             )
             // Clear input fields (keep weight)
-            _state.update { it.copy(dstNorthText = "", dstEastText = "") }
+            _state.update { it.copy(dstNorthText = "", dstEastText = "", dstHeightText = "") }
         }
     }
 
@@ -155,6 +218,7 @@ class LocalizationViewModel @Inject constructor(
             val result = calibRepo.solveAndApply(projId)
             result.onSuccess { r ->
                 lastSolveParams = r
+                dirty = false
                 _state.update {
                     it.copy(
                         solving = false,
@@ -164,10 +228,13 @@ class LocalizationViewModel @Inject constructor(
                             tx = r.tx,
                             ty = r.ty,
                             rms = r.rms,
-                            pointCount = r.pointCount
+                            pointCount = r.pointCount,
+                            vertical = r.vertical,
+                            rmsVertical = r.rmsVertical,
+                            outlierCount = r.outlierCount
                         ),
                         // residualları güncelle
-                        points = mapResiduals(calibPoints.value, r)
+                        points = mapResiduals(calibPoints.value, null)
                     )
                 }
             }.onFailure { e ->
@@ -176,10 +243,10 @@ class LocalizationViewModel @Inject constructor(
         }
     }
 
-    fun clearInputs() { _state.update { it.copy(dstNorthText = "", dstEastText = "") } }
+    fun clearInputs() { _state.update { it.copy(dstNorthText = "", dstEastText = "", dstHeightText = "") } }
 
-    fun startEngine() = gnss.start()
-    fun stopEngine() = gnss.stop()
+    fun startEngine() = gnssPipeline.acquire(this)
+    fun stopEngine() = gnssPipeline.release(this)
 
     override fun onCleared() {
         stopEngine()
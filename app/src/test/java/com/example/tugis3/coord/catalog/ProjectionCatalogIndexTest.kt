@@ -0,0 +1,78 @@
+package com.example.tugis3.coord.catalog
+
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Assume.assumeTrue
+import org.junit.Test
+import java.io.File
+
+class ProjectionCatalogIndexTest {
+
+    private val csv = """
+        #国家,名称,椭球名,长半轴,1/F,投影,中央子午线(度),北加常数,东加常数,比例,基准纬度,SP1,SP2,dAzimuth,dGridAngle,mode,DX,DY,DZ,RX,EY,RZ,K(ppm)
+        TURKEY,ITRF96/TM30,GRS 1980,6378137,298.257222101,Transverse_Mercator,30,0,500000,1,0,0,0,0,0,0,0,0,0,0,0,0,0
+        TURKEY,WGS84/UTM 36N,WGS 84,6378137,298.257223563,Transverse_Mercator,33,0,500000,0.9996,0,0,0,0,0,0,0,0,0,0,0,0,0
+        HUNGARY,EOV/HD72,GRS 1967,6378160,298.247167427,Oblique_Mercator,19.0485717778,200000,650000,0.99993,47.1443937222,0,0,90,90,2,-52.729,71.148,13.832,0.316647,0.106728,0.378279,-0.989578
+        USA COUNTY MN,Cook/North Shore,Cook/North Shore,6378137,298.2572221009,Oblique_Mercator,89.3277777778,0,0,1,46.5,0,0,62,90,0,-6187452.376,-3505207.011,-1693.167,0,0,0,0
+        JAPAN,JGD2011/Japan zone 1 EPSG6669,GRS 1980,6378137,298.257222101,Transverse_Mercator,129.5,0,0,0.9999,33,0,0,0,0,0,0,0,0,0,0,0,0,geoid_jp.bin
+        UGANDA,WGS84 UTM 36S,WGS 84,6378137,298.257223563,Transverse_Mercator_South_Orientated
+        ,33,10000000,500000,-1,0,0,0,0,0,0,0,0,0,0,0,0,0,
+        BROKEN,,x
+    """.trimIndent()
+
+    private val index by lazy { ProjectionCatalogIndex.wrap(ProjectionCatalogCompiler.compile(csv).bytes) }
+
+    @Test
+    fun rowsDecodeLazilyWithAllColumns() {
+        assertEquals(6, index.size)
+        val eov = index.entry(2)
+        assertEquals("EOV/HD72", eov.name)
+        assertEquals("Oblique_Mercator", eov.projection)
+        assertEquals(90.0, eov.azimuthDeg, 0.0)
+        assertEquals(90.0, eov.gridAngleDeg, 0.0)
+        assertEquals(2, eov.datumMode)
+        assertEquals(-0.989578, eov.scalePpm, 0.0)
+        assertEquals(650000.0, eov.falseEasting, 0.0)
+        assertNull(eov.geoidFile)
+        assertEquals("geoid_jp.bin", index.entry(4).geoidFile)
+        // Bölünmüş satır birleştirilir
+        val ug = index.entry(5)
+        assertEquals(33.0, ug.centralMeridianDeg, 0.0)
+        assertEquals(10000000.0, ug.falseNorthing, 0.0)
+    }
+
+    @Test
+    fun groupsAndSearch() {
+        assertEquals(listOf("HUNGARY", "JAPAN", "TURKEY", "UGANDA", "USA"), index.countries().map { it.name })
+        assertArrayEquals(intArrayOf(0, 1), index.rowsOfCountry("TURKEY"))
+        assertArrayEquals(intArrayOf(3), index.rowsOfCountry("USA"))
+        assertArrayEquals(intArrayOf(1, 5), index.rowsOfEllipsoid("WGS 84"))
+        assertEquals(0, index.rowsOfCountry("NOWHERE").size)
+
+        assertArrayEquals(intArrayOf(1), index.search("32636"))
+        assertArrayEquals(intArrayOf(4), index.search("EPSG:6669"))
+        assertArrayEquals(intArrayOf(2), index.search("eov"))
+        assertArrayEquals(intArrayOf(0, 1), index.search("turk"))
+        assertEquals(0, index.search("  ").size)
+    }
+
+    @Test
+    fun fullCatalogCompiles() {
+        val file = File("../Projeksions.csv").takeIf { it.exists() } ?: File("Projeksions.csv")
+        assumeTrue(file.exists())
+        val result = ProjectionCatalogCompiler.compile(file.readText())
+        val idx = ProjectionCatalogIndex.wrap(result.bytes)
+        assertTrue("satır ${idx.size}", idx.size > 2000)
+        // Her satır çözülebilmeli; kompakt kayıt sayesinde CSV'den küçük
+        for (r in 0 until idx.size) idx.entry(r)
+        assertTrue(result.bytes.size < file.length())
+        assertTrue(idx.search("Alaska").isNotEmpty())
+        // Oregon OCRS bölgeleri varyant B tipine çevrilir, Alaska zone 1 varyant A kalır
+        val ocrs = idx.search("OCRS").map { idx.entry(it).projection }
+        assertEquals(2, ocrs.count { it == "Oblique_Mercator" })
+        assertTrue("Hotine_Oblique_Mercator" !in ocrs)
+        assertTrue(idx.search("Alaska (Zone 1)").all { idx.entry(it).projection == "Hotine_Oblique_Mercator" })
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.tugis3.coord.convert
+
+import com.example.tugis3.coord.transform.UtmTransformer
+import kotlinx.coroutines.flow.take
+import kotlinx.coroutines.flow.toList
+import kotlinx.coroutines.runBlocking
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.io.ByteArrayInputStream
+import java.io.StringWriter
+import java.util.Locale
+
+class CoordinateFileConverterTest {
+
+    private val utm36 = UtmTransformer(36, true, 6378137.0, 298.257223563)
+
+    private fun geographicFile(n: Int): String = buildString {
+        append("ad,enlem,boylam,h\n")
+        for (i in 0 until n) {
+            if (i == 777) { append("# yorum satırı\n"); continue }
+            append(String.format(Locale.US, "P%d,%.9f,%.9f,%.3f\n", i, 38.0 + (i % 251) * 0.01, 32.0 + (i % 239) * 0.02, 900.0 + i % 7))
+        }
+    }
+
+    @Test
+    fun chunkedOutputKeepsOrderAndMatchesSinglePoint() = runBlocking {
+        val text = geographicFile(20_000)
+        val out = StringWriter()
+        val progress = CoordinateFileConverter(null, utm36, chunkSize = 512, maxInFlight = 3)
+            .convert(ByteArrayInputStream(text.toByteArray()), out, text.length.toLong())
+            .toList()
+        val last = progress.last()
+        assertTrue(last.done)
+        assertEquals(20_001L, last.lines)
+        // Başlık ve yorum satırı değişmeden geçer
+        assertEquals(2L, last.skipped)
+        assertEquals(1f, last.fraction, 0f)
+        assertTrue(progress.zipWithNext().all { (p, q) -> q.lines >= p.lines })
+
+        val inLines = text.lines()
+        val outLines = out.toString().lines()
+        assertEquals(inLines.size, outLines.size)
+        assertEquals(inLines[0], outLines[0])
+        assertEquals(inLines[778], outLines[778])
+        for (i in listOf(1, 512, 513, 5_000, 19_999, 20_000)) {
+            val src = inLines[i].split(',')
+            val dst = outLines[i].split(',')
+            assertEquals(src[0], dst[0])
+            assertEquals(src[3], dst[3])
+            val (e, n) = utm36.forward(src[1].toDouble(), src[2].toDouble())
+            assertEquals(n, dst[1].toDouble(), 6e-4)
+            assertEquals(e, dst[2].toDouble(), 6e-4)
+        }
+    }
+
+    @Test
+    fun projectedToGeographicRoundTrip() = runBlocking {
+        val text = "A 4212345.678 512345.678 100\nB 4300000.000 600000.000 5\n"
+        val out = StringWriter()
+        CoordinateFileConverter(utm36, null).convert(ByteArrayInputStream(text.toByteArray()), out).toList()
+        val back = StringWriter()
+        CoordinateFileConverter(null, utm36).convert(ByteArrayInputStream(out.toString().toByteArray()), back).toList()
+        assertEquals(text, back.toString())
+    }
+
+    @Test
+    fun cancellationStopsReading() = runBlocking {
+        val text = geographicFile(50_000)
+        val out = StringWriter()
+        val first = CoordinateFileConverter(null, utm36, chunkSize = 256, maxInFlight = 2)
+            .convert(ByteArrayInputStream(text.toByteArray()), out)
+            .take(2)
+            .toList()
+        assertEquals(2, first.size)
+        assertTrue(out.toString().lines().size < 2_000)
+    }
+}
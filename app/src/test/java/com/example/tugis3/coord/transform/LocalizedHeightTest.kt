@@ -0,0 +1,50 @@
+package com.example.tugis3.coord.transform
+
+import com.example.tugis3.data.db.entity.ProjectEntity
+import com.example.tugis3.data.repository.LocalizationSolver
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+class LocalizedHeightTest {
+
+    private val base = ProjectEntity(
+        id = 1, name = "P1", semiMajorA = 6378137.0, invFlattening = 298.257223563, utmZone = 35
+    )
+    private val sites = listOf(39.90 to 27.10, 39.93 to 27.16, 39.87 to 27.21, 39.95 to 27.05, 39.89 to 27.13)
+
+    /** Kalibrasyon: kaynak E/N lokalizasyonsuz projeksiyondan, hedef yükseklik bilinen düzlemle. */
+    private fun solve(): LocalizationSolver.Solution {
+        val utm = ProjectionEngine.forProject(base)
+        val points = sites.mapIndexed { i, (lat, lon) ->
+            val (e, n) = utm.forward(lat, lon)
+            val h = 120.0 + 3 * i
+            LocalizationSolver.Point(e, n, e + 12.0, n - 7.0, srcH = h, dstH = h + plane(e, n))
+        }
+        return LocalizationSolver.solveRobust(points)
+    }
+
+    private fun plane(e: Double, n: Double) = 0.35 + 20e-6 * (n - 4_420_000.0) - 10e-6 * (e - 510_000.0)
+
+    @Test
+    fun savedPlaneReproducesControlHeights() {
+        val sol = solve()
+        val v = sol.vertical!!
+        val project = base.copy(
+            locScale = sol.similarity.scale, locRotRad = sol.similarity.rot, locTx = sol.similarity.tx, locTy = sol.similarity.ty,
+            locVertOffset = v.offset, locVertSlopeN = v.slopeN, locVertSlopeE = v.slopeE, locVertN0 = v.n0, locVertE0 = v.e0
+        )
+        val utm = ProjectionEngine.forProject(base)
+        // Yatay lokalizasyon düzlemin konumunu kaydırmaz; kalibrasyon dışı bir noktada da düzlem geçerli
+        for ((lat, lon) in sites + (39.91 to 27.18)) {
+            val (e, n) = utm.forward(lat, lon)
+            assertEquals(100.0 + plane(e, n), ProjectionEngine.localizedHeight(project, lat, lon, 100.0)!!, 1e-6)
+        }
+    }
+
+    @Test
+    fun withoutPlaneHeightIsUnchanged() {
+        assertEquals(100.0, ProjectionEngine.localizedHeight(base, 39.9, 27.1, 100.0)!!, 0.0)
+        assertEquals(null, ProjectionEngine.localizedHeight(base.copy(locVertOffset = 1.0), 39.9, 27.1, null))
+        assertEquals(101.5, ProjectionEngine.localizedHeight(base.copy(locVertOffset = 1.5), 39.9, 27.1, 100.0)!!, 1e-12)
+    }
+}
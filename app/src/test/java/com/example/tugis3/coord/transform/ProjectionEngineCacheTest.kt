@@ -0,0 +1,62 @@
+package com.example.tugis3.coord.transform
+
+import com.example.tugis3.data.db.entity.ProjectEntity
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotSame
+import org.junit.Assert.assertSame
+import org.junit.Test
+import java.io.File
+
+class ProjectionEngineCacheTest {
+
+    private val base = ProjectEntity(
+        id = 1, name = "P1", semiMajorA = 6378137.0, invFlattening = 298.257223563, utmZone = 35
+    )
+
+    @Test
+    fun sameParametersReturnSameInstance() {
+        ProjectionEngine.clearCache()
+        val before = ProjectionEngine.cacheStats()
+        val t1 = ProjectionEngine.forProject(base)
+        // Projeksiyonla ilgisiz alanlar anahtarı değiştirmez
+        val t2 = ProjectionEngine.forProject(base.copy(name = "Yeniden adlandırıldı", isActive = true, createdAt = 0))
+        assertSame(t1, t2)
+        val after = ProjectionEngine.cacheStats()
+        assertEquals(1, after.misses - before.misses)
+        assertEquals(1, after.hits - before.hits)
+        assertEquals(1, after.size)
+    }
+
+    @Test
+    fun parameterChangeBuildsNewTransformer() {
+        ProjectionEngine.clearCache()
+        val t1 = ProjectionEngine.forProject(base)
+        val t2 = ProjectionEngine.forProject(base.copy(utmZone = 36))
+        val t3 = ProjectionEngine.forProject(base.copy(locScale = 1.0, locRotRad = 0.0, locTx = 1.0, locTy = 2.0))
+        assertNotSame(t1, t2)
+        assertNotSame(t1, t3)
+        assertEquals(3, ProjectionEngine.cacheStats().size)
+    }
+
+    @Test
+    fun replacedGridFileBuildsNewTransformer() {
+        ProjectionEngine.clearCache()
+        val file = File.createTempFile("shift", ".gsb").apply { deleteOnExit() }
+        file.setLastModified(1_000_000_000_000L)
+        val project = base.copy(datumGridPath = file.path)
+        val t1 = ProjectionEngine.forProject(project)
+        assertSame(t1, ProjectionEngine.forProject(project))
+        // Aynı yola yeni dosya kopyalandı; değişiklik zamanı yenilemede (veya proje değişince) okunur
+        file.setLastModified(1_000_000_060_000L)
+        assertSame(t1, ProjectionEngine.forProject(project))
+        ProjectionEngine.refresh()
+        assertNotSame(t1, ProjectionEngine.forProject(project))
+    }
+
+    @Test
+    fun verticalPlaneDoesNotRebuildHorizontalChain() {
+        ProjectionEngine.clearCache()
+        val t1 = ProjectionEngine.forProject(base)
+        assertSame(t1, ProjectionEngine.forProject(base.copy(locVertOffset = 0.25, locVertSlopeN = 1e-5)))
+    }
+}
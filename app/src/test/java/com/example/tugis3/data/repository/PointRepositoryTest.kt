@@ -33,6 +33,9 @@ class PointRepositoryTest {
 
         private fun updateFlows() = stateMap.forEach { (pid, flow) -> flow.value = currentFor(pid) }
 
+        override suspend fun getById(id: Long): PointEntity? =
+            points.firstOrNull { it.id == id } ?: deletedPoints.firstOrNull { it.id == id }
+
         override suspend fun upsert(point: PointEntity): Long {
             val assigned = if (point.id == 0L) point.copy(id = idGen++) else point
             val idx = points.indexOfFirst { it.id == assigned.id }
@@ -73,6 +76,7 @@ class PointRepositoryTest {
             northing: Double,
             easting: Double,
             height: Double?,
+            orthoHeight: Double?,
             code: String?,
             desc: String?,
             updatedAt: Long
@@ -85,6 +89,7 @@ class PointRepositoryTest {
                     northing = northing,
                     easting = easting,
                     ellipsoidalHeight = height,
+                    orthoHeight = orthoHeight,
                     featureCode = code,
                     description = desc,
                     updatedAt = updatedAt
@@ -0,0 +1,53 @@
+package com.example.tugis3.gnss
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class PositionPredictorTest {
+
+    private val metersPerDegLat = Math.toRadians(1.0) * 6_371_000.0
+
+    @Test
+    fun extrapolatesAlongVelocityFromSuccessiveFixes() {
+        val p = PositionPredictor()
+        // Kuzeye 2 m/s
+        p.update(0L, 40.0, 30.0)
+        p.update(1_000L, 40.0 + 2.0 / metersPerDegLat, 30.0)
+        assertTrue(p.isMoving)
+        val pred = p.predict(1_500L)!!
+        assertTrue(pred.extrapolated)
+        assertEquals(3.0, (pred.lat - 40.0) * metersPerDegLat, 1e-6)
+        assertEquals(30.0, pred.lon, 1e-12)
+    }
+
+    @Test
+    fun horizonIsBounded() {
+        val p = PositionPredictor(maxHorizonMs = 500L)
+        p.update(0L, 40.0, 30.0, speedMps = 10.0, courseDeg = 0.0)
+        val pred = p.predict(10_000L)!!
+        assertEquals(5.0, (pred.lat - 40.0) * metersPerDegLat, 1e-6)
+    }
+
+    @Test
+    fun stationaryReceiverIsNotExtrapolated() {
+        val p = PositionPredictor()
+        p.update(0L, 40.0, 30.0, speedMps = 0.05, courseDeg = 90.0)
+        assertFalse(p.isMoving)
+        val pred = p.predict(800L)!!
+        assertFalse(pred.extrapolated)
+        assertEquals(40.0, pred.lat, 0.0)
+    }
+
+    @Test
+    fun sameEpochSentencesDoNotZeroVelocity() {
+        val p = PositionPredictor()
+        p.update(0L, 40.0, 30.0, speedMps = 3.0, courseDeg = 90.0)
+        p.update(5L, 40.0, 30.0) // aynı epoch'un GGA'sı
+        assertTrue(p.isMoving)
+        p.reset()
+        assertNull(p.predict(100L))
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.tugis3.gnss
+
+import com.example.tugis3.gnss.model.FixType
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import kotlin.random.Random
+
+class TrackStatisticsTest {
+
+    @Test
+    fun distanceIsSplitByFixTypeAndSegmentsCounted() {
+        val acc = TrackStatsAccumulator()
+        acc.add(0L, FixType.RTK_FIX, null, 0.0)
+        acc.add(1_000L, FixType.RTK_FIX, null, 1.0)
+        acc.add(2_000L, FixType.RTK_FLOAT, null, 2.0)
+        acc.add(3_000L, FixType.RTK_FIX, null, 3.0)
+        val s = acc.snapshot()
+        assertEquals(4, s.pointCount)
+        assertEquals(6.0, s.totalDistance, 1e-9)
+        assertEquals(4.0, s.rtkFixDistance, 1e-9)
+        assertEquals(2.0, s.rtkFloatDistance, 1e-9)
+        assertEquals(3, s.fixSegmentCount)
+        assertEquals(3_000L, s.durationMillis)
+        assertEquals(2.0, s.averageSpeedMps, 1e-9)
+    }
+
+    @Test
+    fun movingAndStoppedTimeUseSpeedThreshold() {
+        val acc = TrackStatsAccumulator()
+        acc.add(0L, FixType.SINGLE, null, 0.0)
+        acc.add(10_000L, FixType.SINGLE, null, 0.1)   // 0.01 m/s -> duruyor
+        acc.add(11_000L, FixType.SINGLE, null, 5.0)   // 5 m/s -> hareketli
+        val s = acc.snapshot()
+        assertEquals(10_000L, s.stoppedMillis)
+        assertEquals(1_000L, s.movingMillis)
+        assertEquals(5.0, s.maxSpeedMps, 1e-9)
+    }
+
+    @Test
+    fun elevationGainLossIgnoresNoiseBelowHysteresis() {
+        val acc = TrackStatsAccumulator()
+        val alts = doubleArrayOf(100.0, 100.2, 99.9, 100.1, 101.0, 102.0, 101.4, 100.0)
+        alts.forEachIndexed { i, h -> acc.add(i * 1_000L, FixType.RTK_FIX, h, if (i == 0) 0.0 else 1.0) }
+        val s = acc.snapshot()
+        assertEquals(2.0, s.elevationGain, 1e-9)
+        assertEquals(2.0, s.elevationLoss, 1e-9)
+    }
+
+    @Test
+    fun p2QuantileTracksUniformDistribution() {
+        val p50 = P2Quantile(0.5)
+        val p95 = P2Quantile(0.95)
+        val rnd = Random(42)
+        repeat(100_000) { val x = rnd.nextDouble() * 10.0; p50.add(x); p95.add(x) }
+        assertTrue("p50=${p50.value()}", kotlin.math.abs(p50.value() - 5.0) < 0.1)
+        assertTrue("p95=${p95.value()}", kotlin.math.abs(p95.value() - 9.5) < 0.1)
+    }
+}
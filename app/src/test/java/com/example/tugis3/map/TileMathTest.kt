@@ -0,0 +1,15 @@
+package com.example.tugis3.map
+
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+class TileMathTest {
+
+    @Test
+    fun knownTileForAnkara() {
+        // Ankara (39.92, 32.85) z10 -> x=605, y=387 (OSM slippy map)
+        assertEquals(605, TileMath.lonToTileX(32.85411, 10))
+        assertEquals(387, TileMath.latToTileY(39.92077, 10))
+        assertEquals(1023 - 387, TileMath.xyzToTmsRow(387, 10))
+    }
+}
@@ -0,0 +1,14 @@
+plugins {
+    `kotlin-dsl`
+}
+
+repositories {
+    mavenCentral()
+}
+
+// Katalog derleyicisi uygulama ile ortak kaynaktır (app/src/catalog); Gradle görevi aynı kodu çalıştırır
+sourceSets {
+    main {
+        java.srcDir("../app/src/catalog/kotlin")
+    }
+}
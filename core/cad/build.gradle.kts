@@ -18,6 +18,11 @@ android {
         targetCompatibility = JavaVersion.VERSION_17
     }
     kotlinOptions { jvmTarget = "17" }
+    // Süre ölçen testler birim testlerinden ayrı tutulur; yalnızca istendiğinde derlenip çalışır:
+    // ./gradlew :core:cad:testDebugUnitTest -Pcad.benchmarks --tests '*Benchmark'
+    sourceSets {
+        if (project.hasProperty("cad.benchmarks")) getByName("test").java.srcDir("src/benchmark/java")
+    }
 }
 
 dependencies {
@@ -0,0 +1,17 @@
+package com.example.tugis3.core.cad
+
+import java.util.Locale
+
+/** Ölçüm testleri için süre ve rapor yardımcıları; yalnızca `-Pcad.benchmarks` ile derlenir. */
+internal object Bench {
+
+    /** [warmup] ısınma turundan sonra [rounds] turun ortalama süresi (ms). */
+    inline fun ms(warmup: Int = 2, rounds: Int = 5, block: () -> Unit): Double {
+        repeat(warmup) { block() }
+        val t0 = System.nanoTime()
+        repeat(rounds) { block() }
+        return (System.nanoTime() - t0) / 1e6 / rounds
+    }
+
+    fun report(format: String, vararg args: Any?) = println(String.format(Locale.US, format, *args))
+}
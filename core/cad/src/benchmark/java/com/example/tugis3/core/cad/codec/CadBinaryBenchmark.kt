@@ -0,0 +1,27 @@
+package com.example.tugis3.core.cad.codec
+
+import com.example.tugis3.core.cad.Bench
+import com.example.tugis3.core.cad.CadFixtures
+import com.example.tugis3.core.cad.codec.CadBinary.CoordMode
+import org.junit.Test
+
+/** CadBinary v2 koordinat kipleri: kadastro çiziminde boyut ve yazma/okuma süresi, v1'e göre. */
+class CadBinaryBenchmark {
+
+    @Test
+    fun sizeAndSpeedOnSurveyDrawing() {
+        val data = CadFixtures.surveyDrawing(40_000)
+        for (compress in listOf(false, true)) {
+            val v1 = CadFixtures.packV1(data, compress)
+            val v1ReadMs = Bench.ms { CadBinary.unpack(v1, compress) }
+            Bench.report("CadBinary v1 gzip=%s: %d B, okuma %.1f ms", compress, v1.size, v1ReadMs)
+            for (mode in CoordMode.values()) {
+                lateinit var bytes: ByteArray
+                val writeMs = Bench.ms { bytes = CadBinary.pack(data, compress, mode) }
+                val readMs = Bench.ms { CadBinary.unpack(bytes, compress) }
+                Bench.report("CadBinary v2 %s gzip=%s: %d B (v1'in %%%.0f), yazma %.1f ms, okuma %.1f ms",
+                    mode, compress, bytes.size, 100.0 * bytes.size / v1.size, writeMs, readMs)
+            }
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.tugis3.core.cad.codec
+
+import com.example.tugis3.core.cad.Bench
+import com.example.tugis3.core.cad.model.CadLine
+import com.example.tugis3.core.cad.model.CadPolyline
+import com.example.tugis3.core.cad.model.Vec2
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+/** İkili geometri kodlamasının metin kodlamasına göre çözme hızı ve boyutu. */
+class CadGeometryCodecBenchmark {
+
+    @Test
+    fun decodeAgainstTextCodec() {
+        val rnd = java.util.Random(3)
+        val entities = List(20_000) { i ->
+            val e = 500_000 + rnd.nextDouble() * 10_000
+            val n = 4_400_000 + rnd.nextDouble() * 10_000
+            if (i % 3 == 0) CadLine(Vec2(e, n), Vec2(e + 5.123456, n + 3.654321), layer = "L")
+            else CadPolyline(List(12) { k -> Vec2(e + k * 1.234567, n + (k and 1) * 0.987654) }, layer = "PL")
+        }
+        val text = entities.map { CadCodec.encode(it) }
+        val binary = entities.map { CadGeometryCodec.encode(it).second }
+
+        var decoded = 0
+        val textMs = Bench.ms(warmup = 3) { decoded = text.count { (t, d) -> CadCodec.decode(t, d, "X", null) != null } }
+        assertEquals(entities.size, decoded)
+        val binMs = Bench.ms(warmup = 3) { decoded = binary.count { CadGeometryCodec.decode(it, "X", null) != null } }
+        assertEquals(entities.size, decoded)
+        Bench.report("CAD decode %d entity: metin %.1f ms (%d B), ikili %.1f ms (%d B), %.1fx",
+            entities.size, textMs, text.sumOf { it.second.length }, binMs, binary.sumOf { it.size }, textMs / binMs)
+    }
+}
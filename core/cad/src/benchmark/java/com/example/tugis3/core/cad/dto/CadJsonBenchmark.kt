@@ -0,0 +1,27 @@
+package com.example.tugis3.core.cad.dto
+
+import com.example.tugis3.core.cad.Bench
+import com.example.tugis3.core.cad.CadFixtures
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import java.io.StringReader
+import java.io.StringWriter
+
+/** Akışlı CadJson yazma / okuma hızı (MB/s), 100k entity. */
+class CadJsonBenchmark {
+
+    @Test
+    fun streamingThroughput100k() {
+        val data = CadFixtures.mixedDrawing(100_000)
+        var json = ""
+        val writeMs = Bench.ms(rounds = 3) {
+            json = StringWriter().also { CadJson.write(it, data.asSequence(), includeVersionWrapper = true) }.toString()
+        }
+        var count = 0
+        val readMs = Bench.ms(rounds = 3) { count = CadJson.read(StringReader(json)) { } }
+        assertEquals(data.size, count)
+        val mb = json.length / 1e6
+        Bench.report("CadJson %d entity, %.1f MB: yazma %.0f ms (%.1f MB/s), okuma %.0f ms (%.1f MB/s)",
+            data.size, mb, writeMs, mb / (writeMs / 1e3), readMs, mb / (readMs / 1e3))
+    }
+}
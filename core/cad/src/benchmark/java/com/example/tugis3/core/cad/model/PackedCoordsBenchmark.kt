@@ -0,0 +1,28 @@
+package com.example.tugis3.core.cad.model
+
+import com.example.tugis3.core.cad.Bench
+import com.example.tugis3.core.cad.geom.GeometryUtils
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+/** Uzunluk / alan / sınır hesabında paketli köşelerin `List<Vec2>`'ye göre hızı. */
+class PackedCoordsBenchmark {
+
+    @Test
+    fun lengthAndAreaAgainstVec2List() {
+        val n = 200_000
+        val list = List(n) { i -> Vec2(500_000.0 + i * 0.731, 4_400_000.0 + (i % 50) * 0.377) }
+        val packed = PackedCoords.of(list)
+
+        var fromList = 0.0
+        var fromPacked = 0.0
+        val listMs = Bench.ms(warmup = 5, rounds = 20) {
+            fromList = GeometryUtils.polylineLength(list) + GeometryUtils.polygonAreaSigned(list) + BoundingBox.ofPoints(list).width
+        }
+        val packedMs = Bench.ms(warmup = 5, rounds = 20) {
+            fromPacked = GeometryUtils.polylineLength(packed) + GeometryUtils.polygonAreaSigned(packed) + packed.bounds.width
+        }
+        assertEquals(fromList, fromPacked, 1e-6 * fromList)
+        Bench.report("Paketli köşe %d: List<Vec2> %.2f ms, PackedCoords %.2f ms, %.1fx (16 B/köşe)", n, listMs, packedMs, listMs / packedMs)
+    }
+}
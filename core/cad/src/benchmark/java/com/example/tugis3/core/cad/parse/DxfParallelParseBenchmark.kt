@@ -0,0 +1,59 @@
+package com.example.tugis3.core.cad.parse
+
+import com.example.tugis3.core.cad.Bench
+import org.junit.Test
+import java.io.File
+import java.util.Locale
+
+/** Paralel DXF ayrıştırmanın çekirdek sayısıyla hızlanması (1 çekirdek = sıralı yol). */
+class DxfParallelParseBenchmark {
+
+    @Test
+    fun speedUpByCoreCount() {
+        val f = File.createTempFile("par", ".dxf")
+        try {
+            f.writeText(mixedDxf(300_000))
+            val parser = DxfParser()
+            val mb = f.length() / 1e6
+            val cores = Runtime.getRuntime().availableProcessors()
+            val counts = listOf(1, 2, 4, 8).filter { it <= maxOf(cores, 2) }
+            var base = 0.0
+            for (p in counts) {
+                val ms = Bench.ms(rounds = 3) { parser.parseParallel(f, p) }
+                if (p == 1) base = ms
+                Bench.report("DXF paralel: %d çekirdek, %.1f MB, %.1f ms, %.1f MB/s, hızlanma %.2fx", p, mb, ms, mb / (ms / 1e3), base / ms)
+            }
+        } finally {
+            f.delete()
+        }
+    }
+
+    /** LINE, TEXT, her 7'de bir eski POLYLINE, her 10'da bir INSERT; BLOCKS bölümü ENTITIES'ten önce. */
+    private fun mixedDxf(n: Int): String = buildString(n * 120) {
+        fun g(code: Int, v: Any) { append(code).append("\r\n").append(v).append("\r\n") }
+        g(0, "SECTION"); g(2, "HEADER"); g(9, "\$ACADVER"); g(1, "AC1015"); g(0, "ENDSEC")
+        g(0, "SECTION"); g(2, "BLOCKS")
+        g(0, "BLOCK"); g(2, "ROGAR"); g(10, 0.0); g(20, 0.0)
+        g(0, "CIRCLE"); g(8, "0"); g(10, 0.0); g(20, 0.0); g(40, 0.5)
+        g(0, "ENDBLK"); g(0, "ENDSEC")
+        g(0, "SECTION"); g(2, "ENTITIES")
+        for (i in 0 until n) {
+            val e = 500_000.0 + i * 0.731
+            val nn = 4_400_000.0 + i * 0.377
+            when {
+                i % 10 == 0 -> { g(0, "INSERT"); g(8, "ALTYAPI"); g(2, "ROGAR"); g(10, e); g(20, nn) }
+                i % 7 == 0 -> {
+                    g(0, "POLYLINE"); g(8, "ESKI"); g(66, 1); g(70, 0)
+                    for (k in 0 until 3) { g(0, "VERTEX"); g(8, "ESKI"); g(10, e + k); g(20, nn) }
+                    g(0, "SEQEND")
+                }
+                i % 3 == 0 -> { g(0, "TEXT"); g(8, "0"); g(10, e); g(20, nn); g(40, 2.5); g(1, "0") }
+                else -> {
+                    append(String.format(Locale.US, "0\r\nLINE\r\n8\r\nPARSEL\r\n10\r\n%.4f\r\n20\r\n%.4f\r\n11\r\n%.4f\r\n21\r\n%.4f\r\n", e, nn, e + 5, nn + 5))
+                }
+            }
+        }
+        g(0, "ENDSEC")
+        g(0, "EOF")
+    }
+}
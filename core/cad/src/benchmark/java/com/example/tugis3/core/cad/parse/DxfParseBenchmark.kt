@@ -0,0 +1,36 @@
+package com.example.tugis3.core.cad.parse
+
+import com.example.tugis3.core.cad.Bench
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import java.io.ByteArrayInputStream
+import java.util.Locale
+
+/** Bayt düzeyinde belirteçleyiciyle sıralı DXF ayrıştırma hızı (MB/s). */
+class DxfParseBenchmark {
+
+    @Test
+    fun sequentialThroughput() {
+        val text = syntheticDxf(100_000).toByteArray()
+        val parser = DxfParser()
+        var count = 0
+        val ms = Bench.ms(rounds = 3) { count = parser.parse(ByteArrayInputStream(text)).size }
+        assertEquals(200_000, count)
+        val mb = text.size / 1e6
+        Bench.report("DXF parse: %.1f MB, %d entity, %.1f ms, %.1f MB/s", mb, count, ms, mb / (ms / 1e3))
+    }
+
+    /** [n] LINE + [n] dört köşeli LWPOLYLINE, HEADER bölümüyle. */
+    private fun syntheticDxf(n: Int): String = buildString(n * 260) {
+        append("0\r\nSECTION\r\n2\r\nHEADER\r\n9\r\n\$INSUNITS\r\n70\r\n6\r\n0\r\nENDSEC\r\n")
+        append("0\r\nSECTION\r\n2\r\nENTITIES\r\n")
+        for (i in 0 until n) {
+            val e = 500_000.0 + i * 0.731
+            val nn = 4_400_000.0 + i * 0.377
+            append(String.format(Locale.US, "0\r\nLINE\r\n8\r\nPARSEL\r\n10\r\n%.4f\r\n20\r\n%.4f\r\n11\r\n%.4f\r\n21\r\n%.4f\r\n", e, nn, e + 5, nn + 5))
+            append("0\r\nLWPOLYLINE\r\n8\r\nBINA\r\n90\r\n4\r\n70\r\n1\r\n")
+            for (k in 0 until 4) append(String.format(Locale.US, " 10\r\n%.3f\r\n 20\r\n%.3f\r\n", e + k, nn + (k and 1)))
+        }
+        append("0\r\nENDSEC\r\n0\r\nEOF\r\n")
+    }
+}
@@ -4,8 +4,10 @@ import android.content.ContentResolver
 import android.net.Uri
 import com.example.tugis3.core.cad.model.CadEntity
 import com.example.tugis3.core.cad.parse.DxfParser
+import kotlinx.coroutines.CancellationException
 import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
 import kotlinx.coroutines.flow.MutableStateFlow
 import kotlinx.coroutines.flow.StateFlow
 import kotlinx.coroutines.flow.asStateFlow
@@ -24,13 +26,25 @@ class CadService @Inject constructor() {
     private val _status = MutableStateFlow<String?>(null)
     val status: StateFlow<String?> = _status.asStateFlow()
 
+    private var job: Job? = null
+
     fun clear() {
+        job?.cancel()
         _entities.value = emptyList(); _status.value = null
     }
 
+    /** Devam eden yüklemeyi durdurur; o ana kadar gelen varlıklar kalır. */
+    fun cancel() {
+        job?.cancel()
+    }
+
+    /** Varlıklar partiler halinde [entities]'e eklenir; ilk parti dosyanın tamamı okunmadan görünür. */
     fun loadFromUri(resolver: ContentResolver, uri: Uri) {
-        scope.launch {
+        job?.cancel()
+        _entities.value = emptyList()
+        job = scope.launch {
             runCatching {
+                val total = runCatching { resolver.openAssetFileDescriptor(uri, "r")?.use { it.length } }.getOrNull() ?: -1L
                 resolver.openInputStream(uri).use { input ->
                     if (input == null) throw IllegalArgumentException("Boş giriş akışı")
                     val name = uri.lastPathSegment?.lowercase() ?: ""
@@ -42,11 +56,17 @@ class CadService @Inject constructor() {
                         _status.value = "Desteklenmeyen format (yalnızca .dxf / .dwg)."
                         return@use
                     }
-                    val list = parser.parse(input)
-                    _entities.value = list
-                    _status.value = "Yüklendi: ${list.size} varlık"
+                    parser.stream(input, total).collect { b ->
+                        if (b.entities.isNotEmpty()) _entities.value = _entities.value + b.entities
+                        _status.value = if (b.done) "Yüklendi: ${b.entityCount} varlık"
+                            else "Yükleniyor: ${b.entityCount} varlık (%${(b.fraction * 100).toInt()})"
+                    }
                 }
             }.onFailure {
+                if (it is CancellationException) {
+                    _status.value = "İptal edildi: ${_entities.value.size} varlık"
+                    throw it
+                }
                 _status.value = "Hata: ${it.message}"; _entities.value = emptyList()
             }
         }
@@ -1,27 +1,46 @@
 package com.example.tugis3.core.cad.codec
 
 import com.example.tugis3.core.cad.dto.*
+import java.io.BufferedInputStream
+import java.io.BufferedOutputStream
 import java.io.ByteArrayInputStream
 import java.io.ByteArrayOutputStream
 import java.io.DataInputStream
 import java.io.DataOutputStream
+import java.io.InputStream
+import java.io.OutputStream
 import java.nio.charset.StandardCharsets
 import java.util.zip.GZIPInputStream
 import java.util.zip.GZIPOutputStream
+import kotlin.math.abs
+import kotlin.math.roundToLong
 
 /**
  * Deneysel binary paketleme + GZIP. Üretimde Protobuf / FlatBuffers tercih edilebilir.
- * Format:
- *  magic: 4 byte = 'C','A','D','B'
- *  version: u8 (DTO versiyonu referansı)
- *  count: u32
- *  repeated entity:
+ * Yazım ve okuma akış üzerindendir ([write] / [read]); [pack] / [unpack] bayt dizisi kısayollarıdır.
+ * GZIP isteğe bağlıdır; okumada başlıktan tanınır.
+ *
+ * v2 (yazılan):
+ *  magic: 4 byte = 'C','A','D','B', version: u8 = 2
+ *  coordMode: u8 ([CoordMode] sırası), QUANTISED / FLOAT ise parametre f64 (adım / tolerans)
+ *  repeated entity, type 0 ile biter:
  *    type: u8 (1=PT,2=L,3=PL,4=PG,5=C,6=A,7=T)
- *    layerLen: u16, layer UTF-8 bytes
- *    payload -> type'e göre alanlar (double = 8 byte, boolean = u8)
+ *    layer: varint; 0 = yeni ad (varint uzunluk + UTF-8, tabloya eklenir), k = tablodaki (k-1). ad
+ *    PT: p | L: p p | C: p r | A: p r startDeg endDeg | T: p h rotDeg, varint uzunluk + UTF-8 metin
+ *    PL: u8 closed, varint n, n p | PG: varint halka, her halka için varint n, n p
+ *  p (koordinat çifti) bir önceki yazılan noktaya göre kodlanır (entity sınırında sıfırlanmaz):
+ *    EXACT: f64 x y (kayıpsız) | QUANTISED: round(v / adım) farkı, zig-zag varint (hata <= adım / 2)
+ *    FLOAT: f32 fark; hata toleransı aşarsa NaN işareti + f64 x y (hata <= tolerans)
+ *  Diğer sayılar (yarıçap, açı, yükseklik) f64.
+ *
+ * v1 (yalnız okunur): magic, version u8 = 1, count u32, her entity için type u8, layerLen u16 + UTF-8,
+ *  tüm sayılar f64 (PL: u8 closed, u32 n + n f64; PG: u32 halka, her biri u32 n + n f64; T: x y h, u32 + metin, rot).
  */
 object CadBinary {
     private const val MAGIC = "CADB"
+    private const val VERSION_1 = 1
+    private const val VERSION_2 = 2
+    private const val TYPE_END: Byte = 0
     private const val TYPE_PT: Byte = 1
     private const val TYPE_L: Byte = 2
     private const val TYPE_PL: Byte = 3
@@ -29,138 +48,351 @@ object CadBinary {
     private const val TYPE_C: Byte = 5
     private const val TYPE_A: Byte = 6
     private const val TYPE_T: Byte = 7
+    private const val BUFFER = 64 * 1024
 
-    fun pack(list: List<CadEntityDto>, compress: Boolean = true): ByteArray {
-        val raw = ByteArrayOutputStream()
-        DataOutputStream(raw).use { out ->
-            out.write(MAGIC.toByteArray(StandardCharsets.US_ASCII))
-            out.writeByte(CAD_DTO_VERSION)
-            out.writeInt(list.size)
-            list.forEach { dto ->
-                when (dto) {
-                    is PointDto -> {
-                        out.writeByte(TYPE_PT.toInt())
-                        writeLayer(out, dto.layer)
-                        out.writeDouble(dto.x); out.writeDouble(dto.y)
-                    }
-                    is LineDto -> {
-                        out.writeByte(TYPE_L.toInt())
-                        writeLayer(out, dto.layer)
-                        out.writeDouble(dto.x1); out.writeDouble(dto.y1); out.writeDouble(dto.x2); out.writeDouble(dto.y2)
-                    }
-                    is PolylineDto -> {
-                        out.writeByte(TYPE_PL.toInt())
-                        writeLayer(out, dto.layer)
-                        out.writeBoolean(dto.closed)
-                        val n = dto.coords.size
-                        out.writeInt(n)
-                        dto.coords.forEach { out.writeDouble(it) }
-                    }
-                    is PolygonDto -> {
-                        out.writeByte(TYPE_PG.toInt())
-                        writeLayer(out, dto.layer)
-                        out.writeInt(dto.rings.size)
-                        dto.rings.forEach { ring ->
-                            out.writeInt(ring.size)
-                            ring.forEach { out.writeDouble(it) }
-                        }
-                    }
-                    is CircleDto -> {
-                        out.writeByte(TYPE_C.toInt())
-                        writeLayer(out, dto.layer)
-                        out.writeDouble(dto.cx); out.writeDouble(dto.cy); out.writeDouble(dto.r)
-                    }
-                    is ArcDto -> {
-                        out.writeByte(TYPE_A.toInt())
-                        writeLayer(out, dto.layer)
-                        out.writeDouble(dto.cx); out.writeDouble(dto.cy); out.writeDouble(dto.r)
-                        out.writeDouble(dto.startDeg); out.writeDouble(dto.endDeg)
-                    }
-                    is TextDto -> {
-                        out.writeByte(TYPE_T.toInt())
-                        writeLayer(out, dto.layer)
-                        out.writeDouble(dto.x); out.writeDouble(dto.y); out.writeDouble(dto.h)
-                        writeString(out, dto.text)
-                        out.writeDouble(dto.rot)
-                    }
-                }
-            }
-        }
-        val bytes = raw.toByteArray()
-        return if (!compress) bytes else ByteArrayOutputStream().use { bos ->
-            GZIPOutputStream(bos).use { it.write(bytes) }
-            bos.toByteArray()
-        }
+    /** Varsayılan nicemleme adımı (1 mm). */
+    const val DEFAULT_QUANTUM = 0.001
+
+    /** v2 koordinat kodlaması. */
+    enum class CoordMode { EXACT, QUANTISED, FLOAT }
+
+    fun pack(
+        list: List<CadEntityDto>,
+        compress: Boolean = true,
+        mode: CoordMode = CoordMode.EXACT,
+        quantum: Double = DEFAULT_QUANTUM
+    ): ByteArray {
+        val bos = ByteArrayOutputStream(list.size * 24 + 16)
+        write(bos, list.asSequence(), compress, mode, quantum)
+        return bos.toByteArray()
     }
 
     fun unpack(data: ByteArray, compressed: Boolean = true): List<CadEntityDto> {
-        val inputBytes = if (!compressed) data else GZIPInputStream(ByteArrayInputStream(data)).readAllBytes()
-        val list = mutableListOf<CadEntityDto>()
-        DataInputStream(ByteArrayInputStream(inputBytes)).use { inp ->
+        val list = ArrayList<CadEntityDto>()
+        val input = ByteArrayInputStream(data)
+        read(if (compressed) GZIPInputStream(input, BUFFER) else input) { list += it }
+        return list
+    }
+
+    /**
+     * [entities]'i v2 olarak [out]'a akıtır (tamamı bellekte tutulmaz). [out] kapatılmaz.
+     * @param quantum QUANTISED için ızgara adımı, FLOAT için izin verilen en büyük mutlak hata
+     * @return yazılan entity sayısı
+     */
+    fun write(
+        out: OutputStream,
+        entities: Sequence<CadEntityDto>,
+        compress: Boolean = true,
+        mode: CoordMode = CoordMode.EXACT,
+        quantum: Double = DEFAULT_QUANTUM
+    ): Int {
+        require(mode == CoordMode.EXACT || quantum > 0) { "Adım / tolerans > 0 olmalı" }
+        val gzip = if (compress) GZIPOutputStream(NonClosing(out), BUFFER) else null
+        val data = DataOutputStream(BufferedOutputStream(gzip ?: NonClosing(out), BUFFER))
+        data.write(MAGIC.toByteArray(StandardCharsets.US_ASCII))
+        data.writeByte(VERSION_2)
+        data.writeByte(mode.ordinal)
+        if (mode != CoordMode.EXACT) data.writeDouble(quantum)
+        val w = Writer(data, mode, quantum)
+        var count = 0
+        for (dto in entities) {
+            w.entity(dto)
+            count++
+        }
+        data.writeByte(TYPE_END.toInt())
+        data.flush()
+        gzip?.finish()
+        data.close()
+        return count
+    }
+
+    /**
+     * [input]'u akış olarak okur, her entity'yi [sink]'e verir (v1 ve v2; GZIP başlığı otomatik tanınır).
+     * [input] kapatılmaz.
+     * @return okunan entity sayısı
+     */
+    fun read(input: InputStream, sink: (CadEntityDto) -> Unit): Int {
+        val buffered = BufferedInputStream(NonClosingInput(input), BUFFER)
+        buffered.mark(2)
+        val b0 = buffered.read()
+        val b1 = buffered.read()
+        buffered.reset()
+        val source = if (b0 == 0x1F && b1 == 0x8B) BufferedInputStream(GZIPInputStream(buffered, BUFFER), BUFFER) else buffered
+        DataInputStream(source).use { inp ->
             val magicBytes = ByteArray(4); inp.readFully(magicBytes)
             val magic = String(magicBytes, StandardCharsets.US_ASCII)
             require(magic == MAGIC) { "Geçersiz magic: $magic" }
-            val _ver = inp.readUnsignedByte() // şimdilik kullanılmıyor
-            val count = inp.readInt()
-            repeat(count) {
-                val type = inp.readUnsignedByte().toByte()
-                val layer = readLayer(inp)
-                val dto: CadEntityDto = when (type) {
-                    TYPE_PT -> PointDto(inp.readDouble(), inp.readDouble(), layer)
-                    TYPE_L -> LineDto(inp.readDouble(), inp.readDouble(), inp.readDouble(), inp.readDouble(), layer)
-                    TYPE_PL -> {
-                        val closed = inp.readBoolean()
-                        val n = inp.readInt()
-                        val coords = DoubleArray(n) { inp.readDouble() }.toList()
-                        PolylineDto(closed, coords, layer)
-                    }
-                    TYPE_PG -> {
-                        val rc = inp.readInt()
-                        val rings = (0 until rc).map {
-                            val rn = inp.readInt()
-                            DoubleArray(rn) { inp.readDouble() }.toList()
-                        }
-                        PolygonDto(rings, layer)
+            return when (val ver = inp.readUnsignedByte()) {
+                VERSION_1 -> readV1(inp, sink)
+                VERSION_2 -> Reader(inp).readAll(sink)
+                else -> error("Desteklenmeyen sürüm $ver")
+            }
+        }
+    }
+
+    // --- v2 ---
+
+    private class Writer(private val out: DataOutputStream, private val mode: CoordMode, private val quantum: Double) {
+        private val layers = HashMap<String, Int>()
+        private var px = 0.0
+        private var py = 0.0
+        private var qx = 0L
+        private var qy = 0L
+
+        fun entity(dto: CadEntityDto) {
+            when (dto) {
+                is PointDto -> { head(TYPE_PT, dto.layer); point(dto.x, dto.y) }
+                is LineDto -> { head(TYPE_L, dto.layer); point(dto.x1, dto.y1); point(dto.x2, dto.y2) }
+                is PolylineDto -> {
+                    head(TYPE_PL, dto.layer)
+                    out.writeBoolean(dto.closed)
+                    points(dto.coords)
+                }
+                is PolygonDto -> {
+                    head(TYPE_PG, dto.layer)
+                    varint(out, dto.rings.size.toLong())
+                    dto.rings.forEach { points(it) }
+                }
+                is CircleDto -> { head(TYPE_C, dto.layer); point(dto.cx, dto.cy); out.writeDouble(dto.r) }
+                is ArcDto -> {
+                    head(TYPE_A, dto.layer)
+                    point(dto.cx, dto.cy)
+                    out.writeDouble(dto.r); out.writeDouble(dto.startDeg); out.writeDouble(dto.endDeg)
+                }
+                is TextDto -> {
+                    head(TYPE_T, dto.layer)
+                    point(dto.x, dto.y)
+                    out.writeDouble(dto.h); out.writeDouble(dto.rot)
+                    string(out, dto.text)
+                }
+            }
+        }
+
+        private fun head(type: Byte, layer: String) {
+            out.writeByte(type.toInt())
+            val idx = layers[layer]
+            if (idx != null) {
+                varint(out, idx + 1L)
+            } else {
+                varint(out, 0)
+                string(out, layer)
+                layers[layer] = layers.size
+            }
+        }
+
+        private fun points(coords: List<Double>) {
+            val n = coords.size / 2
+            varint(out, n.toLong())
+            for (i in 0 until n) point(coords[2 * i], coords[2 * i + 1])
+        }
+
+        private fun point(x: Double, y: Double) {
+            when (mode) {
+                CoordMode.EXACT -> { out.writeDouble(x); out.writeDouble(y) }
+                CoordMode.QUANTISED -> {
+                    val nx = (x / quantum).roundToLong()
+                    val ny = (y / quantum).roundToLong()
+                    varint(out, CadGeometryCodec.zigzag(nx - qx)); varint(out, CadGeometryCodec.zigzag(ny - qy))
+                    qx = nx; qy = ny
+                }
+                CoordMode.FLOAT -> {
+                    // Fark yeniden kurulan önceki noktadan alınır: hata birikmez
+                    val dx = (x - px).toFloat()
+                    val dy = (y - py).toFloat()
+                    val rx = px + dx
+                    val ry = py + dy
+                    if (abs(rx - x) <= quantum && abs(ry - y) <= quantum) {
+                        out.writeFloat(dx); out.writeFloat(dy)
+                        px = rx; py = ry
+                    } else {
+                        out.writeFloat(Float.NaN)
+                        out.writeDouble(x); out.writeDouble(y)
+                        px = x; py = y
                     }
-                    TYPE_C -> CircleDto(inp.readDouble(), inp.readDouble(), inp.readDouble(), layer)
-                    TYPE_A -> ArcDto(inp.readDouble(), inp.readDouble(), inp.readDouble(), inp.readDouble(), inp.readDouble(), layer)
-                    TYPE_T -> {
-                        val x = inp.readDouble(); val y = inp.readDouble(); val h = inp.readDouble()
-                        val txt = readString(inp)
-                        val rot = inp.readDouble()
-                        TextDto(x, y, h, txt, rot, layer)
+                }
+            }
+        }
+    }
+
+    private class Reader(private val inp: DataInputStream) {
+        private val mode: CoordMode
+        private val quantum: Double
+        private val layers = ArrayList<String>()
+        private var px = 0.0
+        private var py = 0.0
+        private var qx = 0L
+        private var qy = 0L
+        // Son okunan nokta
+        private var x = 0.0
+        private var y = 0.0
+
+        init {
+            val m = inp.readUnsignedByte()
+            require(m < CoordMode.values().size) { "Bilinmeyen koordinat kodu $m" }
+            mode = CoordMode.values()[m]
+            quantum = if (mode != CoordMode.EXACT) inp.readDouble() else 0.0
+        }
+
+        fun readAll(sink: (CadEntityDto) -> Unit): Int {
+            var count = 0
+            while (true) {
+                val type = inp.readUnsignedByte().toByte()
+                if (type == TYPE_END) return count
+                val layer = layer()
+                sink(entity(type, layer))
+                count++
+            }
+        }
+
+        private fun entity(type: Byte, layer: String): CadEntityDto = when (type) {
+            TYPE_PT -> { point(); PointDto(x, y, layer) }
+            TYPE_L -> {
+                point(); val x1 = x; val y1 = y
+                point()
+                LineDto(x1, y1, x, y, layer)
+            }
+            TYPE_PL -> {
+                val closed = inp.readBoolean()
+                PolylineDto(closed, points(), layer)
+            }
+            TYPE_PG -> {
+                val rc = count()
+                PolygonDto(List(rc) { points() }, layer)
+            }
+            TYPE_C -> { point(); CircleDto(x, y, inp.readDouble(), layer) }
+            TYPE_A -> { point(); ArcDto(x, y, inp.readDouble(), inp.readDouble(), inp.readDouble(), layer) }
+            TYPE_T -> {
+                point()
+                val h = inp.readDouble(); val rot = inp.readDouble()
+                TextDto(x, y, h, readString(inp, count()), rot, layer)
+            }
+            else -> error("Bilinmeyen tip kodu $type")
+        }
+
+        private fun layer(): String {
+            val ref = readVarint(inp)
+            if (ref == 0L) return readString(inp, count()).also { layers += it }
+            require(ref <= layers.size) { "Geçersiz katman başvurusu $ref" }
+            return layers[(ref - 1).toInt()]
+        }
+
+        private fun count(): Int {
+            val n = readVarint(inp)
+            require(n in 0..Int.MAX_VALUE / 2) { "Geçersiz sayım $n" }
+            return n.toInt()
+        }
+
+        /** Kutulanmış kopya yok: DoubleArray üzerinde liste görünümü. */
+        private fun points(): List<Double> {
+            val n = count()
+            val xy = DoubleArray(n * 2)
+            for (i in 0 until n) {
+                point()
+                xy[2 * i] = x; xy[2 * i + 1] = y
+            }
+            return xy.asList()
+        }
+
+        private fun point() {
+            when (mode) {
+                CoordMode.EXACT -> { x = inp.readDouble(); y = inp.readDouble() }
+                CoordMode.QUANTISED -> {
+                    qx += CadGeometryCodec.unzigzag(readVarint(inp)); qy += CadGeometryCodec.unzigzag(readVarint(inp))
+                    x = qx * quantum; y = qy * quantum
+                }
+                CoordMode.FLOAT -> {
+                    val dx = inp.readFloat()
+                    if (dx.isNaN()) {
+                        px = inp.readDouble(); py = inp.readDouble()
+                    } else {
+                        px += dx; py += inp.readFloat()
                     }
-                    else -> error("Bilinmeyen tip kodu $type")
+                    x = px; y = py
                 }
-                list += dto
             }
         }
-        return list
     }
 
-    private fun writeLayer(out: DataOutputStream, layer: String) {
-        val b = layer.toByteArray(StandardCharsets.UTF_8)
-        require(b.size <= 0xFFFF) { "Layer adı çok uzun" }
-        out.writeShort(b.size)
-        out.write(b)
+    private fun varint(out: DataOutputStream, value: Long) {
+        var v = value
+        while (v and 0x7FL.inv() != 0L) {
+            out.writeByte(((v and 0x7F) or 0x80).toInt())
+            v = v ushr 7
+        }
+        out.writeByte(v.toInt())
     }
-    private fun readLayer(inp: DataInputStream): String {
-        val len = inp.readUnsignedShort()
-        val b = ByteArray(len)
-        inp.readFully(b)
-        return String(b, StandardCharsets.UTF_8)
+
+    private fun readVarint(inp: DataInputStream): Long {
+        var shift = 0
+        var v = 0L
+        while (true) {
+            val b = inp.readUnsignedByte()
+            v = v or ((b and 0x7F).toLong() shl shift)
+            if (b and 0x80 == 0) return v
+            shift += 7
+            require(shift < 64) { "Varint çok uzun" }
+        }
     }
 
-    private fun writeString(out: DataOutputStream, value: String) {
+    private fun string(out: DataOutputStream, value: String) {
         val b = value.toByteArray(StandardCharsets.UTF_8)
-        out.writeInt(b.size)
+        varint(out, b.size.toLong())
         out.write(b)
     }
-    private fun readString(inp: DataInputStream): String {
-        val len = inp.readInt()
+
+    private fun readString(inp: DataInputStream, len: Int): String {
         val b = ByteArray(len)
         inp.readFully(b)
         return String(b, StandardCharsets.UTF_8)
     }
-}
 
+    // --- v1 ---
+
+    private fun readV1(inp: DataInputStream, sink: (CadEntityDto) -> Unit): Int {
+        val count = inp.readInt()
+        repeat(count) {
+            val type = inp.readUnsignedByte().toByte()
+            val layer = readLayerV1(inp)
+            val dto: CadEntityDto = when (type) {
+                TYPE_PT -> PointDto(inp.readDouble(), inp.readDouble(), layer)
+                TYPE_L -> LineDto(inp.readDouble(), inp.readDouble(), inp.readDouble(), inp.readDouble(), layer)
+                TYPE_PL -> {
+                    val closed = inp.readBoolean()
+                    val n = inp.readInt()
+                    PolylineDto(closed, DoubleArray(n) { inp.readDouble() }.asList(), layer)
+                }
+                TYPE_PG -> {
+                    val rc = inp.readInt()
+                    val rings = List(rc) {
+                        val rn = inp.readInt()
+                        DoubleArray(rn) { inp.readDouble() }.asList()
+                    }
+                    PolygonDto(rings, layer)
+                }
+                TYPE_C -> CircleDto(inp.readDouble(), inp.readDouble(), inp.readDouble(), layer)
+                TYPE_A -> ArcDto(inp.readDouble(), inp.readDouble(), inp.readDouble(), inp.readDouble(), inp.readDouble(), layer)
+                TYPE_T -> {
+                    val x = inp.readDouble(); val y = inp.readDouble(); val h = inp.readDouble()
+                    val txt = readString(inp, inp.readInt())
+                    val rot = inp.readDouble()
+                    TextDto(x, y, h, txt, rot, layer)
+                }
+                else -> error("Bilinmeyen tip kodu $type")
+            }
+            sink(dto)
+        }
+        return count
+    }
+
+    private fun readLayerV1(inp: DataInputStream): String = readString(inp, inp.readUnsignedShort())
+
+    /** Çağıranın akışını kapatmadan sarmalar (GZIP / Data akışları kapatılabilsin diye). */
+    private class NonClosing(out: OutputStream) : java.io.FilterOutputStream(out) {
+        override fun write(b: ByteArray, off: Int, len: Int) = out.write(b, off, len)
+        override fun close() = flush()
+    }
+
+    private class NonClosingInput(inp: InputStream) : java.io.FilterInputStream(inp) {
+        override fun close() {}
+    }
+}
@@ -11,6 +11,8 @@ import com.example.tugis3.core.cad.model.*
  *  A  -> Arc
  *  T  -> Text
  *  PG -> Polygon (yeni)
+ *  I  -> Insert (blok yerleşimi; blok geometrisi ayrı "B" kaydında, bir kez)
+ *  B  -> Blok tanımı (çizilmez; I kayıtları ada göre başvurur)
  * (Opsiyonel gelecekte: PT -> Tek nokta; şimdilik DB için gerek yoktu.)
  *
  * dataEncoded formatları (pipe '|' ayracı):
@@ -20,13 +22,16 @@ import com.example.tugis3.core.cad.model.*
  *  A : cx|cy|r|startDeg|endDeg
  *  T : x|y|height|escapedText ( '|' => %7C )
  *  PG: ringCount|ring1Size|x1|y1|...|ring2Size|...  (her ring için önce nokta sayısı sonra koordinatlar)
+ *  I : escapedBlockName|x|y|scaleX|scaleY|rotDeg
+ *  B : escapedName|baseX|baseY, ardından her öğe için '\n' + type '\t' layer '\t' colorIndex(boş=null) '\t' data
  */
 object CadCodec {
     fun encode(entity: CadEntity): Pair<String, String> = when(entity) {
         is CadLine -> "L" to listOf(entity.start.x, entity.start.y, entity.end.x, entity.end.y).joinToString("|")
         is CadPolyline -> "PL" to buildString {
             append(if (entity.isClosed) 1 else 0)
-            entity.points.forEach { append('|'); append(it.x); append('|'); append(it.y) }
+            val pts = entity.points
+            for (i in 0 until pts.size) { append('|'); append(pts.x(i)); append('|'); append(pts.y(i)) }
         }
         is CadCircle -> "C" to listOf(entity.center.x, entity.center.y, entity.radius).joinToString("|")
         is CadArc -> "A" to listOf(entity.center.x, entity.center.y, entity.radius, entity.startAngleDeg, entity.endAngleDeg).joinToString("|")
@@ -40,6 +45,30 @@ object CadCodec {
         }
         is CadPolygon -> encodePolygon(entity)
         is CadPoint -> "PT" to listOf(entity.position.x, entity.position.y).joinToString("|") // şimdilik decode opsiyonel
+        is CadInsert -> "I" to listOf(escape(entity.block.name), entity.position.x, entity.position.y, entity.scaleX, entity.scaleY, entity.rotationDeg).joinToString("|")
+    }
+
+    /** Blok tanımını tek kayda kodlar; iç içe yerleşimlerin blokları ayrıca kodlanmalıdır ([referencedBlocks]). */
+    fun encodeBlock(block: CadBlock): Pair<String, String> = "B" to buildString {
+        append(escape(block.name)); append('|'); append(block.basePoint.x); append('|'); append(block.basePoint.y)
+        block.entities.forEach { child ->
+            val (t, d) = encode(child)
+            append('\n'); append(t); append('\t'); append(child.layer); append('\t'); append(child.colorIndex ?: ""); append('\t'); append(d)
+        }
+    }
+
+    /** "B" kaydının veri önekinden blok adı araması için anahtar. */
+    fun blockKey(name: String): String = escape(name) + "|"
+
+    /** [block] ve iç içe başvurduğu tüm bloklar (kendisi dahil, her biri bir kez). */
+    fun referencedBlocks(block: CadBlock): List<CadBlock> {
+        val out = LinkedHashMap<String, CadBlock>()
+        fun visit(b: CadBlock) {
+            if (out.putIfAbsent(b.name, b) != null) return
+            b.entities.forEach { if (it is CadInsert) visit(it.block) }
+        }
+        visit(block)
+        return out.values.toList()
     }
 
     private fun encodePolygon(pg: CadPolygon): Pair<String, String> {
@@ -48,19 +77,23 @@ object CadCodec {
             append(rings.size)
             rings.forEach { ring ->
                 append('|'); append(ring.size)
-                ring.forEach { p -> append('|'); append(p.x); append('|'); append(p.y) }
+                for (i in 0 until ring.size) { append('|'); append(ring.x(i)); append('|'); append(ring.y(i)) }
             }
         }
         return "PG" to payload
     }
 
-    fun decode(type: String, data: String, layer: String, colorIndex: Int?): CadEntity? = when(type) {
+    /**
+     * @param blocks "I" kayıtları için ada göre blok; bulunamayan bloğa başvuran yerleşim null döner
+     */
+    fun decode(type: String, data: String, layer: String, colorIndex: Int?, blocks: (String) -> CadBlock? = { null }): CadEntity? = when(type) {
         "L" -> decodeLine(data, layer, colorIndex)
         "PL" -> decodePolyline(data, layer, colorIndex)
         "C" -> decodeCircle(data, layer, colorIndex)
         "A" -> decodeArc(data, layer, colorIndex)
         "T" -> decodeText(data, layer, colorIndex)
         "PG" -> decodePolygon(data, layer, colorIndex)
+        "I" -> decodeInsert(data, layer, colorIndex, blocks)
         // "PT" -> decodePoint(data, layer, colorIndex) // gerekirse aç
         else -> null
     }
@@ -74,10 +107,9 @@ object CadCodec {
         val parts = data.split('|')
         if (parts.isEmpty()) return null
         val closed = parts[0] == "1"
-        val coords = parts.drop(1)
-        if (coords.size % 2 != 0) return null
-        val pts = coords.chunked(2).map { Vec2(it[0].toDouble(), it[1].toDouble()) }
-        return CadPolyline(points = pts, isClosed = closed, layer = layer, colorIndex = colorIndex)
+        if ((parts.size - 1) % 2 != 0) return null
+        val xy = DoubleArray(parts.size - 1) { parts[it + 1].toDouble() }
+        return CadPolyline(points = PackedCoords.wrap(xy), isClosed = closed, layer = layer, colorIndex = colorIndex)
     }
 
     private fun decodeCircle(data: String, layer: String, colorIndex: Int?): CadCircle? {
@@ -104,28 +136,59 @@ object CadCodec {
         if (parts.isEmpty()) return null
         val ringCount = parts[0].toIntOrNull() ?: return null
         var idx = 1
-        val rings = mutableListOf<List<Vec2>>()
+        val rings = mutableListOf<PackedCoords>()
         repeat(ringCount) {
             if (idx >= parts.size) return null
             val len = parts[idx].toIntOrNull() ?: return null
             idx++
             val needed = len * 2
             if (idx + needed > parts.size) return null
-            val ring = mutableListOf<Vec2>()
-            var j = 0
-            while (j < needed) {
-                val x = parts[idx + j].toDoubleOrNull() ?: return null
-                val y = parts[idx + j + 1].toDoubleOrNull() ?: return null
-                ring += Vec2(x, y)
-                j += 2
-            }
-            rings += ring
+            val xy = DoubleArray(needed)
+            for (j in 0 until needed) xy[j] = parts[idx + j].toDoubleOrNull() ?: return null
+            rings += PackedCoords.wrap(xy)
             idx += needed
         }
         if (rings.isEmpty()) return null
         return CadPolygon(rings = rings, layer = layer, colorIndex = colorIndex)
     }
 
+    private fun decodeInsert(data: String, layer: String, colorIndex: Int?, blocks: (String) -> CadBlock?): CadInsert? {
+        val p = data.split('|')
+        if (p.size < 6) return null
+        val block = blocks(unescape(p[0])) ?: return null
+        return CadInsert(block, Vec2(p[1].toDouble(), p[2].toDouble()), p[3].toDouble(), p[4].toDouble(), p[5].toDouble(), layer = layer, colorIndex = colorIndex)
+    }
+
+    /**
+     * "B" kayıtlarını bloklara çözer. İç içe başvurular sıradan bağımsız çözülür; eksik ya da döngüsel
+     * başvurular atlanır. Sonuç ada göre anahtarlıdır.
+     */
+    fun decodeBlocks(payloads: Iterable<String>): Map<String, CadBlock> {
+        val raw = HashMap<String, List<String>>()
+        payloads.forEach { payload ->
+            val lines = payload.split('\n')
+            val name = unescape(lines[0].substringBefore('|'))
+            raw[name] = lines
+        }
+        val resolved = HashMap<String, CadBlock>()
+        val resolving = HashSet<String>()
+        fun resolve(name: String): CadBlock? {
+            resolved[name]?.let { return it }
+            val lines = raw[name] ?: return null
+            val head = lines[0].split('|')
+            if (head.size < 3 || !resolving.add(name)) return null
+            val children = lines.drop(1).mapNotNull { line ->
+                val f = line.split('\t', limit = 4)
+                if (f.size < 4) null
+                else runCatching { decode(f[0], f[3], f[1], f[2].toIntOrNull(), ::resolve) }.getOrNull()
+            }
+            resolving.remove(name)
+            return CadBlock(name, Vec2(head[1].toDouble(), head[2].toDouble()), children).also { resolved[name] = it }
+        }
+        raw.keys.forEach { resolve(it) }
+        return resolved
+    }
+
     private fun escape(t: String) = t.replace("|", "%7C")
     private fun unescape(t: String) = t.replace("%7C", "|")
 }
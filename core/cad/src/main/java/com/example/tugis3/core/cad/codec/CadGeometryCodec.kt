@@ -0,0 +1,239 @@
+package com.example.tugis3.core.cad.codec
+
+import com.example.tugis3.core.cad.model.*
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import kotlin.math.roundToLong
+
+/**
+ * Veritabanı geometri sütunu (BLOB) için ikili kodlama. [CadCodec]'in metin biçiminin aksine sayılar
+ * ondalık metne çevrilmez; okuma doğrudan bir [ByteBuffer] üzerinden, ara String / List olmadan yapılır.
+ *
+ * Biçim (little-endian):
+ *  tag: u8 — alt 4 bit tür (1=PT,2=L,3=PL,4=PG,5=C,6=A,7=T,8=I), [FLAG_QUANTISED], [FLAG_CLOSED]
+ *  nicemleme varsa: quantum f64
+ *  PT: x y | L: x1 y1 x2 y2 | C: cx cy r | A: cx cy r startDeg endDeg
+ *  T : x y h rotDeg, varint uzunluk + UTF-8 metin
+ *  I : x y scaleX scaleY rotDeg, varint uzunluk + UTF-8 blok adı
+ *  PL: varint n, n nokta | PG: varint halka sayısı, her halka için varint n, n nokta
+ *  nokta dizisi: f64 x y çiftleri; nicemlenmişse ilk nokta round(v / quantum), sonrakiler öncekine
+ *  göre fark olarak zig-zag varint
+ *
+ * Blok tanımları ("B") iç içe kodlama taşıdığından metin olarak kalır.
+ */
+object CadGeometryCodec {
+    private const val KIND_PT = 1
+    private const val KIND_L = 2
+    private const val KIND_PL = 3
+    private const val KIND_PG = 4
+    private const val KIND_C = 5
+    private const val KIND_A = 6
+    private const val KIND_T = 7
+    private const val KIND_I = 8
+    private const val KIND_MASK = 0x0F
+    private const val FLAG_QUANTISED = 0x10
+    private const val FLAG_CLOSED = 0x20
+
+    /** [CadCodec] tür kodu ile ikili kod; [quantum] > 0 ise PL / PG köşeleri o adıma nicemlenir (kayıplı). */
+    fun encode(entity: CadEntity, quantum: Double = 0.0): Pair<String, ByteArray> {
+        val w = Writer(64)
+        val type = when (entity) {
+            is CadPoint -> { w.u8(KIND_PT); w.f64(entity.position.x); w.f64(entity.position.y); "PT" }
+            is CadLine -> {
+                w.u8(KIND_L)
+                w.f64(entity.start.x); w.f64(entity.start.y); w.f64(entity.end.x); w.f64(entity.end.y)
+                "L"
+            }
+            is CadCircle -> { w.u8(KIND_C); w.f64(entity.center.x); w.f64(entity.center.y); w.f64(entity.radius); "C" }
+            is CadArc -> {
+                w.u8(KIND_A)
+                w.f64(entity.center.x); w.f64(entity.center.y); w.f64(entity.radius)
+                w.f64(entity.startAngleDeg); w.f64(entity.endAngleDeg)
+                "A"
+            }
+            is CadText -> {
+                w.u8(KIND_T)
+                w.f64(entity.position.x); w.f64(entity.position.y); w.f64(entity.height); w.f64(entity.rotationDeg)
+                w.string(entity.text)
+                "T"
+            }
+            is CadInsert -> {
+                w.u8(KIND_I)
+                w.f64(entity.position.x); w.f64(entity.position.y)
+                w.f64(entity.scaleX); w.f64(entity.scaleY); w.f64(entity.rotationDeg)
+                w.string(entity.block.name)
+                "I"
+            }
+            is CadPolyline -> {
+                w.u8(KIND_PL or (if (entity.isClosed) FLAG_CLOSED else 0) or quantFlag(quantum))
+                if (quantum > 0) w.f64(quantum)
+                w.points(entity.points, quantum)
+                "PL"
+            }
+            is CadPolygon -> {
+                w.u8(KIND_PG or quantFlag(quantum))
+                if (quantum > 0) w.f64(quantum)
+                w.varint(entity.rings.size.toLong())
+                entity.rings.forEach { w.points(it, quantum) }
+                "PG"
+            }
+        }
+        return type to w.toByteArray()
+    }
+
+    /**
+     * @param blocks "I" kayıtları için ada göre blok; bulunamayan bloğa başvuran yerleşim null döner
+     * @return bozuk / tanınmayan veri için null
+     */
+    fun decode(data: ByteArray, layer: String, colorIndex: Int?, blocks: (String) -> CadBlock? = { null }): CadEntity? {
+        if (data.isEmpty()) return null
+        val b = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN)
+        return try {
+            val tag = b.get().toInt() and 0xFF
+            val quantum = if (tag and FLAG_QUANTISED != 0) b.getDouble() else 0.0
+            when (tag and KIND_MASK) {
+                KIND_PT -> CadPoint(Vec2(b.getDouble(), b.getDouble()), layer = layer, colorIndex = colorIndex)
+                KIND_L -> CadLine(Vec2(b.getDouble(), b.getDouble()), Vec2(b.getDouble(), b.getDouble()), layer = layer, colorIndex = colorIndex)
+                KIND_C -> CadCircle(Vec2(b.getDouble(), b.getDouble()), b.getDouble(), layer = layer, colorIndex = colorIndex)
+                KIND_A -> CadArc(Vec2(b.getDouble(), b.getDouble()), b.getDouble(), b.getDouble(), b.getDouble(), layer = layer, colorIndex = colorIndex)
+                KIND_T -> {
+                    val p = Vec2(b.getDouble(), b.getDouble())
+                    val h = b.getDouble()
+                    val rot = b.getDouble()
+                    CadText(p, h, readString(b), rotationDeg = rot, layer = layer, colorIndex = colorIndex)
+                }
+                KIND_I -> {
+                    val p = Vec2(b.getDouble(), b.getDouble())
+                    val sx = b.getDouble(); val sy = b.getDouble(); val rot = b.getDouble()
+                    val block = blocks(readString(b)) ?: return null
+                    CadInsert(block, p, sx, sy, rot, layer = layer, colorIndex = colorIndex)
+                }
+                KIND_PL -> CadPolyline(readPoints(b, quantum), isClosed = tag and FLAG_CLOSED != 0, layer = layer, colorIndex = colorIndex)
+                KIND_PG -> {
+                    val n = readCount(b)
+                    val rings = ArrayList<PackedCoords>(n)
+                    repeat(n) { rings += readPoints(b, quantum) }
+                    if (rings.isEmpty()) null else CadPolygon(rings, layer = layer, colorIndex = colorIndex)
+                }
+                else -> null
+            }
+        } catch (e: RuntimeException) {
+            // BufferUnderflow / geçersiz sayım: bozuk kayıt
+            null
+        }
+    }
+
+    /** Eski metin kaydını ([CadCodec]) ikiliye çevirir (şema göçü); çevrilemezse null. */
+    fun fromText(type: String, data: String): ByteArray? {
+        // Yerleşimde yalnız blok adı saklanır; çözüm için yer tutucu blok yeterli
+        val entity = runCatching { CadCodec.decode(type, data, "", null) { CadBlock(it, Vec2(0.0, 0.0), emptyList()) } }.getOrNull()
+            ?: if (type == "PT") data.split('|').takeIf { it.size >= 2 }?.let { p ->
+                p[0].toDoubleOrNull()?.let { x -> p[1].toDoubleOrNull()?.let { y -> CadPoint(Vec2(x, y)) } }
+            } else null
+        return entity?.let { encode(it).second }
+    }
+
+    private fun quantFlag(quantum: Double) = if (quantum > 0) FLAG_QUANTISED else 0
+
+    private fun readCount(b: ByteBuffer): Int {
+        val n = readVarint(b)
+        // Her öğe en az 1 bayt; kalan veriden büyük sayım bozuk kayıttır
+        require(n in 0..b.remaining().toLong()) { "Geçersiz sayım $n" }
+        return n.toInt()
+    }
+
+    private fun readPoints(b: ByteBuffer, quantum: Double): PackedCoords {
+        val n = readCount(b)
+        val xy = DoubleArray(n * 2)
+        if (quantum > 0) {
+            var qx = 0L
+            var qy = 0L
+            for (i in 0 until n) {
+                qx += unzigzag(readVarint(b)); qy += unzigzag(readVarint(b))
+                xy[2 * i] = qx * quantum; xy[2 * i + 1] = qy * quantum
+            }
+        } else {
+            // f64 dizisi doğrudan paketli köşelere
+            require(n * 16L <= b.remaining()) { "Geçersiz sayım $n" }
+            b.asDoubleBuffer().get(xy)
+            b.position(b.position() + n * 16)
+        }
+        return PackedCoords.wrap(xy)
+    }
+
+    private fun readString(b: ByteBuffer): String {
+        val len = readCount(b)
+        val s = String(b.array(), b.arrayOffset() + b.position(), len, Charsets.UTF_8)
+        b.position(b.position() + len)
+        return s
+    }
+
+    internal fun readVarint(b: ByteBuffer): Long {
+        var shift = 0
+        var v = 0L
+        while (true) {
+            val x = b.get().toInt()
+            v = v or ((x and 0x7F).toLong() shl shift)
+            if (x and 0x80 == 0) return v
+            shift += 7
+            require(shift < 64) { "Varint çok uzun" }
+        }
+    }
+
+    internal fun zigzag(v: Long): Long = (v shl 1) xor (v shr 63)
+    internal fun unzigzag(v: Long): Long = (v ushr 1) xor -(v and 1)
+
+    /** Büyüyen bayt dizisine little-endian yazım. */
+    private class Writer(capacity: Int) {
+        private var buf = ByteArray(capacity)
+        private var size = 0
+
+        private fun ensure(n: Int) {
+            if (size + n > buf.size) buf = buf.copyOf(maxOf(buf.size * 2, size + n))
+        }
+
+        fun u8(v: Int) { ensure(1); buf[size++] = v.toByte() }
+
+        fun f64(v: Double) {
+            ensure(8)
+            var bits = java.lang.Double.doubleToRawLongBits(v)
+            repeat(8) { buf[size++] = bits.toByte(); bits = bits ushr 8 }
+        }
+
+        fun varint(value: Long) {
+            ensure(10)
+            var v = value
+            while (v and 0x7FL.inv() != 0L) {
+                buf[size++] = ((v and 0x7F) or 0x80).toByte()
+                v = v ushr 7
+            }
+            buf[size++] = v.toByte()
+        }
+
+        fun string(s: String) {
+            val bytes = s.toByteArray(Charsets.UTF_8)
+            varint(bytes.size.toLong())
+            ensure(bytes.size)
+            System.arraycopy(bytes, 0, buf, size, bytes.size)
+            size += bytes.size
+        }
+
+        fun points(pts: PackedCoords, quantum: Double) {
+            varint(pts.size.toLong())
+            if (quantum > 0) {
+                var px = 0L
+                var py = 0L
+                for (i in 0 until pts.size) {
+                    val qx = (pts.x(i) / quantum).roundToLong()
+                    val qy = (pts.y(i) / quantum).roundToLong()
+                    varint(zigzag(qx - px)); varint(zigzag(qy - py))
+                    px = qx; py = qy
+                }
+            } else {
+                for (i in 0 until pts.size) { f64(pts.x(i)); f64(pts.y(i)) }
+            }
+        }
+
+        fun toByteArray(): ByteArray = buf.copyOf(size)
+    }
+}
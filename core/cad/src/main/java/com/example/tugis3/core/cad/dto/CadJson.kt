@@ -1,188 +1,385 @@
 package com.example.tugis3.core.cad.dto
 
+import java.io.BufferedWriter
+import java.io.StringReader
+import java.io.StringWriter
+import java.io.Writer
+
 /**
  * Hafif, harici kütüphane kullanmadan JSON serileştirme (yalnızca DTO listesi için).
  * Format:
  * [ {"t":"LINE","layer":"L1", ...}, {...} ]
  * t (type) kodları: PT, L, PL, PG, C, A, T
+ * Üst seviye obje de desteklenir: {"v":1,"items":[...]}
+ *
+ * Yazma ([write]) ve okuma ([read]) akış üzerindendir: belge bellekte String olarak kurulmaz,
+ * okuma tek geçişte ve anahtar sırasından bağımsızdır; bilinmeyen anahtarlar atlanır.
  * NOT: Bu minimal serializer üretim için değil veri paylaşımı/demo amaçlıdır.
  */
 object CadJson {
-    // Yeni: üst seviye obje desteği {"v":1,"items":[...]} veya eski düz liste []
-    fun serialize(list: List<CadEntityDto>, includeVersionWrapper: Boolean = false): String =
-        if (includeVersionWrapper) buildString {
-            append('{')
-            append("\"v\":"); append(CAD_DTO_VERSION)
-            append(",\"items\":")
-            append(serializeBare(list))
-            append('}')
-        } else serializeBare(list)
-
-    private fun serializeBare(list: List<CadEntityDto>): String = buildString {
-        append('[')
-        list.forEachIndexed { idx, dto ->
-            if (idx > 0) append(',')
-            append(dtoToJson(dto))
-        }
-        append(']')
+    private const val BUFFER = 64 * 1024
+
+    fun serialize(list: List<CadEntityDto>, includeVersionWrapper: Boolean = false): String {
+        val out = StringWriter(list.size * 64 + 16)
+        write(out, list.asSequence(), includeVersionWrapper)
+        return out.toString()
     }
 
-    private fun esc(s: String): String = s.replace("\\", "\\\\").replace("\"", "\\\"")
-
-    private fun dtoToJson(dto: CadEntityDto): String = when(dto) {
-        is PointDto -> "{" + "\"t\":\"PT\",\"layer\":\"${esc(dto.layer)}\",\"x\":${dto.x},\"y\":${dto.y}}"
-        is LineDto -> "{" + "\"t\":\"L\",\"layer\":\"${esc(dto.layer)}\",\"x1\":${dto.x1},\"y1\":${dto.y1},\"x2\":${dto.x2},\"y2\":${dto.y2}}"
-        is PolylineDto -> buildString {
-            append('{'); append("\"t\":\"PL\",\"layer\":\"${esc(dto.layer)}\",\"closed\":"); append(dto.closed); append(",\"coords\":[")
-            dto.coords.forEachIndexed { i,v -> if(i>0) append(','); append(v) }
-            append("]}")
-        }
-        is PolygonDto -> buildString {
-            append('{'); append("\"t\":\"PG\",\"layer\":\"${esc(dto.layer)}\",\"rings\":[")
-            dto.rings.forEachIndexed { ri, ring ->
-                if (ri>0) append(',')
-                append('[')
-                ring.forEachIndexed { i,v -> if(i>0) append(','); append(v) }
-                append(']')
-            }
-            append("]}")
+    fun parse(json: String): List<CadEntityDto> {
+        val list = ArrayList<CadEntityDto>()
+        read(StringReader(json)) { list += it }
+        return list
+    }
+
+    /**
+     * [entities]'i [writer]'a akıtır; [writer] boşaltılır (flush) ama kapatılmaz.
+     * @return yazılan entity sayısı
+     */
+    fun write(writer: Writer, entities: Sequence<CadEntityDto>, includeVersionWrapper: Boolean = false): Int {
+        val out = if (writer is BufferedWriter || writer is StringWriter) writer else BufferedWriter(writer, BUFFER)
+        if (includeVersionWrapper) {
+            out.write("{\"v\":"); out.write(CAD_DTO_VERSION.toString()); out.write(",\"items\":")
         }
-        is CircleDto -> "{" + "\"t\":\"C\",\"layer\":\"${esc(dto.layer)}\",\"cx\":${dto.cx},\"cy\":${dto.cy},\"r\":${dto.r}}"
-        is ArcDto -> "{" + "\"t\":\"A\",\"layer\":\"${esc(dto.layer)}\",\"cx\":${dto.cx},\"cy\":${dto.cy},\"r\":${dto.r},\"s\":${dto.startDeg},\"e\":${dto.endDeg}}"
-        is TextDto -> buildString {
-            append('{')
-            append("\"t\":\"T\",\"layer\":\"${esc(dto.layer)}\",\"x\":${dto.x},\"y\":${dto.y},\"h\":${dto.h},\"text\":\"${esc(dto.text)}\"")
-            if (dto.rot != 0.0) { append(",\"rot\":"); append(dto.rot) }
-            append('}')
+        out.write('['.code)
+        var count = 0
+        for (dto in entities) {
+            if (count > 0) out.write(','.code)
+            writeDto(out, dto)
+            count++
         }
+        out.write(']'.code)
+        if (includeVersionWrapper) out.write('}'.code)
+        out.flush()
+        return count
     }
 
-    fun parse(json: String): List<CadEntityDto> {
-        val trimmed = json.trim()
-        if (trimmed.isEmpty()) return emptyList()
-        return if (trimmed.startsWith('{')) parseWrapper(trimmed) else parseArray(trimmed)
-    }
+    /**
+     * [reader]'ı tek geçişte okur, her entity'yi [sink]'e verir. Boş ya da dizi / obje olmayan belge için 0.
+     * @throws IllegalArgumentException bozuk JSON, eksik ya da bilinmeyen `t`
+     * @return okunan entity sayısı
+     */
+    fun read(reader: java.io.Reader, sink: (CadEntityDto) -> Unit): Int = JsonSource(reader).readDocument(sink)
 
-    private fun parseArray(arr: String): List<CadEntityDto> {
-        val trimmed = arr.trim()
-        if (!trimmed.startsWith("[") || !trimmed.endsWith("]")) return emptyList()
-        val items = mutableListOf<String>()
-        var depth = 0
-        var inStr = false
-        val sb = StringBuilder()
-        for (i in 1 until trimmed.length-1) {
-            val c = trimmed[i]
-            if (c=='"' && trimmed.getOrNull(i-1)!='\\') inStr = !inStr
-            if (!inStr) {
-                if (c=='{') depth++ else if (c=='}') depth--
-                if (c==',' && depth==0) {
-                    val seg = sb.toString().trim()
-                    if (seg.isNotEmpty()) items += seg
-                    sb.setLength(0)
-                    continue
+    // --- Yazma ---
+
+    private fun writeDto(out: Writer, dto: CadEntityDto) {
+        fun head(t: String) {
+            out.write("{\"t\":\""); out.write(t); out.write("\",\"layer\":"); string(out, dto.layer)
+        }
+        fun num(key: String, v: Double) {
+            out.write(",\""); out.write(key); out.write("\":"); out.write(v.toString())
+        }
+        when (dto) {
+            is PointDto -> { head("PT"); num("x", dto.x); num("y", dto.y) }
+            is LineDto -> { head("L"); num("x1", dto.x1); num("y1", dto.y1); num("x2", dto.x2); num("y2", dto.y2) }
+            is PolylineDto -> {
+                head("PL")
+                out.write(",\"closed\":"); out.write(if (dto.closed) "true" else "false")
+                out.write(",\"coords\":"); numbers(out, dto.coords)
+            }
+            is PolygonDto -> {
+                head("PG")
+                out.write(",\"rings\":[")
+                dto.rings.forEachIndexed { ri, ring ->
+                    if (ri > 0) out.write(','.code)
+                    numbers(out, ring)
                 }
+                out.write(']'.code)
+            }
+            is CircleDto -> { head("C"); num("cx", dto.cx); num("cy", dto.cy); num("r", dto.r) }
+            is ArcDto -> { head("A"); num("cx", dto.cx); num("cy", dto.cy); num("r", dto.r); num("s", dto.startDeg); num("e", dto.endDeg) }
+            is TextDto -> {
+                head("T"); num("x", dto.x); num("y", dto.y); num("h", dto.h)
+                out.write(",\"text\":"); string(out, dto.text)
+                if (dto.rot != 0.0) num("rot", dto.rot)
             }
-            sb.append(c)
         }
-        val last = sb.toString().trim()
-        if (last.isNotEmpty()) items += last
-        return items.mapNotNull { parseObject(it) }
+        out.write('}'.code)
     }
 
-    private fun parseWrapper(obj: String): List<CadEntityDto> {
-        // Basit anahtar yakalama: v ve items
-        val vMatch = Regex("\"v\"\\s*:\\s*(\\d+)").find(obj)
-        val _version = vMatch?.groupValues?.get(1)?.toIntOrNull() ?: 0 // şimdilik kullanılmıyor
-        val itemsMatch = Regex("\"items\"\\s*:\\s*(\\[.*])", RegexOption.DOT_MATCHES_ALL).find(obj)
-        val arr = itemsMatch?.groupValues?.get(1) ?: return emptyList()
-        return parseArray(arr)
+    private fun numbers(out: Writer, values: List<Double>) {
+        out.write('['.code)
+        for (i in values.indices) {
+            if (i > 0) out.write(','.code)
+            out.write(values[i].toString())
+        }
+        out.write(']'.code)
     }
 
-    private fun parseObject(obj: String): CadEntityDto {
-        fun kv(key: String): String? {
-            val r = Regex("\"$key\"\\s*:\\s*(\"([^\\\"]|\\.)*\"|[-0-9.truefalsenull]+|\\[[^]]*]|\\{[^}]*})")
-            val m = r.find(obj) ?: return null
-            val raw = m.groupValues[1].trim()
-            return if (raw.startsWith('"')) raw.drop(1).dropLast(1).replace("\\\"","\"").replace("\\\\","\\") else raw
-        }
-        val type = kv("t") ?: return error("type yok")
-        val layer = kv("layer") ?: "default"
-        return when(type) {
-            "PT" -> PointDto(kv("x")?.toDoubleOrNull() ?: 0.0, kv("y")?.toDoubleOrNull() ?: 0.0, layer)
-            "L" -> LineDto(
-                kv("x1")?.toDoubleOrNull() ?: 0.0,
-                kv("y1")?.toDoubleOrNull() ?: 0.0,
-                kv("x2")?.toDoubleOrNull() ?: 0.0,
-                kv("y2")?.toDoubleOrNull() ?: 0.0,
-                layer
-            )
-            "PL" -> {
-                val closed = kv("closed")?.toBoolean() ?: false
-                val coordsRaw = kv("coords") ?: "[]"
-                val nums = extractNumberArray(coordsRaw)
-                PolylineDto(closed, nums, layer)
-            }
-            "PG" -> {
-                val ringsRaw = kv("rings") ?: "[]"
-                val rings = extractNestedNumberArrays(ringsRaw)
-                PolygonDto(rings.ifEmpty { listOf(emptyList()) }, layer) // boş gelirse sentinel
-            }
-            "C" -> CircleDto(
-                kv("cx")?.toDoubleOrNull() ?: 0.0,
-                kv("cy")?.toDoubleOrNull() ?: 0.0,
-                kv("r")?.toDoubleOrNull() ?: 0.0,
-                layer
-            )
-            "A" -> ArcDto(
-                kv("cx")?.toDoubleOrNull() ?: 0.0,
-                kv("cy")?.toDoubleOrNull() ?: 0.0,
-                kv("r")?.toDoubleOrNull() ?: 0.0,
-                kv("s")?.toDoubleOrNull() ?: 0.0,
-                kv("e")?.toDoubleOrNull() ?: 0.0,
-                layer
-            )
-            "T" -> TextDto(
-                kv("x")?.toDoubleOrNull() ?: 0.0,
-                kv("y")?.toDoubleOrNull() ?: 0.0,
-                kv("h")?.toDoubleOrNull() ?: 0.0,
-                kv("text") ?: "",
-                kv("rot")?.toDoubleOrNull() ?: 0.0,
-                layer
-            )
-            else -> error("Bilinmeyen t: $type")
+    private fun string(out: Writer, s: String) {
+        out.write('"'.code)
+        var start = 0
+        for (i in s.indices) {
+            val c = s[i]
+            val esc = when {
+                c == '"' -> "\\\""
+                c == '\\' -> "\\\\"
+                c == '\n' -> "\\n"
+                c == '\r' -> "\\r"
+                c == '\t' -> "\\t"
+                c < ' ' -> "\\u%04x".format(c.code)
+                else -> null
+            } ?: continue
+            out.write(s, start, i - start)
+            out.write(esc)
+            start = i + 1
         }
+        out.write(s, start, s.length - start)
+        out.write('"'.code)
     }
 
-    private fun extractNumberArray(raw: String): List<Double> {
-        val inner = raw.trim().removePrefix("[").removeSuffix("]").trim()
-        if (inner.isEmpty()) return emptyList()
-        return inner.split(',').mapNotNull { it.trim().toDoubleOrNull() }
-    }
+    // --- Okuma ---
+
+    /** Tamponlu tek geçişli JSON okuyucu; yalnız DTO şemasının ihtiyaç duyduğu kadar. */
+    private class JsonSource(private val reader: java.io.Reader) {
+        private val buf = CharArray(BUFFER)
+        private var pos = 0
+        private var len = 0
+        private val text = StringBuilder()
+        private val fields = Fields()
+
+        fun readDocument(sink: (CadEntityDto) -> Unit): Int = when (peek()) {
+            '[' -> readItems(sink)
+            '{' -> readWrapper(sink)
+            else -> 0
+        }
+
+        /** {"v":1,"items":[...]}; diğer anahtarlar atlanır. */
+        private fun readWrapper(sink: (CadEntityDto) -> Unit): Int {
+            var count = 0
+            expect('{')
+            if (peek() == '}') { next(); return 0 }
+            do {
+                val key = readString()
+                expect(':')
+                if (key == "items" && peek() == '[') count += readItems(sink) else skipValue()
+            } while (comma('}'))
+            return count
+        }
+
+        private fun readItems(sink: (CadEntityDto) -> Unit): Int {
+            var count = 0
+            expect('[')
+            if (peek() == ']') { next(); return 0 }
+            do {
+                sink(readEntity())
+                count++
+            } while (comma(']'))
+            return count
+        }
+
+        private fun readEntity(): CadEntityDto {
+            val f = fields.reset()
+            expect('{')
+            if (peek() == '}') { next(); return f.build() }
+            do {
+                val key = readString()
+                expect(':')
+                when (key) {
+                    "t" -> f.type = readText()
+                    "layer" -> f.layer = readText() ?: "default"
+                    "text" -> f.text = readText() ?: ""
+                    "closed" -> f.closed = readBoolean()
+                    "coords" -> f.coords = readNumbers()
+                    "rings" -> f.rings = readRings()
+                    else -> if (!f.number(key, this)) skipValue()
+                }
+            } while (comma('}'))
+            return f.build()
+        }
+
+        fun readDouble(): Double = when (peek()) {
+            '"' -> readString().toDoubleOrNull() ?: 0.0
+            'n' -> { literal("null"); 0.0 }
+            else -> {
+                text.setLength(0)
+                while (true) {
+                    val c = peekRaw()
+                    if (c in '0'..'9' || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E' || c.isLetter()) {
+                        text.append(c); pos++
+                    } else break
+                }
+                // Double.toString biçimi: NaN / Infinity de yazılabilir
+                text.toString().toDoubleOrNull() ?: fail("Geçersiz sayı '$text'")
+            }
+        }
+
+        private fun readText(): String? = if (peek() == 'n') { literal("null"); null } else readString()
+
+        private fun readBoolean(): Boolean = when (peek()) {
+            't' -> { literal("true"); true }
+            'f' -> { literal("false"); false }
+            'n' -> { literal("null"); false }
+            '"' -> readString().toBoolean()
+            else -> fail("Geçersiz boolean")
+        }
+
+        /** Kutulanmadan DoubleArray'e; DTO'ya liste görünümü olarak verilir. */
+        private fun readNumbers(): List<Double> {
+            if (peek() == 'n') { literal("null"); return emptyList() }
+            expect('[')
+            if (peek() == ']') { next(); return emptyList() }
+            var out = DoubleArray(16)
+            var n = 0
+            do {
+                if (n == out.size) out = out.copyOf(n * 2)
+                out[n++] = readDouble()
+            } while (comma(']'))
+            return out.copyOf(n).asList()
+        }
+
+        private fun readRings(): List<List<Double>> {
+            if (peek() == 'n') { literal("null"); return emptyList() }
+            expect('[')
+            if (peek() == ']') { next(); return emptyList() }
+            val out = ArrayList<List<Double>>(1)
+            do out += readNumbers() while (comma(']'))
+            return out
+        }
+
+        private fun readString(): String {
+            expect('"')
+            text.setLength(0)
+            while (true) {
+                if (pos == len && !fill()) fail("Kapanmamış metin")
+                // Kaçışsız bölümü tek seferde ekle
+                var i = pos
+                while (i < len && buf[i] != '"' && buf[i] != '\\') i++
+                text.appendRange(buf, pos, i)
+                pos = i
+                if (pos == len) continue
+                val c = buf[pos++]
+                if (c == '"') return text.toString()
+                when (val e = nextRaw()) {
+                    'n' -> text.append('\n')
+                    'r' -> text.append('\r')
+                    't' -> text.append('\t')
+                    'b' -> text.append('\b')
+                    'f' -> text.append('\u000C')
+                    'u' -> {
+                        var code = 0
+                        repeat(4) { code = code * 16 + (Character.digit(nextRaw(), 16).takeIf { it >= 0 } ?: fail("Geçersiz \\u kaçışı")) }
+                        text.append(code.toChar())
+                    }
+                    else -> text.append(e) // \" \\ \/
+                }
+            }
+        }
 
-    private fun extractNestedNumberArrays(raw: String): List<List<Double>> {
-        val t = raw.trim()
-        if (t == "[]") return emptyList()
-        if (!(t.startsWith('[') && t.endsWith(']'))) return emptyList()
-        val out = mutableListOf<List<Double>>()
-        var depth = 0
-        var inStr = false
-        val sb = StringBuilder()
-        for (i in 1 until t.length-1) {
-            val c = t[i]
-            if (c=='"' && t.getOrNull(i-1)!='\\') inStr = !inStr
-            if (!inStr) {
-                if (c=='[') depth++ else if (c==']') depth--
-                if (c==',' && depth==0) {
-                    val seg = sb.toString().trim()
-                    if (seg.isNotEmpty()) out += extractNumberArray(seg)
-                    sb.setLength(0)
-                    continue
+        private fun skipValue() {
+            when (peek()) {
+                '"' -> readString()
+                '{' -> {
+                    next()
+                    if (peek() == '}') { next(); return }
+                    do { readString(); expect(':'); skipValue() } while (comma('}'))
                 }
+                '[' -> {
+                    next()
+                    if (peek() == ']') { next(); return }
+                    do skipValue() while (comma(']'))
+                }
+                't' -> literal("true")
+                'f' -> literal("false")
+                'n' -> literal("null")
+                else -> readDouble()
             }
-            sb.append(c)
         }
-        val last = sb.toString().trim()
-        if (last.isNotEmpty()) out += extractNumberArray(last)
-        return out
+
+        /** ',' ise true; [close] ise tüketip false. */
+        private fun comma(close: Char): Boolean = when (val c = next()) {
+            ',' -> true
+            close -> false
+            else -> fail("'$close' ya da ',' bekleniyordu, '$c' bulundu")
+        }
+
+        private fun literal(word: String) {
+            skipWhitespace()
+            for (ch in word) if (nextRaw() != ch) fail("'$word' bekleniyordu")
+        }
+
+        private fun expect(c: Char) {
+            val got = next()
+            if (got != c) fail("'$c' bekleniyordu, '$got' bulundu")
+        }
+
+        /** Boşluk atlanmış sonraki karakter (tüketmez); sonda '\u0000'. */
+        fun peek(): Char {
+            skipWhitespace()
+            return peekRaw()
+        }
+
+        private fun next(): Char {
+            skipWhitespace()
+            return nextRaw()
+        }
+
+        private fun peekRaw(): Char = if (pos < len || fill()) buf[pos] else END
+
+        private fun nextRaw(): Char = if (pos < len || fill()) buf[pos++] else fail("Beklenmeyen belge sonu")
+
+        private fun skipWhitespace() {
+            while (true) {
+                if (pos == len && !fill()) return
+                val c = buf[pos]
+                if (c == ' ' || c == '\n' || c == '\r' || c == '\t') pos++ else return
+            }
+        }
+
+        private fun fill(): Boolean {
+            len = reader.read(buf, 0, buf.size)
+            pos = 0
+            if (len <= 0) { len = 0; return false }
+            return true
+        }
+
+        private fun fail(msg: String): Nothing = throw IllegalArgumentException("CAD JSON: $msg")
+
+        private companion object {
+            const val END = '\u0000'
+        }
+    }
+
+    /** Bir entity objesinin alanları; okuyucu başına tek örnek, her objede sıfırlanır. */
+    private class Fields {
+        var type: String? = null
+        var layer = "default"
+        var text = ""
+        var closed = false
+        var coords: List<Double> = emptyList()
+        var rings: List<List<Double>> = emptyList()
+        val nums = DoubleArray(NUM_KEYS.size)
+
+        fun reset(): Fields {
+            type = null; layer = "default"; text = ""; closed = false
+            coords = emptyList(); rings = emptyList()
+            nums.fill(0.0)
+            return this
+        }
+
+        /** Sayısal alan ise okur; değilse false (değer atlanmalı). */
+        fun number(key: String, src: JsonSource): Boolean {
+            val i = NUM_KEYS.indexOf(key)
+            if (i < 0) return false
+            nums[i] = src.readDouble()
+            return true
+        }
+
+        private fun n(key: String) = nums[NUM_KEYS.indexOf(key)]
+
+        fun build(): CadEntityDto = when (val t = type ?: throw IllegalArgumentException("CAD JSON: type yok")) {
+            "PT" -> PointDto(n("x"), n("y"), layer)
+            "L" -> LineDto(n("x1"), n("y1"), n("x2"), n("y2"), layer)
+            "PL" -> PolylineDto(closed, coords, layer)
+            "PG" -> PolygonDto(rings.ifEmpty { listOf(emptyList()) }, layer) // boş gelirse sentinel
+            "C" -> CircleDto(n("cx"), n("cy"), n("r"), layer)
+            "A" -> ArcDto(n("cx"), n("cy"), n("r"), n("s"), n("e"), layer)
+            "T" -> TextDto(n("x"), n("y"), n("h"), text, n("rot"), layer)
+            else -> throw IllegalArgumentException("Bilinmeyen t: $t")
+        }
+
+        private companion object {
+            val NUM_KEYS = arrayOf("x", "y", "x1", "y1", "x2", "y2", "cx", "cy", "r", "s", "e", "h", "rot")
+        }
     }
 }
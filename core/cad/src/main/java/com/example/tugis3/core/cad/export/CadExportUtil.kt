@@ -5,7 +5,7 @@ import kotlin.math.*
 
 /**
  * CAD entity listesini GeoJSON FeatureCollection string'ine dönüştürür.
- * Circle ve Arc için segment yaklaşımı yapılır.
+ * Circle ve Arc için segment yaklaşımı yapılır. Blok yerleşimleri (INSERT) açılarak dışa aktarılır.
  */
 object CadExportUtil {
     data class Options(
@@ -14,7 +14,8 @@ object CadExportUtil {
     )
 
     fun toGeoJson(entities: List<CadEntity>, options: Options = Options()): String {
-        val features = entities.mapNotNull { e ->
+        val flat = entities.flatMap { if (it is CadInsert) it.explode() else listOf(it) }
+        val features = flat.mapNotNull { e ->
             val geom = geometryObject(e, options) ?: return@mapNotNull null
             val props = mutableMapOf<String, Any?>().apply {
                 put("layer", e.layer)
@@ -28,6 +29,7 @@ object CadExportUtil {
                     is CadText -> { put("text", e.text); put("height", e.height) }
                     is CadArc -> { put("startAngleDeg", e.startAngleDeg); put("endAngleDeg", e.endAngleDeg) }
                     is CadCircle -> { put("radius", e.radius) }
+                    is CadInsert -> {}
                 }
             }
             feature(props, geom)
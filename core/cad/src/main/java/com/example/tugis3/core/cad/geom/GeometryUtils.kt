@@ -21,15 +21,27 @@ object GeometryUtils {
 
     // --- Polyline ---
     fun polylineLength(points: List<Vec2>): Double {
+        if (points is PackedCoords) return polylineLength(points)
         if (points.size < 2) return 0.0
         var d = 0.0
         for (i in 1 until points.size) d += distance(points[i-1], points[i])
         return d
     }
 
+    /** Paketli köşeler: ara [Vec2] üretmeden. */
+    fun polylineLength(points: PackedCoords): Double {
+        var d = 0.0
+        for (i in 1 until points.size) {
+            val dx = points.x(i) - points.x(i - 1); val dy = points.y(i) - points.y(i - 1)
+            d += sqrt(dx*dx + dy*dy)
+        }
+        return d
+    }
+
     // --- Polygon ---
     /** Shoelace algoritması (signed alan). Son nokta kapatılmış varsayılır (ek olarak tekrar eklemeye gerek yok). */
     fun polygonAreaSigned(points: List<Vec2>): Double {
+        if (points is PackedCoords) return polygonAreaSigned(points)
         if (points.size < 3) return 0.0
         var sum = 0.0
         for (i in points.indices) {
@@ -40,6 +52,19 @@ object GeometryUtils {
         return 0.5 * sum
     }
 
+    fun polygonAreaSigned(points: PackedCoords): Double {
+        val n = points.size
+        if (n < 3) return 0.0
+        var sum = 0.0
+        var px = points.x(n - 1); var py = points.y(n - 1)
+        for (i in 0 until n) {
+            val x = points.x(i); val y = points.y(i)
+            sum += px * y - x * py
+            px = x; py = y
+        }
+        return 0.5 * sum
+    }
+
     fun polygonArea(points: List<Vec2>): Double = abs(polygonAreaSigned(points))
 
     /** Çok halkalı (holes) poligon alanı. İlk ring dış, diğerleri iç boşluk (çıkarılır). */
@@ -82,17 +107,25 @@ object GeometryUtils {
         is CadArc -> arcLength(radius, startAngleDeg, endAngleDeg)
         is CadPolygon -> polygonPerimeterRings(rings)
         is CadPoint, is CadText -> 0.0
+        is CadInsert -> explode().sumOf { it.lengthOrPerimeter() }
     }
 
     fun CadEntity.area(): Double = when(this) {
         is CadPolygon -> polygonAreaRings(rings)
         is CadCircle -> circleArea(radius)
+        is CadInsert -> explode().sumOf { it.area() }
         // Arc, polyline, line, point, text alanı 0 kabul
         else -> 0.0
     }
 
     // --- Perimeter ---
     fun polygonPerimeter(points: List<Vec2>): Double {
+        if (points is PackedCoords) {
+            if (points.size < 2) return 0.0
+            val n = points.size
+            val dx = points.x(n - 1) - points.x(0); val dy = points.y(n - 1) - points.y(0)
+            return polylineLength(points) + sqrt(dx*dx + dy*dy)
+        }
         if (points.size < 2) return 0.0
         var d = 0.0
         for (i in 1 until points.size) d += distance(points[i-1], points[i])
@@ -8,7 +8,7 @@ package com.example.tugis3.core.cad.model
 /**
  * CAD varlık türleri (persist / serialize discriminator).
  */
-enum class CadEntityType { POINT, LINE, POLYLINE, POLYGON, TEXT, CIRCLE, ARC }
+enum class CadEntityType { POINT, LINE, POLYLINE, POLYGON, TEXT, CIRCLE, ARC, INSERT }
 
 // Geri uyumluluk için eski Point adı:
 typealias Point = Vec2
@@ -43,6 +43,7 @@ data class BoundingBox(
     companion object {
         val EMPTY = BoundingBox(0.0, 0.0, 0.0, 0.0)
         fun ofPoints(points: Iterable<Vec2>): BoundingBox {
+            if (points is PackedCoords) return points.bounds
             val it = points.iterator()
             if (!it.hasNext()) return EMPTY
             var minX: Double; var maxX: Double; var minY: Double; var maxY: Double
@@ -110,34 +111,73 @@ data class CadLine(
     )
 }
 
-/** Çoklu çizgi (polyline). En az 2 nokta. */
-data class CadPolyline(
-    val points: List<Vec2>,
+/**
+ * Çoklu çizgi (polyline). En az 2 nokta. Köşeler [PackedCoords] olarak paketli tutulur; `List<Vec2>` ile
+ * oluşturulabilir ve okunabilir. Veri sınıfı değildir (eşitlik / [copy] elle): [points] her zaman paketlidir.
+ */
+class CadPolyline(
+    points: List<Vec2>,
     override val layer: String = "default",
     override val attrs: Map<String, String> = emptyMap(),
     override val style: CadStyle? = null,
     override val colorIndex: Int? = null,
     val isClosed: Boolean = false
 ) : CadEntity {
-    init { require(points.size >= 2) { "Polyline en az 2 nokta içermeli" } }
+    val points: PackedCoords = PackedCoords.of(points)
+
+    init { require(this.points.size >= 2) { "Polyline en az 2 nokta içermeli" } }
     override val type: CadEntityType = CadEntityType.POLYLINE
-    override fun bounds(): BoundingBox = BoundingBox.ofPoints(points)
+    override fun bounds(): BoundingBox = points.bounds
+
+    fun copy(
+        points: List<Vec2> = this.points,
+        layer: String = this.layer,
+        attrs: Map<String, String> = this.attrs,
+        style: CadStyle? = this.style,
+        colorIndex: Int? = this.colorIndex,
+        isClosed: Boolean = this.isClosed
+    ): CadPolyline = CadPolyline(points, layer, attrs, style, colorIndex, isClosed)
+
+    override fun equals(other: Any?): Boolean =
+        this === other || (other is CadPolyline && isClosed == other.isClosed && layer == other.layer &&
+            colorIndex == other.colorIndex && attrs == other.attrs && style == other.style && points == other.points)
+    override fun hashCode(): Int = ((points.hashCode() * 31 + layer.hashCode()) * 31 + (colorIndex ?: 0)) * 31 + isClosed.hashCode()
+    override fun toString(): String = "CadPolyline(points=${points.size}, layer=$layer, colorIndex=$colorIndex, isClosed=$isClosed)"
 }
 
-/** Poligon (alan). İlk ve son nokta otomatik kapatılmış varsayılır. Holes listesinde iç boşluklar tutulur. */
-data class CadPolygon(
-    val rings: List<List<Vec2>>, // ring[0] = outer, ring[1..n] = holes (opsiyonel)
+/**
+ * Poligon (alan). İlk ve son nokta otomatik kapatılmış varsayılır. Holes listesinde iç boşluklar tutulur.
+ * Halkalar [PackedCoords] olarak paketlidir ([CadPolyline] ile aynı düzen).
+ */
+class CadPolygon(
+    rings: List<List<Vec2>>, // ring[0] = outer, ring[1..n] = holes (opsiyonel)
     override val layer: String = "default",
     override val attrs: Map<String, String> = emptyMap(),
     override val style: CadStyle? = null,
     override val colorIndex: Int? = null
 ) : CadEntity {
+    val rings: List<PackedCoords> = rings.map { PackedCoords.of(it) }
+
     init {
-        require(rings.isNotEmpty()) { "Poligon en az bir ring içermeli" }
-        require(rings.all { it.size >= 3 }) { "Her ring en az 3 nokta içermeli" }
+        require(this.rings.isNotEmpty()) { "Poligon en az bir ring içermeli" }
+        require(this.rings.all { it.size >= 3 }) { "Her ring en az 3 nokta içermeli" }
     }
     override val type: CadEntityType = CadEntityType.POLYGON
-    override fun bounds(): BoundingBox = BoundingBox.ofPoints(rings.first())
+    override fun bounds(): BoundingBox = rings.first().bounds
+
+    fun copy(
+        rings: List<List<Vec2>> = this.rings,
+        layer: String = this.layer,
+        attrs: Map<String, String> = this.attrs,
+        style: CadStyle? = this.style,
+        colorIndex: Int? = this.colorIndex
+    ): CadPolygon = CadPolygon(rings, layer, attrs, style, colorIndex)
+
+    override fun equals(other: Any?): Boolean =
+        this === other || (other is CadPolygon && layer == other.layer && colorIndex == other.colorIndex &&
+            attrs == other.attrs && style == other.style && rings == other.rings)
+    override fun hashCode(): Int = (rings.hashCode() * 31 + layer.hashCode()) * 31 + (colorIndex ?: 0)
+    override fun toString(): String = "CadPolygon(rings=${rings.map { it.size }}, layer=$layer, colorIndex=$colorIndex)"
 }
 
 /** Metin etiketi. */
@@ -190,6 +230,162 @@ data class CadArc(
     override fun bounds(): BoundingBox = arcBoundingBox(center, radius, startAngleDeg, endAngleDeg)
 }
 
+/**
+ * Blok tanımı (DXF BLOCK). Geometri bir kez tutulur; tüm [CadInsert]'ler aynı örneği paylaşır.
+ * [entities] blok koordinatlarındadır; [basePoint] INSERT noktasına oturan blok noktasıdır.
+ */
+class CadBlock(
+    val name: String,
+    val basePoint: Vec2,
+    val entities: List<CadEntity>
+) {
+    /** Blok koordinatlarında sınır kutusu (ilk erişimde bir kez hesaplanır). */
+    val bounds: BoundingBox by lazy {
+        if (entities.isEmpty()) BoundingBox(basePoint.x, basePoint.y, basePoint.x, basePoint.y)
+        else entities.asSequence().map { it.bounds() }.reduce { a, b -> a.union(b) }
+    }
+
+    // Aynı blok binlerce INSERT tarafından paylaşılır: hashCode geometriyi dolaşmaz
+    override fun equals(other: Any?): Boolean =
+        this === other || (other is CadBlock && name == other.name && basePoint == other.basePoint && entities == other.entities)
+    override fun hashCode(): Int = name.hashCode() * 31 + basePoint.hashCode()
+    override fun toString(): String = "CadBlock(name=$name, basePoint=$basePoint, entities=${entities.size})"
+}
+
+/**
+ * Blok yerleşimi (DXF INSERT): paylaşılan [block] + dönüşüm. Geometri kopyalanmaz; çizim ve seçim
+ * noktaları [toWorld] / [toLocal] ile o anda dönüştürür. Dünya = konum + R(rotasyon) · S(ölçek) · (yerel - taban).
+ *
+ * Blok içindeki `0` katmanındaki / BYBLOCK (renk 0 ya da null) öğeler yerleşimin katman ve rengini alır.
+ */
+data class CadInsert(
+    val block: CadBlock,
+    val position: Vec2,
+    val scaleX: Double = 1.0,
+    val scaleY: Double = 1.0,
+    val rotationDeg: Double = 0.0,
+    override val layer: String = "default",
+    override val attrs: Map<String, String> = emptyMap(),
+    override val style: CadStyle? = null,
+    override val colorIndex: Int? = null
+) : CadEntity {
+    override val type: CadEntityType = CadEntityType.INSERT
+
+    private val cosR = kotlin.math.cos(Math.toRadians(rotationDeg))
+    private val sinR = kotlin.math.sin(Math.toRadians(rotationDeg))
+
+    /** Uzunluk / yarıçap için ortalama doğrusal ölçek (eşit olmayan ölçekte yaklaşık). */
+    val linearScale: Double get() = kotlin.math.sqrt(kotlin.math.abs(scaleX * scaleY))
+    val isUniform: Boolean get() = kotlin.math.abs(kotlin.math.abs(scaleX) - kotlin.math.abs(scaleY)) <= 1e-12 * kotlin.math.abs(scaleX)
+    /** Tek eksende negatif ölçek: yay yönü tersine döner. */
+    val isMirrored: Boolean get() = scaleX * scaleY < 0
+
+    fun toWorldX(x: Double, y: Double): Double {
+        val lx = (x - block.basePoint.x) * scaleX
+        val ly = (y - block.basePoint.y) * scaleY
+        return position.x + lx * cosR - ly * sinR
+    }
+
+    fun toWorldY(x: Double, y: Double): Double {
+        val lx = (x - block.basePoint.x) * scaleX
+        val ly = (y - block.basePoint.y) * scaleY
+        return position.y + lx * sinR + ly * cosR
+    }
+
+    fun toWorld(p: Vec2): Vec2 = Vec2(toWorldX(p.x, p.y), toWorldY(p.x, p.y))
+
+    /** Dünya noktasını blok koordinatına çevirir (seçim testi için). */
+    fun toLocal(x: Double, y: Double): Vec2 {
+        val dx = x - position.x
+        val dy = y - position.y
+        val rx = dx * cosR + dy * sinR
+        val ry = -dx * sinR + dy * cosR
+        return Vec2(rx / scaleX + block.basePoint.x, ry / scaleY + block.basePoint.y)
+    }
+
+    /** Yerel açıyı (derece, +X'ten saat yönü tersine) dünya açısına çevirir. */
+    fun toWorldAngle(deg: Double): Double {
+        val r = Math.toRadians(deg)
+        val dx = kotlin.math.cos(r) * scaleX
+        val dy = kotlin.math.sin(r) * scaleY
+        return Math.toDegrees(kotlin.math.atan2(dx * sinR + dy * cosR, dx * cosR - dy * sinR))
+    }
+
+    override fun bounds(): BoundingBox {
+        val b = block.bounds
+        val xs = doubleArrayOf(toWorldX(b.minX, b.minY), toWorldX(b.maxX, b.minY), toWorldX(b.maxX, b.maxY), toWorldX(b.minX, b.maxY))
+        val ys = doubleArrayOf(toWorldY(b.minX, b.minY), toWorldY(b.maxX, b.minY), toWorldY(b.maxX, b.maxY), toWorldY(b.minX, b.maxY))
+        return BoundingBox(xs.min(), ys.min(), xs.max(), ys.max())
+    }
+
+    /** Çocuk öğenin görünen katmanı (`0` katmanı yerleşimden devralır). */
+    fun effectiveLayer(child: CadEntity): String = if (child.layer == "0") layer else child.layer
+
+    /** Çocuk öğenin görünen rengi (BYBLOCK / tanımsız renk yerleşimden devralır). */
+    fun effectiveColor(child: CadEntity): Int? = child.colorIndex?.takeIf { it != 0 } ?: colorIndex
+
+    /**
+     * Blok geometrisini dünya koordinatlarına kopyalar (iç içe yerleşimler dahil). Dışa aktarım ve ölçüm
+     * içindir; çizim bunu kullanmaz. Eşit olmayan ölçekte daire / yay çoklu çizgiye yaklaştırılır.
+     */
+    fun explode(): List<CadEntity> {
+        val out = ArrayList<CadEntity>(block.entities.size)
+        block.entities.forEach { c ->
+            if (c is CadInsert) c.explode().forEach { out += transformed(it) } else out += transformed(c)
+        }
+        return out
+    }
+
+    private fun transformed(c: CadEntity): CadEntity {
+        val layer = effectiveLayer(c)
+        val color = effectiveColor(c)
+        return when (c) {
+            is CadPoint -> c.copy(position = toWorld(c.position), layer = layer, colorIndex = color)
+            is CadLine -> c.copy(start = toWorld(c.start), end = toWorld(c.end), layer = layer, colorIndex = color)
+            is CadPolyline -> c.copy(points = toWorld(c.points), layer = layer, colorIndex = color)
+            is CadPolygon -> c.copy(rings = c.rings.map(::toWorld), layer = layer, colorIndex = color)
+            is CadText -> c.copy(
+                position = toWorld(c.position), height = c.height * kotlin.math.abs(scaleY),
+                rotationDeg = c.rotationDeg + rotationDeg, layer = layer, colorIndex = color
+            )
+            is CadCircle -> if (isUniform) c.copy(center = toWorld(c.center), radius = c.radius * linearScale, layer = layer, colorIndex = color)
+                else CadPolyline(arcPoints(c.center, c.radius, 0.0, 360.0), layer, c.attrs, c.style, color, isClosed = true)
+            is CadArc -> if (isUniform) {
+                val s = toWorldAngle(c.startAngleDeg)
+                val e = toWorldAngle(c.endAngleDeg)
+                c.copy(
+                    center = toWorld(c.center), radius = c.radius * linearScale,
+                    startAngleDeg = if (isMirrored) e else s, endAngleDeg = if (isMirrored) s else e,
+                    layer = layer, colorIndex = color
+                )
+            } else {
+                var sweep = c.endAngleDeg - c.startAngleDeg
+                if (sweep <= 0) sweep += 360.0
+                CadPolyline(arcPoints(c.center, c.radius, c.startAngleDeg, sweep), layer, c.attrs, c.style, color)
+            }
+            is CadInsert -> error("İç içe yerleşim explode içinde açılır")
+        }
+    }
+
+    private fun toWorld(pts: PackedCoords): PackedCoords {
+        val out = DoubleArray(pts.size * 2)
+        for (i in 0 until pts.size) {
+            val x = pts.x(i); val y = pts.y(i)
+            out[2 * i] = toWorldX(x, y); out[2 * i + 1] = toWorldY(x, y)
+        }
+        return PackedCoords.wrap(out)
+    }
+
+    /** Yerel yay noktalarını (10° adım) dünya koordinatına çevirir. */
+    private fun arcPoints(center: Vec2, r: Double, startDeg: Double, sweepDeg: Double): List<Vec2> {
+        val steps = kotlin.math.max(4, kotlin.math.ceil(sweepDeg / 10.0).toInt())
+        return List(steps + 1) { i ->
+            val a = Math.toRadians(startDeg + sweepDeg * i / steps)
+            toWorld(Vec2(center.x + r * kotlin.math.cos(a), center.y + r * kotlin.math.sin(a)))
+        }
+    }
+}
+
 private fun normalizeDeg(a: Double): Double {
     var v = a % 360.0
     if (v < 0) v += 360.0
@@ -0,0 +1,115 @@
+package com.example.tugis3.core.cad.model
+
+/**
+ * Köşe dizisinin paketli gösterimi: `x0 y0 x1 y1 ...` düzeninde tek bir [DoubleArray] (köşe başına 16 bayt,
+ * köşe başına nesne yok). Değişmezdir; [view] / [subList] diziyi kopyalamadan alt aralık döndürür.
+ * Sınır kutusu ([bounds]) oluşturulurken bir kez hesaplanır.
+ *
+ * Eski kodla uyum için [List]<[Vec2]>'dir: [get] her çağrıda yeni bir [Vec2] üretir. Sıcak döngüler
+ * [x] / [y] kullanmalıdır. Eşitlik ve hashCode [List] sözleşmesine uyar (aynı köşeli bir `List<Vec2>`'ye eşittir).
+ */
+class PackedCoords private constructor(
+    private val coords: DoubleArray,
+    /** [coords] içinde ilk köşenin indeksi (köşe cinsinden). */
+    private val start: Int,
+    override val size: Int
+) : AbstractList<Vec2>(), RandomAccess {
+
+    val bounds: BoundingBox = computeBounds()
+
+    fun x(i: Int): Double = coords[(start + checkIndex(i)) * 2]
+    fun y(i: Int): Double = coords[(start + checkIndex(i)) * 2 + 1]
+
+    override fun get(index: Int): Vec2 {
+        val k = (start + checkIndex(index)) * 2
+        return Vec2(coords[k], coords[k + 1])
+    }
+
+    /** [fromIndex, toIndex) köşe aralığı; aynı diziyi paylaşır. */
+    fun view(fromIndex: Int, toIndex: Int): PackedCoords {
+        require(fromIndex in 0..toIndex && toIndex <= size) { "Geçersiz aralık [$fromIndex, $toIndex) / $size" }
+        if (fromIndex == 0 && toIndex == size) return this
+        return PackedCoords(coords, start + fromIndex, toIndex - fromIndex)
+    }
+
+    override fun subList(fromIndex: Int, toIndex: Int): PackedCoords = view(fromIndex, toIndex)
+
+    /** `x y` dizisinin kopyası. */
+    fun toDoubleArray(): DoubleArray = coords.copyOfRange(start * 2, (start + size) * 2)
+
+    /** Köşeleri [dest]'e [destOffset]'ten itibaren `x y` olarak kopyalar (çizim tamponu doldurma). */
+    fun copyInto(dest: DoubleArray, destOffset: Int = 0) {
+        System.arraycopy(coords, start * 2, dest, destOffset, size * 2)
+    }
+
+    /** Vec2 üretmeden köşe dolaşımı. */
+    inline fun forEachXY(action: (x: Double, y: Double) -> Unit) {
+        for (i in 0 until size) action(x(i), y(i))
+    }
+
+    override fun equals(other: Any?): Boolean {
+        if (this === other) return true
+        if (other !is PackedCoords) return super.equals(other)
+        if (size != other.size) return false
+        for (i in 0 until size * 2) {
+            // Vec2 (data class) eşitliğiyle aynı: Double.compare
+            if (java.lang.Double.compare(coords[start * 2 + i], other.coords[other.start * 2 + i]) != 0) return false
+        }
+        return true
+    }
+
+    override fun hashCode(): Int {
+        // List.hashCode sözleşmesi, Vec2.hashCode ile aynı sonuç; nesne üretmeden
+        var h = 1
+        for (i in 0 until size) {
+            val k = (start + i) * 2
+            h = 31 * h + (java.lang.Double.hashCode(coords[k]) * 31 + java.lang.Double.hashCode(coords[k + 1]))
+        }
+        return h
+    }
+
+    private fun checkIndex(i: Int): Int {
+        if (i < 0 || i >= size) throw IndexOutOfBoundsException("index=$i, size=$size")
+        return i
+    }
+
+    private fun computeBounds(): BoundingBox {
+        if (size == 0) return BoundingBox.EMPTY
+        var k = start * 2
+        var minX = coords[k]; var maxX = minX
+        var minY = coords[k + 1]; var maxY = minY
+        val end = (start + size) * 2
+        k += 2
+        while (k < end) {
+            val x = coords[k]; val y = coords[k + 1]
+            if (x < minX) minX = x
+            if (x > maxX) maxX = x
+            if (y < minY) minY = y
+            if (y > maxY) maxY = y
+            k += 2
+        }
+        return BoundingBox(minX, minY, maxX, maxY)
+    }
+
+    companion object {
+        val EMPTY = PackedCoords(DoubleArray(0), 0, 0)
+
+        /** Zaten paketliyse aynı örnek, değilse tek geçişte paketlenmiş kopya. */
+        fun of(points: List<Vec2>): PackedCoords {
+            if (points is PackedCoords) return points
+            val out = DoubleArray(points.size * 2)
+            var k = 0
+            for (p in points) { out[k++] = p.x; out[k++] = p.y }
+            return PackedCoords(out, 0, points.size)
+        }
+
+        /** [xy] (`x0 y0 x1 y1 ...`) kopyalanmadan sahiplenilir; çağıran diziyi sonradan değiştirmemelidir. */
+        fun wrap(xy: DoubleArray, count: Int = xy.size / 2): PackedCoords {
+            require(count >= 0 && count * 2 <= xy.size) { "Geçersiz köşe sayısı $count" }
+            return PackedCoords(xy, 0, count)
+        }
+    }
+}
+
+/** Köşe dizisini paketler (zaten paketliyse kopyalamaz). */
+fun List<Vec2>.packed(): PackedCoords = PackedCoords.of(this)
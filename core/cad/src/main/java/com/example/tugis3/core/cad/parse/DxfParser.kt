@@ -1,166 +1,566 @@
 package com.example.tugis3.core.cad.parse
 
 import com.example.tugis3.core.cad.model.*
-import java.io.BufferedReader
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.currentCoroutineContext
+import kotlinx.coroutines.ensureActive
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.flow
+import kotlinx.coroutines.flow.flowOn
+import java.io.Closeable
+import java.io.File
 import java.io.InputStream
-import java.io.InputStreamReader
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.file.StandardOpenOption
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+import java.util.concurrent.atomic.AtomicInteger
 
 /**
- * Çok basit DXF parser: LINE, LWPOLYLINE, CIRCLE, ARC, TEXT destekler. 2D ölçüm amaçlı minimal.
- * Üretim kullanımı için kapsamlı bir kütüphane tercih edilmelidir.
+ * Çok basit DXF parser: LINE, LWPOLYLINE, POLYLINE/VERTEX, CIRCLE, ARC, TEXT ve BLOCK/INSERT destekler.
+ * 2D ölçüm amaçlı minimal. Üretim kullanımı için kapsamlı bir kütüphane tercih edilmelidir.
+ *
+ * [DxfTokenizer] üzerinde akış halinde çalışır: dosya metni belleğe alınmaz, tepe bellek yalnız üretilen
+ * entity sayısıyla orantılıdır. SECTION yapısı izlenir; ENTITIES (ya da bölümsüz, kırpılmış dosyalarda tüm
+ * içerik) ve BLOCKS okunur, HEADER / TABLES / OBJECTS atlanır.
+ *
+ * BLOCKS bölümündeki her blok bir kez [CadBlock]'a ayrıştırılır; INSERT'ler geometriyi kopyalamadan
+ * aynı bloğu paylaşan [CadInsert]'lere dönüşür. İç içe bloklar ilk kullanımda çözülür, döngüsel
+ * başvurular atlanır.
  */
 class DxfParser {
-    fun parse(stream: InputStream): List<CadEntity> = stream.use { s ->
-        val br = BufferedReader(InputStreamReader(s))
-        val lines = br.readLines()
-        val out = mutableListOf<CadEntity>()
-        var i = 0
-        fun nextPair(): Pair<String, String>? {
-            if (i + 1 >= lines.size) return null
-            val code = lines[i].trim(); val value = lines[i + 1].trim(); i += 2
-            return code to value
-        }
-        while (true) {
-            val p = nextPair() ?: break
-            if (p.first == "0") {
-                when (p.second.uppercase()) {
-                    "ENDSEC", "EOF" -> break
-                    "LINE" -> parseLine(::nextPair)?.let(out::add)
-                    "LWPOLYLINE" -> parseLwPolyline(::nextPair)?.let(out::add)
-                    "CIRCLE" -> parseCircle(::nextPair)?.let(out::add)
-                    "ARC" -> parseArc(::nextPair)?.let(out::add)
-                    "TEXT" -> parseText(::nextPair)?.let(out::add)
-                    else -> { /* desteklenmeyen entity atlanır */ }
+
+    fun parse(stream: InputStream): List<CadEntity> =
+        DxfTokenizer.of(stream).use { t -> mutableListOf<CadEntity>().also { out -> parse(t, out::add) } }
+
+    /** Dosyayı bellek eşlemeli okur. */
+    fun parse(file: File): List<CadEntity> =
+        DxfTokenizer.map(file).use { t -> mutableListOf<CadEntity>().also { out -> parse(t, out::add) } }
+
+    /**
+     * Dosyayı çekirdeklere bölerek ayrıştırır; sonuç [parse] ile aynı sırada ve aynıdır.
+     * ENTITIES'e kadarki kısım (BLOCKS dahil) sırayla okunur ve bloklar çözülür. Bölümün geri kalanı
+     * [DxfSplitter] ile entity sınırlarında bayt aralıklarına bölünür, aralıklar paralel ayrıştırılır ve
+     * dosya sırasıyla birleştirilir. ENTITIES'in bittiği parçadan sonrası (OBJECTS vb.) ayrıştırılmaz.
+     * Küçük dosyalar sıralı yola düşer.
+     */
+    fun parseParallel(file: File, parallelism: Int = Runtime.getRuntime().availableProcessors()): List<CadEntity> =
+        FileChannel.open(file.toPath(), StandardOpenOption.READ).use { channel ->
+            ParallelRun(channel, parallelism).use { run ->
+                val out = ArrayList<CadEntity>()
+                var part = run.next()
+                while (part != null) { out.addAll(part.entities); part = run.next() }
+                out
+            }
+        }
+
+    /**
+     * [parseParallel]'in aşamalı hali: parçalar dosya sırasıyla, [batchSize]'lık [Batch]'ler halinde yayılır.
+     * İlk parça dosyanın küçük bir dilimi olduğundan ilk geometri tüm dosyayı beklemez; ilerleme, partinin
+     * ait olduğu parçanın bittiği bayt konumudur. Son parti boş ve `done` işaretlidir. Parçalar arasında
+     * iptal denetlenir; iptalde bekleyen parçalar iptal edilir, çalışanlar kesilir.
+     *
+     * [channel] eşlenebilir (normal dosya) olmalıdır; akış kapatılana dek açık tutulmalıdır.
+     */
+    fun streamParallel(
+        channel: FileChannel,
+        parallelism: Int = Runtime.getRuntime().availableProcessors(),
+        batchSize: Int = DEFAULT_BATCH
+    ): Flow<Batch> = flow {
+        val started = System.nanoTime()
+        val total = channel.size()
+        var count = 0L
+        var firstMs = -1L
+        ParallelRun(channel, parallelism).use { run ->
+            var part = run.next()
+            while (part != null) {
+                for (chunk in part.entities.chunked(batchSize)) {
+                    currentCoroutineContext().ensureActive()
+                    count += chunk.size
+                    if (firstMs < 0) firstMs = (System.nanoTime() - started) / 1_000_000
+                    emit(Batch(chunk, count, part.end, total, firstMs, done = false))
                 }
+                part = run.next()
+            }
+        }
+        emit(Batch(emptyList(), count, total, total, firstMs, done = true))
+    }.flowOn(Dispatchers.IO)
+
+    /** @param end parçanın bittiği bayt konumu */
+    private class Part(val entities: List<CadEntity>, val ended: Boolean, val end: Long)
+
+    /**
+     * [parseParallel] / [streamParallel] ortak yürütmesi: parçaları dosya sırasıyla [next] ile verir.
+     * Küçük (ya da 2 GB'tan büyük) dosyalar ve ENTITIES bölümü olmayanlar tek parça halinde sıralı okunur.
+     *
+     * Parçalar okuma sırasının en çok [IN_FLIGHT] × parallelism önünde gönderilir. ENDSEC'e ulaşan parçadan
+     * sonrası gönderilmez; o sırada çalışanlar [lastPart] kapısında durur. [close] çalışan görevleri keser.
+     */
+    private inner class ParallelRun(channel: FileChannel, private val parallelism: Int) : Closeable {
+        private val ready = ArrayDeque<Part>()
+        private var pool: ExecutorService? = null
+        private val futures = ArrayList<Future<Part>>()
+        private var buffer: ByteBuffer? = null
+        private var bounds = IntArray(0)
+        private var blocks: BlockTable? = null
+        /** ENTITIES'in bittiği parçanın sırası; kapatılınca -1 */
+        private val lastPart = AtomicInteger(Int.MAX_VALUE)
+        private var index = 0
+        private var ended = false
+
+        init {
+            val size = channel.size()
+            val buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size)
+            if (parallelism <= 1 || size < PARALLEL_THRESHOLD || size > Int.MAX_VALUE) {
+                val all = DxfTokenizer.of(buffer).use { t -> mutableListOf<CadEntity>().also { out -> parse(t, out::add) } }
+                ready += Part(all, ended = true, end = size)
+            } else {
+                start(buffer)
             }
         }
-        out
-    }
 
-    private fun parseLine(next: () -> Pair<String, String>?): CadLine? {
-        var x1: Double? = null; var y1: Double? = null; var x2: Double? = null; var y2: Double? = null
-        var layer = "0"; var color: Int? = null
-        while (true) {
-            val p = next() ?: break
-            if (p.first == "0") {
-                return if (x1 != null && y1 != null && x2 != null && y2 != null)
-                    CadLine(Point(x1!!, y1!!), Point(x2!!, y2!!), layer = layer, colorIndex = color) else null
+        private fun start(buffer: ByteBuffer) {
+            val head = ArrayList<CadEntity>()
+            val entities = DxfTokenizer.of(buffer.range(0, buffer.limit())).use { t ->
+                val s = Session(t)
+                var has = true
+                while (has && !s.inEntities) has = s.step(head::add)
+                if (!has) return@use null
+                s.blocks.resolveAll()
+                // Oturum ENTITIES'in ilk çiftini okumuş durumda; aralık o çiftin başından başlar
+                t.pairOffset.toInt() to s.blocks
+            }
+            if (entities == null) {
+                // Bölümsüz ya da ENTITIES'siz dosya: baş kısım tüm sonuçtur
+                ready += Part(head, ended = true, end = buffer.limit().toLong())
+                return
             }
-            when (p.first) {
-                "8" -> layer = p.second
-                "62" -> color = p.second.toIntOrNull()
-                "10" -> x1 = p.second.toDoubleOrNull()
-                "20" -> y1 = p.second.toDoubleOrNull()
-                "11" -> x2 = p.second.toDoubleOrNull()
-                "21" -> y2 = p.second.toDoubleOrNull()
+            val (from, blocks) = entities
+            if (head.isNotEmpty()) ready += Part(head, ended = false, end = from.toLong())
+            this.buffer = buffer
+            this.blocks = blocks
+            // Parça başına sabit maliyet küçük; fazladan parça yük dengesizliğini azaltır
+            bounds = DxfSplitter.boundaries(buffer, from, buffer.limit(), parallelism * 4)
+            pool = Executors.newFixedThreadPool(parallelism) { r -> Thread(r, "dxf-parse").apply { isDaemon = true } }
+            submitAhead()
+        }
+
+        /** Okuma sırasının önünde pencere dolana, parçalar bitene ya da ENDSEC'li parçaya dek gönderir. */
+        private fun submitAhead() {
+            val p = pool ?: return
+            val limit = minOf(bounds.size - 1, index + parallelism * IN_FLIGHT)
+            while (futures.size < limit && futures.size <= lastPart.get()) {
+                val i = futures.size
+                futures += p.submit(Callable { parsePart(i) })
             }
-            if (x1 != null && y1 != null && x2 != null && y2 != null) {
-                return CadLine(Point(x1!!, y1!!), Point(x2!!, y2!!), layer = layer, colorIndex = color)
+        }
+
+        private fun parsePart(i: Int): Part {
+            val part = ArrayList<CadEntity>()
+            return DxfTokenizer.of(buffer!!.range(bounds[i], bounds[i + 1])).use { t ->
+                val s = Session(t, blocks!!, Section.ENTITIES)
+                while (s.step(part::add) && s.inEntities) {
+                    if (Thread.interrupted()) throw InterruptedException()
+                    // Önceki bir parça bölümü bitirdi (ya da çalışma kapatıldı): bu parça okunmayacak
+                    if (i > lastPart.get()) break
+                }
+                val ended = !s.inEntities
+                if (ended) lastPart.accumulateAndGet(i, ::minOf)
+                Part(part, ended, end = bounds[i + 1].toLong())
             }
         }
-        return null
+
+        /** Sıradaki parça; kalmadıysa null. */
+        fun next(): Part? {
+            ready.removeFirstOrNull()?.let { part ->
+                if (part.ended) ended = true
+                return part
+            }
+            if (ended || index >= futures.size) return null
+            val part = try {
+                futures[index++].get()
+            } catch (e: ExecutionException) {
+                throw e.cause ?: e
+            }
+            if (part.ended) ended = true else submitAhead()
+            return part
+        }
+
+        override fun close() {
+            lastPart.set(-1)
+            futures.forEach { it.cancel(true) }
+            pool?.shutdownNow()
+        }
+    }
+
+    /** Entity'leri okundukça [sink]'e verir; liste tutmaz. */
+    internal fun parse(t: DxfTokenizer, sink: (CadEntity) -> Unit) {
+        val session = Session(t)
+        while (session.step(sink)) { /* devam */ }
     }
 
-    private fun parseLwPolyline(next: () -> Pair<String, String>?): CadPolyline? {
-        val pts = mutableListOf<Point>()
-        var closed = false
-        val temp = mutableMapOf<Int, Double>()
-        var layer = "0"; var color: Int? = null
-        while (true) {
-            val p = next() ?: break
-            if (p.first == "0") {
-                if (temp.containsKey(10) && temp.containsKey(20)) {
-                    pts.add(Point(temp[10]!!, temp[20]!!))
+    /**
+     * Aşamalı içe aktarım: entity'ler [batchSize]'lık partiler halinde yayılır, böylece ekran ayrıştırma
+     * sürerken ilk geometriyi çizebilir. İlk parti küçük tutulur ([FIRST_BATCH]); ayrıca [maxDelayMs]
+     * geçtiğinde eldeki parti beklemeden gönderilir. Parti aralarında iptal denetlenir; akış iptal
+     * edildiğinde okuma durur. [input] akış tamamlanınca / iptalde kapatılır.
+     *
+     * @param totalBytes ilerleme yüzdesi için dosya boyu; bilinmiyorsa -1
+     */
+    fun stream(
+        input: InputStream,
+        totalBytes: Long = -1,
+        batchSize: Int = DEFAULT_BATCH,
+        maxDelayMs: Long = 100
+    ): Flow<Batch> = flow {
+        DxfTokenizer.of(input).use { t ->
+            val session = Session(t)
+            val started = System.nanoTime()
+            var buf = ArrayList<CadEntity>(FIRST_BATCH)
+            var limit = minOf(FIRST_BATCH, batchSize)
+            var count = 0L
+            var lastEmit = started
+            var firstMs = -1L
+            var more = true
+            while (more) {
+                more = session.step { buf.add(it) }
+                val now = System.nanoTime()
+                val due = buf.size >= limit || (buf.isNotEmpty() && now - lastEmit >= maxDelayMs * 1_000_000)
+                if (due || !more) {
+                    currentCoroutineContext().ensureActive()
+                    count += buf.size
+                    if (firstMs < 0 && buf.isNotEmpty()) firstMs = (now - started) / 1_000_000
+                    emit(Batch(buf, count, t.bytesRead, totalBytes, firstMs, done = !more))
+                    buf = ArrayList(batchSize)
+                    limit = batchSize
+                    lastEmit = now
                 }
-                return CadPolyline(points = pts.toList(), isClosed = closed, layer = layer, colorIndex = color)
-            }
-            when (p.first) {
-                "8" -> layer = p.second
-                "62" -> color = p.second.toIntOrNull()
-                "10" -> temp[10] = p.second.toDoubleOrNull() ?: return null
-                "20" -> {
-                    temp[20] = p.second.toDoubleOrNull() ?: return null
-                    if (temp.containsKey(10)) {
-                        pts.add(Point(temp[10]!!, temp[20]!!))
-                        temp.remove(10); temp.remove(20)
+            }
+        }
+    }.flowOn(Dispatchers.IO)
+
+    /**
+     * Aşamalı içe aktarım partisi.
+     * @param entityCount bu parti dahil toplam entity
+     * @param firstGeometryMs ilk entity'yi taşıyan partinin başlangıçtan gecikmesi (ilk geometri süresi); henüz yoksa -1
+     */
+    data class Batch(
+        val entities: List<CadEntity>,
+        val entityCount: Long,
+        val bytesRead: Long,
+        val totalBytes: Long,
+        val firstGeometryMs: Long,
+        val done: Boolean
+    ) {
+        val fraction: Float get() = if (totalBytes > 0) (bytesRead.toDouble() / totalBytes).toFloat().coerceIn(0f, 1f) else 0f
+    }
+
+    /**
+     * Ayrıştırma durumu. [step] bir üst düzey grubu (bir entity ya da bölüm işareti) işler ve üretilenleri
+     * [sink]'e verir; böylece çağıran adımlar arasında parti gönderebilir / iptal denetleyebilir.
+     */
+    private class Session(
+        private val t: DxfTokenizer,
+        val blocks: BlockTable = BlockTable(),
+        private var section: Section = Section.NONE
+    ) {
+        private val e = EntityReader()
+        private var block: RawBlock? = null
+
+        /** ENTITIES bölümünde mi (bölümsüz dosyalarda hiç true olmaz). */
+        val inEntities: Boolean get() = section == Section.ENTITIES
+        private var polyline: PolylineBuilder? = null
+        private var has = t.next()
+
+        /** Dosya sonuna gelindiyse false. */
+        fun step(sink: (CadEntity) -> Unit): Boolean {
+            if (!has) return false
+            if (t.code != 0) { has = t.next(); return has }
+            when {
+                t.valueIs("EOF") -> has = false
+                t.valueIs("SECTION") -> {
+                    has = t.next()
+                    section = Section.OTHER
+                    if (has && t.code == 2) {
+                        section = when {
+                            t.valueIs("ENTITIES") -> Section.ENTITIES
+                            t.valueIs("BLOCKS") -> Section.BLOCKS
+                            else -> Section.OTHER
+                        }
+                        has = t.next()
                     }
                 }
-                "70" -> { val flag = p.second.toIntOrNull() ?: 0; closed = (flag and 1) != 0 }
+                t.valueIs("ENDSEC") -> {
+                    section = Section.OTHER
+                    block = null; polyline = null
+                    has = t.next()
+                }
+                section == Section.OTHER -> has = t.next()
+                else -> {
+                    val type = entityType(t)
+                    has = e.read(t, type)
+                    handle(type, sink)
+                }
+            }
+            return has
+        }
+
+        private fun emit(entity: CadEntity, sink: (CadEntity) -> Unit) {
+            val b = block
+            when {
+                b != null -> b.items += entity
+                section != Section.BLOCKS -> sink(entity)
+            }
+        }
+
+        private fun emitInsert(ins: PendingInsert, sink: (CadEntity) -> Unit) {
+            val b = block
+            if (b != null) b.items += ins
+            else if (section != Section.BLOCKS) blocks.resolve(ins.name)?.let { ins.toInserts(it).forEach(sink) }
+        }
+
+        private fun handle(type: Type, sink: (CadEntity) -> Unit) {
+            when (type) {
+                Type.BLOCK -> block = RawBlock(e.name ?: "", Vec2(e.x10.orZero(), e.y20.orZero()))
+                Type.ENDBLK -> { block?.let(blocks::define); block = null }
+                Type.POLYLINE -> {
+                    polyline?.build()?.let { emit(it, sink) }
+                    // 16: 3B ağ, 64: çokyüzlü ağ — 2B ölçümde desteklenmez
+                    polyline = if (e.flags70 and (16 or 64) != 0) null
+                        else PolylineBuilder(e.layer, e.color, (e.flags70 and 1) != 0)
+                }
+                Type.VERTEX -> {
+                    // 16: spline kontrol noktası, 128: yüz kaydı
+                    if (e.flags70 and (16 or 128) == 0) polyline?.add(e.x10, e.y20)
+                }
+                Type.SEQEND -> { polyline?.build()?.let { emit(it, sink) }; polyline = null }
+                Type.INSERT -> e.name?.let { emitInsert(e.pendingInsert(it), sink) }
+                Type.OTHER -> {}
+                else -> e.build(type)?.let { emit(it, sink) }
             }
         }
-        if (pts.isNotEmpty()) return CadPolyline(points = pts, isClosed = closed, layer = layer, colorIndex = color)
-        return null
+
+        private fun entityType(t: DxfTokenizer): Type = when {
+            t.valueIs("LINE") -> Type.LINE
+            t.valueIs("LWPOLYLINE") -> Type.LWPOLYLINE
+            t.valueIs("VERTEX") -> Type.VERTEX
+            t.valueIs("INSERT") -> Type.INSERT
+            t.valueIs("CIRCLE") -> Type.CIRCLE
+            t.valueIs("ARC") -> Type.ARC
+            t.valueIs("TEXT") -> Type.TEXT
+            t.valueIs("POLYLINE") -> Type.POLYLINE
+            t.valueIs("SEQEND") -> Type.SEQEND
+            t.valueIs("BLOCK") -> Type.BLOCK
+            t.valueIs("ENDBLK") -> Type.ENDBLK
+            else -> Type.OTHER
+        }
+    }
+
+    private enum class Section { NONE, ENTITIES, BLOCKS, OTHER }
+
+    private enum class Type { LINE, LWPOLYLINE, POLYLINE, VERTEX, SEQEND, CIRCLE, ARC, TEXT, INSERT, BLOCK, ENDBLK, OTHER }
+
+    /** Ayrıştırılmış ama henüz [CadBlock]'a çevrilmemiş blok; öğeler [CadEntity] ya da [PendingInsert]. */
+    private class RawBlock(val name: String, val basePoint: Vec2) {
+        val items = ArrayList<Any>()
     }
 
-    private fun parseCircle(next: () -> Pair<String, String>?): CadCircle? {
-        var cx: Double? = null; var cy: Double? = null; var r: Double? = null
-        var layer = "0"; var color: Int? = null
-        while (true) {
-            val p = next() ?: break
-            if (p.first == "0") {
-                return if (cx != null && cy != null && r != null) CadCircle(Point(cx!!, cy!!), r!!, layer = layer, colorIndex = color) else null
+    /** Blok adı çözülünce [CadInsert]'e dönüşen INSERT (MINSERT dizisi dahil). */
+    private class PendingInsert(
+        val name: String,
+        val x: Double, val y: Double,
+        val scaleX: Double, val scaleY: Double, val rotationDeg: Double,
+        val columns: Int, val rows: Int, val columnSpacing: Double, val rowSpacing: Double,
+        val layer: String, val color: Int?
+    ) {
+        fun toInserts(block: CadBlock): List<CadInsert> {
+            if (columns <= 1 && rows <= 1) {
+                return listOf(CadInsert(block, Vec2(x, y), scaleX, scaleY, rotationDeg, layer = layer, colorIndex = color))
             }
-            when (p.first) {
-                "8" -> layer = p.second
-                "62" -> color = p.second.toIntOrNull()
-                "10" -> cx = p.second.toDoubleOrNull()
-                "20" -> cy = p.second.toDoubleOrNull()
-                "40" -> r = p.second.toDoubleOrNull()
+            // MINSERT: dizi ekseni yerleşim rotasyonuyla döner
+            val r = Math.toRadians(rotationDeg)
+            val c = kotlin.math.cos(r); val s = kotlin.math.sin(r)
+            val out = ArrayList<CadInsert>(columns * rows)
+            for (row in 0 until rows) for (col in 0 until columns) {
+                val dx = col * columnSpacing; val dy = row * rowSpacing
+                out += CadInsert(
+                    block, Vec2(x + dx * c - dy * s, y + dx * s + dy * c), scaleX, scaleY, rotationDeg,
+                    layer = layer, colorIndex = color
+                )
             }
-            if (cx != null && cy != null && r != null) {
-                return CadCircle(Point(cx!!, cy!!), r!!, layer = layer, colorIndex = color)
+            return out
+        }
+    }
+
+    /** Blok adları büyük/küçük harf duyarsızdır; her blok ilk başvuruda bir kez çözülür. */
+    private class BlockTable {
+        private val raw = HashMap<String, RawBlock>()
+        private val resolved = HashMap<String, CadBlock>()
+        private val resolving = HashSet<String>()
+
+        fun define(b: RawBlock) { raw[b.name.uppercase()] = b }
+
+        /** Tüm blokları çözer; sonrasında tablo yalnız okunur ve thread'ler arasında paylaşılabilir. */
+        fun resolveAll() {
+            raw.keys.toList().forEach { resolve(it) }
+            raw.clear()
+        }
+
+        fun resolve(name: String): CadBlock? {
+            val key = name.uppercase()
+            resolved[key]?.let { return it }
+            val b = raw[key] ?: return null
+            if (!resolving.add(key)) return null // döngü
+            val entities = ArrayList<CadEntity>(b.items.size)
+            b.items.forEach { item ->
+                when (item) {
+                    is CadEntity -> entities += item
+                    is PendingInsert -> resolve(item.name)?.let { entities += item.toInserts(it) }
+                }
             }
+            resolving.remove(key)
+            return CadBlock(b.name, b.basePoint, entities).also { resolved[key] = it; raw.remove(key) }
         }
-        return null
     }
 
-    private fun parseArc(next: () -> Pair<String, String>?): CadArc? {
-        var cx: Double? = null; var cy: Double? = null; var r: Double? = null
-        var a1: Double? = null; var a2: Double? = null
-        var layer = "0"; var color: Int? = null
-        while (true) {
-            val p = next() ?: break
-            if (p.first == "0") {
-                return if (cx != null && cy != null && r != null && a1 != null && a2 != null)
-                    CadArc(Point(cx!!, cy!!), r!!, a1!!, a2!!, layer = layer, colorIndex = color) else null
-            }
-            when (p.first) {
-                "8" -> layer = p.second
-                "62" -> color = p.second.toIntOrNull()
-                "10" -> cx = p.second.toDoubleOrNull()
-                "20" -> cy = p.second.toDoubleOrNull()
-                "40" -> r = p.second.toDoubleOrNull()
-                "50" -> a1 = p.second.toDoubleOrNull()
-                "51" -> a2 = p.second.toDoubleOrNull()
-            }
-            if (cx != null && cy != null && r != null && a1 != null && a2 != null) {
-                return CadArc(Point(cx!!, cy!!), r!!, a1!!, a2!!, layer = layer, colorIndex = color)
-            }
-        }
-        return null
+    /** POLYLINE ... VERTEX ... SEQEND dizisini biriktirir. */
+    private class PolylineBuilder(val layer: String, val color: Int?, val closed: Boolean) {
+        private var xy = DoubleArray(16)
+        private var n = 0
+        fun add(x: Double, y: Double) {
+            if (x.isNaN() || y.isNaN()) return
+            if (2 * n + 2 > xy.size) xy = xy.copyOf(xy.size * 2)
+            xy[2 * n] = x; xy[2 * n + 1] = y
+            n++
+        }
+        fun build(): CadPolyline? =
+            if (n >= 2) CadPolyline(points = PackedCoords.wrap(xy.copyOf(2 * n)), isClosed = closed, layer = layer, colorIndex = color) else null
     }
 
-    private fun parseText(next: () -> Pair<String, String>?): CadText? {
-        var x: Double? = null; var y: Double? = null; var h: Double? = null; var txt: String? = null
-        var layer = "0"; var color: Int? = null
-        while (true) {
-            val p = next() ?: break
-            if (p.first == "0") {
-                return if (x != null && y != null && h != null && txt != null)
-                    CadText(Point(x!!, y!!), h!!, txt!!, layer = layer, colorIndex = color) else null
-            }
-            when (p.first) {
-                "8" -> layer = p.second
-                "62" -> color = p.second.toIntOrNull()
-                "10" -> x = p.second.toDoubleOrNull()
-                "20" -> y = p.second.toDoubleOrNull()
-                "40" -> h = p.second.toDoubleOrNull()
-                "1" -> txt = p.second
+    /**
+     * Bir entity'nin grup kodlarını (sonraki `0` koduna kadar) toplar. Tek örnek tekrar kullanılır;
+     * LWPOLYLINE köşeleri büyüyen bir DoubleArray'de tutulur.
+     */
+    private class EntityReader {
+        var layer = "0"
+        var color: Int? = null
+        var name: String? = null
+        var x10 = NaN; var y20 = NaN
+        var x11 = NaN; var y21 = NaN
+        var r40 = NaN
+        var s41 = NaN; var s42 = NaN
+        var d44 = NaN; var d45 = NaN
+        var a50 = NaN; var a51 = NaN
+        var flags70 = 0
+        var count71 = 0
+        var text: String? = null
+        var xy = DoubleArray(64)
+        var vertexCount = 0
+        private var pendingX = NaN
+        private var lastLayer = "0"
+
+        /** Entity gövdesini okur; tokenizer bir sonraki `0` kodunda kalır. Dosya bittiyse false. */
+        fun read(t: DxfTokenizer, type: Type): Boolean {
+            reset()
+            while (t.next()) {
+                if (t.code == 0) return true
+                if (type == Type.OTHER) continue
+                when (t.code) {
+                    8 -> layer = layerName(t.value)
+                    62 -> color = t.int(Int.MIN_VALUE).takeIf { it != Int.MIN_VALUE }
+                    2 -> name = t.value.toString()
+                    10 -> if (type == Type.LWPOLYLINE) pendingX = t.double() else x10 = t.double()
+                    20 -> if (type == Type.LWPOLYLINE) addVertex(t.double()) else y20 = t.double()
+                    11 -> x11 = t.double()
+                    21 -> y21 = t.double()
+                    40 -> r40 = t.double()
+                    41 -> s41 = t.double()
+                    42 -> s42 = t.double()
+                    44 -> d44 = t.double()
+                    45 -> d45 = t.double()
+                    50 -> a50 = t.double()
+                    51 -> a51 = t.double()
+                    70 -> flags70 = t.int()
+                    71 -> count71 = t.int()
+                    1 -> text = t.value.toString()
+                }
             }
-            if (x != null && y != null && h != null && txt != null) {
-                return CadText(Point(x!!, y!!), h!!, txt!!, layer = layer, colorIndex = color)
+            return false
+        }
+
+        fun build(type: Type): CadEntity? = when (type) {
+            Type.LINE -> if (ok(x10, y20, x11, y21))
+                CadLine(Point(x10, y20), Point(x11, y21), layer = layer, colorIndex = color) else null
+            Type.LWPOLYLINE -> if (vertexCount >= 2)
+                CadPolyline(
+                    points = PackedCoords.wrap(xy.copyOf(2 * vertexCount)),
+                    isClosed = (flags70 and 1) != 0, layer = layer, colorIndex = color
+                ) else null
+            Type.CIRCLE -> if (ok(x10, y20, r40) && r40 > 0)
+                CadCircle(Point(x10, y20), r40, layer = layer, colorIndex = color) else null
+            Type.ARC -> if (ok(x10, y20, r40, a50, a51) && r40 > 0)
+                CadArc(Point(x10, y20), r40, a50, a51, layer = layer, colorIndex = color) else null
+            Type.TEXT -> text?.takeIf { ok(x10, y20, r40) }?.let {
+                CadText(Point(x10, y20), r40, it, rotationDeg = a50.orZero(), layer = layer, colorIndex = color)
             }
+            else -> null
+        }
+
+        fun pendingInsert(blockName: String) = PendingInsert(
+            name = blockName,
+            x = x10.orZero(), y = y20.orZero(),
+            scaleX = s41.takeUnless { it.isNaN() || it == 0.0 } ?: 1.0,
+            scaleY = s42.takeUnless { it.isNaN() || it == 0.0 } ?: 1.0,
+            rotationDeg = a50.orZero(),
+            columns = flags70.coerceAtLeast(1), rows = count71.coerceAtLeast(1),
+            columnSpacing = d44.orZero(), rowSpacing = d45.orZero(),
+            layer = layer, color = color
+        )
+
+        private fun addVertex(y: Double) {
+            if (pendingX.isNaN() || y.isNaN()) return
+            if (2 * vertexCount + 2 > xy.size) xy = xy.copyOf(xy.size * 2)
+            xy[2 * vertexCount] = pendingX
+            xy[2 * vertexCount + 1] = y
+            vertexCount++
+            pendingX = NaN
+        }
+
+        /** Ardışık entity'ler çoğunlukla aynı katmanda; aynı String örneği paylaşılır. */
+        private fun layerName(v: CharSequence): String {
+            val last = lastLayer
+            if (last.length == v.length && last.contentEquals(v)) return last
+            return v.toString().also { lastLayer = it }
+        }
+
+        private fun reset() {
+            layer = "0"; color = null; name = null
+            x10 = NaN; y20 = NaN; x11 = NaN; y21 = NaN
+            r40 = NaN; s41 = NaN; s42 = NaN; d44 = NaN; d45 = NaN; a50 = NaN; a51 = NaN
+            flags70 = 0; count71 = 0; text = null
+            vertexCount = 0; pendingX = NaN
+        }
+
+        private fun ok(a: Double, b: Double, c: Double, d: Double = 0.0, e: Double = 0.0): Boolean =
+            !(a.isNaN() || b.isNaN() || c.isNaN() || d.isNaN() || e.isNaN())
+
+        private companion object {
+            const val NaN = Double.NaN
         }
-        return null
     }
 }
+
+private const val DEFAULT_BATCH = 2_048
+private const val PARALLEL_THRESHOLD = 4L * 1024 * 1024
+private const val IN_FLIGHT = 2
+private const val FIRST_BATCH = 64
+
+/** Aynı içeriğe bağımsız konumlu görünüm; paralel okumada her parça kendi görünümünü kullanır. */
+private fun ByteBuffer.range(from: Int, to: Int): ByteBuffer =
+    duplicate().also { it.limit(to); it.position(from) }
+
+private fun Double.orZero(): Double = if (isNaN()) 0.0 else this
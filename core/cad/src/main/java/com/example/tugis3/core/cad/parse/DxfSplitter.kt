@@ -0,0 +1,76 @@
+package com.example.tugis3.core.cad.parse
+
+import java.nio.ByteBuffer
+
+/**
+ * Paralel ayrıştırma için bayt aralığı bölme. Dosya baştan taranmaz: hedef ofsetlere atlanır ve oradan
+ * ilk entity sınırına (`0` grup kodlu satırın başı) kadar birkaç satır yürünür.
+ *
+ * Bir satır `0` ve ardından gelen satır harfle başlıyorsa o `0` mutlaka grup kodudur: değer satırını
+ * her zaman sayısal bir kod satırı izler. Böylece kod/değer eşleşmesi bilinmeden sınır güvenle bulunur.
+ * VERTEX / SEQEND / ATTRIB sınır sayılmaz; POLYLINE ve INSERT dizileri tek parçada kalır.
+ */
+internal object DxfSplitter {
+
+    /**
+     * [from, to) aralığını yaklaşık [parts] parçaya böler. Dönen dizi artandır, [from] ile başlar,
+     * [to] ile biter; aradaki her eleman bir entity sınırıdır. Sınır bulunamayan hedefler atlanır.
+     */
+    fun boundaries(b: ByteBuffer, from: Int, to: Int, parts: Int): IntArray {
+        val out = ArrayList<Int>(parts + 1)
+        out += from
+        for (k in 1 until parts) {
+            val target = from + ((to - from).toLong() * k / parts).toInt()
+            if (target <= out.last()) continue
+            val at = nextEntityStart(b, target, to)
+            if (at < 0) break
+            if (at > out.last()) out += at
+        }
+        if (to > out.last()) out += to
+        return out.toIntArray()
+    }
+
+    /** [pos]'tan sonraki ilk satır başından itibaren ilk entity sınırı; [limit]'e kadar yoksa -1. */
+    fun nextEntityStart(b: ByteBuffer, pos: Int, limit: Int): Int {
+        var p = pos
+        // Satır ortasına düşüldüyse sonraki satıra geç
+        if (p > 0 && b.get(p - 1) != LF) {
+            while (p < limit && b.get(p) != LF) p++
+            p++
+        }
+        var prevZero = false
+        var prevStart = 0
+        while (p < limit) {
+            val lineStart = p
+            var end = p
+            while (end < limit && b.get(end) != LF) end++
+            p = end + 1
+            var s = lineStart
+            var e = end
+            while (s < e && isSpace(b.get(s))) s++
+            while (e > s && isSpace(b.get(e - 1))) e--
+            if (prevZero && e > s && isLetter(b.get(s)) && !isSequencePart(b, s, e)) return prevStart
+            prevZero = e - s == 1 && b.get(s) == '0'.code.toByte()
+            prevStart = lineStart
+        }
+        return -1
+    }
+
+    private fun isSequencePart(b: ByteBuffer, s: Int, e: Int): Boolean =
+        equalsIgnoreCase(b, s, e, "VERTEX") || equalsIgnoreCase(b, s, e, "SEQEND") || equalsIgnoreCase(b, s, e, "ATTRIB")
+
+    private fun equalsIgnoreCase(b: ByteBuffer, s: Int, e: Int, word: String): Boolean {
+        if (e - s != word.length) return false
+        for (i in word.indices) if ((b.get(s + i).toInt() and 0xDF) != word[i].code) return false
+        return true
+    }
+
+    private fun isLetter(x: Byte): Boolean = (x.toInt() and 0xDF) in 'A'.code..'Z'.code
+
+    private fun isSpace(x: Byte): Boolean = x == SPACE || x == TAB || x == CR
+
+    private const val LF = '\n'.code.toByte()
+    private const val CR = '\r'.code.toByte()
+    private const val SPACE = ' '.code.toByte()
+    private const val TAB = '\t'.code.toByte()
+}
@@ -0,0 +1,281 @@
+package com.example.tugis3.core.cad.parse
+
+import java.io.Closeable
+import java.io.File
+import java.io.InputStream
+import java.nio.ByteBuffer
+import java.nio.CharBuffer
+import java.nio.channels.FileChannel
+import java.nio.charset.Charset
+import java.nio.charset.CodingErrorAction
+import java.nio.file.StandardOpenOption
+
+/**
+ * ASCII DXF grup kodu akışı. Dosya satır satır değil, sabit boyutlu bayt tamponuyla okunur; metin hiçbir
+ * zaman bütünüyle bellekte tutulmaz. [next] her çağrıda bir (kod, değer) çifti ilerler:
+ * - [code] grup kodu `Int` olarak,
+ * - [value] tekrar kullanılan bir [CharSlice] (bir sonraki [next]'e kadar geçerli; saklanacaksa `toString()`),
+ * - [double] / [int] sayısal değeri doğrudan baytlardan ayrıştırır (String ayırmadan).
+ *
+ * Baştaki / sondaki boşluk ve `\r` atılır. ASCII dışı baytlar [charset] ile çözülür (R2007+ UTF-8;
+ * eski dosyalar için ör. windows-1254 verilebilir).
+ */
+class DxfTokenizer private constructor(
+    private val source: Source,
+    private val charset: Charset
+) : Closeable {
+
+    /** Bayt kaynağı: akış ya da bellek eşlemeli dosya. */
+    private fun interface Source {
+        /** En çok [len] bayt okur; kaynak bittiyse -1. */
+        fun read(dst: ByteArray, off: Int, len: Int): Int
+    }
+
+    private val buf = ByteArray(BUFFER_SIZE)
+    private var pos = 0
+    private var limit = 0
+    private var eof = false
+
+    // Geçerli satırın baytları (trim edilmiş)
+    private var line = ByteArray(256)
+    private var lineLen = 0
+    private var lineAscii = true
+
+    private val decoder = charset.newDecoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE)
+
+    var code: Int = -1
+        private set
+    val value = CharSlice()
+
+    /** Okunan grup çifti sayısı (ilerleme / tanılama). */
+    var pairCount: Long = 0
+        private set
+
+    /** Kaynaktan okunan toplam bayt. */
+    var bytesRead: Long = 0
+        private set
+
+    /** Geçerli çiftin kaynaktaki başlangıç ofseti (bayt). */
+    var pairOffset: Long = 0
+        private set
+
+    private var closer: Closeable? = null
+
+    /** Sonraki grup çiftine ilerler; dosya sonunda (ya da yarım çiftte) false. */
+    fun next(): Boolean {
+        pairOffset = bytesRead - (limit - pos)
+        if (!readLine()) return false
+        val c = parseCode()
+        if (!readLine()) return false
+        code = c
+        decodeValue()
+        pairCount++
+        return true
+    }
+
+    /** Değer çift ise; sayı değilse NaN. */
+    fun double(): Double = parseDouble(line, lineLen) ?: value.toString().toDoubleOrNull() ?: Double.NaN
+
+    fun int(default: Int = 0): Int {
+        var i = 0
+        var neg = false
+        if (lineLen == 0) return default
+        if (line[0] == '-'.code.toByte() || line[0] == '+'.code.toByte()) { neg = line[0] == '-'.code.toByte(); i = 1 }
+        if (i >= lineLen) return default
+        var v = 0L
+        while (i < lineLen) {
+            val d = line[i] - '0'.code.toByte()
+            if (d !in 0..9) return default
+            v = v * 10 + d
+            if (v > Int.MAX_VALUE) return default
+            i++
+        }
+        return (if (neg) -v else v).toInt()
+    }
+
+    /** Değer [s] ile (büyük/küçük harf duyarsız) aynı mı; ayırma yapmaz. */
+    fun valueIs(s: String): Boolean = value.equalsIgnoreCase(s)
+
+    override fun close() {
+        closer?.close()
+    }
+
+    private fun fill(): Boolean {
+        if (eof) return false
+        val n = source.read(buf, 0, buf.size)
+        if (n <= 0) { eof = true; return false }
+        pos = 0; limit = n
+        bytesRead += n
+        return true
+    }
+
+    /** Bir satırı [line]'a okur; baştaki / sondaki boşluklar atılır. Kaynak bittiyse false. */
+    private fun readLine(): Boolean {
+        lineLen = 0
+        lineAscii = true
+        var any = false
+        var leading = true
+        while (true) {
+            if (pos >= limit && !fill()) return any
+            any = true
+            val b = buf[pos++]
+            if (b == LF) break
+            if (leading && (b == SPACE || b == TAB || b == CR)) continue
+            leading = false
+            if (lineLen == line.size) line = line.copyOf(line.size * 2)
+            line[lineLen++] = b
+            if (b < 0) lineAscii = false
+        }
+        while (lineLen > 0 && line[lineLen - 1].let { it == SPACE || it == TAB || it == CR }) lineLen--
+        return true
+    }
+
+    private fun parseCode(): Int {
+        var v = 0
+        var neg = false
+        var i = 0
+        if (lineLen > 0 && line[0] == '-'.code.toByte()) { neg = true; i = 1 }
+        if (i >= lineLen) throw DxfFormatException("Grup kodu boş (çift $pairCount)")
+        while (i < lineLen) {
+            val d = line[i] - '0'.code.toByte()
+            if (d !in 0..9) throw DxfFormatException("Geçersiz grup kodu (çift $pairCount)")
+            v = v * 10 + d
+            i++
+        }
+        return if (neg) -v else v
+    }
+
+    private fun decodeValue() {
+        value.ensure(lineLen)
+        if (lineAscii) {
+            val chars = value.chars
+            for (i in 0 until lineLen) chars[i] = line[i].toInt().toChar()
+            value.length = lineLen
+        } else {
+            decoder.reset()
+            val out = CharBuffer.wrap(value.chars)
+            decoder.decode(ByteBuffer.wrap(line, 0, lineLen), out, true)
+            decoder.flush(out)
+            value.length = out.position()
+        }
+    }
+
+    /** Tekrar kullanılan karakter dilimi; yalnız bir sonraki [next] çağrısına kadar geçerlidir. */
+    class CharSlice internal constructor() : CharSequence {
+        internal var chars = CharArray(256)
+        override var length: Int = 0
+            internal set
+
+        internal fun ensure(n: Int) {
+            if (chars.size < n) chars = CharArray(maxOf(n, chars.size * 2))
+        }
+
+        override fun get(index: Int): Char = chars[index]
+        override fun subSequence(startIndex: Int, endIndex: Int): CharSequence = String(chars, startIndex, endIndex - startIndex)
+        override fun toString(): String = String(chars, 0, length)
+
+        fun equalsIgnoreCase(s: String): Boolean {
+            if (s.length != length) return false
+            for (i in 0 until length) if (!chars[i].equals(s[i], ignoreCase = true)) return false
+            return true
+        }
+    }
+
+    companion object {
+        private const val BUFFER_SIZE = 64 * 1024
+        private const val LF = '\n'.code.toByte()
+        private const val CR = '\r'.code.toByte()
+        private const val SPACE = ' '.code.toByte()
+        private const val TAB = '\t'.code.toByte()
+
+        // 10^0..10^22 tam temsil edilir; mantis 2^53 altındaysa çarpma/bölme doğru yuvarlanır
+        private val POW10 = DoubleArray(23).also { p -> p[0] = 1.0; for (i in 1 until p.size) p[i] = p[i - 1] * 10.0 }
+        private const val MAX_EXACT_MANTISSA = 1L shl 53
+
+        fun of(input: InputStream, charset: Charset = Charsets.UTF_8): DxfTokenizer =
+            DxfTokenizer({ dst, off, len -> input.read(dst, off, len) }, charset).also { it.closer = input }
+
+        /** Dosyayı bellek eşlemeli okur; büyük dosyalarda heap'e kopya yapılmaz (yalnız 64 KB pencere). */
+        fun map(file: File, charset: Charset = Charsets.UTF_8): DxfTokenizer = of(mapFile(file), charset)
+
+        /** [buffer]'ın position..limit aralığını okur; buffer'ın konumu ilerler (paylaşılacaksa `duplicate()` verin). */
+        internal fun of(buffer: ByteBuffer, charset: Charset = Charsets.UTF_8): DxfTokenizer =
+            DxfTokenizer({ dst, off, len ->
+                val n = minOf(len, buffer.remaining())
+                if (n <= 0) -1 else { buffer.get(dst, off, n); n }
+            }, charset)
+
+        internal fun mapFile(file: File): ByteBuffer =
+            FileChannel.open(file.toPath(), StandardOpenOption.READ).use { channel ->
+                channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+            }
+
+        /**
+         * Hızlı yol: `[-+]d*[.d*][e[-+]d+]` biçiminde, mantisi 2^53 altında ve üssü ±22 içinde kalan
+         * sayılar tam / doğru yuvarlanmış hesaplanır. Diğerleri için null (çağıran String yoluna düşer).
+         */
+        internal fun parseDouble(b: ByteArray, len: Int): Double? {
+            var i = 0
+            if (len == 0) return null
+            var neg = false
+            when (b[0]) {
+                '-'.code.toByte() -> { neg = true; i = 1 }
+                '+'.code.toByte() -> i = 1
+            }
+            var mantissa = 0L
+            var digits = 0
+            var exp = 0
+            var sawDigit = false
+            while (i < len) {
+                val d = b[i] - '0'.code.toByte()
+                if (d !in 0..9) break
+                sawDigit = true
+                if (mantissa != 0L || d != 0) {
+                    if (digits >= 18) return null
+                    mantissa = mantissa * 10 + d; digits++
+                }
+                i++
+            }
+            if (i < len && b[i] == '.'.code.toByte()) {
+                i++
+                while (i < len) {
+                    val d = b[i] - '0'.code.toByte()
+                    if (d !in 0..9) break
+                    sawDigit = true
+                    if (mantissa != 0L || d != 0) {
+                        if (digits >= 18) return null
+                        mantissa = mantissa * 10 + d; digits++
+                    }
+                    exp--
+                    i++
+                }
+            }
+            if (!sawDigit) return null
+            if (i < len && (b[i] == 'e'.code.toByte() || b[i] == 'E'.code.toByte())) {
+                i++
+                var eNeg = false
+                if (i < len && (b[i] == '-'.code.toByte() || b[i] == '+'.code.toByte())) { eNeg = b[i] == '-'.code.toByte(); i++ }
+                var e = 0
+                var eDigits = 0
+                while (i < len) {
+                    val d = b[i] - '0'.code.toByte()
+                    if (d !in 0..9) break
+                    if (e < 10_000) e = e * 10 + d
+                    eDigits++; i++
+                }
+                if (eDigits == 0) return null
+                exp += if (eNeg) -e else e
+            }
+            if (i != len) return null
+            if (mantissa == 0L) return if (neg) -0.0 else 0.0
+            if (mantissa >= MAX_EXACT_MANTISSA || exp < -22 || exp > 22) return null
+            val v = if (exp >= 0) mantissa * POW10[exp] else mantissa / POW10[-exp]
+            return if (neg) -v else v
+        }
+    }
+}
+
+/** DXF yapısı okunamadığında (ör. grup kodu sayı değil; ikili DXF) fırlatılır. */
+class DxfFormatException(message: String) : java.io.IOException(message)
@@ -5,12 +5,25 @@ import android.net.Uri
 import com.example.tugis3.core.cad.model.CadEntity
 import com.example.tugis3.core.cad.parse.DxfParser
 import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.emitAll
+import kotlinx.coroutines.flow.flow
+import kotlinx.coroutines.flow.flowOn
 import kotlinx.coroutines.withContext
+import java.io.FileInputStream
+import java.io.FileNotFoundException
 import java.io.InputStream
 
 interface CadRepository {
     suspend fun loadDxf(contentResolver: ContentResolver, uri: Uri): List<CadEntity>
     suspend fun parseStream(stream: InputStream): List<CadEntity>
+
+    /**
+     * Aşamalı içe aktarım: entity partileri ayrıştırıldıkça yayılır. Normal dosyaya dayanan belgeler
+     * bellek eşlemeli ve çekirdeklere bölünerek ([DxfParser.streamParallel]), boru/ağ akışları sıralı
+     * ([DxfParser.stream]) okunur.
+     */
+    fun streamDxf(contentResolver: ContentResolver, uri: Uri): Flow<DxfParser.Batch>
 }
 
 class CadRepositoryImpl @javax.inject.Inject constructor(private val dxfParser: DxfParser) : CadRepository {
@@ -21,4 +34,18 @@ class CadRepositoryImpl @javax.inject.Inject constructor(private val dxfParser:
 
     override suspend fun parseStream(stream: InputStream): List<CadEntity> =
         withContext(Dispatchers.IO) { dxfParser.parse(stream) }
+
+    override fun streamDxf(contentResolver: ContentResolver, uri: Uri): Flow<DxfParser.Batch> = flow {
+        // statSize -1: dosya değil (boru, soket); eşlenemez
+        val pfd = runCatching { contentResolver.openFileDescriptor(uri, "r") }.getOrNull()
+        if (pfd != null && pfd.statSize >= 0) {
+            // Kanal tanımlayıcıya sahip değildir; eşlenmiş tampon pfd kapandıktan sonra da geçerlidir
+            pfd.use { emitAll(dxfParser.streamParallel(FileInputStream(it.fileDescriptor).channel)) }
+            return@flow
+        }
+        pfd?.close()
+        val total = runCatching { contentResolver.openAssetFileDescriptor(uri, "r")?.use { it.length } }.getOrNull() ?: -1L
+        val input = contentResolver.openInputStream(uri) ?: throw FileNotFoundException(uri.toString())
+        emitAll(dxfParser.stream(input, total))
+    }.flowOn(Dispatchers.IO)
 }
@@ -0,0 +1,70 @@
+package com.example.tugis3.core.cad
+
+import com.example.tugis3.core.cad.dto.*
+import java.io.ByteArrayOutputStream
+import java.io.DataOutputStream
+import java.util.zip.GZIPOutputStream
+
+/** CAD codec testleri ve ölçüm testlerinin paylaştığı veri: örnek çizimler ve v1 biçim yazıcısı. */
+internal object CadFixtures {
+
+    /** Kadastro benzeri çizim: mm hassasiyetli UTM koordinatları, parsel / bina / yol / nokta / metin katmanları. */
+    fun surveyDrawing(n: Int): List<CadEntityDto> {
+        val rnd = java.util.Random(11)
+        fun mm(v: Double) = Math.round(v * 1000) / 1000.0
+        return List(n) { i ->
+            val e = mm(500_000 + (i % 200) * 25.0 + rnd.nextDouble() * 3)
+            val nn = mm(4_400_000 + (i / 200) * 25.0 + rnd.nextDouble() * 3)
+            when (i % 5) {
+                0 -> PolylineDto(true, List(5) { k -> listOf(mm(e + (k % 3) * 7.31), mm(nn + (k / 2) * 9.17)) }.flatten(), "PARSEL")
+                1 -> PolygonDto(listOf(listOf(e, nn, mm(e + 12.4), nn, mm(e + 12.4), mm(nn + 8.2), e, mm(nn + 8.2))), "BINA")
+                2 -> LineDto(e, nn, mm(e + 25.0), mm(nn + 0.4), "YOL_KENARI")
+                3 -> PointDto(e, nn, "POLIGON_NOKTASI")
+                else -> TextDto(e, nn, 1.5, "${i / 5}", 0.0, "PARSEL_NO")
+            }
+        }
+    }
+
+    /** Yol, parsel, nokta ve metin katmanlarından rastgele çizim. */
+    fun mixedDrawing(n: Int): List<CadEntityDto> {
+        val rnd = java.util.Random(5)
+        return List(n) { i ->
+            val e = 500_000 + rnd.nextDouble() * 10_000
+            val nn = 4_400_000 + rnd.nextDouble() * 10_000
+            when (i % 4) {
+                0 -> LineDto(e, nn, e + 5.25, nn + 3.5, "YOL")
+                1 -> PolylineDto(false, List(16) { k -> if (k % 2 == 0) e + k else nn + k }, "PARSEL")
+                2 -> PointDto(e, nn, "NOKTA")
+                else -> TextDto(e, nn, 1.5, "P-$i", 0.0, "METİN")
+            }
+        }
+    }
+
+    /** Eski (v1) biçimde yazıcı: geriye dönük okuma testi için. */
+    fun packV1(list: List<CadEntityDto>, compress: Boolean): ByteArray {
+        val raw = ByteArrayOutputStream()
+        DataOutputStream(raw).use { out ->
+            fun layer(s: String) { val b = s.toByteArray(); out.writeShort(b.size); out.write(b) }
+            out.write("CADB".toByteArray()); out.writeByte(1); out.writeInt(list.size)
+            list.forEach { d ->
+                when (d) {
+                    is PointDto -> { out.writeByte(1); layer(d.layer); out.writeDouble(d.x); out.writeDouble(d.y) }
+                    is LineDto -> { out.writeByte(2); layer(d.layer); listOf(d.x1, d.y1, d.x2, d.y2).forEach(out::writeDouble) }
+                    is PolylineDto -> { out.writeByte(3); layer(d.layer); out.writeBoolean(d.closed); out.writeInt(d.coords.size); d.coords.forEach(out::writeDouble) }
+                    is PolygonDto -> {
+                        out.writeByte(4); layer(d.layer); out.writeInt(d.rings.size)
+                        d.rings.forEach { r -> out.writeInt(r.size); r.forEach(out::writeDouble) }
+                    }
+                    is CircleDto -> { out.writeByte(5); layer(d.layer); listOf(d.cx, d.cy, d.r).forEach(out::writeDouble) }
+                    is ArcDto -> { out.writeByte(6); layer(d.layer); listOf(d.cx, d.cy, d.r, d.startDeg, d.endDeg).forEach(out::writeDouble) }
+                    is TextDto -> {
+                        out.writeByte(7); layer(d.layer); listOf(d.x, d.y, d.h).forEach(out::writeDouble)
+                        val t = d.text.toByteArray(); out.writeInt(t.size); out.write(t); out.writeDouble(d.rot)
+                    }
+                }
+            }
+        }
+        if (!compress) return raw.toByteArray()
+        return ByteArrayOutputStream().also { bos -> GZIPOutputStream(bos).use { it.write(raw.toByteArray()) } }.toByteArray()
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.tugis3.core.cad.codec
+
+import com.example.tugis3.core.cad.CadFixtures
+import com.example.tugis3.core.cad.codec.CadBinary.CoordMode
+import com.example.tugis3.core.cad.dto.*
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+import kotlin.math.abs
+
+class CadBinaryTest {
+
+    private val samples: List<CadEntityDto> = listOf(
+        PointDto(500_123.4567, 4_400_987.6543, "NOKTA"),
+        LineDto(500_000.0, 4_400_000.0, 500_010.5, 4_400_003.25, "PARSEL"),
+        PolylineDto(true, listOf(500_000.0, 4_400_000.0, 500_020.0, 4_400_000.0, 500_020.0, 4_400_015.0), "PARSEL"),
+        PolygonDto(listOf(listOf(0.0, 0.0, 10.0, 0.0, 10.0, 10.0), listOf(2.0, 2.0, 3.0, 2.0, 3.0, 3.0)), "BİNA"),
+        PolygonDto(listOf(emptyList()), "BOŞ"),
+        CircleDto(500_005.0, 4_400_005.0, 0.6, "RÖGAR"),
+        ArcDto(1.0, 1.0, 3.0, 350.0, 10.0, "YAY"),
+        TextDto(500_001.0, 4_400_002.0, 2.5, "Ada 101 / Parsel 7 — çğüşöı", 45.0, "METİN")
+    )
+
+    @Test
+    fun exactRoundTripWithAndWithoutGzip() {
+        for (compress in listOf(true, false)) {
+            assertEquals(samples, CadBinary.unpack(CadBinary.pack(samples, compress), compress))
+        }
+    }
+
+    @Test
+    fun layerNamesAreWrittenOnce() {
+        val many = List(1_000) { LineDto(it.toDouble(), 0.0, it + 1.0, 1.0, "UZUN_KATMAN_ADI_ALTYAPI_${it % 3}") }
+        val bytes = CadBinary.pack(many, compress = false)
+        val occurrences = String(bytes, Charsets.ISO_8859_1).windowed(24).count { it == "UZUN_KATMAN_ADI_ALTYAPI_" }
+        assertEquals(3, occurrences)
+        assertEquals(many, CadBinary.unpack(bytes, compressed = false))
+    }
+
+    @Test
+    fun lossyModesStayWithinBound() {
+        val q = 0.001
+        for (mode in listOf(CoordMode.QUANTISED, CoordMode.FLOAT)) {
+            val back = CadBinary.unpack(CadBinary.pack(samples, mode = mode, quantum = q))
+            assertEquals(samples.size, back.size)
+            samples.zip(back).forEach { (a, b) ->
+                assertEquals(a.layer, b.layer)
+                val ca = coords(a); val cb = coords(b)
+                assertEquals(ca.size, cb.size)
+                // QUANTISED: adımın yarısı, FLOAT: tolerans
+                ca.zip(cb).forEach { (u, v) -> assertTrue("$mode $a: $u ~ $v", abs(u - v) <= q + 1e-9) }
+            }
+        }
+        // Büyük sıçrama (f32 farkı yetersiz): FLOAT tam değere kaçar
+        val jump = listOf(PointDto(0.0, 0.0, "A"), PointDto(1.0e9 + 0.123456, -7.654321e8, "A"))
+        val back = CadBinary.unpack(CadBinary.pack(jump, mode = CoordMode.FLOAT, quantum = 1e-6))
+        assertEquals(jump, back)
+    }
+
+    @Test
+    fun version1PayloadsStillRead() {
+        for (compress in listOf(true, false)) {
+            val v1 = CadFixtures.packV1(samples, compress)
+            assertEquals(samples, CadBinary.unpack(v1, compress))
+            // Akış okuyucusu GZIP başlığını kendisi tanır
+            val streamed = ArrayList<CadEntityDto>()
+            assertEquals(samples.size, CadBinary.read(ByteArrayInputStream(v1)) { streamed += it })
+            assertEquals(samples, streamed)
+        }
+    }
+
+    @Test
+    fun streamsWithoutMaterialisingTheList() {
+        val out = ByteArrayOutputStream()
+        val written = CadBinary.write(out, generateSequence(0) { it + 1 }.take(50_000).map { i ->
+            PointDto(500_000.0 + i * 0.01, 4_400_000.0, "P")
+        }, mode = CoordMode.QUANTISED)
+        assertEquals(50_000, written)
+        var last: CadEntityDto? = null
+        assertEquals(50_000, CadBinary.read(ByteArrayInputStream(out.toByteArray())) { last = it })
+        assertEquals(500_000.0 + 49_999 * 0.01, (last as PointDto).x, 1e-6)
+    }
+
+    @Test
+    fun quantisedGzipIsLessThanHalfOfVersion1() {
+        val data = CadFixtures.surveyDrawing(40_000)
+        val v1 = CadFixtures.packV1(data, compress = true)
+        val v2 = CadBinary.pack(data, compress = true, mode = CoordMode.QUANTISED)
+        assertTrue("${v2.size} >= ${v1.size / 2}", v2.size < v1.size / 2)
+        for (mode in CoordMode.values()) assertEquals(data.size, CadBinary.unpack(CadBinary.pack(data, true, mode)).size)
+    }
+
+    private fun coords(d: CadEntityDto): List<Double> = when (d) {
+        is PointDto -> listOf(d.x, d.y)
+        is LineDto -> listOf(d.x1, d.y1, d.x2, d.y2)
+        is PolylineDto -> d.coords
+        is PolygonDto -> d.rings.flatten()
+        is CircleDto -> listOf(d.cx, d.cy, d.r)
+        is ArcDto -> listOf(d.cx, d.cy, d.r, d.startDeg, d.endDeg)
+        is TextDto -> listOf(d.x, d.y, d.h, d.rot)
+    }
+}
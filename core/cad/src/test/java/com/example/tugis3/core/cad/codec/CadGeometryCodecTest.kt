@@ -0,0 +1,72 @@
+package com.example.tugis3.core.cad.codec
+
+import com.example.tugis3.core.cad.model.*
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import kotlin.math.abs
+
+class CadGeometryCodecTest {
+
+    private val block = CadBlock("RÖGAR|1", Vec2(1.0, 1.0), listOf(CadCircle(Vec2(1.0, 1.0), 0.5, layer = "0")))
+
+    private val samples: List<CadEntity> = listOf(
+        CadPoint(Vec2(500_123.4567, 4_400_987.6543), layer = "P"),
+        CadLine(Vec2(0.1, 0.2), Vec2(-1e-9, 1e15), layer = "L", colorIndex = 2),
+        CadPolyline(listOf(Vec2(1.0, 2.0), Vec2(3.0, 4.0), Vec2(5.0, 6.5)), isClosed = true, layer = "PL"),
+        CadPolygon(listOf(listOf(Vec2(0.0, 0.0), Vec2(10.0, 0.0), Vec2(10.0, 10.0)), listOf(Vec2(2.0, 2.0), Vec2(3.0, 2.0), Vec2(3.0, 3.0))), layer = "PG"),
+        CadCircle(Vec2(5.0, 5.0), 2.0, layer = "C"),
+        CadArc(Vec2(1.0, 1.0), 3.0, 350.0, 10.0, layer = "A"),
+        CadText(Vec2(1.0, 2.0), 2.5, "Köşe | Noktası", rotationDeg = 45.0, layer = "T"),
+        CadInsert(block, Vec2(100.0, 200.0), 2.0, -2.0, 30.0, layer = "I", colorIndex = 4)
+    )
+
+    @Test
+    fun roundTripIsExact() {
+        for (e in samples) {
+            val (type, bytes) = CadGeometryCodec.encode(e)
+            assertEquals(CadCodec.encode(e).first, type)
+            val back = CadGeometryCodec.decode(bytes, e.layer, e.colorIndex) { if (it == block.name) block else null }
+            assertEquals(e, back)
+        }
+        // Bilinmeyen bloğa başvuran yerleşim atlanır
+        assertNull(CadGeometryCodec.decode(CadGeometryCodec.encode(samples.last()).second, "I", null))
+    }
+
+    @Test
+    fun quantisedPolylineStaysWithinHalfQuantumAndIsSmaller() {
+        val pts = List(1_000) { i -> Vec2(500_000.0 + i * 0.731 + 1e-5 * (i % 7), 4_400_000.0 + i * 0.377) }
+        val pl = CadPolyline(pts, layer = "Q")
+        val exact = CadGeometryCodec.encode(pl).second
+        val q = CadGeometryCodec.encode(pl, quantum = 1e-4).second
+        val back = CadGeometryCodec.decode(q, "Q", null) as CadPolyline
+        assertEquals(pts.size, back.points.size)
+        pts.zip(back.points).forEach { (a, b) -> assertTrue(abs(a.x - b.x) <= 0.5e-4 + 1e-9 && abs(a.y - b.y) <= 0.5e-4 + 1e-9) }
+        assertTrue("${q.size} >= ${exact.size / 3}", q.size < exact.size / 3)
+    }
+
+    @Test
+    fun corruptDataDecodesToNull() {
+        val bytes = CadGeometryCodec.encode(samples[2]).second
+        assertNull(CadGeometryCodec.decode(bytes.copyOf(bytes.size - 3), "PL", null))
+        assertNull(CadGeometryCodec.decode(byteArrayOf(0x0F), "X", null))
+        assertNull(CadGeometryCodec.decode(ByteArray(0), "X", null))
+        // Sayım kalan veriden büyük: ayırma yapılmadan reddedilir
+        assertNull(CadGeometryCodec.decode(byteArrayOf(3, 0xFF.toByte(), 0xFF.toByte(), 0xFF.toByte(), 0x7F), "X", null))
+    }
+
+    @Test
+    fun textRowsConvertToSameGeometry() {
+        for (e in samples) {
+            val (type, text) = CadCodec.encode(e)
+            val converted = CadGeometryCodec.fromText(type, text)
+            val expected = if (e is CadInsert) {
+                CadGeometryCodec.encode(e.copy(block = CadBlock(e.block.name, Vec2(0.0, 0.0), emptyList()))).second
+            } else CadGeometryCodec.encode(e).second
+            assertArrayEquals(e.toString(), expected, converted)
+        }
+        assertNull(CadGeometryCodec.fromText("L", "1|2"))
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.tugis3.core.cad.dto
+
+import com.example.tugis3.core.cad.CadFixtures
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.io.StringReader
+import java.io.StringWriter
+
+class CadJsonTest {
+
+    private val samples: List<CadEntityDto> = listOf(
+        PointDto(500_123.4567, 4_400_987.6543, "NOKTA"),
+        LineDto(0.1, 0.2, -1e-9, 1e15, "L"),
+        PolylineDto(true, listOf(1.0, 2.0, 3.0, 4.0, 5.0, 6.5), "PL"),
+        PolygonDto(listOf(listOf(0.0, 0.0, 10.0, 0.0, 10.0, 10.0), listOf(2.0, 2.0, 3.0, 2.0, 3.0, 3.0)), "PG"),
+        PolygonDto(listOf(emptyList()), "BOŞ"),
+        CircleDto(5.0, 5.0, 2.0, "C"),
+        ArcDto(1.0, 1.0, 3.0, 350.0, 10.0, "A"),
+        TextDto(1.0, 2.0, 2.5, "Köşe \"7\" \\ yol\nsatır\t\u0001", 45.0, "METİN"),
+        TextDto(1.0, 2.0, 2.5, "", 0.0, "T")
+    )
+
+    @Test
+    fun roundTripWithAndWithoutWrapper() {
+        assertEquals(samples, CadJson.parse(CadJson.serialize(samples)))
+        val wrapped = CadJson.serialize(samples, includeVersionWrapper = true)
+        assertTrue(wrapped.startsWith("{\"v\":$CAD_DTO_VERSION,\"items\":["))
+        assertEquals(samples, CadJson.parse(wrapped))
+        assertEquals(emptyList<CadEntityDto>(), CadJson.parse(CadJson.serialize(emptyList())))
+        assertEquals(emptyList<CadEntityDto>(), CadJson.parse("  "))
+    }
+
+    @Test
+    fun readerIgnoresKeyOrderWhitespaceAndUnknownKeys() {
+        val json = """
+            { "meta": {"a": [1, {"b": null}], "s": "x]}"}, "items" : [
+              {"x2": 3, "extra": [true, false, null], "t": "L", "x1": 1, "y1": 2, "y2": 4},
+              {"layer": "Kö\/y", "t": "PT", "x": "7.5", "y": null},
+              {"t": "PG", "rings": []}
+            ], "v": 1 }
+        """.trimIndent()
+        assertEquals(
+            listOf(LineDto(1.0, 2.0, 3.0, 4.0, "default"), PointDto(7.5, 0.0, "Kö/y"),PolygonDto(listOf(emptyList()), "default")),
+            CadJson.parse(json)
+        )
+    }
+
+    @Test
+    fun malformedDocumentsFail() {
+        for (bad in listOf("[{\"t\":\"L\"", "[{\"x\":1}]", "[{\"t\":\"Q\"}]", "[{\"t\":\"PT\",\"x\":1.2.3}]", "[1 2]")) {
+            val r = runCatching { CadJson.parse(bad) }
+            assertTrue(bad, r.exceptionOrNull() is IllegalArgumentException)
+        }
+    }
+
+    @Test
+    fun streamedWriteAndReadMatchListApi() {
+        val data = CadFixtures.mixedDrawing(10_000)
+        val writer = StringWriter()
+        assertEquals(data.size, CadJson.write(writer, data.asSequence(), includeVersionWrapper = true))
+        val json = writer.toString()
+        assertEquals(CadJson.serialize(data, includeVersionWrapper = true), json)
+
+        val read = ArrayList<CadEntityDto>()
+        assertEquals(data.size, CadJson.read(StringReader(json)) { read += it })
+        assertEquals(data, read)
+        assertEquals(data, CadJson.parse(json))
+    }
+}
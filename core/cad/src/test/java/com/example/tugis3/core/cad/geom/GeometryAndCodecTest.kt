@@ -168,4 +168,41 @@ class GeometryAndCodecTest {
         val linePairs = Regex("\\[[-0-9]").findAll(lineCoords).count()
         assertEquals("Arc beklenen nokta sayısı", 4, linePairs)
     }
+
+    @Test
+    fun testInsertCodecSharesBlockAndExplodes() {
+        val inner = CadBlock("KARE", Vec2(0.0, 0.0), listOf(
+            CadPolyline(listOf(Vec2(0.0, 0.0), Vec2(1.0, 0.0), Vec2(1.0, 1.0)), layer = "0")
+        ))
+        val outer = CadBlock("SEM|BOL", Vec2(0.0, 0.0), listOf(
+            CadArc(Vec2(0.0, 0.0), 1.0, 0.0, 90.0, layer = "0", colorIndex = 0),
+            CadText(Vec2(0.0, 0.0), 1.0, "a|b", layer = "YAZI"),
+            CadInsert(inner, Vec2(5.0, 0.0), layer = "0")
+        ))
+        val ins = CadInsert(outer, Vec2(10.0, 10.0), scaleX = -1.0, scaleY = 1.0, layer = "L1", colorIndex = 3)
+
+        val rows = CadCodec.referencedBlocks(outer).map { CadCodec.encodeBlock(it).second }
+        assertEquals(2, rows.size)
+        val blocks = CadCodec.decodeBlocks(rows.reversed())
+        val enc = CadCodec.encode(ins)
+        assertEquals("I", enc.first)
+        val a = CadCodec.decode(enc.first, enc.second, "L1", 3, blocks::get) as CadInsert
+        val b = CadCodec.decode(enc.first, enc.second, "L1", 3, blocks::get) as CadInsert
+        assertSame(a.block, b.block)
+        assertEquals(ins, a)
+        assertNull(CadCodec.decode("I", enc.second, "L1", 3))
+
+        // X aynalaması: 0..90° yay 90..180°'ye gider, yön korunur
+        val parts = ins.explode()
+        val arc = parts[0] as CadArc
+        approx(90.0, arc.startAngleDeg, 1e-9)
+        approx(180.0, arc.endAngleDeg, 1e-9)
+        assertEquals(3, arc.colorIndex)
+        assertEquals("L1", arc.layer)
+        val pl = parts[2] as CadPolyline
+        assertEquals(Vec2(5.0, 10.0), pl.points[0])
+        assertEquals(Vec2(4.0, 10.0), pl.points[1])
+        approx(GeometryUtils.run { parts.sumOf { it.lengthOrPerimeter() } }, GeometryUtils.run { ins.lengthOrPerimeter() })
+        approx(ins.bounds().minX, 4.0)
+    }
 }
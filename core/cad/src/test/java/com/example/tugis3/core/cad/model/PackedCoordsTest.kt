@@ -0,0 +1,66 @@
+package com.example.tugis3.core.cad.model
+
+import com.example.tugis3.core.cad.geom.GeometryUtils
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotSame
+import org.junit.Assert.assertSame
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class PackedCoordsTest {
+
+    private val pts = listOf(Vec2(1.0, 2.0), Vec2(-3.0, 4.0), Vec2(5.0, -6.0), Vec2(7.0, 8.0))
+
+    @Test
+    fun behavesLikeListOfVec2() {
+        val packed = PackedCoords.of(pts)
+        assertEquals(pts, packed)
+        assertEquals(packed, pts)
+        assertEquals(pts.hashCode(), packed.hashCode())
+        assertEquals(pts[2], packed[2])
+        assertEquals(pts.last(), packed.last())
+        assertSame(packed, PackedCoords.of(packed))
+        assertEquals(BoundingBox(-3.0, -6.0, 7.0, 8.0), packed.bounds)
+        assertEquals(BoundingBox.ofPoints(pts), BoundingBox.ofPoints(packed))
+    }
+
+    @Test
+    fun viewsShareStorageAndKeepOwnBounds() {
+        val packed = PackedCoords.wrap(doubleArrayOf(0.0, 0.0, 10.0, 1.0, 20.0, -5.0, 30.0, 2.0))
+        val mid = packed.view(1, 3)
+        assertEquals(listOf(Vec2(10.0, 1.0), Vec2(20.0, -5.0)), mid)
+        assertEquals(BoundingBox(10.0, -5.0, 20.0, 1.0), mid.bounds)
+        assertEquals(mid, packed.subList(1, 3))
+        assertSame(packed, packed.view(0, 4))
+        assertEquals(listOf(Vec2(20.0, -5.0)), mid.view(1, 2))
+        assertTrue(packed.view(2, 2).isEmpty())
+        val copy = DoubleArray(4)
+        mid.copyInto(copy)
+        assertEquals(listOf(10.0, 1.0, 20.0, -5.0), copy.toList())
+        assertEquals(copy.toList(), mid.toDoubleArray().toList())
+    }
+
+    @Test
+    fun entitiesStorePackedCoordinates() {
+        val pl = CadPolyline(pts, layer = "A")
+        assertEquals(pl, CadPolyline(PackedCoords.of(pts), layer = "A"))
+        assertEquals(pl.hashCode(), CadPolyline(pts.toList(), layer = "A").hashCode())
+        val moved = pl.copy(points = pts.map { Vec2(it.x + 1, it.y) })
+        assertNotSame(pl.points, moved.points)
+        assertEquals(BoundingBox(-2.0, -6.0, 8.0, 8.0), moved.bounds())
+
+        val pg = CadPolygon(listOf(pts, pts.take(3)), layer = "B")
+        assertEquals(pg, pg.copy())
+        assertEquals(GeometryUtils.polygonAreaSigned(pts.toList()), GeometryUtils.polygonAreaSigned(pg.rings[0]), 1e-12)
+        assertEquals(GeometryUtils.polylineLength(pts.toList()), GeometryUtils.polylineLength(pl.points), 1e-12)
+    }
+
+    @Test
+    fun packedLengthAndAreaAgainstVec2List() {
+        val list = List(2_000) { i -> Vec2(500_000.0 + i * 0.731, 4_400_000.0 + (i % 50) * 0.377) }
+        val packed = PackedCoords.of(list)
+        assertEquals(GeometryUtils.polylineLength(list), GeometryUtils.polylineLength(packed), 1e-9)
+        assertEquals(GeometryUtils.polygonAreaSigned(list), GeometryUtils.polygonAreaSigned(packed), 1e-6)
+        assertEquals(BoundingBox.ofPoints(list), packed.bounds)
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.tugis3.core.cad.parse
+
+import com.example.tugis3.core.cad.model.CadInsert
+import com.example.tugis3.core.cad.model.CadPolyline
+import kotlinx.coroutines.flow.toList
+import kotlinx.coroutines.runBlocking
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.io.File
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.util.Locale
+
+class DxfParallelParseTest {
+
+    @Test
+    fun parallelResultMatchesSequentialInFileOrder() {
+        val f = File.createTempFile("par", ".dxf")
+        try {
+            f.writeText(mixedDxf(60_000))
+            assertTrue(f.length() > 4L * 1024 * 1024)
+            val serial = DxfParser().parse(f)
+            for (p in listOf(2, 3, 8)) assertEquals("parallelism=$p", serial, DxfParser().parseParallel(f, p))
+            val parallel = DxfParser().parseParallel(f, 4)
+            // Bloklar tek kez çözülür; tüm parçalardaki yerleşimler aynı bloğu paylaşır
+            val inserts = parallel.filterIsInstance<CadInsert>()
+            assertEquals(60_000 / 10, inserts.size)
+            assertTrue(inserts.all { it.block === inserts[0].block })
+            assertEquals((0 until 60_000).count { it % 10 != 0 && it % 7 == 0 }, parallel.count { it is CadPolyline && it.layer == "ESKI" })
+        } finally {
+            f.delete()
+        }
+    }
+
+    @Test
+    fun splitterBoundariesStartAtEntityCodes() {
+        val text = mixedDxf(5_000)
+        val buf = ByteBuffer.wrap(text.toByteArray())
+        val from = text.indexOf("0\r\nINSERT")
+        val bounds = DxfSplitter.boundaries(buf, from, text.length, 16)
+        assertTrue(bounds.size > 2)
+        assertEquals(from, bounds.first())
+        assertEquals(text.length, bounds.last())
+        for (b in bounds.drop(1).dropLast(1)) {
+            val head = text.substring(b, b + 16)
+            assertTrue(head, head.startsWith("0\r\n"))
+            assertTrue(head, !head.startsWith("0\r\nVERTEX") && !head.startsWith("0\r\nSEQEND"))
+        }
+        // "0" metni ve "0" katmanı sınır sayılmaz: değerden sonra hep sayısal kod gelir
+        val tricky = "1\n0\n8\n0\n10\n1\n0\nLINE\n"
+        assertEquals(tricky.indexOf("0\nLINE"), DxfSplitter.nextEntityStart(ByteBuffer.wrap(tricky.toByteArray()), 1, tricky.length))
+    }
+
+    @Test
+    fun sectionlessFileFallsBackToSequentialResult() {
+        val f = File.createTempFile("par", ".dxf")
+        try {
+            f.writeText(mixedDxf(40_000).substringAfter("ENTITIES\r\n"))
+            assertEquals(DxfParser().parse(f), DxfParser().parseParallel(f, 4))
+        } finally {
+            f.delete()
+        }
+    }
+
+    @Test
+    fun streamedPartsMatchSequentialInFileOrder() {
+        val f = File.createTempFile("par", ".dxf")
+        try {
+            f.writeText(mixedDxf(60_000))
+            val serial = DxfParser().parse(f)
+            val batches = FileChannel.open(f.toPath()).use { ch ->
+                runBlocking { DxfParser().streamParallel(ch, parallelism = 4, batchSize = 1_000).toList() }
+            }
+            assertEquals(serial, batches.flatMap { it.entities })
+            assertTrue(batches.dropLast(1).all { !it.done && it.entities.size <= 1_000 })
+            assertTrue(batches.last().done)
+            assertEquals(serial.size.toLong(), batches.last().entityCount)
+            // İlerleme parça sınırlarıyla artar, dosya boyunda biter
+            assertTrue(batches.zipWithNext().all { (a, b) -> a.bytesRead <= b.bytesRead })
+            assertEquals(1f, batches.last().fraction, 0f)
+            assertTrue(batches.first().bytesRead < f.length())
+        } finally {
+            f.delete()
+        }
+    }
+
+    /**
+     * LINE, TEXT ("0" metni ve "0" katmanı: sınır taramasını yanıltmamalı), her 7'de bir eski POLYLINE,
+     * her 10'da bir INSERT; BLOCKS bölümü ENTITIES'ten önce.
+     */
+    private fun mixedDxf(n: Int): String = buildString(n * 120) {
+        fun g(code: Int, v: Any) { append(code).append("\r\n").append(v).append("\r\n") }
+        g(0, "SECTION"); g(2, "HEADER"); g(9, "\$ACADVER"); g(1, "AC1015"); g(0, "ENDSEC")
+        g(0, "SECTION"); g(2, "BLOCKS")
+        g(0, "BLOCK"); g(2, "ROGAR"); g(10, 0.0); g(20, 0.0)
+        g(0, "CIRCLE"); g(8, "0"); g(10, 0.0); g(20, 0.0); g(40, 0.5)
+        g(0, "ENDBLK"); g(0, "ENDSEC")
+        g(0, "SECTION"); g(2, "ENTITIES")
+        for (i in 0 until n) {
+            val e = 500_000.0 + i * 0.731
+            val nn = 4_400_000.0 + i * 0.377
+            when {
+                i % 10 == 0 -> { g(0, "INSERT"); g(8, "ALTYAPI"); g(2, "ROGAR"); g(10, e); g(20, nn) }
+                i % 7 == 0 -> {
+                    g(0, "POLYLINE"); g(8, "ESKI"); g(66, 1); g(70, 0)
+                    for (k in 0 until 3) { g(0, "VERTEX"); g(8, "ESKI"); g(10, e + k); g(20, nn) }
+                    g(0, "SEQEND")
+                }
+                i % 3 == 0 -> { g(0, "TEXT"); g(8, "0"); g(10, e); g(20, nn); g(40, 2.5); g(1, "0") }
+                else -> {
+                    append(String.format(Locale.US, "0\r\nLINE\r\n8\r\nPARSEL\r\n10\r\n%.4f\r\n20\r\n%.4f\r\n11\r\n%.4f\r\n21\r\n%.4f\r\n", e, nn, e + 5, nn + 5))
+                }
+            }
+        }
+        g(0, "ENDSEC")
+        g(0, "SECTION"); g(2, "OBJECTS"); g(0, "DICTIONARY"); g(5, "C"); g(0, "ENDSEC")
+        g(0, "EOF")
+    }
+}
@@ -1,5 +1,14 @@
 package com.example.tugis3.core.cad.parse
 
+import com.example.tugis3.core.cad.model.CadCircle
+import com.example.tugis3.core.cad.model.CadInsert
+import com.example.tugis3.core.cad.model.CadLine
+import com.example.tugis3.core.cad.model.CadPolyline
+import com.example.tugis3.core.cad.model.CadText
+import com.example.tugis3.core.cad.model.Vec2
+import kotlinx.coroutines.flow.take
+import kotlinx.coroutines.flow.toList
+import kotlinx.coroutines.runBlocking
 import org.junit.Test
 import org.junit.Assert.*
 import java.io.ByteArrayInputStream
@@ -70,4 +79,200 @@ EOF
         val entities = parser.parse(ByteArrayInputStream(sample.toByteArray()))
         assertEquals(4, entities.size)
     }
+
+    @Test
+    fun headerSectionIsSkippedAndEntitiesAfterItParsed() {
+        val sample = """
+0
+SECTION
+2
+HEADER
+9
+${'$'}ACADVER
+1
+AC1015
+0
+ENDSEC
+0
+SECTION
+2
+TABLES
+0
+LINE
+10
+99.0
+20
+99.0
+11
+98.0
+21
+98.0
+0
+ENDSEC
+0
+SECTION
+2
+ENTITIES
+0
+LINE
+8
+YOL
+62
+3
+10
+1.0
+20
+2.0
+11
+3.0
+21
+4.0
+0
+INSERT
+2
+BLK
+10
+0.0
+20
+0.0
+0
+LWPOLYLINE
+10
+1.0
+20
+1.0
+0
+TEXT
+8
+YAZI
+10
+5.0
+20
+6.0
+40
+2.5
+1
+Köşe Noktası
+0
+ENDSEC
+0
+EOF
+""".trimIndent()
+        val entities = DxfParser().parse(ByteArrayInputStream(sample.toByteArray()))
+        // TABLES içindeki LINE, desteklenmeyen INSERT ve tek köşeli LWPOLYLINE atlanır
+        assertEquals(2, entities.size)
+        val line = entities[0] as CadLine
+        assertEquals("YOL", line.layer)
+        assertEquals(3, line.colorIndex)
+        assertEquals(4.0, line.end.y, 0.0)
+        val text = entities[1] as CadText
+        assertEquals("Köşe Noktası", text.text)
+        assertEquals(2.5, text.height, 0.0)
+    }
+
+    @Test
+    fun blocksAreSharedAcrossInsertsAndOldPolylinesParsed() {
+        val sb = StringBuilder()
+        fun g(code: Int, v: Any) { sb.append(code).append('\n').append(v).append('\n') }
+        g(0, "SECTION"); g(2, "BLOCKS")
+        // Rögar sembolü: taban (1,1), daire + çapraz çizgi; iç içe ÇERÇEVE bloğu sonra tanımlanıyor
+        g(0, "BLOCK"); g(8, "0"); g(2, "ROGAR"); g(70, 0); g(10, 1.0); g(20, 1.0)
+        g(0, "CIRCLE"); g(8, "0"); g(10, 1.0); g(20, 1.0); g(40, 0.5)
+        g(0, "LINE"); g(8, "SEMBOL"); g(62, 1); g(10, 0.5); g(20, 1.0); g(11, 1.5); g(21, 1.0)
+        g(0, "INSERT"); g(2, "cerceve"); g(10, 1.0); g(20, 1.0)
+        g(0, "ENDBLK")
+        g(0, "BLOCK"); g(2, "CERCEVE"); g(10, 0.0); g(20, 0.0)
+        g(0, "LWPOLYLINE"); g(70, 1); g(10, -1.0); g(20, -1.0); g(10, 1.0); g(20, -1.0); g(10, 1.0); g(20, 1.0)
+        g(0, "ENDBLK")
+        g(0, "ENDSEC")
+        g(0, "SECTION"); g(2, "ENTITIES")
+        for (i in 0 until 1_000) {
+            g(0, "INSERT"); g(8, "ALTYAPI"); g(62, 4); g(2, "ROGAR"); g(10, 100.0 + i); g(20, 200.0); g(41, 2.0); g(42, 2.0); g(50, 90.0)
+        }
+        g(0, "INSERT"); g(2, "YOK"); g(10, 0.0); g(20, 0.0)
+        g(0, "POLYLINE"); g(8, "ESKI"); g(66, 1); g(70, 1)
+        g(0, "VERTEX"); g(10, 0.0); g(20, 0.0)
+        g(0, "VERTEX"); g(10, 4.0); g(20, 0.0)
+        g(0, "VERTEX"); g(70, 16); g(10, 9.0); g(20, 9.0)
+        g(0, "VERTEX"); g(10, 4.0); g(20, 3.0)
+        g(0, "SEQEND")
+        g(0, "ENDSEC"); g(0, "EOF")
+
+        val entities = DxfParser().parse(ByteArrayInputStream(sb.toString().toByteArray()))
+        // Bilinmeyen bloğa başvuran INSERT atlanır
+        assertEquals(1_001, entities.size)
+        val inserts = entities.filterIsInstance<CadInsert>()
+        assertEquals(1_000, inserts.size)
+        assertTrue(inserts.all { it.block === inserts[0].block })
+        val block = inserts[0].block
+        assertEquals(3, block.entities.size)
+        val nested = block.entities[2] as CadInsert
+        assertEquals("CERCEVE", nested.block.name)
+
+        // Taban (1,1) -> (100,200); 90° dönüş + 2x ölçek: yerel (1.5,1) -> dünya (100,201)
+        val first = inserts[0]
+        assertEquals("ALTYAPI", first.layer)
+        val p = first.toWorld(Vec2(1.5, 1.0))
+        assertEquals(100.0, p.x, 1e-9)
+        assertEquals(201.0, p.y, 1e-9)
+        val q = first.toLocal(p.x, p.y)
+        assertEquals(1.5, q.x, 1e-9)
+        assertEquals(1.0, q.y, 1e-9)
+
+        val exploded = first.explode()
+        assertEquals(3, exploded.size)
+        val circle = exploded[0] as CadCircle
+        assertEquals(1.0, circle.radius, 1e-12)
+        assertEquals("ALTYAPI", circle.layer) // 0 katmanı devralınır
+        assertEquals(4, circle.colorIndex)
+        val line = exploded[1] as CadLine
+        assertEquals("SEMBOL", line.layer)
+        assertEquals(1, line.colorIndex)
+        val frame = exploded[2] as CadPolyline
+        assertEquals(-2.0, frame.bounds().minX - 100.0, 1e-9)
+
+        val old = entities.last() as CadPolyline
+        assertEquals("ESKI", old.layer)
+        assertTrue(old.isClosed)
+        assertEquals(listOf(Vec2(0.0, 0.0), Vec2(4.0, 0.0), Vec2(4.0, 3.0)), old.points)
+    }
+
+    @Test
+    fun streamEmitsBatchesWithProgressAndFirstGeometryEarly() = runBlocking {
+        val bytes = lineDxf(50_000)
+        val all = DxfParser().parse(ByteArrayInputStream(bytes))
+        val t0 = System.nanoTime()
+        val batches = DxfParser().stream(ByteArrayInputStream(bytes), bytes.size.toLong(), batchSize = 1_000).toList()
+        val totalMs = (System.nanoTime() - t0) / 1e6
+        // İlk parti küçük, sonrakiler batchSize'ı aşmaz; sıra korunur
+        assertTrue(batches.first().entities.size in 1..64)
+        assertTrue(batches.all { it.entities.size <= 1_000 })
+        assertEquals(all, batches.flatMap { it.entities })
+        val last = batches.last()
+        assertTrue(last.done)
+        assertEquals(50_000L, last.entityCount)
+        assertEquals(1f, last.fraction, 0f)
+        assertTrue(batches.zipWithNext().all { (a, b) -> b.bytesRead >= a.bytesRead && b.entityCount > a.entityCount || b.done })
+        assertTrue(last.firstGeometryMs in 0..totalMs.toLong())
+    }
+
+    @Test
+    fun cancelledStreamStopsReading() = runBlocking {
+        val bytes = lineDxf(200_000)
+        var read = 0L
+        val counting = object : java.io.FilterInputStream(ByteArrayInputStream(bytes)) {
+            override fun read(b: ByteArray, off: Int, len: Int): Int = super.read(b, off, len).also { if (it > 0) read += it }
+        }
+        val first = DxfParser().stream(counting, bytes.size.toLong(), batchSize = 500).take(3).toList()
+        assertEquals(3, first.size)
+        assertFalse(first.last().done)
+        assertTrue(first.last().fraction < 0.1f)
+        assertTrue(read < bytes.size / 10)
+    }
+
+    private fun lineDxf(n: Int): ByteArray = buildString(n * 80) {
+        append("0\nSECTION\n2\nENTITIES\n")
+        for (i in 0 until n) append("0\nLINE\n8\nL\n10\n").append(i).append("\n20\n0\n11\n").append(i).append("\n21\n1\n")
+        append("0\nENDSEC\n0\nEOF\n")
+    }.toByteArray()
 }
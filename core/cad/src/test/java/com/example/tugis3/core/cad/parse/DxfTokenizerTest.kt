@@ -0,0 +1,94 @@
+package com.example.tugis3.core.cad.parse
+
+import com.example.tugis3.core.cad.model.CadPolyline
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.io.ByteArrayInputStream
+import java.io.File
+import java.util.Locale
+
+class DxfTokenizerTest {
+
+    private fun tokens(text: String) = DxfTokenizer.of(ByteArrayInputStream(text.toByteArray()))
+
+    @Test
+    fun crlfAndPaddingAreTrimmed() {
+        val t = tokens("  0\r\nLINE  \r\n  8\r\n\tKatman 1\r\n 10\r\n-12.5e1\r\n")
+        assertTrue(t.next()); assertEquals(0, t.code); assertTrue(t.valueIs("line"))
+        assertTrue(t.next()); assertEquals(8, t.code); assertEquals("Katman 1", t.value.toString())
+        assertTrue(t.next()); assertEquals(10, t.code); assertEquals(-125.0, t.double(), 0.0)
+        assertFalse(t.next())
+        assertEquals(3L, t.pairCount)
+    }
+
+    @Test
+    fun fastDoublePathMatchesJdk() {
+        val samples = listOf(
+            "0", "-0.0", "1", "+3.25", ".5", "5.", "4512345.678901", "-0.000000123", "1e22", "1.5E-3",
+            "123456789012.345678", "0.1", "2.2250738585072014E-308", "1e300", "9007199254740993", "abc", "1e", "-"
+        )
+        for (s in samples) {
+            val b = s.toByteArray()
+            val fast = DxfTokenizer.parseDouble(b, b.size)
+            val jdk = s.toDoubleOrNull()
+            if (fast != null) assertEquals(s, jdk!!, fast, 0.0)
+            val t = tokens("10\n$s\n")
+            assertTrue(t.next())
+            assertEquals(s, jdk ?: Double.NaN, t.double(), 0.0)
+        }
+        // Rastgele koordinatlar JDK ile bit düzeyinde aynı olmalı
+        val rnd = java.util.Random(7)
+        repeat(20_000) {
+            val s = String.format(Locale.US, "%.${rnd.nextInt(10)}f", (rnd.nextDouble() - 0.5) * 1e7)
+            val b = s.toByteArray()
+            assertEquals(s, s.toDouble(), DxfTokenizer.parseDouble(b, b.size) ?: s.toDouble(), 0.0)
+        }
+    }
+
+    @Test
+    fun intValueAndLongLines() {
+        val long = "x".repeat(5_000)
+        val t = tokens("62\n 256\n1\n$long\n70\nabc\n")
+        assertTrue(t.next()); assertEquals(256, t.int())
+        assertTrue(t.next()); assertEquals(5_000, t.value.length)
+        assertTrue(t.next()); assertEquals(-1, t.int(-1))
+    }
+
+    @Test
+    fun mappedFileMatchesStream() {
+        val f = File.createTempFile("tok", ".dxf")
+        try {
+            f.writeText(syntheticDxf(2_000))
+            val fromFile = DxfParser().parse(f)
+            val fromStream = DxfParser().parse(f.inputStream())
+            assertEquals(4_000, fromFile.size)
+            assertEquals(fromStream, fromFile)
+            assertEquals(4, (fromFile[1] as CadPolyline).points.size)
+        } finally {
+            f.delete()
+        }
+    }
+
+    @Test
+    fun largeDrawingParsesEveryEntity() {
+        val entities = DxfParser().parse(ByteArrayInputStream(syntheticDxf(20_000).toByteArray()))
+        assertEquals(40_000, entities.size)
+        assertEquals("BINA", entities.last().layer)
+    }
+
+    /** [n] LINE + [n] dört köşeli LWPOLYLINE, HEADER bölümüyle. */
+    private fun syntheticDxf(n: Int): String = buildString(n * 260) {
+        append("0\r\nSECTION\r\n2\r\nHEADER\r\n9\r\n\$INSUNITS\r\n70\r\n6\r\n0\r\nENDSEC\r\n")
+        append("0\r\nSECTION\r\n2\r\nENTITIES\r\n")
+        for (i in 0 until n) {
+            val e = 500_000.0 + i * 0.731
+            val nn = 4_400_000.0 + i * 0.377
+            append(String.format(Locale.US, "0\r\nLINE\r\n8\r\nPARSEL\r\n10\r\n%.4f\r\n20\r\n%.4f\r\n11\r\n%.4f\r\n21\r\n%.4f\r\n", e, nn, e + 5, nn + 5))
+            append("0\r\nLWPOLYLINE\r\n8\r\nBINA\r\n90\r\n4\r\n70\r\n1\r\n")
+            for (k in 0 until 4) append(String.format(Locale.US, " 10\r\n%.3f\r\n 20\r\n%.3f\r\n", e + k, nn + (k and 1)))
+        }
+        append("0\r\nENDSEC\r\n0\r\nEOF\r\n")
+    }
+}
@@ -42,6 +42,11 @@ android {
     buildFeatures {
         buildConfig = true // BuildConfig referansı (DataModule) için gerekli
     }
+
+    // MigrationTestHelper dışa aktarılan şemaları asset olarak okur
+    sourceSets {
+        getByName("androidTest").assets.srcDir("$projectDir/schemas")
+    }
 }
 
 dependencies {
@@ -5,16 +5,20 @@ import androidx.room.testing.MigrationTestHelper
 import androidx.sqlite.db.SupportSQLiteDatabase
 import androidx.test.ext.junit.runners.AndroidJUnit4
 import androidx.test.platform.app.InstrumentationRegistry
+import com.example.tugis3.core.cad.codec.CadGeometryCodec
 import org.junit.Rule
 import org.junit.Test
 import org.junit.runner.RunWith
 import java.io.IOException
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertEquals
 import org.junit.Assert.assertTrue
 
 /**
  * Güncel migration doğrulama testi.
  * Zincir: 5 -> 6 -> 7 -> 8 -> 9 -> 10 -> 11
  * v11: soft delete sütunları (deleted, deletedAt, index)
+ * v27 -> v32: projeksiyon / datum / NTv2 / düşey lokalizasyon sütunları ve CAD ikili geometri dönüşümü
  */
 @RunWith(AndroidJUnit4::class)
 class MigrationTest {
@@ -123,6 +127,50 @@ class MigrationTest {
         db.close()
     }
 
+    @Test
+    fun migrate27To32_convertsCadTextToBinary() {
+        val name = "migration-cad-binary.db"
+        helper.createDatabase(name, 27).apply {
+            execSQL("INSERT INTO projects (id,name,createdAt,isActive,utmNorthHemisphere) VALUES (1,'P',1,1,1)")
+            execSQL("INSERT INTO calibration_points (projectId,srcNorth,srcEast,dstNorth,dstEast,weight,include,createdAt,updatedAt) VALUES (1,1.0,2.0,3.0,4.0,1.0,1,1,1)")
+            val insert = "INSERT INTO cad_entities (id,projectId,layerId,type,dataEncoded,colorIndex,createdAt,updatedAt) VALUES (?,1,1,?,?,NULL,1,1)"
+            execSQL(insert, arrayOf<Any>(1, "L", "0.5|1.5|10.25|-3.0"))
+            execSQL(insert, arrayOf<Any>(2, "C", "5.0|5.0|2.0"))
+            execSQL(insert, arrayOf<Any>(3, "B", "BLK|0.0|0.0\nL\t0\t\t0.0|0.0|1.0|1.0"))
+            execSQL(insert, arrayOf<Any>(4, "L", "bozuk"))
+            close()
+        }
+
+        val db = helper.runMigrationsAndValidate(name, 32, true, *AppDatabaseMigrations.ALL)
+
+        db.query("SELECT id, type, dataEncoded, geometry FROM cad_entities ORDER BY id").use { c ->
+            assertTrue(c.moveToNext())
+            assertEquals("", c.getString(2))
+            assertArrayEquals(CadGeometryCodec.fromText("L", "0.5|1.5|10.25|-3.0"), c.getBlob(3))
+            assertTrue(c.moveToNext())
+            assertEquals("", c.getString(2))
+            assertArrayEquals(CadGeometryCodec.fromText("C", "5.0|5.0|2.0"), c.getBlob(3))
+            // Blok tanımı ve çözülemeyen kayıt metin olarak kalır
+            assertTrue(c.moveToNext())
+            assertEquals("B", c.getString(1))
+            assertEquals("BLK|0.0|0.0\nL\t0\t\t0.0|0.0|1.0|1.0", c.getString(2))
+            assertTrue(c.isNull(3))
+            assertTrue(c.moveToNext())
+            assertEquals("bozuk", c.getString(2))
+            assertTrue(c.isNull(3))
+        }
+        // Yeni proje ve kalibrasyon sütunları NULL ile eklenir
+        db.query("SELECT projAzimuthDeg, datumMode, datumGridPath, locVertOffset FROM projects WHERE id=1").use { c ->
+            assertTrue(c.moveToFirst())
+            assertTrue((0 until 4).all { c.isNull(it) })
+        }
+        db.query("SELECT srcHeight, dstHeight FROM calibration_points").use { c ->
+            assertTrue(c.moveToFirst())
+            assertTrue(c.isNull(0) && c.isNull(1))
+        }
+        db.close()
+    }
+
     @Test
     fun openFresh8_createsDb() {
         // Doğrudan 8 ile açma (taze kurulum senaryosu)
@@ -0,0 +1,82 @@
+package com.example.tugis3.data.repository
+
+import androidx.room.Room
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.platform.app.InstrumentationRegistry
+import com.example.tugis3.core.cad.model.CadBlock
+import com.example.tugis3.core.cad.model.CadCircle
+import com.example.tugis3.core.cad.model.CadInsert
+import com.example.tugis3.core.cad.model.CadLine
+import com.example.tugis3.core.cad.model.Point
+import com.example.tugis3.data.db.AppDatabase
+import kotlinx.coroutines.flow.first
+import kotlinx.coroutines.runBlocking
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Blok tanımları içerikle anahtarlı: iki içe aktarımda aynı adlı farklı bloklar birbirinin
+ * yerleşimlerini bozmaz, aynı tanım tekrar yazılmaz.
+ */
+@RunWith(AndroidJUnit4::class)
+class CadBlockStoreTest {
+
+    private lateinit var db: AppDatabase
+    private lateinit var repo: CadPersistenceRepository
+
+    private val origin = Point(0.0, 0.0)
+    private val manhole = CadBlock("ROGAR", origin, listOf(CadCircle(origin, 0.5, layer = "0")))
+    private val grate = CadBlock("ROGAR", origin, listOf(CadLine(Point(-0.4, 0.0), Point(0.4, 0.0), layer = "0")))
+
+    @Before
+    fun setUp() {
+        val context = InstrumentationRegistry.getInstrumentation().targetContext
+        db = Room.inMemoryDatabaseBuilder(context, AppDatabase::class.java).build()
+        repo = CadPersistenceRepository(db, db.cadLayerDao(), db.cadEntityDao())
+    }
+
+    @After
+    fun tearDown() = db.close()
+
+    private fun inserts(block: CadBlock, layer: String, n: Int) =
+        (0 until n).asSequence().map { CadInsert(block, Point(500_000.0 + it, 4_400_000.0), layer = layer) }
+
+    private fun blockRows() = runBlocking { db.cadEntityDao().entities(1L).first().count { it.type == "B" } }
+
+    @Test
+    fun sameNamedBlocksFromTwoImportsKeepTheirOwnGeometry() = runBlocking {
+        repo.addEntities(1L, inserts(manhole, "ALTYAPI", 3))
+        repo.addEntities(1L, inserts(grate, "IZGARA", 2))
+        repo.addEntity(1L, CadInsert(grate, Point(0.0, 0.0), layer = "IZGARA"))
+
+        val items = repo.observe(1L).first().map { it.entity as CadInsert }
+        val byLayer = items.groupBy { it.layer }
+        assertTrue(byLayer.getValue("ALTYAPI").all { it.block.entities.single() is CadCircle })
+        assertEquals(3, byLayer.getValue("IZGARA").size)
+        assertTrue(byLayer.getValue("IZGARA").all { it.block.entities.single() is CadLine })
+        assertEquals(2, blockRows())
+
+        // Aynı tanımın yeniden içe aktarımı mevcut kaydı kullanır
+        repo.addEntities(1L, inserts(manhole, "ALTYAPI", 1))
+        assertEquals(2, blockRows())
+        assertEquals(4, repo.observe(1L).first().count { (it.entity as CadInsert).block.entities.single() is CadCircle })
+    }
+
+    @Test
+    fun nestedBlockRenameIsFollowedByParent() = runBlocking {
+        val outer = { inner: CadBlock -> CadBlock("KAPAK", origin, listOf(CadInsert(inner, origin, layer = "0"))) }
+        repo.addEntities(1L, sequenceOf(CadInsert(outer(manhole), origin, layer = "A")))
+        repo.addEntities(1L, sequenceOf(CadInsert(outer(grate), origin, layer = "B")))
+
+        val byLayer = repo.observe(1L).first().associate { it.entity.layer to it.entity as CadInsert }
+        val nestedA = byLayer.getValue("A").block.entities.single() as CadInsert
+        val nestedB = byLayer.getValue("B").block.entities.single() as CadInsert
+        assertTrue(nestedA.block.entities.single() is CadCircle)
+        assertTrue(nestedB.block.entities.single() is CadLine)
+        assertEquals(4, blockRows())
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.tugis3.data.repository
+
+import android.util.Log
+import androidx.room.Room
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.platform.app.InstrumentationRegistry
+import com.example.tugis3.core.cad.model.CadEntity
+import com.example.tugis3.core.cad.model.CadLine
+import com.example.tugis3.core.cad.model.CadPolyline
+import com.example.tugis3.core.cad.model.Point
+import com.example.tugis3.data.db.AppDatabase
+import kotlinx.coroutines.flow.first
+import kotlinx.coroutines.runBlocking
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import java.util.Locale
+
+/**
+ * Tekli [CadPersistenceRepository.addEntity] döngüsü ile toplu [CadPersistenceRepository.addEntities]
+ * yolunun içe aktarma hızı (dosya tabanlı veritabanı: her otomatik commit gerçek bir journal yazımıdır).
+ * Süreler cihaz yüküne bağlı olduğundan yalnız loglanır; testler yazılan satırları doğrular.
+ */
+@RunWith(AndroidJUnit4::class)
+class CadBulkImportBenchmarkTest {
+
+    private val context = InstrumentationRegistry.getInstrumentation().targetContext
+    private lateinit var db: AppDatabase
+    private lateinit var repo: CadPersistenceRepository
+
+    @Before
+    fun setUp() {
+        context.deleteDatabase(DB_NAME)
+        db = Room.databaseBuilder(context, AppDatabase::class.java, DB_NAME).build()
+        repo = CadPersistenceRepository(db, db.cadLayerDao(), db.cadEntityDao())
+    }
+
+    @After
+    fun tearDown() {
+        db.close()
+        context.deleteDatabase(DB_NAME)
+    }
+
+    private fun entities(n: Int): Sequence<CadEntity> = (0 until n).asSequence().map { i ->
+        val e = 500_000.0 + i
+        if (i % 4 == 0) CadPolyline(List(6) { k -> Point(e + k, 4_400_000.0 + (k and 1)) }, layer = "BINA_${i % 8}")
+        else CadLine(Point(e, 4_400_000.0), Point(e + 5, 4_400_005.0), layer = "PARSEL_${i % 16}")
+    }
+
+    @Test
+    fun bulkAndPerEntityImportWriteSameRows() = runBlocking {
+        val n = 5_000
+        val t0 = System.nanoTime()
+        entities(n).forEach { repo.addEntity(1L, it) }
+        val single = (System.nanoTime() - t0) / 1e9
+
+        var lastProgress = 0
+        val t1 = System.nanoTime()
+        val written = repo.addEntities(2L, entities(n)) { lastProgress = it }
+        val bulk = (System.nanoTime() - t1) / 1e9
+
+        assertEquals(n, written)
+        assertEquals(n, lastProgress)
+        assertEquals(n, db.cadEntityDao().entities(1L).first().size)
+        assertEquals(n, db.cadEntityDao().entities(2L).first().size)
+        assertEquals(24, db.cadLayerDao().list(2L).size)
+        val msg = String.format(
+            Locale.US, "CAD import %d entity: tekli %.0f ms (%.0f/s), toplu %.0f ms (%.0f/s), %.1fx",
+            n, single * 1e3, n / single, bulk * 1e3, n / bulk, single / bulk
+        )
+        Log.i("CadBulkImport", msg)
+    }
+
+    @Test
+    fun failedBulkImportRollsBackEverything() = runBlocking {
+        val failing = entities(1_200).mapIndexed { i, e -> if (i == 1_100) error("ayrıştırma hatası") else e }
+        val result = runCatching { repo.addEntities(3L, failing, chunkSize = 500) }
+        assertTrue(result.isFailure)
+        // İlk iki parça yazılmıştı; işlem geri alındığından hiçbiri kalmamalı
+        assertEquals(0, db.cadEntityDao().entities(3L).first().size)
+        assertEquals(0, db.cadLayerDao().list(3L).size)
+    }
+
+    private companion object {
+        const val DB_NAME = "cad-bulk-bench.db"
+    }
+}
@@ -48,7 +48,7 @@ private val _calibRef = CalibrationPointEntity::class
         GisFeatureEntity::class,
         MeasurementLogEntity::class // yeni
     ),
-    version = 27, // 26 -> 27 measurement_logs tablosu
+    version = 32, // 31 -> 32 CAD ikili geometri sütunu
     exportSchema = true
 )
 abstract class AppDatabase : RoomDatabase() {
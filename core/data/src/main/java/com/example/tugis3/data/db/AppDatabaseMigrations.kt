@@ -354,6 +354,74 @@ object AppDatabaseMigrations {
         }
     }
 
+    // v27 -> v28 : Oblique Mercator parametreleri (azimut, ızgara açısı)
+    val MIGRATION_27_28 = object : Migration(27, 28) {
+        override fun migrate(db: SupportSQLiteDatabase) {
+            addColumnIfMissing(db, "projects", "projAzimuthDeg", "REAL")
+            addColumnIfMissing(db, "projects", "projGridAngleDeg", "REAL")
+        }
+    }
+
+    // v28 -> v29 : Datum dönüşüm parametreleri (7 parametre + mod)
+    val MIGRATION_28_29 = object : Migration(28, 29) {
+        override fun migrate(db: SupportSQLiteDatabase) {
+            addColumnIfMissing(db, "projects", "datumMode", "INTEGER")
+            listOf("datumDx", "datumDy", "datumDz", "datumRx", "datumRy", "datumRz", "datumScalePpm")
+                .forEach { addColumnIfMissing(db, "projects", it, "REAL") }
+        }
+    }
+
+    // v29 -> v30 : NTv2 ızgara dosyası yolu
+    val MIGRATION_29_30 = object : Migration(29, 30) {
+        override fun migrate(db: SupportSQLiteDatabase) {
+            addColumnIfMissing(db, "projects", "datumGridPath", "TEXT")
+        }
+    }
+
+    // v30 -> v31 : Düşey lokalizasyon (kalibrasyon yükseklikleri + eğik düzlem parametreleri)
+    val MIGRATION_30_31 = object : Migration(30, 31) {
+        override fun migrate(db: SupportSQLiteDatabase) {
+            addColumnIfMissing(db, "calibration_points", "srcHeight", "REAL")
+            addColumnIfMissing(db, "calibration_points", "dstHeight", "REAL")
+            listOf("locVertOffset", "locVertSlopeN", "locVertSlopeE", "locVertN0", "locVertE0")
+                .forEach { addColumnIfMissing(db, "projects", it, "REAL") }
+        }
+    }
+
+    // v31 -> v32 : cad_entities ikili geometri sütunu; mevcut metin kayıtları dönüştürülür ("B" blokları metin kalır)
+    val MIGRATION_31_32 = object : Migration(31, 32) {
+        override fun migrate(db: SupportSQLiteDatabase) {
+            addColumnIfMissing(db, "cad_entities", "geometry", "BLOB")
+            val update = db.compileStatement("UPDATE cad_entities SET geometry = ?, dataEncoded = '' WHERE id = ?")
+            db.query("SELECT id, type, dataEncoded FROM cad_entities WHERE type != 'B' AND geometry IS NULL").use { c ->
+                while (c.moveToNext()) {
+                    // Çözülemeyen kayıt metin olarak kalır; okuma yolu iki biçimi de destekler.
+                    // Canlı codec değil donmuş v32 kopyası: göç her sürümde aynı baytları yazmalı
+                    val blob = CadGeometryV32.fromText(c.getString(1), c.getString(2)) ?: continue
+                    update.bindBlob(1, blob)
+                    update.bindLong(2, c.getLong(0))
+                    update.executeUpdateDelete()
+                    update.clearBindings()
+                }
+            }
+            update.close()
+        }
+    }
+
+    /**
+     * Sütunu yalnız tabloda yoksa ekler (önceki bir sürümde eklenmiş olabilir). Başka hatalar
+     * (tablo yok, disk dolu) yutulmaz; göç başarısız olur.
+     */
+    private fun addColumnIfMissing(db: SupportSQLiteDatabase, table: String, column: String, type: String) {
+        val exists = db.query("PRAGMA table_info($table)").use { c ->
+            val nameIdx = c.getColumnIndexOrThrow("name")
+            var found = false
+            while (!found && c.moveToNext()) found = c.getString(nameIdx).equals(column, ignoreCase = true)
+            found
+        }
+        if (!exists) db.execSQL("ALTER TABLE $table ADD COLUMN $column $type")
+    }
+
     val ALL = arrayOf(
         MIGRATION_5_6,
         MIGRATION_6_7,
@@ -376,6 +444,11 @@ object AppDatabaseMigrations {
         MIGRATION_23_24,
         MIGRATION_24_25,
         MIGRATION_25_26,
-        MIGRATION_26_27 // yeni eklendi
+        MIGRATION_26_27,
+        MIGRATION_27_28,
+        MIGRATION_28_29,
+        MIGRATION_29_30,
+        MIGRATION_30_31,
+        MIGRATION_31_32 // yeni eklendi
     )
 }
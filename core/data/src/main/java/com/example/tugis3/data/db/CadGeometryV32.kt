@@ -0,0 +1,100 @@
+package com.example.tugis3.data.db
+
+import java.io.ByteArrayOutputStream
+
+/**
+ * v31 -> v32 göçünün metin -> ikili geometri dönüşümü, göç yazıldığı andaki haliyle donmuş kopya.
+ * Canlı `CadGeometryCodec` sonradan değişse de göç aynı baytları üretir; okuma yolu bu biçimi çözmeye devam etmelidir.
+ *
+ * Biçim (little-endian, nicemlemesiz): tag u8 (alt 4 bit tür, 0x20 kapalı), ardından f64 alanlar;
+ * metin / blok adı varint uzunluk + UTF-8; PL varint n + n nokta; PG varint halka sayısı, halka başına varint n + n nokta.
+ */
+internal object CadGeometryV32 {
+    private const val KIND_PT = 1
+    private const val KIND_L = 2
+    private const val KIND_PL = 3
+    private const val KIND_PG = 4
+    private const val KIND_C = 5
+    private const val KIND_A = 6
+    private const val KIND_T = 7
+    private const val KIND_I = 8
+    private const val FLAG_CLOSED = 0x20
+
+    /** Pipe-metin kaydını ikiliye çevirir; çevrilemezse (bozuk, geçersiz geometri, "B") null. */
+    fun fromText(type: String, data: String): ByteArray? = runCatching {
+        val p = data.split('|')
+        fun d(i: Int) = p[i].toDouble()
+        val out = Out()
+        when (type) {
+            "PT" -> { require(p.size >= 2); out.u8(KIND_PT); out.f64(d(0)); out.f64(d(1)) }
+            "L" -> { require(p.size >= 4); out.u8(KIND_L); for (i in 0..3) out.f64(d(i)) }
+            "C" -> {
+                require(p.size >= 3 && d(2) > 0)
+                out.u8(KIND_C); for (i in 0..2) out.f64(d(i))
+            }
+            "A" -> {
+                require(p.size >= 5 && d(2) > 0)
+                out.u8(KIND_A); for (i in 0..4) out.f64(d(i))
+            }
+            "T" -> {
+                require(p.size >= 4)
+                val rot = if (p.size >= 5) p[4].toDoubleOrNull() ?: 0.0 else 0.0
+                out.u8(KIND_T); out.f64(d(0)); out.f64(d(1)); out.f64(d(2)); out.f64(rot)
+                out.string(unescape(p[3]))
+            }
+            "I" -> {
+                require(p.size >= 6)
+                out.u8(KIND_I); for (i in 1..5) out.f64(d(i))
+                out.string(unescape(p[0]))
+            }
+            "PL" -> {
+                val n = (p.size - 1) / 2
+                require((p.size - 1) % 2 == 0 && n >= 2)
+                out.u8(KIND_PL or if (p[0] == "1") FLAG_CLOSED else 0)
+                out.varint(n.toLong())
+                for (i in 1 until p.size) out.f64(d(i))
+            }
+            "PG" -> {
+                val rings = p[0].toInt()
+                require(rings > 0)
+                out.u8(KIND_PG)
+                out.varint(rings.toLong())
+                var idx = 1
+                repeat(rings) {
+                    val n = p[idx++].toInt()
+                    require(n >= 3 && idx + 2 * n <= p.size)
+                    out.varint(n.toLong())
+                    repeat(2 * n) { out.f64(d(idx++)) }
+                }
+            }
+            else -> return null
+        }
+        out.toByteArray()
+    }.getOrNull()
+
+    private fun unescape(t: String) = t.replace("%7C", "|")
+
+    private class Out : ByteArrayOutputStream(64) {
+        fun u8(v: Int) = write(v)
+
+        fun f64(v: Double) {
+            var bits = java.lang.Double.doubleToRawLongBits(v)
+            repeat(8) { write(bits.toInt() and 0xFF); bits = bits ushr 8 }
+        }
+
+        fun varint(value: Long) {
+            var v = value
+            while (v and 0x7FL.inv() != 0L) {
+                write(((v and 0x7F) or 0x80).toInt())
+                v = v ushr 7
+            }
+            write(v.toInt())
+        }
+
+        fun string(s: String) {
+            val bytes = s.toByteArray(Charsets.UTF_8)
+            varint(bytes.size.toLong())
+            write(bytes, 0, bytes.size)
+        }
+    }
+}
@@ -9,9 +9,37 @@ interface CadEntityDao {
     @Query("SELECT * FROM cad_entities WHERE projectId = :projectId")
     fun entities(projectId: Long): Flow<List<CadEntityEntity>>
 
+    /**
+     * Yalnız görünür katmanlardaki entity'ler; gizli katmanların satırları okunmaz. Blok tanımları ("B")
+     * yerleşimler başka katmanda olabileceğinden katman görünürlüğünden bağımsız döner.
+     */
+    @Query(
+        "SELECT e.* FROM cad_entities e INNER JOIN cad_layers l ON l.id = e.layerId " +
+            "WHERE e.projectId = :projectId AND (l.visible = 1 OR e.type = 'B')"
+    )
+    fun visibleEntities(projectId: Long): Flow<List<CadEntityEntity>>
+
+    @Query("SELECT COUNT(*) FROM cad_entities WHERE projectId = :projectId AND type != 'B'")
+    suspend fun count(projectId: Long): Int
+
+    /** Görünür katmanlardaki en büyük entity satır id'si ([visibleEntities]'in göreceği son satır). */
+    @Query(
+        "SELECT MAX(e.id) FROM cad_entities e INNER JOIN cad_layers l ON l.id = e.layerId " +
+            "WHERE e.projectId = :projectId AND l.visible = 1 AND e.type != 'B'"
+    )
+    suspend fun maxVisibleId(projectId: Long): Long?
+
+    /** Projede [key] önekli blok tanımının ("B" kaydı) verisi; yoksa null. */
+    @Query("SELECT dataEncoded FROM cad_entities WHERE projectId = :projectId AND type = 'B' AND substr(dataEncoded, 1, length(:key)) = :key ORDER BY id LIMIT 1")
+    suspend fun blockPayload(projectId: Long, key: String): String?
+
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     suspend fun insert(entity: CadEntityEntity): Long
 
+    /** Tek işlemde (transaction) toplu ekleme. */
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    suspend fun insertAll(entities: List<CadEntityEntity>): List<Long>
+
     @Update
     suspend fun update(entity: CadEntityEntity)
 
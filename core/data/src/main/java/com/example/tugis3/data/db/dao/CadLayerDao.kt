@@ -9,6 +9,9 @@ interface CadLayerDao {
     @Query("SELECT * FROM cad_layers WHERE projectId = :projectId ORDER BY name")
     fun layers(projectId: Long): Flow<List<CadLayerEntity>>
 
+    @Query("SELECT * FROM cad_layers WHERE projectId = :projectId")
+    suspend fun list(projectId: Long): List<CadLayerEntity>
+
     @Query("SELECT * FROM cad_layers WHERE projectId = :projectId AND name = :name LIMIT 1")
     suspend fun findByName(projectId: Long, name: String): CadLayerEntity?
 
@@ -20,5 +23,8 @@ interface CadLayerDao {
 
     @Query("UPDATE cad_layers SET visible = :visible, updatedAt = :ts WHERE id = :id")
     suspend fun setVisible(id: Long, visible: Int, ts: Long)
+
+    @Query("UPDATE cad_layers SET visible = :visible, updatedAt = :ts WHERE projectId = :projectId AND visible != :visible")
+    suspend fun setAllVisible(projectId: Long, visible: Int, ts: Long)
 }
 
@@ -12,6 +12,9 @@ interface PointDao {
     @Query("SELECT * FROM points WHERE projectId = :projectId AND deleted = 1 ORDER BY deletedAt DESC LIMIT :limit")
     fun observeDeletedPoints(projectId: Long, limit: Int = 20): Flow<List<PointEntity>>
 
+    @Query("SELECT * FROM points WHERE id = :id")
+    suspend fun getById(id: Long): PointEntity?
+
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     suspend fun upsert(point: PointEntity): Long
 
@@ -21,8 +24,8 @@ interface PointDao {
     @Query("DELETE FROM points WHERE projectId = :projectId")
     suspend fun deleteByProject(projectId: Long)
 
-    @Query("UPDATE points SET name = :name, northing = :northing, easting = :easting, ellipsoidalHeight = :height, featureCode = :code, description = :desc, updatedAt = :updatedAt WHERE id = :id")
-    suspend fun updatePointFull(id: Long, name: String, northing: Double, easting: Double, height: Double?, code: String?, desc: String?, updatedAt: Long)
+    @Query("UPDATE points SET name = :name, northing = :northing, easting = :easting, ellipsoidalHeight = :height, orthoHeight = :orthoHeight, featureCode = :code, description = :desc, updatedAt = :updatedAt WHERE id = :id")
+    suspend fun updatePointFull(id: Long, name: String, northing: Double, easting: Double, height: Double?, orthoHeight: Double?, code: String?, desc: String?, updatedAt: Long)
 
     // Soft delete / restore
     @Query("UPDATE points SET deleted = 1, deletedAt = :ts, updatedAt = :ts WHERE id IN (:ids)")
@@ -24,6 +24,16 @@ interface ProjectDao {
     @Query("UPDATE projects SET isActive = 1 WHERE id = :id")
     suspend fun setActive(id: Long)
 
+    @Update
+    suspend fun update(project: ProjectEntity)
+
+    /** Oku-değiştir-yaz tek işlemde; çok alanlı güncelleme yarım kalmaz, araya başka yazım girmez. */
+    @Transaction
+    suspend fun update(projectId: Long, change: (ProjectEntity) -> ProjectEntity) {
+        val current = getById(projectId) ?: return
+        update(change(current))
+    }
+
     @Delete
     suspend fun delete(project: ProjectEntity)
 
@@ -39,6 +49,16 @@ interface ProjectDao {
         ts: Long?
     )
 
+    @Query("UPDATE projects SET locVertOffset=:offset, locVertSlopeN=:slopeN, locVertSlopeE=:slopeE, locVertN0=:n0, locVertE0=:e0 WHERE id=:projectId")
+    suspend fun updateLocalizationVertical(
+        projectId: Long,
+        offset: Double?,
+        slopeN: Double?,
+        slopeE: Double?,
+        n0: Double?,
+        e0: Double?
+    )
+
     // --- UTM / EPSG parametre güncelleme ---
     @Query("UPDATE projects SET utmZone = :zone, utmNorthHemisphere = :north, epsgCode = :epsg WHERE id = :projectId")
     suspend fun updateUtm(
@@ -61,4 +81,24 @@ interface ProjectDao {
         sp1: Double?,
         sp2: Double?
     )
+
+    @Query("UPDATE projects SET projAzimuthDeg=:azimuth, projGridAngleDeg=:gridAngle WHERE id=:projectId")
+    suspend fun updateProjectionOblique(projectId: Long, azimuth: Double?, gridAngle: Double?)
+
+    // --- Datum dönüşüm parametreleri ---
+    @Query("UPDATE projects SET datumMode=:mode, datumDx=:dx, datumDy=:dy, datumDz=:dz, datumRx=:rx, datumRy=:ry, datumRz=:rz, datumScalePpm=:ppm WHERE id=:projectId")
+    suspend fun updateDatum(
+        projectId: Long,
+        mode: Int?,
+        dx: Double?,
+        dy: Double?,
+        dz: Double?,
+        rx: Double?,
+        ry: Double?,
+        rz: Double?,
+        ppm: Double?
+    )
+
+    @Query("UPDATE projects SET datumGridPath=:path WHERE id=:projectId")
+    suspend fun updateDatumGrid(projectId: Long, path: String?)
 }
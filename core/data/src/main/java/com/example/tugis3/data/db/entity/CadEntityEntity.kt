@@ -13,8 +13,31 @@ data class CadEntityEntity(
     val projectId: Long,
     val layerId: Long,
     val type: String,          // L, PL, C, A, T
-    val dataEncoded: String,   // compact pipe separated encoding
+    val dataEncoded: String,   // compact pipe separated encoding ("B" blokları; v32 öncesi kayıtlar)
+    val geometry: ByteArray? = null, // ikili geometri (CadGeometryCodec); doluysa dataEncoded boştur
     val colorIndex: Int? = null,
     val createdAt: Long = System.currentTimeMillis(),
     val updatedAt: Long = System.currentTimeMillis()
-)
+) {
+    // ByteArray referansla karşılaştırılır; diff ve Flow distinct kontrolleri içerik eşitliğine dayanır
+    override fun equals(other: Any?): Boolean {
+        if (this === other) return true
+        if (other !is CadEntityEntity) return false
+        return id == other.id && projectId == other.projectId && layerId == other.layerId && type == other.type &&
+            dataEncoded == other.dataEncoded && colorIndex == other.colorIndex && createdAt == other.createdAt &&
+            updatedAt == other.updatedAt && geometry.contentEquals(other.geometry)
+    }
+
+    override fun hashCode(): Int {
+        var h = id.hashCode()
+        h = 31 * h + projectId.hashCode()
+        h = 31 * h + layerId.hashCode()
+        h = 31 * h + type.hashCode()
+        h = 31 * h + dataEncoded.hashCode()
+        h = 31 * h + (geometry?.contentHashCode() ?: 0)
+        h = 31 * h + (colorIndex ?: 0)
+        h = 31 * h + createdAt.hashCode()
+        h = 31 * h + updatedAt.hashCode()
+        return h
+    }
+}
@@ -15,6 +15,8 @@ data class CalibrationPointEntity(
     val srcEast: Double,  // Kaynak (ölçülen) easting
     val dstNorth: Double, // Hedef (kontrol) northing
     val dstEast: Double,  // Hedef (kontrol) easting
+    val srcHeight: Double? = null, // Ölçülen yükseklik: geoit modeli varsa ortometrik (h - N), yoksa elipsoidal
+    val dstHeight: Double? = null, // Hedef (kontrol) yükseklik; boşsa nokta düşey çözüme katılmaz
     val weight: Double = 1.0,
     val include: Int = 1, // 1= dahil, 0= hariç
     val createdAt: Long = System.currentTimeMillis(),
@@ -27,6 +27,23 @@ data class ProjectEntity(
     val projLatOrigin: Double? = null,
     val projStdParallel1: Double? = null,
     val projStdParallel2: Double? = null,
+    // Oblique Mercator: merkez hattı azimutu (αc) ve düzeltilmiş ızgara açısı (γc)
+    val projAzimuthDeg: Double? = null,
+    val projGridAngleDeg: Double? = null,
+
+    // --- Datum dönüşümü (WGS84 <-> yerel) ---
+    // Katalog modu: 0 ve 1 Helmert (yerel -> WGS84), 2 Bursa-Wolf (WGS84 -> yerel); 4 Molodensky katalogda geçmez.
+    // Dönüklükler yay saniyesi, ölçek ppm. Null ise dönüşüm yok.
+    val datumMode: Int? = null,
+    val datumDx: Double? = null,
+    val datumDy: Double? = null,
+    val datumDz: Double? = null,
+    val datumRx: Double? = null,
+    val datumRy: Double? = null,
+    val datumRz: Double? = null,
+    val datumScalePpm: Double? = null,
+    // NTv2 ızgara dosyası (mutlak yol); kapsadığı noktalarda 7 parametrenin yerine geçer
+    val datumGridPath: String? = null,
 
     // --- Lokalizasyon (Similarity Transform) Parametreleri ---
     // Null ise lokalizasyon uygulanmaz
@@ -35,5 +52,11 @@ data class ProjectEntity(
     val locTx: Double? = null,
     val locTy: Double? = null,
     val locPointCount: Int? = null, // çözümde kullanılan nokta sayısı
-    val locLastSolvedAt: Long? = null
+    val locLastSolvedAt: Long? = null,
+    // Düşey lokalizasyon (eğik düzlem): dH = offset + slopeN·(N - n0) + slopeE·(E - e0)
+    val locVertOffset: Double? = null,
+    val locVertSlopeN: Double? = null,
+    val locVertSlopeE: Double? = null,
+    val locVertN0: Double? = null,
+    val locVertE0: Double? = null
 )
@@ -73,7 +73,7 @@ object DataModule {
     @Provides @Singleton fun provideDetailFeatureRepository(dao: DetailFeatureDao): DetailFeatureRepository = DetailFeatureRepository(dao)
     @Provides @Singleton fun provideCalibrationPointRepository(dao: CalibrationPointDao, projectDao: ProjectDao): CalibrationPointRepository = CalibrationPointRepository(dao, projectDao)
     @Provides @Singleton fun provideNtripSessionRepository(dao: NtripSessionDao): NtripSessionRepository = NtripSessionRepository(dao)
-    @Provides @Singleton fun provideCadPersistenceRepository(layerDao: CadLayerDao, entityDao: CadEntityDao): CadPersistenceRepository = CadPersistenceRepository(layerDao, entityDao)
+    @Provides @Singleton fun provideCadPersistenceRepository(db: AppDatabase, layerDao: CadLayerDao, entityDao: CadEntityDao): CadPersistenceRepository = CadPersistenceRepository(db, layerDao, entityDao)
     @Provides @Singleton fun provideSurveyRangeRepository(dao: SurveyRangeDao): SurveyRangeRepository = SurveyRangeRepository(dao)
     @Provides @Singleton fun provideGisFeatureRepository(dao: GisFeatureDao): GisFeatureRepository = GisFeatureRepository(dao)
     @Provides @Singleton fun provideMeasurementLogRepository(dao: MeasurementLogDao): MeasurementLogRepository = MeasurementLogRepository(dao)
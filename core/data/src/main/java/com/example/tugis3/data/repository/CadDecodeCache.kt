@@ -0,0 +1,118 @@
+package com.example.tugis3.data.repository
+
+import com.example.tugis3.core.cad.codec.CadCodec
+import com.example.tugis3.core.cad.codec.CadGeometryCodec
+import com.example.tugis3.core.cad.model.CadBlock
+import com.example.tugis3.core.cad.model.CadEntity
+import com.example.tugis3.data.db.entity.CadEntityEntity
+import com.example.tugis3.data.db.entity.CadLayerEntity
+import com.example.tugis3.data.repository.CadPersistenceRepository.CadDiff
+import com.example.tugis3.data.repository.CadPersistenceRepository.CadItem
+import com.example.tugis3.data.repository.CadPersistenceRepository.CadSnapshot
+
+/**
+ * [CadPersistenceRepository.observeChanges] için artımlı çözüm önbelleği. Satırlar `(id, updatedAt)` ile
+ * anahtarlanır; yalnız yeni ya da değişen satırlar çözülür, diğerleri önceki [CadEntity] örneğini korur.
+ * Katman adı değişen satırlar ve blok tanımları ("B") değiştiğinde yerleşimler ("I") yeniden çözülür.
+ * Hiçbir şey değişmediyse (ör. yalnız katman rengi) önceki liste örneği aynen döner.
+ *
+ * Tek bir akış toplayıcısına aittir; thread güvenli değildir.
+ */
+internal class CadDecodeCache {
+
+    private class Entry(
+        val updatedAt: Long,
+        val layerName: String,
+        val blockVersion: Int,
+        /** Çözülemeyen satır için null (her yayında yeniden denenmez). */
+        val item: CadItem?
+    )
+
+    private var entries = HashMap<Long, Entry>()
+    private var blocks: Map<String, CadBlock> = emptyMap()
+    private var blockSignature = 0L
+    private var blockVersion = 0
+    private var items: List<CadItem> = emptyList()
+
+    fun update(layers: List<CadLayerEntity>, rows: List<CadEntityEntity>): CadSnapshot {
+        val layerNames = HashMap<Long, String>(layers.size * 2)
+        // Gizli katman satırları sorguda elenir; katman akışı entity akışından önce gelirse burada da atlanır
+        layers.forEach { if (it.visible == 1) layerNames[it.id] = it.name }
+        refreshBlocks(rows)
+
+        val next = HashMap<Long, Entry>(rows.size * 2)
+        val out = ArrayList<CadItem>(rows.size)
+        val added = HashSet<Long>()
+        val changed = HashSet<Long>()
+        val removed = HashSet<Long>()
+        var decoded = 0
+        for (row in rows) {
+            if (row.type == BLOCK_TYPE) continue
+            val layerName = layerNames[row.layerId] ?: continue
+            val bv = if (row.type == INSERT_TYPE) blockVersion else 0
+            val old = entries[row.id]
+            val entry = if (old != null && old.updatedAt == row.updatedAt && old.layerName == layerName && old.blockVersion == bv) {
+                old
+            } else {
+                decoded++
+                val fresh = decode(row, layerName)?.let { CadItem(row.id, it) }
+                // İçerik aynıysa (ör. blok değişikliği bu yerleşimi etkilemedi) eski örnek korunur
+                Entry(row.updatedAt, layerName, bv, if (fresh != null && fresh == old?.item) old.item else fresh)
+            }
+            next[row.id] = entry
+            val before = old?.item
+            val now = entry.item
+            when {
+                before == null && now != null -> added += row.id
+                before != null && now == null -> removed += row.id
+                before != null && now != null && before !== now -> changed += row.id
+            }
+            if (now != null) out += now
+        }
+        entries.forEach { (id, e) -> if (e.item != null && id !in next) removed += id }
+        entries = next
+
+        val diff = CadDiff(added, removed, changed)
+        // Değişiklik yoksa aynı örnek: aşağı akıştaki StateFlow / distinctUntilChanged hiç yaymaz
+        if (!diff.isEmpty || out.size != items.size) items = out
+        return CadSnapshot(items, diff, decoded)
+    }
+
+    /**
+     * Önbelleği boşaltır; daha önce yayılan tüm öğeleri kaldıran boş anlık görüntü döner. Sonraki [update]
+     * her şeyi yeniden çözer ve eklenmiş bildirir, böylece artımlı tüketiciler tutarlı kalır.
+     */
+    fun clear(): CadSnapshot {
+        val removed = HashSet<Long>()
+        entries.forEach { (id, e) -> if (e.item != null) removed += id }
+        entries = HashMap()
+        blocks = emptyMap()
+        blockSignature = 0L
+        items = emptyList()
+        return CadSnapshot(items, CadDiff(emptySet(), removed, emptySet()), 0)
+    }
+
+    /** "B" satırlarının imzası değiştiyse blokları yeniden çözer ve yerleşimleri geçersiz kılar. */
+    private fun refreshBlocks(rows: List<CadEntityEntity>) {
+        var signature = 1L
+        for (row in rows) if (row.type == BLOCK_TYPE) signature = signature * 31 + row.id * 17 + row.updatedAt
+        if (signature == blockSignature && blockVersion != 0) return
+        blockSignature = signature
+        blockVersion++
+        blocks = CadCodec.decodeBlocks(rows.asSequence().filter { it.type == BLOCK_TYPE }.map { it.dataEncoded }.asIterable())
+    }
+
+    private fun decode(row: CadEntityEntity, layerName: String): CadEntity? = try {
+        val geometry = row.geometry
+        if (geometry != null) CadGeometryCodec.decode(geometry, layerName, row.colorIndex, blocks::get)
+        else CadCodec.decode(row.type, row.dataEncoded, layerName, row.colorIndex, blocks::get)
+    } catch (e: Exception) {
+        // Decode hatası durumunda entity'yi atla
+        null
+    }
+
+    private companion object {
+        const val BLOCK_TYPE = "B"
+        const val INSERT_TYPE = "I"
+    }
+}
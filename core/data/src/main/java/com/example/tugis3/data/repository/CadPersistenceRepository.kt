@@ -1,65 +1,111 @@
 package com.example.tugis3.data.repository
 
+import androidx.room.withTransaction
 import com.example.tugis3.core.cad.codec.CadCodec
+import com.example.tugis3.core.cad.codec.CadGeometryCodec
+import com.example.tugis3.core.cad.model.CadBlock
 import com.example.tugis3.core.cad.model.CadEntity
+import com.example.tugis3.core.cad.model.CadInsert
 import com.example.tugis3.core.cad.model.CadLine
 import com.example.tugis3.core.cad.model.CadPolyline
 import com.example.tugis3.core.cad.model.CadCircle
 import com.example.tugis3.core.cad.model.CadArc
 import com.example.tugis3.core.cad.model.CadText
 import com.example.tugis3.core.cad.model.Point
+import com.example.tugis3.data.db.AppDatabase
 import com.example.tugis3.data.db.dao.CadEntityDao
 import com.example.tugis3.data.db.dao.CadLayerDao
 import com.example.tugis3.data.db.entity.CadEntityEntity
 import com.example.tugis3.data.db.entity.CadLayerEntity
 import kotlinx.coroutines.flow.Flow
 import kotlinx.coroutines.flow.combine
+import kotlinx.coroutines.flow.distinctUntilChanged
+import kotlinx.coroutines.flow.emitAll
+import kotlinx.coroutines.flow.flow
+import kotlinx.coroutines.flow.map
 import javax.inject.Inject
 import javax.inject.Singleton
 
-/** CAD geometri & layer kalıcılığı (encode/decode pipe format). */
+/**
+ * CAD geometri & layer kalıcılığı. Geometri ikili `geometry` sütununda ([CadGeometryCodec]) tutulur;
+ * v32 öncesi metin kayıtları ([CadCodec] pipe format) okunmaya devam eder.
+ * Blok yerleşimleri ("I") blok geometrisini tekrar yazmaz; her blok projede bir kez "B" kaydı olarak tutulur
+ * ve okumada tüm yerleşimler aynı [CadBlock]'u paylaşır. "B" kayıtları içerikle anahtarlıdır: başka bir
+ * içe aktarımdan gelen aynı adlı ama farklı tanım ayrı adla saklanır (bkz. [storeBlock]).
+ */
 @Singleton
 class CadPersistenceRepository @Inject constructor(
+    private val db: AppDatabase,
     private val layerDao: CadLayerDao,
     private val entityDao: CadEntityDao
 ) {
     data class CadItem(val id: Long, val entity: CadEntity)
 
-    fun observe(projectId: Long): Flow<List<CadItem>> = combine(
-        layerDao.layers(projectId),
-        entityDao.entities(projectId)
-    ) { layers, ents ->
-        try {
-            val layerMap = layers.associateBy { it.id }
-            ents.mapNotNull { e ->
+    /** Bir önceki yayına göre değişen satır id'leri (yalnız çözülebilen, çizilebilir öğeler). */
+    data class CadDiff(val added: Set<Long>, val removed: Set<Long>, val changed: Set<Long>) {
+        val isEmpty: Boolean get() = added.isEmpty() && removed.isEmpty() && changed.isEmpty()
+    }
+
+    /** @param decoded bu yayında çözülen satır sayısı (önbellekten gelenler hariç) */
+    data class CadSnapshot(val items: List<CadItem>, val diff: CadDiff, val decoded: Int)
+
+    fun observe(projectId: Long): Flow<List<CadItem>> = observeChanges(projectId).map { it.items }.distinctUntilChanged { a, b -> a === b }
+
+    /**
+     * Katman ya da entity tablosundaki her değişiklikte yalnız yeni / değişen satırları çözer ([CadDecodeCache])
+     * ve farkı yayar; katman listesi, kümeleme, uzamsal indeks gibi tüketiciler artımlı güncellenebilir.
+     * Gizli katmanların (`cad_layers.visible = 0`) satırları sorguda elenir, hiç okunmaz ve çözülmez.
+     * Her toplayıcı kendi önbelleğini tutar.
+     */
+    fun observeChanges(projectId: Long): Flow<CadSnapshot> = flow {
+        val cache = CadDecodeCache()
+        emitAll(
+            combine(layerDao.layers(projectId), entityDao.visibleEntities(projectId)) { layers, ents ->
                 try {
-                    val layer = layerMap[e.layerId]
-                    if (layer == null) return@mapNotNull null
-                    decodeEntity(e, layer.name)?.let { CadItem(e.id, it) }
-                } catch (ex: Exception) {
-                    // Decode hatası durumunda entity'yi atla
-                    null
+                    cache.update(layers, ents)
+                } catch (e: Exception) {
+                    // Genel hata durumunda boş liste; fark bilinen tüm öğeleri kaldırır ki artımlı tüketiciler eskiyi tutmasın
+                    cache.clear()
                 }
             }
-        } catch (e: Exception) {
-            // Genel hata durumunda boş liste döndür
-            emptyList()
-        }
+        )
     }
 
+    /** Projenin tüm katmanları (gizliler dahil), ada göre sıralı. */
+    fun observeLayers(projectId: Long): Flow<List<CadLayerEntity>> = layerDao.layers(projectId)
+
+    /** Katman görünürlüğü yalnız `cad_layers.visible`'da tutulur; bilinmeyen katman için false. */
+    suspend fun setLayerVisible(projectId: Long, name: String, visible: Boolean): Boolean {
+        val layer = layerDao.findByName(projectId, name) ?: return false
+        layerDao.setVisible(layer.id, if (visible) 1 else 0, System.currentTimeMillis())
+        return true
+    }
+
+    suspend fun setAllLayersVisible(projectId: Long, visible: Boolean) =
+        layerDao.setAllVisible(projectId, if (visible) 1 else 0, System.currentTimeMillis())
+
+    /** Blok tanımları hariç entity sayısı (gizli katmanlar dahil). */
+    suspend fun count(projectId: Long): Int = entityDao.count(projectId)
+
+    /**
+     * Görünür katmanlardaki en büyük satır id'si; yoksa 0. Bir kayıttan hemen sonra okunursa, [observe]
+     * bu id'yi içeren ilk yayında o kaydın tüm görünür satırları da vardır.
+     */
+    suspend fun lastVisibleId(projectId: Long): Long = entityDao.maxVisibleId(projectId) ?: 0L
+
     suspend fun ensureLayer(projectId: Long, name: String, colorIndex: Int? = null): CadLayerEntity? {
         return try {
             val existing = layerDao.findByName(projectId, name)
             if (existing != null) return existing
-            val id = layerDao.insert(
-                CadLayerEntity(
-                    projectId = projectId,
-                    name = name,
-                    colorIndex = colorIndex,
-                    visible = 1
-                )
+            val layer = CadLayerEntity(
+                projectId = projectId,
+                name = name,
+                colorIndex = colorIndex,
+                visible = 1
             )
-            layerDao.findByName(projectId, name)
+            val id = layerDao.insert(layer)
+            // IGNORE: aynı anda eklenmişse -1 döner
+            if (id > 0) layer.copy(id = id) else layerDao.findByName(projectId, name)
         } catch (e: Exception) {
             // Layer oluşturma hatası
             null
@@ -70,26 +116,104 @@ class CadPersistenceRepository @Inject constructor(
         return try {
             val layer = ensureLayer(projectId, entity.layer, entity.colorIndex)
             if (layer == null) return null
-            val enc = CadCodec.encode(entity)
-            entityDao.insert(
-                CadEntityEntity(
-                    projectId = projectId,
-                    layerId = layer.id,
-                    type = enc.first,
-                    dataEncoded = enc.second,
-                    colorIndex = entity.colorIndex
-                )
-            )
+            val stored = if (entity is CadInsert) entity.copy(block = storeBlock(projectId, layer.id, entity.block, HashMap())) else entity
+            entityDao.insert(row(projectId, layer.id, stored))
         } catch (e: Exception) {
             // Entity ekleme hatası
             null
         }
     }
 
+    /**
+     * Toplu içe aktarım: tüm [entities] tek işlemde, [chunkSize]'lık `@Insert` listeleriyle yazılır.
+     * Projenin katmanları bir kez belleğe alınır, yeni katmanlar ilk görüldüğünde eklenir; bloklar
+     * yerleşimlerden önce bir kez yazılır. Kodlanamayan entity atlanır; veritabanı hatasında işlem
+     * geri alınır ve hata çağırana iletilir. [onProgress] her parçadan sonra yazılan toplamla çağrılır.
+     *
+     * @return yazılan entity sayısı
+     */
+    suspend fun addEntities(
+        projectId: Long,
+        entities: Sequence<CadEntity>,
+        chunkSize: Int = BULK_CHUNK,
+        onProgress: (Int) -> Unit = {}
+    ): Int {
+        var written = 0
+        db.withTransaction {
+            val layers = layerDao.list(projectId).associateTo(HashMap()) { it.name to it.id }
+            // Bu içe aktarımın blokları (DXF adı -> kayıtlı blok); bir dosyada blok adları tekildir
+            val blocks = HashMap<String, CadBlock>()
+            val rows = ArrayList<CadEntityEntity>(chunkSize)
+            for (entity in entities) {
+                val layerId = layers.getOrPut(entity.layer) { insertLayer(projectId, entity.layer, entity.colorIndex) }
+                val stored = if (entity is CadInsert) entity.copy(block = storeBlock(projectId, layerId, entity.block, blocks)) else entity
+                rows += try { row(projectId, layerId, stored) } catch (e: Exception) { continue }
+                if (rows.size == chunkSize) {
+                    entityDao.insertAll(rows)
+                    written += rows.size
+                    rows.clear()
+                    onProgress(written)
+                }
+            }
+            if (rows.isNotEmpty()) {
+                entityDao.insertAll(rows)
+                written += rows.size
+                onProgress(written)
+            }
+        }
+        return written
+    }
+
+    private suspend fun insertLayer(projectId: Long, name: String, colorIndex: Int?): Long {
+        val id = layerDao.insert(CadLayerEntity(projectId = projectId, name = name, colorIndex = colorIndex, visible = 1))
+        return if (id > 0) id else checkNotNull(layerDao.findByName(projectId, name)).id
+    }
+
+    /**
+     * [block]'u ve iç içe bloklarını (önce çocuklar) projeye yazar, kayıtlı adı taşıyan bloğu döner.
+     * Aynı ad ve aynı içerikli "B" kaydı varsa yeniden kullanılır; ad aynı, içerik farklıysa tanım
+     * "ad#2", "ad#3"… adıyla ayrı kaydedilir. Böylece önceki içe aktarımların yerleşimleri değişmez.
+     * [seen] aynı içe aktarımdaki yerleşimlerin bloğu tekrar sorgulamasını önler.
+     */
+    private suspend fun storeBlock(projectId: Long, layerId: Long, block: CadBlock, seen: MutableMap<String, CadBlock>): CadBlock {
+        seen[block.name]?.let { return it }
+        val children = block.entities.map { child ->
+            if (child is CadInsert) child.copy(block = storeBlock(projectId, layerId, child.block, seen)) else child
+        }
+        var suffix = 1
+        while (true) {
+            val name = if (suffix == 1) block.name else "${block.name}#$suffix"
+            val candidate = CadBlock(name, block.basePoint, children)
+            val enc = CadCodec.encodeBlock(candidate)
+            val existing = entityDao.blockPayload(projectId, CadCodec.blockKey(name))
+            if (existing == null) {
+                entityDao.insert(CadEntityEntity(projectId = projectId, layerId = layerId, type = enc.first, dataEncoded = enc.second))
+            }
+            if (existing == null || existing == enc.second) {
+                seen[block.name] = candidate
+                return candidate
+            }
+            suffix++
+        }
+    }
+
     suspend fun deleteEntity(id: Long) = entityDao.delete(id)
     suspend fun deleteAllForProject(projectId: Long) = entityDao.deleteForProject(projectId)
 
     // --- Encoding / Decoding ---
-    private fun decodeEntity(e: CadEntityEntity, layerName: String): CadEntity? =
-        CadCodec.decode(e.type, e.dataEncoded, layerName, e.colorIndex)
+    private fun row(projectId: Long, layerId: Long, entity: CadEntity): CadEntityEntity {
+        val (type, geometry) = CadGeometryCodec.encode(entity)
+        return CadEntityEntity(
+            projectId = projectId,
+            layerId = layerId,
+            type = type,
+            dataEncoded = "",
+            geometry = geometry,
+            colorIndex = entity.colorIndex
+        )
+    }
+
+    private companion object {
+        const val BULK_CHUNK = 500
+    }
 }
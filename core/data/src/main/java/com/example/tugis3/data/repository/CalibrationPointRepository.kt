@@ -20,7 +20,9 @@ class CalibrationPointRepository @Inject constructor(
         srcEast: Double,
         dstNorth: Double,
         dstEast: Double,
-        weight: Double = 1.0
+        weight: Double = 1.0,
+        srcHeight: Double? = null,
+        dstHeight: Double? = null
     ): Long = dao.insert(
         CalibrationPointEntity(
             projectId = projectId,
@@ -28,7 +30,9 @@ class CalibrationPointRepository @Inject constructor(
             srcEast = srcEast,
             dstNorth = dstNorth,
             dstEast = dstEast,
-            weight = weight
+            weight = weight,
+            srcHeight = srcHeight,
+            dstHeight = dstHeight
         )
     )
 
@@ -41,46 +45,57 @@ class CalibrationPointRepository @Inject constructor(
         val tx: Double,
         val ty: Double,
         val rms: Double,
-        val pointCount: Int
-    )
+        val pointCount: Int,
+        val vertical: LocalizationSolver.VerticalParams? = null,
+        val rmsVertical: Double? = null,
+        /** Nokta id -> kalıntı (elenenler dahil). */
+        val residuals: Map<Long, LocalizationSolver.Residual> = emptyMap()
+    ) {
+        val similarity get() = LocalizationSolver.SimilarityParams(scale, rotRad, tx, ty)
+        val outlierCount: Int get() = residuals.values.count { it.outlier }
+    }
 
+    /**
+     * Dahil noktalarla aykırı değer dayanıklı çözüm yapar ve projeye yazar. Elenen noktalar çözüme
+     * katılmaz ama dahil işaretleri değiştirilmez; kullanıcı kalıntılarına bakıp karar verir.
+     */
     suspend fun solveAndApply(projectId: Long): Result<SolveResult> = runCatching {
         val pts = dao.getIncluded(projectId)
         if (pts.size < 2) error("Yetersiz nokta (en az 2)")
-        val solverInput: List<com.example.tugis3.data.repository.LocalizationSolver.Point> = pts.map { p ->
-            com.example.tugis3.data.repository.LocalizationSolver.Point(
-                srcE = p.srcEast,
-                srcN = p.srcNorth,
-                dstE = p.dstEast,
-                dstN = p.dstNorth,
-                w = p.weight
-            )
-        }
-        val params = com.example.tugis3.data.repository.LocalizationSolver.solveSimilarity(solverInput)
-        val scale = params.scale
-        val rot = params.rot
-        val tx = params.tx
-        val ty = params.ty
-        val cosR = kotlin.math.cos(rot)
-        val sinR = kotlin.math.sin(rot)
-        var sumSq = 0.0
-        solverInput.forEach { pt ->
-            val predE = scale * (cosR * pt.srcE - sinR * pt.srcN) + tx
-            val predN = scale * (sinR * pt.srcE + cosR * pt.srcN) + ty
-            val dE = pt.dstE - predE
-            val dN = pt.dstN - predN
-            sumSq += dE * dE + dN * dN
-        }
-        val rms = kotlin.math.sqrt(sumSq / (2.0 * solverInput.size))
+        val solution = LocalizationSolver.solveRobust(pts.map { it.toSolverPoint() })
+        val sim = solution.similarity
+        val ts = System.currentTimeMillis()
         projectDao.updateLocalization(
             projectId = projectId,
-            scale = scale,
-            rot = rot,
-            tx = tx,
-            ty = ty,
-            pointCount = pts.size,
-            ts = System.currentTimeMillis()
+            scale = sim.scale,
+            rot = sim.rot,
+            tx = sim.tx,
+            ty = sim.ty,
+            pointCount = solution.inlierCount,
+            ts = ts
+        )
+        val v = solution.vertical
+        projectDao.updateLocalizationVertical(projectId, v?.offset, v?.slopeN, v?.slopeE, v?.n0, v?.e0)
+        SolveResult(
+            scale = sim.scale,
+            rotRad = sim.rot,
+            tx = sim.tx,
+            ty = sim.ty,
+            rms = solution.rmsHorizontal,
+            pointCount = solution.inlierCount,
+            vertical = v,
+            rmsVertical = solution.rmsVertical,
+            residuals = pts.indices.associate { pts[it].id to solution.residuals[it] }
         )
-        SolveResult(scale, rot, tx, ty, rms, pts.size)
     }
 }
+
+fun CalibrationPointEntity.toSolverPoint() = LocalizationSolver.Point(
+    srcE = srcEast,
+    srcN = srcNorth,
+    dstE = dstEast,
+    dstN = dstNorth,
+    w = weight,
+    srcH = srcHeight,
+    dstH = dstHeight
+)
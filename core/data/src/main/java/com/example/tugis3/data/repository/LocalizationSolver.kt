@@ -1,64 +1,348 @@
 package com.example.tugis3.data.repository
 
+import kotlin.math.abs
 import kotlin.math.atan2
 import kotlin.math.cos
+import kotlin.math.hypot
 import kotlin.math.sin
 import kotlin.math.sqrt
 
-/** Similarity (2D) çözümü: scale, rot, tx, ty */
+/**
+ * Lokalizasyon çözümü: yatayda ağırlıklı 2B benzerlik (scale, rot, tx, ty), düşeyde eğik düzlem.
+ *
+ * Normal denklem toplamları [Accumulator]'da tutulur; nokta ekleme / çıkarma O(1) güncellemedir, çözüm
+ * toplamlardan O(1) okunur. [solveRobust] çift-nokta konsensüsü (RANSAC benzeri) ile başlayıp kalıntıya göre
+ * yinelemeli eleme yapar; elenen / geri alınan noktalar yine aynı O(1) güncellemeyle işlenir.
+ */
 object LocalizationSolver {
     data class Point(
         val srcE: Double,
         val srcN: Double,
         val dstE: Double,
         val dstN: Double,
-        val w: Double = 1.0
+        val w: Double = 1.0,
+        /** Ölçülen ve kontrol yükseklikleri; ikisi de varsa düşey çözüme katılır. */
+        val srcH: Double? = null,
+        val dstH: Double? = null
+    ) {
+        val hasHeight: Boolean get() = srcH != null && dstH != null
+    }
+
+    data class SimilarityParams(val scale: Double, val rot: Double, val tx: Double, val ty: Double) {
+        private val a = scale * cos(rot)
+        private val b = scale * sin(rot)
+        fun e(srcE: Double, srcN: Double) = a * srcE - b * srcN + tx
+        fun n(srcE: Double, srcN: Double) = b * srcE + a * srcN + ty
+    }
+
+    /** Eğik düzlem: H_hedef - H_ölçülen = offset + slopeN·(N - n0) + slopeE·(E - e0), kaynak koordinatlarında. */
+    data class VerticalParams(
+        val offset: Double,
+        val slopeN: Double,
+        val slopeE: Double,
+        val n0: Double,
+        val e0: Double,
+        val pointCount: Int
+    ) {
+        fun dh(srcE: Double, srcN: Double) = offset + slopeN * (srcN - n0) + slopeE * (srcE - e0)
+    }
+
+    data class Residual(
+        val dE: Double,
+        val dN: Double,
+        val dH: Double?,
+        /** Yatay çözümden elendi. */
+        val outlier: Boolean = false,
+        /** Düşey çözümden elendi (yatayda kullanılsa bile). */
+        val verticalOutlier: Boolean = false
+    ) {
+        val horizontal: Double get() = hypot(dE, dN)
+    }
+
+    data class Solution(
+        val similarity: SimilarityParams,
+        val vertical: VerticalParams?,
+        /** Giriş sırasıyla, elenen noktalar dahil. */
+        val residuals: List<Residual>,
+        val rmsHorizontal: Double,
+        val rmsVertical: Double?,
+        val inlierCount: Int
     )
-    data class SimilarityParams(val scale: Double, val rot: Double, val tx: Double, val ty: Double)
 
     /**
-     * Weighted 2D similarity transform (Helmert) çözümü.
-     * En az 2 nokta gerekir. Degenerate (D ~ 0) durumda hata fırlatır.
+     * Artımlı normal denklem toplamları. Koordinatlar ilk eklenen noktaya göre ötelenerek toplanır;
+     * büyük projeksiyon koordinatlarında (N ~ 4.5e6) merkezleme sırasında basamak kaybı olmaz.
      */
+    class Accumulator {
+        private var hasRef = false
+        private var refSE = 0.0; private var refSN = 0.0
+        private var refDE = 0.0; private var refDN = 0.0
+
+        var count = 0; private set
+        var heightCount = 0; private set
+
+        // Yatay
+        private var w = 0.0
+        private var sxs = 0.0; private var sys = 0.0; private var sxd = 0.0; private var syd = 0.0
+        private var sss = 0.0; private var sa = 0.0; private var sb = 0.0
+
+        // Düşey (dh = dstH - srcH)
+        private var wv = 0.0
+        private var vx = 0.0; private var vy = 0.0; private var vxx = 0.0; private var vxy = 0.0; private var vyy = 0.0
+        private var vh = 0.0; private var vxh = 0.0; private var vyh = 0.0
+
+        fun add(p: Point) = update(p, 1.0, horizontal = true, vertical = true)
+        fun remove(p: Point) = update(p, -1.0, horizontal = true, vertical = true)
+
+        internal fun update(p: Point, sign: Double, horizontal: Boolean, vertical: Boolean) {
+            if (!hasRef) {
+                refSE = p.srcE; refSN = p.srcN; refDE = p.dstE; refDN = p.dstN
+                hasRef = true
+            }
+            val xs = p.srcE - refSE
+            val ys = p.srcN - refSN
+            val pw = sign * p.w
+            if (horizontal) {
+                val xd = p.dstE - refDE
+                val yd = p.dstN - refDN
+                count += sign.toInt()
+                w += pw
+                sxs += pw * xs; sys += pw * ys; sxd += pw * xd; syd += pw * yd
+                sss += pw * (xs * xs + ys * ys)
+                sa += pw * (xs * xd + ys * yd)
+                sb += pw * (xs * yd - ys * xd)
+            }
+            if (vertical && p.hasHeight) {
+                val dh = p.dstH!! - p.srcH!!
+                heightCount += sign.toInt()
+                wv += pw
+                vx += pw * xs; vy += pw * ys
+                vxx += pw * xs * xs; vxy += pw * xs * ys; vyy += pw * ys * ys
+                vh += pw * dh; vxh += pw * xs * dh; vyh += pw * ys * dh
+            }
+        }
+
+        /** En az 2 nokta gerekir; çakışık geometri veya sıfır ağırlıkta hata fırlatır. */
+        fun similarity(): SimilarityParams {
+            check(count >= 2) { "En az 2 nokta gerekli" }
+            if (w <= 0.0) error("Ağırlık toplamı 0")
+            val d = sss - (sxs * sxs + sys * sys) / w
+            val a = sa - (sxs * sxd + sys * syd) / w
+            val b = sb - (sxs * syd - sys * sxd) / w
+            if (d <= DEGENERATE_M2 * w) error("Degenerate nokta geometrisi (D=0)")
+            val scale = hypot(a, b) / d
+            val rot = atan2(b, a)
+            val srcEc = refSE + sxs / w
+            val srcNc = refSN + sys / w
+            val dstEc = refDE + sxd / w
+            val dstNc = refDN + syd / w
+            val c = cos(rot)
+            val s = sin(rot)
+            return SimilarityParams(
+                scale, rot,
+                tx = dstEc - scale * (c * srcEc - s * srcNc),
+                ty = dstNc - scale * (s * srcEc + c * srcNc)
+            )
+        }
+
+        /**
+         * Düşey düzlem; yükseklikli nokta yoksa null. 1-2 noktada veya noktalar doğrusal dizildiğinde
+         * yalnız sabit öteleme (eğim 0) çözülür.
+         */
+        fun vertical(): VerticalParams? {
+            if (heightCount < 1 || wv <= 0.0) return null
+            val e0 = vx / wv
+            val n0 = vy / wv
+            val offset = vh / wv
+            var slopeE = 0.0
+            var slopeN = 0.0
+            if (heightCount >= 3) {
+                val cxx = vxx - vx * e0
+                val cxy = vxy - vx * n0
+                val cyy = vyy - vy * n0
+                val cxh = vxh - vx * offset
+                val cyh = vyh - vy * offset
+                val det = cxx * cyy - cxy * cxy
+                if (det > COLLINEAR_RATIO * (cxx + cyy) * (cxx + cyy)) {
+                    slopeE = (cxh * cyy - cyh * cxy) / det
+                    slopeN = (cyh * cxx - cxh * cxy) / det
+                }
+            }
+            return VerticalParams(offset, slopeN, slopeE, refSN + n0, refSE + e0, heightCount)
+        }
+    }
+
+    /** Kapalı biçim ağırlıklı 2B Helmert (aykırı değer elemesi yok). */
     fun solveSimilarity(points: List<Point>): SimilarityParams {
         require(points.size >= 2) { "En az 2 nokta gerekli" }
-        var sumW = 0.0
-        var sumSrcE = 0.0
-        var sumSrcN = 0.0
-        var sumDstE = 0.0
-        var sumDstN = 0.0
-        points.forEach { p ->
-            sumW += p.w
-            sumSrcE += p.w * p.srcE
-            sumSrcN += p.w * p.srcN
-            sumDstE += p.w * p.dstE
-            sumDstN += p.w * p.dstN
+        return Accumulator().apply { points.forEach(::add) }.similarity()
+    }
+
+    fun residual(p: Point, sim: SimilarityParams, vertical: VerticalParams?) = Residual(
+        dE = p.dstE - sim.e(p.srcE, p.srcN),
+        dN = p.dstN - sim.n(p.srcE, p.srcN),
+        dH = if (vertical != null && p.hasHeight) p.dstH!! - p.srcH!! - vertical.dh(p.srcE, p.srcN) else null
+    )
+
+    /**
+     * Aykırı değer dayanıklı çözüm.
+     *
+     * 1. [MIN_POINTS_FOR_REJECTION] ve üzeri noktada tüm nokta çiftlerinden (en çok [MAX_PAIRS]) 2 noktalı
+     *    benzerlik kurulur; [tolerance] içinde kalan nokta sayısı en yüksek çift başlangıç kümesini verir.
+     * 2. Küme üzerinden çözülür, tüm noktaların kalıntısı hesaplanır; eşik max([tolerance], 3·σ) (σ medyan tabanlı) ile
+     *    dışarıda kalanlar çıkarılır, içeri girenler geri eklenir; küme değişmeyene kadar yinelenir.
+     * 3. Düşey düzlem yatayda kalan noktalarla ayrıca elenir: önce birer nokta dışarıda bırakılarak başlangıç
+     *    kümesi seçilir, ardından aynı yinelemeli eleme ([verticalTolerance]) uygulanır.
+     */
+    fun solveRobust(
+        points: List<Point>,
+        tolerance: Double = 0.05,
+        verticalTolerance: Double = 0.08,
+        maxIterations: Int = 10
+    ): Solution {
+        require(points.size >= 2) { "En az 2 nokta gerekli" }
+        val n = points.size
+        val inlier = BooleanArray(n) { true }
+        if (n >= MIN_POINTS_FOR_REJECTION) consensusSeed(points, tolerance)?.copyInto(inlier)
+
+        val acc = Accumulator()
+        for (i in 0 until n) if (inlier[i]) acc.update(points[i], 1.0, horizontal = true, vertical = false)
+        var sim = acc.similarity()
+        if (n >= MIN_POINTS_FOR_REJECTION) {
+            for (iter in 0 until maxIterations) {
+                val r = DoubleArray(n) { val p = points[it]; hypot(p.dstE - sim.e(p.srcE, p.srcN), p.dstN - sim.n(p.srcE, p.srcN)) }
+                val limit = maxOf(tolerance, 3.0 * sigma(r, inlier))
+                var changed = false
+                for (i in 0 until n) {
+                    val keep = r[i] <= limit
+                    if (keep != inlier[i]) {
+                        // Geometri 2 noktanın altına inmesin
+                        if (!keep && acc.count <= 2) continue
+                        acc.update(points[i], if (keep) 1.0 else -1.0, horizontal = true, vertical = false)
+                        inlier[i] = keep
+                        changed = true
+                    }
+                }
+                if (!changed) break
+                sim = acc.similarity()
+            }
+        }
+
+        // Düşey: yatayda kalan yükseklikli noktalar
+        val vIn = BooleanArray(n) { inlier[it] && points[it].hasHeight }
+        for (i in 0 until n) if (vIn[i]) acc.update(points[i], 1.0, horizontal = false, vertical = true)
+        var vertical = acc.vertical()
+        if (vertical != null && acc.heightCount >= MIN_POINTS_FOR_REJECTION) {
+            leaveOneOutSeed(points, vIn, acc, verticalTolerance)?.let { i ->
+                acc.update(points[i], -1.0, horizontal = false, vertical = true)
+                vIn[i] = false
+                vertical = acc.vertical()
+            }
+            for (iter in 0 until maxIterations) {
+                val v = vertical!!
+                val r = DoubleArray(n) { val p = points[it]; if (p.hasHeight) abs(p.dstH!! - p.srcH!! - v.dh(p.srcE, p.srcN)) else 0.0 }
+                val limit = maxOf(verticalTolerance, 3.0 * sigma(r, vIn))
+                var changed = false
+                for (i in 0 until n) {
+                    if (!inlier[i] || !points[i].hasHeight) continue
+                    val keep = r[i] <= limit
+                    if (keep != vIn[i]) {
+                        if (!keep && acc.heightCount <= 1) continue
+                        acc.update(points[i], if (keep) 1.0 else -1.0, horizontal = false, vertical = true)
+                        vIn[i] = keep
+                        changed = true
+                    }
+                }
+                if (!changed) break
+                vertical = acc.vertical()
+            }
+        }
+
+        val residuals = points.mapIndexed { i, p ->
+            residual(p, sim, vertical).copy(outlier = !inlier[i], verticalOutlier = p.hasHeight && inlier[i] && !vIn[i])
         }
-        if (sumW == 0.0) error("Ağırlık toplamı 0")
-        val srcEc = sumSrcE / sumW
-        val srcNc = sumSrcN / sumW
-        val dstEc = sumDstE / sumW
-        val dstNc = sumDstN / sumW
-
-        var Sxx = 0.0
-        var Sxy = 0.0
-        var D = 0.0
-        points.forEach { p ->
-            val xs = p.srcE - srcEc
-            val ys = p.srcN - srcNc
-            val xd = p.dstE - dstEc
-            val yd = p.dstN - dstNc
-            Sxx += p.w * (xs * xd + ys * yd)
-            Sxy += p.w * (xs * yd - ys * xd)
-            D += p.w * (xs * xs + ys * ys)
+        var sumH = 0.0; var cntH = 0
+        var sumV = 0.0; var cntV = 0
+        residuals.forEachIndexed { i, r ->
+            if (inlier[i]) { sumH += r.dE * r.dE + r.dN * r.dN; cntH++ }
+            if (vIn[i] && r.dH != null) { sumV += r.dH * r.dH; cntV++ }
         }
-        if (D == 0.0) error("Degenerate nokta geometrisi (D=0)")
-        val scale = sqrt(Sxx * Sxx + Sxy * Sxy) / D
-        val rot = atan2(Sxy, Sxx)
-        val cosR = cos(rot)
-        val sinR = sin(rot)
-        val tx = dstEc - scale * (cosR * srcEc - sinR * srcNc)
-        val ty = dstNc - scale * (sinR * srcEc + cosR * srcNc)
-        return SimilarityParams(scale, rot, tx, ty)
+        return Solution(
+            similarity = sim,
+            vertical = vertical,
+            residuals = residuals,
+            rmsHorizontal = sqrt(sumH / (2.0 * cntH)),
+            rmsVertical = if (cntV > 0) sqrt(sumV / cntV) else null,
+            inlierCount = cntH
+        )
     }
+
+    /**
+     * Dahil noktaların kalıntılarından dayanıklı σ (1.4826·medyan). RMS az noktada aykırı değerin kendisiyle
+     * şişer (n < 9 iken 3·RMS tek aykırıyı hiç aşamaz); medyan etkilenmez.
+     */
+    private fun sigma(r: DoubleArray, use: BooleanArray): Double {
+        val v = r.indices.filter { use[it] }.map { abs(r[it]) }.sorted()
+        if (v.isEmpty()) return 0.0
+        val m = v.size / 2
+        return 1.4826 * if (v.size % 2 == 1) v[m] else (v[m - 1] + v[m]) / 2
+    }
+
+    /**
+     * Düşey başlangıç: her yükseklikli nokta O(1) çıkarılıp düzlem yeniden kurulur; [tolerance] içinde kalan
+     * nokta sayısını tüm kümeden fazla artıran en iyi adayın indeksi döner. Eğik düzlemde tek aykırı nokta
+     * (özellikle kenardaki) düzlemi kendine çeker ve kalıntıya göre eleme yanlış noktayı atabilir.
+     */
+    private fun leaveOneOutSeed(points: List<Point>, use: BooleanArray, acc: Accumulator, tolerance: Double): Int? {
+        fun agreeing(v: VerticalParams) = points.indices.count { j ->
+            use[j] && abs(points[j].dstH!! - points[j].srcH!! - v.dh(points[j].srcE, points[j].srcN)) <= tolerance
+        }
+        var bestCount = agreeing(acc.vertical() ?: return null)
+        var best: Int? = null
+        for (i in points.indices) {
+            if (!use[i]) continue
+            acc.update(points[i], -1.0, horizontal = false, vertical = true)
+            val c = acc.vertical()?.let(::agreeing) ?: 0
+            acc.update(points[i], 1.0, horizontal = false, vertical = true)
+            // Çıkarılan nokta da (kendisiz düzleme göre) sayılır; karşılaştırma tüm kümeyle aynı ölçekte
+            if (c > bestCount) { bestCount = c; best = i }
+        }
+        return best
+    }
+
+    /** Çift-nokta konsensüsü; açık çoğunluk yoksa null (tüm noktalarla başlanır). */
+    private fun consensusSeed(points: List<Point>, tolerance: Double): BooleanArray? {
+        val n = points.size
+        val totalPairs = n * (n - 1) / 2
+        val stride = maxOf(1, totalPairs / MAX_PAIRS)
+        var best: BooleanArray? = null
+        var bestCount = 0
+        var bestCost = Double.MAX_VALUE
+        var k = 0
+        for (i in 0 until n) for (j in i + 1 until n) {
+            if (k++ % stride != 0) continue
+            val pair = Accumulator()
+            pair.add(points[i]); pair.add(points[j])
+            val sim = runCatching { pair.similarity() }.getOrNull() ?: continue
+            val mask = BooleanArray(n)
+            var count = 0
+            var cost = 0.0
+            for (m in 0 until n) {
+                val p = points[m]
+                val r = hypot(p.dstE - sim.e(p.srcE, p.srcN), p.dstN - sim.n(p.srcE, p.srcN))
+                if (r <= tolerance) { mask[m] = true; count++; cost += r } else cost += tolerance
+            }
+            if (count > bestCount || (count == bestCount && cost < bestCost)) {
+                best = mask; bestCount = count; bestCost = cost
+            }
+        }
+        return best?.takeIf { bestCount * 2 > n }
+    }
+
+    /** Bu sayıdan az noktada eleme yapılmaz (fazlalık yok, aykırı nokta ayırt edilemez). */
+    const val MIN_POINTS_FOR_REJECTION = 4
+    private const val MAX_PAIRS = 400
+    /** Ağırlık başına D alt sınırı (m²): noktalar pratikte çakışık. */
+    private const val DEGENERATE_M2 = 1e-8
+    private const val COLLINEAR_RATIO = 1e-6
 }
@@ -14,10 +14,12 @@ class PointRepository @Inject constructor(
     fun observeDeletedPoints(projectId: Long, limit: Int = 20): Flow<List<PointEntity>> = pointDao.observeDeletedPoints(projectId, limit)
     fun searchPoints(projectId: Long, pattern: String): Flow<List<PointEntity>> = pointDao.searchPoints(projectId, pattern)
 
+    suspend fun getById(id: Long): PointEntity? = pointDao.getById(id)
+
     suspend fun upsert(point: PointEntity): Long = pointDao.upsert(point.copy(updatedAt = System.currentTimeMillis()))
 
-    suspend fun updateFull(id: Long, name: String, northing: Double, easting: Double, height: Double?, code: String?, desc: String?) =
-        pointDao.updatePointFull(id, name, northing, easting, height, code, desc, System.currentTimeMillis())
+    suspend fun updateFull(id: Long, name: String, northing: Double, easting: Double, height: Double?, code: String?, desc: String?, orthoHeight: Double? = null) =
+        pointDao.updatePointFull(id, name, northing, easting, height, orthoHeight, code, desc, System.currentTimeMillis())
 
     suspend fun updatePointBasic(id: Long, name: String, northing: Double, easting: Double) =
         updateFull(id, name, northing, easting, null, null, null)
@@ -63,4 +63,31 @@ class ProjectRepository @Inject constructor(
     ) {
         projectDao.updateProjectionAdvanced(projectId, type, cm, fn, fe, k0, lat0, sp1, sp2)
     }
+
+    suspend fun updateProjectionOblique(projectId: Long, azimuth: Double?, gridAngle: Double?) {
+        projectDao.updateProjectionOblique(projectId, azimuth, gridAngle)
+    }
+
+    suspend fun updateDatum(
+        projectId: Long,
+        mode: Int?,
+        dx: Double?,
+        dy: Double?,
+        dz: Double?,
+        rx: Double?,
+        ry: Double?,
+        rz: Double?,
+        ppm: Double?
+    ) {
+        projectDao.updateDatum(projectId, mode, dx, dy, dz, rx, ry, rz, ppm)
+    }
+
+    /** Projeksiyon tanımı gibi birden çok alan grubunu tek işlemde uygular; gözlemciler ara durumu görmez. */
+    suspend fun updateProject(projectId: Long, change: (ProjectEntity) -> ProjectEntity) {
+        projectDao.update(projectId, change)
+    }
+
+    suspend fun updateDatumGrid(projectId: Long, path: String?) {
+        projectDao.updateDatumGrid(projectId, path)
+    }
 }
@@ -0,0 +1,49 @@
+package com.example.tugis3.data.db
+
+import com.example.tugis3.core.cad.codec.CadGeometryCodec
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertNotNull
+import org.junit.Assert.assertNull
+import org.junit.Test
+
+class CadGeometryV32Test {
+
+    private val valid = listOf(
+        "PT" to "500100.25|4400200.5",
+        "L" to "0|0|10.5|-3",
+        "C" to "5|5|2.5",
+        "A" to "1|2|3|15|270",
+        "T" to "10|20|1.8|P%7C12",
+        "T" to "10|20|1.8|Başlık|45",
+        "I" to "NOKTA|100|200|1|1|30",
+        "PL" to "0|0|0|10|0|10|10",
+        "PL" to "1|0|0|10|0|10|10|0|10",
+        "PG" to "2|4|0|0|10|0|10|10|0|10|3|2|2|4|2|3|4",
+    )
+
+    @Test
+    fun matchesLiveCodecAtV32() {
+        // Donmuş kopya göç yazıldığında canlı codec ile bayt bayt aynıydı
+        valid.forEach { (type, data) ->
+            val frozen = CadGeometryV32.fromText(type, data)
+            assertNotNull("$type $data", frozen)
+            assertArrayEquals("$type $data", CadGeometryCodec.fromText(type, data), frozen)
+        }
+    }
+
+    @Test
+    fun invalidRecordsStayText() {
+        listOf(
+            "B" to "BLK|0|0",
+            "L" to "0|0|1",
+            "C" to "0|0|0",
+            "A" to "0|0|-1|0|90",
+            "PL" to "0|1|1",
+            "PL" to "0|1|1|2",
+            "PG" to "1|2|0|0|1|1",
+            "PG" to "1|4|0|0|1|1",
+            "PT" to "x|1",
+            "XX" to "1|2",
+        ).forEach { (type, data) -> assertNull("$type $data", CadGeometryV32.fromText(type, data)) }
+    }
+}
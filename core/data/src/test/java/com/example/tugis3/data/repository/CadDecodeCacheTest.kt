@@ -0,0 +1,112 @@
+package com.example.tugis3.data.repository
+
+import com.example.tugis3.core.cad.codec.CadCodec
+import com.example.tugis3.core.cad.codec.CadGeometryCodec
+import com.example.tugis3.core.cad.model.CadBlock
+import com.example.tugis3.core.cad.model.CadCircle
+import com.example.tugis3.core.cad.model.CadEntity
+import com.example.tugis3.core.cad.model.CadInsert
+import com.example.tugis3.core.cad.model.CadLine
+import com.example.tugis3.core.cad.model.CadPoint
+import com.example.tugis3.core.cad.model.Vec2
+import com.example.tugis3.data.db.entity.CadEntityEntity
+import com.example.tugis3.data.db.entity.CadLayerEntity
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertSame
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class CadDecodeCacheTest {
+
+    private val layers = listOf(CadLayerEntity(id = 1, projectId = 1, name = "A", colorIndex = null, visible = 1))
+
+    private fun row(id: Long, e: CadEntity, updatedAt: Long = 1): CadEntityEntity {
+        val (type, geometry) = CadGeometryCodec.encode(e)
+        return CadEntityEntity(id = id, projectId = 1, layerId = 1, type = type, dataEncoded = "", geometry = geometry, updatedAt = updatedAt)
+    }
+
+    private fun line(i: Long) = CadLine(Vec2(i.toDouble(), 0.0), Vec2(0.0, 1.0), layer = "A")
+
+    private val rows = (1L..1_000L).map { row(it, line(it)) }
+
+    @Test
+    fun unchangedRowsAreNotDecodedAgain() {
+        val cache = CadDecodeCache()
+        val first = cache.update(layers, rows)
+        assertEquals(1_000, first.items.size)
+        assertEquals(1_000, first.diff.added.size)
+        assertEquals(1_000, first.decoded)
+
+        // Yalnız katman rengi değişti: çözüm yok, aynı liste örneği
+        val second = cache.update(layers.map { it.copy(colorIndex = 3) }, rows)
+        assertEquals(0, second.decoded)
+        assertTrue(second.diff.isEmpty)
+        assertSame(first.items, second.items)
+    }
+
+    @Test
+    fun diffReportsAddedRemovedAndChangedIds() {
+        val cache = CadDecodeCache()
+        val first = cache.update(layers, rows)
+        val next = rows.drop(1).map { if (it.id == 2L) row(2, line(99), updatedAt = 2) else it } +
+            row(5_000, CadPoint(Vec2(1.0, 1.0), layer = "A"))
+        val s = cache.update(layers, next)
+        assertEquals(setOf(5_000L), s.diff.added)
+        assertEquals(setOf(1L), s.diff.removed)
+        assertEquals(setOf(2L), s.diff.changed)
+        assertEquals(2, s.decoded)
+        // Değişmeyen öğeler aynı örnek
+        assertSame(first.items[2], s.items[1])
+    }
+
+    @Test
+    fun clearRemovesEveryKnownItem() {
+        val cache = CadDecodeCache()
+        cache.update(layers, rows)
+        val cleared = cache.clear()
+        assertTrue(cleared.items.isEmpty())
+        assertEquals(rows.map { it.id }.toSet(), cleared.diff.removed)
+        assertTrue(cleared.diff.added.isEmpty() && cleared.diff.changed.isEmpty())
+        // Sonraki yayın her şeyi baştan ekler
+        val again = cache.update(layers, rows)
+        assertEquals(1_000, again.diff.added.size)
+        assertEquals(1_000, again.decoded)
+    }
+
+    @Test
+    fun layerRenameAndBlockChangeInvalidateDependentRows() {
+        val cache = CadDecodeCache()
+        val block = CadBlock("ROGAR", Vec2(0.0, 0.0), listOf(CadCircle(Vec2(0.0, 0.0), 0.5, layer = "0")))
+        fun blockRow(b: CadBlock, updatedAt: Long) = CadCodec.encodeBlock(b).let { (t, d) ->
+            CadEntityEntity(id = 10_000, projectId = 1, layerId = 1, type = t, dataEncoded = d, updatedAt = updatedAt)
+        }
+        val base = rows.take(10) + row(20_000, CadInsert(block, Vec2(5.0, 5.0), layer = "A"))
+        cache.update(layers, base + blockRow(block, 1))
+
+        val bigger = CadBlock("ROGAR", Vec2(0.0, 0.0), listOf(CadCircle(Vec2(0.0, 0.0), 2.0, layer = "0")))
+        val s = cache.update(layers, base + blockRow(bigger, 2))
+        assertEquals(1, s.decoded)
+        assertEquals(setOf(20_000L), s.diff.changed)
+        assertEquals(bigger, (s.items.last().entity as CadInsert).block)
+
+        val renamed = cache.update(layers.map { it.copy(name = "B") }, base + blockRow(bigger, 2))
+        assertEquals(11, renamed.diff.changed.size)
+        assertTrue(renamed.items.all { it.entity.layer == "B" })
+    }
+
+    @Test
+    fun hiddenLayerRowsAreSkippedAndReportedRemoved() {
+        val cache = CadDecodeCache()
+        val two = layers + CadLayerEntity(id = 2, projectId = 1, name = "REF", colorIndex = null, visible = 1)
+        val ref = (1L..100L).map { row(10_000 + it, line(it)).copy(layerId = 2) }
+        assertEquals(1_100, cache.update(two, rows + ref).items.size)
+
+        // Katman akışı önce gelir: entity satırları henüz eski olsa da gizli katman atlanır
+        val hidden = two.map { if (it.id == 2L) it.copy(visible = 0) else it }
+        val s = cache.update(hidden, rows + ref)
+        assertEquals(1_000, s.items.size)
+        assertEquals(100, s.diff.removed.size)
+        assertEquals(0, s.decoded)
+        assertSame(s.items, cache.update(hidden, rows).items)
+    }
+}
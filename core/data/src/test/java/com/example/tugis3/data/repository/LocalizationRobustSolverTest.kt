@@ -0,0 +1,82 @@
+package com.example.tugis3.data.repository
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNotNull
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import kotlin.math.cos
+import kotlin.math.sin
+
+class LocalizationRobustSolverTest {
+
+    // Gerçekçi büyüklükte TM koordinatları (N ~ 4.5e6)
+    private val truth = LocalizationSolver.SimilarityParams(scale = 1.0000123, rot = 0.0021, tx = -412.37, ty = 1187.55)
+
+    private fun point(i: Int, noise: Double = 0.0, dh: Double? = null): LocalizationSolver.Point {
+        val e = 512_000.0 + 850.0 * cos(i * 1.7) + 37.0 * i
+        val n = 4_512_000.0 + 910.0 * sin(i * 2.3) - 21.0 * i
+        val h = 950.0 + i
+        // Düzlem: 0.42 m + 15 ppm kuzey, -8 ppm doğu eğimi
+        val plane = 0.42 + 15e-6 * (n - 4_512_000.0) - 8e-6 * (e - 512_000.0)
+        return LocalizationSolver.Point(
+            srcE = e, srcN = n,
+            dstE = truth.e(e, n) + noise * cos(i * 5.1), dstN = truth.n(e, n) + noise * sin(i * 3.3),
+            srcH = h, dstH = h + plane + (dh ?: 0.0)
+        )
+    }
+
+    @Test
+    fun incrementalAccumulatorMatchesBatch() {
+        val pts = (0 until 8).map { point(it, noise = 0.004) }
+        val acc = LocalizationSolver.Accumulator()
+        pts.forEach(acc::add)
+        // İlk nokta (öteleme referansı) dahil ikisini çıkar: kalan kümeyle toplu çözüm aynı olmalı
+        acc.remove(pts[0]); acc.remove(pts[5])
+        val batch = LocalizationSolver.solveSimilarity(pts.filterIndexed { i, _ -> i != 0 && i != 5 })
+        val inc = acc.similarity()
+        assertEquals(6, acc.count)
+        assertEquals(batch.scale, inc.scale, 1e-12)
+        assertEquals(batch.rot, inc.rot, 1e-12)
+        assertEquals(batch.tx, inc.tx, 1e-6)
+        assertEquals(batch.ty, inc.ty, 1e-6)
+    }
+
+    @Test
+    fun largeCoordinatesKeepPrecision() {
+        val sim = LocalizationSolver.solveSimilarity((0 until 5).map { point(it) })
+        assertEquals(truth.scale, sim.scale, 1e-12)
+        assertEquals(truth.rot, sim.rot, 1e-12)
+        val p = point(11)
+        assertEquals(p.dstE, sim.e(p.srcE, p.srcN), 1e-6)
+        assertEquals(p.dstN, sim.n(p.srcE, p.srcN), 1e-6)
+    }
+
+    @Test
+    fun grossOutlierIsRejected() {
+        val pts = (0 until 7).map { point(it, noise = 0.01) }.toMutableList()
+        pts[3] = pts[3].copy(dstE = pts[3].dstE + 1.5)
+        val sol = LocalizationSolver.solveRobust(pts)
+        assertTrue(sol.residuals[3].outlier)
+        assertEquals(6, sol.inlierCount)
+        assertTrue(sol.residuals.filterIndexed { i, _ -> i != 3 }.none { it.outlier })
+        assertEquals(truth.scale, sol.similarity.scale, 1e-5)
+        assertTrue(sol.rmsHorizontal < 0.02)
+        assertEquals(1.5, sol.residuals[3].dE, 0.05)
+    }
+
+    @Test
+    fun inclinedPlaneRecoveredWithVerticalOutlier() {
+        val pts = (0 until 6).map { point(it, dh = if (it == 2) 0.6 else null) }
+        val sol = LocalizationSolver.solveRobust(pts)
+        assertNotNull(sol.vertical)
+        val v = sol.vertical!!
+        assertEquals(15e-6, v.slopeN, 1e-9)
+        assertEquals(-8e-6, v.slopeE, 1e-9)
+        assertEquals(0.42, v.dh(512_000.0, 4_512_000.0), 1e-6)
+        assertTrue(sol.residuals[2].verticalOutlier)
+        assertFalse(sol.residuals[2].outlier)
+        assertEquals(5, v.pointCount)
+        assertEquals(0.0, sol.rmsVertical!!, 1e-6)
+    }
+}
@@ -0,0 +1,33 @@
+plugins {
+    alias(libs.plugins.kotlin.jvm)
+    alias(libs.plugins.jmh)
+}
+
+// Saf JVM jeodezi modülü: projeksiyon, datum, geoit/NTv2 ızgaraları. Android bağımlılığı yok;
+// testler ve JMH ölçümleri masaüstü JVM'de çalışır.
+java {
+    sourceCompatibility = JavaVersion.VERSION_17
+    targetCompatibility = JavaVersion.VERSION_17
+}
+
+kotlin {
+    compilerOptions {
+        jvmTarget.set(org.jetbrains.kotlin.gradle.dsl.JvmTarget.JVM_17)
+    }
+    // JMH kaynakları `internal` sınıfları (ör. klasik TM serisi) karşılaştırma için görebilsin
+    target.compilations.named("jmh") { associateWith(target.compilations.getByName("main")) }
+}
+
+dependencies {
+    testImplementation(libs.junit)
+}
+
+// ./gradlew :core:geo:jmh  (tek sınıf: -Pjmh.includes=ProjectionBenchmark)
+// "gc" profili nokta başına ayrılan baytı (gc.alloc.rate.norm) raporlar.
+jmh {
+    jmhVersion.set(libs.versions.jmh)
+    (findProperty("jmh.includes") as String?)?.let { includes.add(it) }
+    profilers.add("gc")
+    resultFormat.set("JSON")
+    failOnError.set(true)
+}
@@ -0,0 +1,82 @@
+package com.example.tugis3.coord.bench
+
+import com.example.tugis3.coord.transform.DatumTransformation
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Fork
+import org.openjdk.jmh.annotations.Measurement
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OperationsPerInvocation
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.Warmup
+import org.openjdk.jmh.infra.Blackhole
+import java.util.concurrent.TimeUnit
+
+/** Datum aşamasının tek başına maliyeti (projeksiyonsuz); mod değerleri [DatumTransformation.fromParameters] ile aynı. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+open class DatumBenchmark {
+
+    @JvmField
+    @Param("0", "2", "4")
+    var mode: Int = 0
+
+    private lateinit var datum: DatumTransformation
+    private val lat = DoubleArray(N)
+    private val lon = DoubleArray(N)
+    private val h = DoubleArray(N)
+    private val outLat = DoubleArray(N)
+    private val outLon = DoubleArray(N)
+    private val outH = DoubleArray(N)
+    private var cursor = 0
+
+    @Setup
+    fun setUp() {
+        val rotations = if (mode == 4) 0.0 else 1.0
+        datum = requireNotNull(
+            DatumTransformation.fromParameters(
+                mode, 84.1, 102.3, 129.8, -0.1 * rotations, -0.6 * rotations, 0.15 * rotations, 1.8 * rotations,
+                6378388.0, 297.0
+            )
+        )
+        val rnd = java.util.Random(7)
+        for (i in 0 until N) {
+            lat[i] = 36.0 + rnd.nextDouble() * 6.0
+            lon[i] = 26.0 + rnd.nextDouble() * 19.0
+            h[i] = rnd.nextDouble() * 2000.0
+        }
+    }
+
+    @Benchmark
+    fun toLocalSingle(bh: Blackhole) {
+        val i = cursor
+        cursor = (i + 1) and (N - 1)
+        bh.consume(datum.toLocal(lat[i], lon[i], h[i]))
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N)
+    fun toLocalBatch(bh: Blackhole) {
+        datum.toLocalBatch(lat, lon, h, outLat, outLon, outH, 0, N)
+        bh.consume(outLat)
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N)
+    fun toWgs84Batch(bh: Blackhole) {
+        datum.toWgs84Batch(lat, lon, h, outLat, outLon, outH, 0, N)
+        bh.consume(outLat)
+    }
+
+    private companion object {
+        const val N = 1024
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.tugis3.coord.bench
+
+import com.example.tugis3.coord.transform.CoordinateTransformer
+import com.example.tugis3.coord.transform.ProjectionFactory
+import com.example.tugis3.coord.transform.ProjectionParams
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Fork
+import org.openjdk.jmh.annotations.Measurement
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OperationsPerInvocation
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.Warmup
+import org.openjdk.jmh.infra.Blackhole
+import java.util.concurrent.TimeUnit
+
+/**
+ * Projeksiyon zincirlerinin nokta başına hızı (ops/s) ve ayırması (gc profili, B/op).
+ * Tekil yollar [CoordinateTransformer.forward] / [CoordinateTransformer.inverse] (Pair döner), toplu yollar
+ * [N] noktalık dizilerle ölçülür; toplu yolda ayırma 0'a yakın olmalıdır.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+open class ProjectionBenchmark {
+
+    @JvmField
+    @Param("UTM", "TM", "LCC", "HOM", "LOCALIZED", "HELMERT_TM", "MOLODENSKY_TM")
+    var chain: String = "UTM"
+
+    private lateinit var transformer: CoordinateTransformer
+    private val lat = DoubleArray(N)
+    private val lon = DoubleArray(N)
+    private val x = DoubleArray(N)
+    private val y = DoubleArray(N)
+    private val outA = DoubleArray(N)
+    private val outB = DoubleArray(N)
+    private var cursor = 0
+
+    @Setup
+    fun setUp() {
+        transformer = ProjectionFactory.build(params(chain))
+        // Türkiye kapsamında sabit tohumlu dağılım
+        val rnd = java.util.Random(42)
+        for (i in 0 until N) {
+            lat[i] = 36.0 + rnd.nextDouble() * 6.0
+            lon[i] = 32.0 + rnd.nextDouble() * 6.0
+        }
+        transformer.forwardBatch(lat, lon, x, y)
+    }
+
+    @Benchmark
+    fun forwardSingle(bh: Blackhole) {
+        val i = cursor
+        cursor = (i + 1) and (N - 1)
+        bh.consume(transformer.forward(lat[i], lon[i]))
+    }
+
+    @Benchmark
+    fun inverseSingle(bh: Blackhole) {
+        val i = cursor
+        cursor = (i + 1) and (N - 1)
+        bh.consume(transformer.inverse(x[i], y[i]))
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N)
+    fun forwardBatch(bh: Blackhole) {
+        transformer.forwardBatch(lat, lon, outA, outB)
+        bh.consume(outA)
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N)
+    fun inverseBatch(bh: Blackhole) {
+        transformer.inverseBatch(x, y, outA, outB)
+        bh.consume(outA)
+    }
+
+    companion object {
+        const val N = 1024
+
+        private val GRS80 = ProjectionParams(semiMajorA = 6378137.0, invFlattening = 298.257222101)
+
+        fun params(chain: String): ProjectionParams = when (chain) {
+            "UTM" -> GRS80.copy(utmZone = 36)
+            "TM" -> GRS80.copy(
+                projectionType = "Transverse_Mercator", projCentralMeridianDeg = 33.0,
+                projScaleFactor = 1.0, projFalseEasting = 500000.0
+            )
+            "LCC" -> GRS80.copy(
+                projectionType = "Lambert_Conformal_Conic_2SP", projCentralMeridianDeg = 35.0, projLatOrigin = 39.0,
+                projStdParallel1 = 37.0, projStdParallel2 = 41.0, projFalseEasting = 1000000.0, projFalseNorthing = 500000.0
+            )
+            "HOM" -> GRS80.copy(
+                projectionType = "Hotine_Oblique_Mercator", projCentralMeridianDeg = 35.0, projLatOrigin = 39.0,
+                projScaleFactor = 0.9999, projAzimuthDeg = 45.0, projGridAngleDeg = 45.0
+            )
+            "LOCALIZED" -> params("UTM").copy(locScale = 1.0000123, locRotRad = 0.0021, locTx = -412.37, locTy = 1187.55)
+            // ED50 (International 1924) yerel datum: WGS84 -> yerel 7 parametre, ardından TM
+            "HELMERT_TM" -> params("TM").copy(
+                semiMajorA = 6378388.0, invFlattening = 297.0,
+                datumMode = 0, datumDx = 84.1, datumDy = 102.3, datumDz = 129.8,
+                datumRx = -0.1, datumRy = -0.6, datumRz = 0.15, datumScalePpm = 1.8
+            )
+            "MOLODENSKY_TM" -> params("HELMERT_TM").copy(datumMode = 4, datumRx = 0.0, datumRy = 0.0, datumRz = 0.0, datumScalePpm = 0.0)
+            else -> error("Bilinmeyen zincir: $chain")
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.tugis3.coord.bench
+
+import com.example.tugis3.coord.transform.CoordinateTransformer
+import com.example.tugis3.coord.transform.GenericTmTransformer
+import com.example.tugis3.coord.transform.KruegerTransverseMercator
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Fork
+import org.openjdk.jmh.annotations.Measurement
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OperationsPerInvocation
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.Warmup
+import org.openjdk.jmh.infra.Blackhole
+import java.util.concurrent.TimeUnit
+
+/**
+ * Krüger serisi ile klasik TM serisinin toplu dönüşüm hızı; merkez meridyenin ±10° içindeki noktalarla.
+ * Doğruluk karşılaştırması `KruegerTransverseMercatorTest` içindedir.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+open class TransverseMercatorBenchmark {
+
+    @JvmField
+    @Param("KRUEGER", "CLASSIC")
+    var series: String = "KRUEGER"
+
+    private lateinit var transformer: CoordinateTransformer
+    private val lat = DoubleArray(N)
+    private val lon = DoubleArray(N)
+    private val x = DoubleArray(N)
+    private val y = DoubleArray(N)
+    private val outA = DoubleArray(N)
+    private val outB = DoubleArray(N)
+
+    @Setup
+    fun setUp() {
+        transformer = when (series) {
+            "KRUEGER" -> KruegerTransverseMercator(A, INV_F, 33.0, scaleFactor = 0.9996, falseE = 500000.0)
+            "CLASSIC" -> GenericTmTransformer(A, INV_F, 33.0, 0.0, 0.9996, 500000.0, 0.0)
+            else -> error("Bilinmeyen seri: $series")
+        }
+        val rnd = java.util.Random(42)
+        for (i in 0 until N) {
+            lat[i] = 30.0 + rnd.nextDouble() * 20.0
+            lon[i] = 23.0 + rnd.nextDouble() * 20.0
+        }
+        transformer.forwardBatch(lat, lon, x, y)
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N)
+    fun forwardBatch(bh: Blackhole) {
+        transformer.forwardBatch(lat, lon, outA, outB)
+        bh.consume(outA)
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N)
+    fun inverseBatch(bh: Blackhole) {
+        transformer.inverseBatch(x, y, outA, outB)
+        bh.consume(outA)
+    }
+
+    companion object {
+        const val N = 1024
+        private const val A = 6378137.0
+        private const val INV_F = 298.257223563
+    }
+}
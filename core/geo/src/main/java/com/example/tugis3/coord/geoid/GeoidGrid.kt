@@ -0,0 +1,231 @@
+package com.example.tugis3.coord.geoid
+
+import java.io.File
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import java.nio.channels.FileChannel
+import java.nio.file.StandardOpenOption
+import kotlin.math.floor
+
+/**
+ * Düzenli enlem/boylam ızgarası olarak geoit modeli; dosya bellek eşlemeli okunur, heap'e yalnız
+ * son kullanılan birkaç karo ([TILE] × [TILE] düğüm) açılır. Ulusal ızgara bellekte durmaz,
+ * gezicinin çevresi ise karo önbelleğinden mikro saniyede yanıtlanır.
+ *
+ * Desteklenen biçimler:
+ * - GeographicLib PGM (EGM2008 / EGM96 `egm2008-2_5.pgm` vb.): 16 bit big-endian, kuzeyden güneye, 0..360 boylam
+ * - Surfer 6 ikili ızgara (`DSBB`, .gsf/.grd): float32 little-endian, güneyden kuzeye, boş değer NaN
+ *
+ * Örnek thread-safe'dir; önbellek tek kilitle korunur.
+ */
+class GeoidGrid private constructor(
+    private val buf: ByteBuffer,
+    private val format: Format,
+    private val dataOff: Int,
+    /** Güneybatı düğümü ve aralıklar (derece). */
+    val south: Double,
+    val west: Double,
+    val dLat: Double,
+    val dLon: Double,
+    val rows: Int,
+    val cols: Int,
+    private val offset: Double,
+    private val scale: Double,
+    @Volatile var interpolation: Interpolation = Interpolation.BILINEAR
+) {
+    enum class Format { PGM, SURFER }
+    enum class Interpolation { BILINEAR, BIQUADRATIC }
+
+    val north: Double get() = south + (rows - 1) * dLat
+    val east: Double get() = west + (cols - 1) * dLon
+
+    /** Ülke ızgaraları sınırda kesilir; küresel ızgarada boylam sarılır (tekrarlanan 360° sütunu olsa da olmasa da). */
+    private val lonPeriod = Math.round(360.0 / dLon).toInt()
+    private val periodic = cols >= lonPeriod && Math.abs(lonPeriod * dLon - 360.0) < 1e-6
+
+    private val tilesX = (cols + TILE - 1) / TILE
+    private val tiles = object : LinkedHashMap<Long, FloatArray>(MAX_TILES, 0.75f, true) {
+        override fun removeEldestEntry(eldest: MutableMap.MutableEntry<Long, FloatArray>) = size > MAX_TILES
+    }
+    private var lastKey = -1L
+    private var lastTile: FloatArray? = null
+    private var loads = 0L
+
+    /** Dosyadan açılan karo sayısı (önbellek ıskaları); izleme ve test için. */
+    val tileLoads: Long get() = synchronized(tiles) { loads }
+
+    init {
+        val bytesPerNode = if (format == Format.PGM) 2 else 4
+        require(rows >= 2 && cols >= 2) { "Izgara çok küçük: ${rows}x$cols" }
+        require(dataOff.toLong() + rows.toLong() * cols * bytesPerNode <= buf.capacity()) { "Geoit dosyası kesik" }
+    }
+
+    /**
+     * Geoit yüksekliği N (metre); ızgara dışında veya boş düğüm komşuluğunda NaN.
+     * Ortometrik yükseklik H = h - N.
+     */
+    fun undulation(latDeg: Double, lonDeg: Double): Double {
+        if (latDeg.isNaN() || lonDeg.isNaN()) return Double.NaN
+        val fy = (latDeg - south) / dLat
+        if (fy < -EDGE || fy > rows - 1 + EDGE) return Double.NaN
+        var fx = (lonDeg - west) / dLon
+        if (periodic) {
+            fx -= lonPeriod * floor(fx / lonPeriod)
+        } else {
+            if (fx < -EDGE) fx += 360.0 / dLon
+            if (fx > cols - 1 + EDGE) fx -= 360.0 / dLon
+            if (fx < -EDGE || fx > cols - 1 + EDGE) return Double.NaN
+        }
+        return synchronized(tiles) {
+            when (interpolation) {
+                Interpolation.BILINEAR -> bilinear(fx, fy)
+                Interpolation.BIQUADRATIC -> biquadratic(fx, fy)
+            }
+        }
+    }
+
+    private fun bilinear(fx: Double, fy: Double): Double {
+        val r = floor(fy).toInt().coerceIn(0, rows - 2)
+        val c = if (periodic) floor(fx).toInt() else floor(fx).toInt().coerceIn(0, cols - 2)
+        val ty = fy - r
+        val tx = fx - c
+        val n00 = node(r, c); val n01 = node(r, c + 1)
+        val n10 = node(r + 1, c); val n11 = node(r + 1, c + 1)
+        return (n00 * (1 - tx) + n01 * tx) * (1 - ty) + (n10 * (1 - tx) + n11 * tx) * ty
+    }
+
+    /** En yakın düğüm merkezli 3×3 Lagrange (ikinci derece) enterpolasyonu. */
+    private fun biquadratic(fx: Double, fy: Double): Double {
+        val r = Math.round(fy).toInt().coerceIn(1, rows - 2)
+        val c = if (periodic) Math.round(fx).toInt() else Math.round(fx).toInt().coerceIn(1, cols - 2)
+        val u = fx - c
+        val v = fy - r
+        val wu0 = u * (u - 1) / 2; val wu1 = 1 - u * u; val wu2 = u * (u + 1) / 2
+        val wv0 = v * (v - 1) / 2; val wv1 = 1 - v * v; val wv2 = v * (v + 1) / 2
+        fun row(rr: Int) = wu0 * node(rr, c - 1) + wu1 * node(rr, c) + wu2 * node(rr, c + 1)
+        return wv0 * row(r - 1) + wv1 * row(r) + wv2 * row(r + 1)
+    }
+
+    /** (satır güneyden, sütun batıdan) düğümü; kilit altında çağrılır. */
+    private fun node(row: Int, col: Int): Double {
+        val c = if (periodic) Math.floorMod(col, lonPeriod) else col
+        val key = (row / TILE).toLong() * tilesX + c / TILE
+        val tile = if (key == lastKey) lastTile!! else (tiles[key] ?: loadTile(row / TILE, c / TILE).also { tiles[key] = it })
+            .also { lastKey = key; lastTile = it }
+        return tile[(row % TILE) * TILE + c % TILE].toDouble()
+    }
+
+    private fun loadTile(tr: Int, tc: Int): FloatArray {
+        loads++
+        val tile = FloatArray(TILE * TILE) { Float.NaN }
+        val r0 = tr * TILE
+        val c0 = tc * TILE
+        for (dr in 0 until minOf(TILE, rows - r0)) {
+            val row = r0 + dr
+            for (dc in 0 until minOf(TILE, cols - c0)) {
+                tile[dr * TILE + dc] = read(row, c0 + dc)
+            }
+        }
+        return tile
+    }
+
+    private fun read(row: Int, col: Int): Float = when (format) {
+        Format.PGM -> {
+            // Dosyada ilk satır kuzey
+            val raw = buf.getShort(dataOff + ((rows - 1 - row) * cols + col) * 2).toInt() and 0xFFFF
+            (offset + scale * raw).toFloat()
+        }
+        Format.SURFER -> {
+            val z = buf.getFloat(dataOff + (row * cols + col) * 4)
+            if (z >= SURFER_BLANK) Float.NaN else z
+        }
+    }
+
+    override fun toString() =
+        "GeoidGrid($format ${rows}x$cols, $south..$north / $west..$east, Δ=$dLat×$dLon)"
+
+    companion object {
+        const val TILE = 16
+        private const val MAX_TILES = 16
+        /** Izgara kenarında yuvarlama payı (düğüm aralığı cinsinden). */
+        private const val EDGE = 1e-9
+        private const val SURFER_BLANK = 1.70141e38f
+
+        /** Dosyayı salt okunur eşler; kanal kapansa da eşleme geçerli kalır. */
+        fun open(file: File): GeoidGrid {
+            val mapped = FileChannel.open(file.toPath(), StandardOpenOption.READ).use { ch ->
+                require(ch.size() <= Int.MAX_VALUE) { "Geoit dosyası 2 GB'tan büyük" }
+                ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size())
+            }
+            return wrap(mapped)
+        }
+
+        fun wrap(buffer: ByteBuffer): GeoidGrid {
+            val b0 = buffer.get(0).toInt().toChar()
+            val b1 = buffer.get(1).toInt().toChar()
+            return when {
+                b0 == 'P' && b1 == '5' -> parsePgm(buffer.duplicate().order(ByteOrder.BIG_ENDIAN))
+                b0 == 'D' && b1 == 'S' && buffer.get(2).toInt().toChar() == 'B' && buffer.get(3).toInt().toChar() == 'B' ->
+                    parseSurfer(buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN))
+                else -> throw IllegalArgumentException("Desteklenmeyen geoit biçimi (PGM P5 veya Surfer DSBB bekleniyor)")
+            }
+        }
+
+        private fun parsePgm(buf: ByteBuffer): GeoidGrid {
+            // Başlık: "P5", yorumlar (# Offset/# Scale/# Origin), genişlik, yükseklik, maxval, tek boşluk
+            var p = 2
+            var offset = 0.0
+            var scale = 1.0
+            val numbers = ArrayList<Int>(3)
+            while (numbers.size < 3) {
+                require(p < buf.capacity()) { "PGM başlığı eksik" }
+                val ch = buf.get(p).toInt().toChar()
+                when {
+                    ch == '#' -> {
+                        val sb = StringBuilder()
+                        while (p < buf.capacity() && buf.get(p).toInt() != '\n'.code) sb.append(buf.get(p++).toInt().toChar())
+                        val parts = sb.removePrefix("#").trim().split(Regex("\\s+"))
+                        when (parts.firstOrNull()) {
+                            "Offset" -> offset = parts.getOrNull(1)?.toDoubleOrNull() ?: offset
+                            "Scale" -> scale = parts.getOrNull(1)?.toDoubleOrNull() ?: scale
+                        }
+                    }
+                    ch.isWhitespace() -> p++
+                    ch.isDigit() -> {
+                        var v = 0
+                        while (buf.get(p).toInt().toChar().isDigit()) v = v * 10 + (buf.get(p++) - '0'.code.toByte())
+                        numbers += v
+                    }
+                    else -> throw IllegalArgumentException("PGM başlığında beklenmeyen karakter: $ch")
+                }
+            }
+            val (width, height, maxVal) = numbers
+            require(maxVal == 65535) { "PGM 16 bit olmalı (maxval=$maxVal)" }
+            // GeographicLib düzeni: ilk satır 90°K, sütunlar 0°D'dan başlar, 360° tekrar edilmez
+            return GeoidGrid(
+                buf, Format.PGM, p + 1,
+                south = -90.0, west = 0.0,
+                dLat = 180.0 / (height - 1), dLon = 360.0 / width,
+                rows = height, cols = width,
+                offset = offset, scale = scale
+            )
+        }
+
+        private fun parseSurfer(buf: ByteBuffer): GeoidGrid {
+            val nx = buf.getShort(4).toInt() and 0xFFFF
+            val ny = buf.getShort(6).toInt() and 0xFFFF
+            val xlo = buf.getDouble(8)
+            val xhi = buf.getDouble(16)
+            val ylo = buf.getDouble(24)
+            val yhi = buf.getDouble(32)
+            require(nx >= 2 && ny >= 2 && xhi > xlo && yhi > ylo) { "Surfer ızgara başlığı geçersiz" }
+            return GeoidGrid(
+                buf, Format.SURFER, 56,
+                south = ylo, west = xlo,
+                dLat = (yhi - ylo) / (ny - 1), dLon = (xhi - xlo) / (nx - 1),
+                rows = ny, cols = nx,
+                offset = 0.0, scale = 1.0
+            )
+        }
+    }
+}
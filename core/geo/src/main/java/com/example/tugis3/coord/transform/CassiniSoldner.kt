@@ -0,0 +1,77 @@
+package com.example.tugis3.coord.transform
+
+import kotlin.math.cos
+import kotlin.math.sin
+import kotlin.math.sqrt
+
+/**
+ * Cassini-Soldner (EPSG yöntem 9806, IOGP GN7-2 §3.2.2). Ölçek faktörü yoktur; katalogdaki k = 0 yok sayılır.
+ * Seriler merkez meridyenden birkaç yüz km içinde mm düzeyindedir (katalog satırları: Kenya, Malezya eyaletleri, İsrail).
+ */
+class CassiniSoldner(
+    private val semiMajor: Double,
+    invF: Double,
+    latOriginDeg: Double,
+    centralMeridianDeg: Double,
+    private val falseE: Double,
+    private val falseN: Double
+) : CoordinateTransformer {
+    private val f = if (invF.isInfinite()) 0.0 else 1.0 / invF
+    private val e2 = f * (2 - f)
+    private val lambda0 = Math.toRadians(centralMeridianDeg)
+    private val a0 = 1 - e2 / 4 - 3 * e2 * e2 / 64 - 5 * e2 * e2 * e2 / 256
+    private val a2 = 3 * e2 / 8 + 3 * e2 * e2 / 32 + 45 * e2 * e2 * e2 / 1024
+    private val a4 = 15 * e2 * e2 / 256 + 45 * e2 * e2 * e2 / 1024
+    private val a6 = 35 * e2 * e2 * e2 / 3072
+    private val m0 = meridianArc(Math.toRadians(latOriginDeg))
+    // Ayak noktası enlemi serisi
+    private val e1 = (1 - sqrt(1 - e2)) / (1 + sqrt(1 - e2))
+    private val j1 = 3 * e1 / 2 - 27 * e1 * e1 * e1 / 32
+    private val j2 = 21 * e1 * e1 / 16 - 55 * e1 * e1 * e1 * e1 / 32
+    private val j3 = 151 * e1 * e1 * e1 / 96
+    private val j4 = 1097 * e1 * e1 * e1 * e1 / 512
+
+    private fun meridianArc(phi: Double): Double =
+        semiMajor * (a0 * phi - a2 * sin(2 * phi) + a4 * sin(4 * phi) - a6 * sin(6 * phi))
+
+    private inline fun <R> project(latDeg: Double, lonDeg: Double, sink: (Double, Double) -> R): R {
+        val phi = Math.toRadians(latDeg)
+        val s = sin(phi); val c = cos(phi)
+        val tanPhi = s / c
+        val a = (Math.toRadians(lonDeg) - lambda0) * c
+        val t = tanPhi * tanPhi
+        val cc = e2 * c * c / (1 - e2)
+        val nu = semiMajor / sqrt(1 - e2 * s * s)
+        val a2p = a * a
+        val x = meridianArc(phi) - m0 + nu * tanPhi * (a2p / 2 + (5 - t + 6 * cc) * a2p * a2p / 24)
+        val e = nu * (a - t * a2p * a / 6 - (8 - t + 8 * cc) * t * a2p * a2p * a / 120)
+        return sink(falseE + e, falseN + x)
+    }
+
+    private inline fun <R> unproject(x: Double, y: Double, sink: (Double, Double) -> R): R {
+        val mu = (m0 + (y - falseN)) / (semiMajor * a0)
+        val phi1 = mu + j1 * sin(2 * mu) + j2 * sin(4 * mu) + j3 * sin(6 * mu) + j4 * sin(8 * mu)
+        val s = sin(phi1); val c = cos(phi1)
+        val tanPhi = s / c
+        val t1 = tanPhi * tanPhi
+        val w = 1 - e2 * s * s
+        val nu1 = semiMajor / sqrt(w)
+        val rho1 = semiMajor * (1 - e2) / (w * sqrt(w))
+        val d = (x - falseE) / nu1
+        val d2 = d * d
+        val phi = phi1 - (nu1 * tanPhi / rho1) * (d2 / 2 - (1 + 3 * t1) * d2 * d2 / 24)
+        val lambda = lambda0 + (d - t1 * d2 * d / 3 + (1 + 3 * t1) * t1 * d2 * d2 * d / 15) / c
+        return sink(Math.toDegrees(phi), Math.toDegrees(lambda))
+    }
+
+    override fun forward(latDeg: Double, lonDeg: Double) = project(latDeg, lonDeg) { x, y -> x to y }
+    override fun inverse(x: Double, y: Double) = unproject(x, y) { lat, lon -> lat to lon }
+
+    override fun forwardBatch(lat: DoubleArray, lon: DoubleArray, outX: DoubleArray, outY: DoubleArray, from: Int, to: Int) {
+        for (i in from until to) project(lat[i], lon[i]) { x, y -> outX[i] = x; outY[i] = y }
+    }
+
+    override fun inverseBatch(x: DoubleArray, y: DoubleArray, outLat: DoubleArray, outLon: DoubleArray, from: Int, to: Int) {
+        for (i in from until to) unproject(x[i], y[i]) { la, lo -> outLat[i] = la; outLon[i] = lo }
+    }
+}
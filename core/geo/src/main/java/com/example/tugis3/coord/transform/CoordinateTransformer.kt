@@ -0,0 +1,332 @@
+package com.example.tugis3.coord.transform
+
+import kotlin.math.*
+
+/** Ortak arayüz: Jeodezik (lat,lon) -> düz koordinat (x,y) dönüşümü ve tersi */
+interface CoordinateTransformer {
+    fun forward(latDeg: Double, lonDeg: Double): Pair<Double, Double>
+    fun inverse(x: Double, y: Double): Pair<Double, Double>
+
+    /**
+     * [from]..<[to] aralığındaki noktaları toplu dönüştürür; sonuç [outX]/[outY]'ye yazılır.
+     * Giriş ve çıkış dizileri aynı olabilir (yerinde dönüşüm). Bu paketteki dönüştürücüler
+     * nokta başına nesne ayırmaz; varsayılan gövde yalnız harici implementasyonlar içindir.
+     */
+    fun forwardBatch(
+        lat: DoubleArray, lon: DoubleArray, outX: DoubleArray, outY: DoubleArray,
+        from: Int = 0, to: Int = lat.size
+    ) {
+        for (i in from until to) {
+            val (x, y) = forward(lat[i], lon[i])
+            outX[i] = x; outY[i] = y
+        }
+    }
+
+    /** [forwardBatch]'in tersi: (x,y) -> (lat,lon) derece. */
+    fun inverseBatch(
+        x: DoubleArray, y: DoubleArray, outLat: DoubleArray, outLon: DoubleArray,
+        from: Int = 0, to: Int = x.size
+    ) {
+        for (i in from until to) {
+            val (la, lo) = inverse(x[i], y[i])
+            outLat[i] = la; outLon[i] = lo
+        }
+    }
+}
+
+/** Hiçbir dönüşüm yapmayan (lat->northing, lon->easting) placeholder. */
+object NoOpTransformer : CoordinateTransformer {
+    override fun forward(latDeg: Double, lonDeg: Double) = latDeg to lonDeg
+    override fun inverse(x: Double, y: Double) = x to y
+
+    override fun forwardBatch(lat: DoubleArray, lon: DoubleArray, outX: DoubleArray, outY: DoubleArray, from: Int, to: Int) {
+        if (outX !== lat) System.arraycopy(lat, from, outX, from, to - from)
+        if (outY !== lon) System.arraycopy(lon, from, outY, from, to - from)
+    }
+
+    override fun inverseBatch(x: DoubleArray, y: DoubleArray, outLat: DoubleArray, outLon: DoubleArray, from: Int, to: Int) {
+        if (outLat !== x) System.arraycopy(x, from, outLat, from, to - from)
+        if (outLon !== y) System.arraycopy(y, from, outLon, from, to - from)
+    }
+}
+
+/** UTM: sabit parametreli Transverse Mercator (k0 = 0.9996, FE = 500 km), Krüger serisiyle. */
+class UtmTransformer(
+    private val zone: Int,
+    private val northernHemisphere: Boolean,
+    private val semiMajor: Double,
+    private val invF: Double
+) : CoordinateTransformer {
+    private val tm = KruegerTransverseMercator(
+        semiMajor = semiMajor,
+        invF = invF,
+        centralMeridianDeg = (zone * 6 - 183).toDouble(),
+        latOriginDeg = 0.0,
+        scaleFactor = 0.9996,
+        falseE = 500000.0,
+        falseN = if (northernHemisphere) 0.0 else 10000000.0
+    )
+
+    override fun forward(latDeg: Double, lonDeg: Double) = tm.forward(latDeg, lonDeg)
+    override fun inverse(x: Double, y: Double) = tm.inverse(x, y)
+    override fun forwardBatch(lat: DoubleArray, lon: DoubleArray, outX: DoubleArray, outY: DoubleArray, from: Int, to: Int) =
+        tm.forwardBatch(lat, lon, outX, outY, from, to)
+    override fun inverseBatch(x: DoubleArray, y: DoubleArray, outLat: DoubleArray, outLon: DoubleArray, from: Int, to: Int) =
+        tm.inverseBatch(x, y, outLat, outLon, from, to)
+}
+
+/**
+ * Klasik (Snyder) seri Transverse Mercator. Merkez meridyenden ~3°'den sonra hatası büyür;
+ * projeksiyonlar artık [KruegerTransverseMercator] kullanır, bu sınıf karşılaştırma/doğruluk testleri için tutulur.
+ * Elipsoit ve meridyen yayı katsayıları yapıcıda bir kez hesaplanır; çoklu açı sinüsleri
+ * trigonometrik çağrı yerine sin/cos'tan türetilir.
+ */
+internal class GenericTmTransformer(
+    private val semiMajor: Double,
+    invF: Double,
+    centralMeridianDeg: Double,
+    latOriginDeg: Double,
+    private val scaleFactor: Double,
+    private val falseE: Double,
+    private val falseN: Double
+) : CoordinateTransformer {
+    private val f = 1.0 / invF
+    private val e2 = 2*f - f*f
+    private val ePrime2 = e2 / (1 - e2)
+    private val lambda0 = Math.toRadians(centralMeridianDeg)
+    // Meridyen yayı için yardımcı katsayılar
+    private val a0 = 1 - e2/4 - 3*e2*e2/64 - 5*e2*e2*e2/256
+    private val a2 = 3.0/8.0 * (e2 + e2*e2/4 + 15*e2*e2*e2/128)
+    private val a4 = 15.0/256.0 * (e2*e2 + 3*e2*e2*e2/4)
+    private val a6 = 35.0/3072.0 * e2*e2*e2
+    private val m0 = meridianArc(Math.toRadians(latOriginDeg))
+    // Ters dönüşüm (footpoint) katsayıları
+    private val e1 = (1 - sqrt(1 - e2)) / (1 + sqrt(1 - e2))
+    private val muDenominator = semiMajor * a0
+    private val j1 = 3*e1/2 - 27*e1*e1*e1/32
+    private val j2 = 21*e1*e1/16 - 55*e1*e1*e1*e1/32
+    private val j3 = 151*e1*e1*e1/96
+    private val j4 = 1097*e1*e1*e1*e1/512
+
+    private fun meridianArc(phi: Double): Double = semiMajor * (a0*phi - a2*sin(2*phi) + a4*sin(4*phi) - a6*sin(6*phi))
+
+    private inline fun <R> project(latDeg: Double, lonDeg: Double, sink: (Double, Double) -> R): R {
+        val lat = Math.toRadians(latDeg)
+        val s = sin(lat)
+        val c = cos(lat)
+        // sin(2φ), sin(4φ), sin(6φ) açı toplamı ile
+        val s2 = 2*s*c; val c2 = c*c - s*s
+        val s4 = 2*s2*c2; val c4 = c2*c2 - s2*s2
+        val s6 = s4*c2 + c4*s2
+        val tanLat = s / c
+        val N = semiMajor / sqrt(1 - e2*s*s)
+        val T = tanLat*tanLat
+        val C = ePrime2*c*c
+        val A = c * (Math.toRadians(lonDeg) - lambda0)
+        val A2 = A*A; val A3 = A2*A; val A4 = A2*A2; val A5 = A4*A; val A6 = A4*A2
+        val M = semiMajor * (a0*lat - a2*s2 + a4*s4 - a6*s6) - m0
+        return sink(
+            falseE + scaleFactor * N * (A + (1 - T + C) * A3/6 + (5 - 18*T + T*T + 72*C - 58*ePrime2) * A5/120),
+            falseN + scaleFactor * (M + N * tanLat * (A2/2 + (5 - T + 9*C + 4*C*C) * A4/24 + (61 - 58*T + T*T + 600*C - 330*ePrime2) * A6/720))
+        )
+    }
+
+    private inline fun <R> unproject(x: Double, y: Double, sink: (Double, Double) -> R): R {
+        val xAdj = (x - falseE) / scaleFactor
+        val mu = ((y - falseN) / scaleFactor + m0) / muDenominator
+        val sm = sin(mu); val cm = cos(mu)
+        val s2 = 2*sm*cm; val c2 = cm*cm - sm*sm
+        val s4 = 2*s2*c2; val c4 = c2*c2 - s2*s2
+        val s6 = s4*c2 + c4*s2
+        val s8 = 2*s4*c4
+        val fp = mu + j1*s2 + j2*s4 + j3*s6 + j4*s8
+        val sf = sin(fp); val cf = cos(fp)
+        val tf = sf / cf
+        val C1 = ePrime2*cf*cf
+        val T1 = tf*tf
+        val w = 1 - e2*sf*sf
+        val N1 = semiMajor / sqrt(w)
+        val R1 = N1 * (1 - e2) / w
+        val D = xAdj / N1
+        val D2 = D*D; val D3 = D2*D; val D4 = D2*D2; val D5 = D4*D; val D6 = D4*D2
+        val lat = fp - (N1 * tf / R1) * (D2/2 - (5 + 3*T1 + 10*C1 - 4*C1*C1 - 9*ePrime2) * D4/24 + (61 + 90*T1 + 298*C1 + 45*T1*T1 - 252*ePrime2 - 3*C1*C1) * D6/720)
+        val lon = lambda0 + (D - (1 + 2*T1 + C1) * D3/6 + (5 - 2*C1 + 28*T1 - 3*C1*C1 + 8*ePrime2 + 24*T1*T1) * D5/120) / cf
+        return sink(Math.toDegrees(lat), Math.toDegrees(lon))
+    }
+
+    override fun forward(latDeg: Double, lonDeg: Double) = project(latDeg, lonDeg) { x, y -> x to y }
+    override fun inverse(x: Double, y: Double) = unproject(x, y) { lat, lon -> lat to lon }
+
+    override fun forwardBatch(lat: DoubleArray, lon: DoubleArray, outX: DoubleArray, outY: DoubleArray, from: Int, to: Int) {
+        for (i in from until to) project(lat[i], lon[i]) { x, y -> outX[i] = x; outY[i] = y }
+    }
+
+    override fun inverseBatch(x: DoubleArray, y: DoubleArray, outLat: DoubleArray, outLon: DoubleArray, from: Int, to: Int) {
+        for (i in from until to) unproject(x[i], y[i]) { la, lo -> outLat[i] = la; outLon[i] = lo }
+    }
+}
+
+/**
+ * Lambert Conformal Conic 2SP. 1SP varyantı için [lat1Deg] = [lat2Deg] = başlangıç enlemi
+ * ve [scaleFactor] = k0 verilir (n = sin φ0).
+ */
+internal class LambertConic2SPTransformer(
+    private val semiMajor: Double,
+    invF: Double,
+    lat0Deg: Double,
+    lon0Deg: Double,
+    lat1Deg: Double,
+    lat2Deg: Double,
+    private val falseE: Double,
+    private val falseN: Double,
+    scaleFactor: Double = 1.0
+): CoordinateTransformer {
+    private val f = 1.0 / invF
+    private val e2 = 2*f - f*f
+    private val e = sqrt(e2)
+    private val halfE = e / 2
+    private val φ1 = Math.toRadians(lat1Deg)
+    private val φ2 = Math.toRadians(lat2Deg)
+    private val φ0 = Math.toRadians(lat0Deg)
+    private val λ0 = Math.toRadians(lon0Deg)
+    private fun m(phi: Double) = cos(phi)/sqrt(1 - e2*sin(phi).pow(2))
+    private fun t(phi: Double): Double {
+        val esin = e * sin(phi)
+        return tan(Math.PI/4 - phi/2) / ((1 - esin)/(1 + esin)).pow(halfE)
+    }
+    private val m1 = m(φ1)
+    private val m2 = m(φ2)
+    private val t1 = t(φ1)
+    private val t2 = t(φ2)
+    private val t0 = t(φ0)
+    private val n = if (abs(φ1 - φ2) < 1e-12) sin(φ1) else (ln(m1) - ln(m2)) / (ln(t1) - ln(t2))
+    private val invN = 1.0 / n
+    private val F = m1 / (n * t1.pow(n))
+    private val aF = semiMajor * F * scaleFactor
+    private val ρ0 = aF * t0.pow(n)
+
+    private inline fun <R> project(latDeg: Double, lonDeg: Double, sink: (Double, Double) -> R): R {
+        val ρ = aF * t(Math.toRadians(latDeg)).pow(n)
+        val θ = n * (Math.toRadians(lonDeg) - λ0)
+        return sink(falseE + ρ * sin(θ), falseN + ρ0 - ρ * cos(θ))
+    }
+
+    private inline fun <R> unproject(x: Double, y: Double, sink: (Double, Double) -> R): R {
+        val dx = x - falseE
+        val dy = ρ0 - (y - falseN)
+        val ρp = sqrt(dx*dx + dy*dy) * (if (n >= 0) 1 else -1)
+        val θ = atan2(dx, dy)
+        val tVal = (ρp / aF).pow(invN)
+        // Iteratif phi çözümü
+        var φ = Math.PI/2 - 2*atan(tVal)
+        repeat(6) {
+            val esin = e * sin(φ)
+            φ = Math.PI/2 - 2*atan( tVal * ((1 - esin)/(1 + esin)).pow(halfE) )
+        }
+        return sink(Math.toDegrees(φ), Math.toDegrees(λ0 + θ * invN))
+    }
+
+    override fun forward(latDeg: Double, lonDeg: Double) = project(latDeg, lonDeg) { x, y -> x to y }
+    override fun inverse(x: Double, y: Double) = unproject(x, y) { lat, lon -> lat to lon }
+
+    override fun forwardBatch(lat: DoubleArray, lon: DoubleArray, outX: DoubleArray, outY: DoubleArray, from: Int, to: Int) {
+        for (i in from until to) project(lat[i], lon[i]) { x, y -> outX[i] = x; outY[i] = y }
+    }
+
+    override fun inverseBatch(x: DoubleArray, y: DoubleArray, outLat: DoubleArray, outLon: DoubleArray, from: Int, to: Int) {
+        for (i in from until to) unproject(x[i], y[i]) { la, lo -> outLat[i] = la; outLon[i] = lo }
+    }
+}
+
+/** Boylamı (-180, 180] aralığına indirger. */
+internal fun normalizeLonDeg(lon: Double): Double {
+    val r = lon - 360.0 * Math.floor((lon + 180.0) / 360.0)
+    return if (r == -180.0) 180.0 else r
+}
+
+/**
+ * Güneye yönelik TM (Güney Afrika Lo, Ruanda vb.): eksenler batı/güney pozitiftir,
+ * W = FE - E', S = FN - N'. [delegate] false E/N içermeyen TM'dir.
+ */
+internal class SouthOrientatedTransformer(
+    private val delegate: CoordinateTransformer,
+    private val falseE: Double,
+    private val falseN: Double
+) : CoordinateTransformer {
+    override fun forward(latDeg: Double, lonDeg: Double): Pair<Double, Double> {
+        val (e, n) = delegate.forward(latDeg, lonDeg)
+        return (falseE - e) to (falseN - n)
+    }
+
+    override fun inverse(x: Double, y: Double) = delegate.inverse(falseE - x, falseN - y)
+
+    override fun forwardBatch(lat: DoubleArray, lon: DoubleArray, outX: DoubleArray, outY: DoubleArray, from: Int, to: Int) {
+        delegate.forwardBatch(lat, lon, outX, outY, from, to)
+        for (i in from until to) {
+            outX[i] = falseE - outX[i]
+            outY[i] = falseN - outY[i]
+        }
+    }
+
+    override fun inverseBatch(x: DoubleArray, y: DoubleArray, outLat: DoubleArray, outLon: DoubleArray, from: Int, to: Int) {
+        for (i in from until to) {
+            outLat[i] = falseE - x[i]
+            outLon[i] = falseN - y[i]
+        }
+        delegate.inverseBatch(outLat, outLon, outLat, outLon, from, to)
+    }
+}
+
+/** Similarity (scale+rotation+translation) uygulayan sarmalayıcı */
+internal class LocalizedTransformer(
+    private val delegate: CoordinateTransformer,
+    private val scale: Double,
+    private val rot: Double,
+    private val tx: Double,
+    private val ty: Double
+) : CoordinateTransformer {
+    private val cosR = cos(rot)
+    private val sinR = sin(rot)
+    private val invScale = 1.0 / scale
+
+    override fun forward(latDeg: Double, lonDeg: Double): Pair<Double, Double> {
+        val (x0, y0) = delegate.forward(latDeg, lonDeg)
+        // delegate.forward -> (easting, northing) varsayımı ile
+        val e = x0
+        val n = y0
+        val eL = scale * (cosR * e - sinR * n) + tx
+        val nL = scale * (sinR * e + cosR * n) + ty
+        return eL to nL
+    }
+
+    override fun inverse(x: Double, y: Double): Pair<Double, Double> {
+        // Ters similarity: önce translasyonu çıkar, sonra rotasyonu ters çevirip scale'i böl
+        val eL = x - tx
+        val nL = y - ty
+        // R^T * [eL, nL]
+        val e = invScale * ( cosR * eL + sinR * nL )
+        val n = invScale * ( -sinR * eL + cosR * nL )
+        return delegate.inverse(e, n)
+    }
+
+    override fun forwardBatch(lat: DoubleArray, lon: DoubleArray, outX: DoubleArray, outY: DoubleArray, from: Int, to: Int) {
+        delegate.forwardBatch(lat, lon, outX, outY, from, to)
+        for (i in from until to) {
+            val e = outX[i]
+            val n = outY[i]
+            outX[i] = scale * (cosR * e - sinR * n) + tx
+            outY[i] = scale * (sinR * e + cosR * n) + ty
+        }
+    }
+
+    override fun inverseBatch(x: DoubleArray, y: DoubleArray, outLat: DoubleArray, outLon: DoubleArray, from: Int, to: Int) {
+        // Önce similarity tersi çıkış dizilerine, sonra temel projeksiyon yerinde
+        for (i in from until to) {
+            val eL = x[i] - tx
+            val nL = y[i] - ty
+            outLat[i] = invScale * ( cosR * eL + sinR * nL )
+            outLon[i] = invScale * ( -sinR * eL + cosR * nL )
+        }
+        delegate.inverseBatch(outLat, outLon, outLat, outLon, from, to)
+    }
+}
@@ -0,0 +1,320 @@
+package com.example.tugis3.coord.transform
+
+import java.util.Locale
+import kotlin.math.abs
+import kotlin.math.atan2
+import kotlin.math.cos
+import kotlin.math.sin
+import kotlin.math.sqrt
+
+/**
+ * WGS84 <-> yerel datum dönüşümü (elipsoidal φ, λ derece; h metre).
+ * Projeksiyondan önce uygulanır: GNSS konumu önce yerel datuma taşınır, sonra yerel elipsoitte projekte edilir.
+ *
+ * Tekil çağrılar kolaylık içindir; toplu giriş noktaları nokta başına nesne ayırmaz. [h]/[outH] null ise
+ * yükseklik 0 kabul edilir ve yazılmaz (2B zincir). Giriş ve çıkış dizileri aynı olabilir.
+ */
+interface DatumTransformation {
+    fun toLocal(latDeg: Double, lonDeg: Double, h: Double = 0.0): Triple<Double, Double, Double>
+    fun toWgs84(latDeg: Double, lonDeg: Double, h: Double = 0.0): Triple<Double, Double, Double>
+
+    fun toLocalBatch(
+        lat: DoubleArray, lon: DoubleArray, h: DoubleArray?,
+        outLat: DoubleArray, outLon: DoubleArray, outH: DoubleArray?,
+        from: Int = 0, to: Int = lat.size
+    )
+
+    fun toWgs84Batch(
+        lat: DoubleArray, lon: DoubleArray, h: DoubleArray?,
+        outLat: DoubleArray, outLon: DoubleArray, outH: DoubleArray?,
+        from: Int = 0, to: Int = lat.size
+    )
+
+    companion object {
+        const val WGS84_A = 6378137.0
+        const val WGS84_INV_F = 298.257223563
+
+        /**
+         * Katalog modu: 0/1 Helmert (yerel -> WGS84), 2 Bursa-Wolf (WGS84 -> yerel), 4 Molodensky.
+         * Projeksions.csv'de yalnız 0, 1 (Krovak, HBK94 gibi satırlar) ve 2 geçer; 4 elle tanımlanan parametreler içindir.
+         * Her iki 7 parametreli modda dönüklükler position vector işaretli (RD başlangıç noktası ile doğrulandı).
+         */
+        const val MODE_HELMERT = 0
+        const val MODE_BURSA_WOLF = 2
+        const val MODE_MOLODENSKY = 4
+
+        /** Geosentrik kaydırma bu değeri aşıyorsa parametre datum kaydırması değildir (katalogda ilçe ızgarası ofsetleri var). */
+        const val MAX_TRANSLATION_M = 5000.0
+
+        /**
+         * Kaydetmeden önce parametre denetimi. Sorun yoksa null, varsa kullanıcıya gösterilecek mesaj döner.
+         * [fromParameters] denetim yapmaz; kaydedilmiş parametreler olduğu gibi uygulanır.
+         */
+        fun validateParameters(dx: Double, dy: Double, dz: Double, rx: Double, ry: Double, rz: Double, scalePpm: Double): String? {
+            if (!listOf(dx, dy, dz, rx, ry, rz, scalePpm).all { it.isFinite() }) return "Datum parametrelerinde geçersiz sayı var"
+            val maxT = maxOf(abs(dx), abs(dy), abs(dz))
+            if (maxT > MAX_TRANSLATION_M) {
+                return "Datum ötelemesi ${"%.0f".format(Locale.US, maxT)} m; ${MAX_TRANSLATION_M.toInt()} m üstü bir datum kaydırması olamaz"
+            }
+            return null
+        }
+
+        /**
+         * Katalog / proje parametrelerinden dönüşüm. Tüm parametreler sıfırsa null döner (datum aşaması yok).
+         * Dönüklükler yay saniyesi, ölçek ppm.
+         */
+        fun fromParameters(
+            mode: Int,
+            dx: Double, dy: Double, dz: Double,
+            rx: Double, ry: Double, rz: Double,
+            scalePpm: Double,
+            localA: Double, localInvF: Double
+        ): DatumTransformation? {
+            val noShift = dx == 0.0 && dy == 0.0 && dz == 0.0 && rx == 0.0 && ry == 0.0 && rz == 0.0 && scalePpm == 0.0
+            if (noShift) return null
+            return when (mode) {
+                MODE_MOLODENSKY -> MolodenskyTransformation(localA, localInvF, dx, dy, dz)
+                MODE_BURSA_WOLF -> HelmertTransformation(
+                    localA, localInvF, dx, dy, dz, rx, ry, rz, scalePpm,
+                    wgs84ToLocal = true, positionVector = true
+                )
+                else -> HelmertTransformation(
+                    localA, localInvF, dx, dy, dz, rx, ry, rz, scalePpm,
+                    wgs84ToLocal = false, positionVector = true
+                )
+            }
+        }
+    }
+}
+
+/** Elipsoit sabitleri ve φλh <-> ECEF dönüşümleri. */
+internal class GeocentricEllipsoid(val a: Double, invF: Double) {
+    val f = if (invF.isInfinite() || invF == 0.0) 0.0 else 1.0 / invF
+    val e2 = f * (2 - f)
+    val b = a * (1 - f)
+    val ep2 = e2 / (1 - e2)
+
+    inline fun <R> toEcef(latDeg: Double, lonDeg: Double, h: Double, sink: (Double, Double, Double) -> R): R {
+        val phi = Math.toRadians(latDeg)
+        val lam = Math.toRadians(lonDeg)
+        val sp = sin(phi); val cp = cos(phi)
+        val n = a / sqrt(1 - e2 * sp * sp)
+        return sink((n + h) * cp * cos(lam), (n + h) * cp * sin(lam), (n * (1 - e2) + h) * sp)
+    }
+
+    /** Bowring (1976) tek adım: yeryüzü yakınında mm altı. */
+    inline fun <R> fromEcef(x: Double, y: Double, z: Double, sink: (Double, Double, Double) -> R): R {
+        val p = sqrt(x * x + y * y)
+        val theta = atan2(z * a, p * b)
+        val st = sin(theta); val ct = cos(theta)
+        val phi = atan2(z + ep2 * b * st * st * st, p - e2 * a * ct * ct * ct)
+        val sp = sin(phi); val cp = cos(phi)
+        val n = a / sqrt(1 - e2 * sp * sp)
+        val h = if (abs(cp) > 1e-10) p / cp - n else abs(z) - b
+        return sink(Math.toDegrees(phi), Math.toDegrees(atan2(y, x)), h)
+    }
+}
+
+/**
+ * 7 parametreli benzerlik dönüşümü (Helmert / Bursa-Wolf), ECEF üzerinde.
+ * Verilen yöndeki matris M = (1+s)·R ve tam tersi yapıcıda hesaplanır; nokta başına yalnız iki 3x3 çarpım kalır.
+ *
+ * @param wgs84ToLocal parametrelerin yönü (false: yerel -> WGS84)
+ * @param positionVector dönüklük işareti (EPSG 9606 position vector; false ise 9607 coordinate frame)
+ */
+internal class HelmertTransformation(
+    localA: Double, localInvF: Double,
+    dx: Double, dy: Double, dz: Double,
+    rxSec: Double, rySec: Double, rzSec: Double,
+    scalePpm: Double,
+    wgs84ToLocal: Boolean,
+    positionVector: Boolean
+) : DatumTransformation {
+    private val wgs = GeocentricEllipsoid(DatumTransformation.WGS84_A, DatumTransformation.WGS84_INV_F)
+    private val local = GeocentricEllipsoid(localA, localInvF)
+
+    // WGS84 -> yerel: X_l = F·X_w + tF ; yerel -> WGS84: X_w = G·X_l + tG
+    private val f00: Double; private val f01: Double; private val f02: Double
+    private val f10: Double; private val f11: Double; private val f12: Double
+    private val f20: Double; private val f21: Double; private val f22: Double
+    private val tf0: Double; private val tf1: Double; private val tf2: Double
+    private val g00: Double; private val g01: Double; private val g02: Double
+    private val g10: Double; private val g11: Double; private val g12: Double
+    private val g20: Double; private val g21: Double; private val g22: Double
+    private val tg0: Double; private val tg1: Double; private val tg2: Double
+
+    init {
+        val sign = if (positionVector) 1.0 else -1.0
+        val sec = Math.PI / (180.0 * 3600.0)
+        val rx = sign * rxSec * sec
+        val ry = sign * rySec * sec
+        val rz = sign * rzSec * sec
+        val k = 1 + scalePpm * 1e-6
+        // Verilen yöndeki M (küçük açı position-vector matrisi)
+        val m = doubleArrayOf(
+            k, -k * rz, k * ry,
+            k * rz, k, -k * rx,
+            -k * ry, k * rx, k
+        )
+        val inv = invert3(m)
+        // Ters yönün ötelemesi: -M⁻¹·t
+        val ti0 = -(inv[0] * dx + inv[1] * dy + inv[2] * dz)
+        val ti1 = -(inv[3] * dx + inv[4] * dy + inv[5] * dz)
+        val ti2 = -(inv[6] * dx + inv[7] * dy + inv[8] * dz)
+        val fm = if (wgs84ToLocal) m else inv
+        val gm = if (wgs84ToLocal) inv else m
+        f00 = fm[0]; f01 = fm[1]; f02 = fm[2]; f10 = fm[3]; f11 = fm[4]; f12 = fm[5]; f20 = fm[6]; f21 = fm[7]; f22 = fm[8]
+        g00 = gm[0]; g01 = gm[1]; g02 = gm[2]; g10 = gm[3]; g11 = gm[4]; g12 = gm[5]; g20 = gm[6]; g21 = gm[7]; g22 = gm[8]
+        if (wgs84ToLocal) {
+            tf0 = dx; tf1 = dy; tf2 = dz; tg0 = ti0; tg1 = ti1; tg2 = ti2
+        } else {
+            tf0 = ti0; tf1 = ti1; tf2 = ti2; tg0 = dx; tg1 = dy; tg2 = dz
+        }
+    }
+
+    private inline fun <R> forwardCore(lat: Double, lon: Double, h: Double, sink: (Double, Double, Double) -> R): R =
+        wgs.toEcef(lat, lon, h) { x, y, z ->
+            local.fromEcef(
+                f00 * x + f01 * y + f02 * z + tf0,
+                f10 * x + f11 * y + f12 * z + tf1,
+                f20 * x + f21 * y + f22 * z + tf2,
+                sink
+            )
+        }
+
+    private inline fun <R> inverseCore(lat: Double, lon: Double, h: Double, sink: (Double, Double, Double) -> R): R =
+        local.toEcef(lat, lon, h) { x, y, z ->
+            wgs.fromEcef(
+                g00 * x + g01 * y + g02 * z + tg0,
+                g10 * x + g11 * y + g12 * z + tg1,
+                g20 * x + g21 * y + g22 * z + tg2,
+                sink
+            )
+        }
+
+    override fun toLocal(latDeg: Double, lonDeg: Double, h: Double) = forwardCore(latDeg, lonDeg, h) { a, b, c -> Triple(a, b, c) }
+    override fun toWgs84(latDeg: Double, lonDeg: Double, h: Double) = inverseCore(latDeg, lonDeg, h) { a, b, c -> Triple(a, b, c) }
+
+    override fun toLocalBatch(
+        lat: DoubleArray, lon: DoubleArray, h: DoubleArray?,
+        outLat: DoubleArray, outLon: DoubleArray, outH: DoubleArray?, from: Int, to: Int
+    ) {
+        for (i in from until to) forwardCore(lat[i], lon[i], h?.get(i) ?: 0.0) { a, b, c ->
+            outLat[i] = a; outLon[i] = b; if (outH != null) outH[i] = c
+        }
+    }
+
+    override fun toWgs84Batch(
+        lat: DoubleArray, lon: DoubleArray, h: DoubleArray?,
+        outLat: DoubleArray, outLon: DoubleArray, outH: DoubleArray?, from: Int, to: Int
+    ) {
+        for (i in from until to) inverseCore(lat[i], lon[i], h?.get(i) ?: 0.0) { a, b, c ->
+            outLat[i] = a; outLon[i] = b; if (outH != null) outH[i] = c
+        }
+    }
+
+    private companion object {
+        fun invert3(m: DoubleArray): DoubleArray {
+            val c00 = m[4] * m[8] - m[5] * m[7]
+            val c01 = m[5] * m[6] - m[3] * m[8]
+            val c02 = m[3] * m[7] - m[4] * m[6]
+            val det = m[0] * c00 + m[1] * c01 + m[2] * c02
+            val d = 1.0 / det
+            return doubleArrayOf(
+                c00 * d, (m[2] * m[7] - m[1] * m[8]) * d, (m[1] * m[5] - m[2] * m[4]) * d,
+                c01 * d, (m[0] * m[8] - m[2] * m[6]) * d, (m[2] * m[3] - m[0] * m[5]) * d,
+                c02 * d, (m[1] * m[6] - m[0] * m[7]) * d, (m[0] * m[4] - m[1] * m[3]) * d
+            )
+        }
+    }
+}
+
+/**
+ * Kısaltılmış Molodensky (3 parametre, yerel -> WGS84 ötelemesi). ECEF'e çıkmadan doğrudan φλh farkları;
+ * doğruluğu ~1 m mertebesindedir, kataloğun "mode 4" satırları için.
+ */
+internal class MolodenskyTransformation(
+    localA: Double, localInvF: Double,
+    private val dx: Double, private val dy: Double, private val dz: Double
+) : DatumTransformation {
+    private val wgs = GeocentricEllipsoid(DatumTransformation.WGS84_A, DatumTransformation.WGS84_INV_F)
+    private val local = GeocentricEllipsoid(localA, localInvF)
+    // yerel -> WGS84 yönünde elipsoit farkları
+    private val da = wgs.a - local.a
+    private val df = wgs.f - local.f
+
+    /** [src] elipsoidinden (dx,dy,dz) ve (da,df) ile hedefe. */
+    private inline fun <R> shift(
+        src: GeocentricEllipsoid, sx: Double, sy: Double, sz: Double, sda: Double, sdf: Double,
+        latDeg: Double, lonDeg: Double, h: Double, sink: (Double, Double, Double) -> R
+    ): R {
+        val phi = Math.toRadians(latDeg)
+        val lam = Math.toRadians(lonDeg)
+        val sp = sin(phi); val cp = cos(phi)
+        val sl = sin(lam); val cl = cos(lam)
+        val w2 = 1 - src.e2 * sp * sp
+        val w = sqrt(w2)
+        val n = src.a / w
+        val m = src.a * (1 - src.e2) / (w2 * w)
+        val adf = src.a * sdf + src.f * sda
+        val dPhi = (-sx * sp * cl - sy * sp * sl + sz * cp + adf * 2 * sp * cp) / (m + h)
+        val dLam = (-sx * sl + sy * cl) / ((n + h) * cp)
+        val dH = sx * cp * cl + sy * cp * sl + sz * sp + adf * sp * sp - sda
+        return sink(latDeg + Math.toDegrees(dPhi), lonDeg + Math.toDegrees(dLam), h + dH)
+    }
+
+    override fun toLocal(latDeg: Double, lonDeg: Double, h: Double) =
+        shift(wgs, -dx, -dy, -dz, -da, -df, latDeg, lonDeg, h) { a, b, c -> Triple(a, b, c) }
+
+    override fun toWgs84(latDeg: Double, lonDeg: Double, h: Double) =
+        shift(local, dx, dy, dz, da, df, latDeg, lonDeg, h) { a, b, c -> Triple(a, b, c) }
+
+    override fun toLocalBatch(
+        lat: DoubleArray, lon: DoubleArray, h: DoubleArray?,
+        outLat: DoubleArray, outLon: DoubleArray, outH: DoubleArray?, from: Int, to: Int
+    ) {
+        for (i in from until to) shift(wgs, -dx, -dy, -dz, -da, -df, lat[i], lon[i], h?.get(i) ?: 0.0) { a, b, c ->
+            outLat[i] = a; outLon[i] = b; if (outH != null) outH[i] = c
+        }
+    }
+
+    override fun toWgs84Batch(
+        lat: DoubleArray, lon: DoubleArray, h: DoubleArray?,
+        outLat: DoubleArray, outLon: DoubleArray, outH: DoubleArray?, from: Int, to: Int
+    ) {
+        for (i in from until to) shift(local, dx, dy, dz, da, df, lat[i], lon[i], h?.get(i) ?: 0.0) { a, b, c ->
+            outLat[i] = a; outLon[i] = b; if (outH != null) outH[i] = c
+        }
+    }
+}
+
+/**
+ * Datum aşamasını projeksiyonun önüne ekler: WGS84 φλ -> yerel φλ -> [projection].
+ * 2B zincirde yükseklik 0 alınır (yatay etkisi 1 km yükseklikte mm mertebesi).
+ */
+internal class DatumShiftedTransformer(
+    private val datum: DatumTransformation,
+    private val projection: CoordinateTransformer
+) : CoordinateTransformer {
+    override fun forward(latDeg: Double, lonDeg: Double): Pair<Double, Double> {
+        val (la, lo) = datum.toLocal(latDeg, lonDeg)
+        return projection.forward(la, lo)
+    }
+
+    override fun inverse(x: Double, y: Double): Pair<Double, Double> {
+        val (la, lo) = projection.inverse(x, y)
+        val (wLat, wLon) = datum.toWgs84(la, lo)
+        return wLat to wLon
+    }
+
+    override fun forwardBatch(lat: DoubleArray, lon: DoubleArray, outX: DoubleArray, outY: DoubleArray, from: Int, to: Int) {
+        // Yerel φλ çıkış dizilerine, projeksiyon yerinde
+        datum.toLocalBatch(lat, lon, null, outX, outY, null, from, to)
+        projection.forwardBatch(outX, outY, outX, outY, from, to)
+    }
+
+    override fun inverseBatch(x: DoubleArray, y: DoubleArray, outLat: DoubleArray, outLon: DoubleArray, from: Int, to: Int) {
+        projection.inverseBatch(x, y, outLat, outLon, from, to)
+        datum.toWgs84Batch(outLat, outLon, null, outLat, outLon, null, from, to)
+    }
+}
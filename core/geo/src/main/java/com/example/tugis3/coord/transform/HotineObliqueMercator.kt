@@ -0,0 +1,154 @@
+package com.example.tugis3.coord.transform
+
+import kotlin.math.PI
+import kotlin.math.abs
+import kotlin.math.asin
+import kotlin.math.atan
+import kotlin.math.atan2
+import kotlin.math.cos
+import kotlin.math.exp
+import kotlin.math.ln
+import kotlin.math.pow
+import kotlin.math.sin
+import kotlin.math.sqrt
+import kotlin.math.tan
+
+/**
+ * Hotine Oblique Mercator (EPSG yöntem 9812 / 9815, IOGP GN7-2 §3.2.4).
+ *
+ * - [Variant.A] (9812): false E/N doğal (u,v) başlangıcına göredir; katalogdaki "Hotine_Oblique_Mercator"
+ *   satırları (Alaska zone 1, Malezya RSO) bu varyanttır.
+ * - [Variant.B] (9815): false E/N projeksiyon merkezindeki (φc, λc) değerlerdir; "Oblique_Mercator"
+ *   satırları (Macaristan EOV, İsviçre LV03, αc = γc = 90°) bu varyanttır.
+ *
+ * Oregon OCRS bölgeleri katalog CSV'sinde "Hotine_Oblique_Mercator" olarak geçse de EPSG'de varyant B'dir;
+ * katalog derleyicisi bu satırları "Oblique_Mercator" tipine çevirir.
+ */
+class HotineObliqueMercator(
+    semiMajor: Double,
+    invF: Double,
+    latCentreDeg: Double,
+    lonCentreDeg: Double,
+    azimuthDeg: Double,
+    rectifiedGridAngleDeg: Double,
+    scaleFactor: Double,
+    private val falseE: Double,
+    private val falseN: Double,
+    variant: Variant
+) : CoordinateTransformer {
+    enum class Variant { A, B }
+
+    private val f = if (invF.isInfinite()) 0.0 else 1.0 / invF
+    private val e2 = f * (2 - f)
+    private val e = sqrt(e2)
+    private val halfE = e / 2
+    private val b: Double
+    private val a: Double
+    private val h: Double
+    private val invB: Double
+    private val aOverB: Double
+    private val sinG0: Double
+    private val cosG0: Double
+    private val lambda0: Double
+    private val sinGc: Double
+    private val cosGc: Double
+    /** Varyant B'de u ekseninden çıkarılan merkez ofseti (|uc|·sign(φc)); varyant A'da 0. */
+    private val uOffset: Double
+    // χ -> φ seri katsayıları
+    private val c2: Double
+    private val c4: Double
+    private val c6: Double
+    private val c8: Double
+
+    init {
+        val phiC = Math.toRadians(latCentreDeg)
+        val lambdaC = Math.toRadians(lonCentreDeg)
+        val alphaC = Math.toRadians(azimuthDeg)
+        val gammaC = Math.toRadians(rectifiedGridAngleDeg)
+        val sinPhiC = sin(phiC)
+        val cosPhiC = cos(phiC)
+        b = sqrt(1 + e2 * cosPhiC.pow(4) / (1 - e2))
+        a = semiMajor * b * scaleFactor * sqrt(1 - e2) / (1 - e2 * sinPhiC * sinPhiC)
+        val t0 = t(phiC)
+        val d = b * sqrt(1 - e2) / (cosPhiC * sqrt(1 - e2 * sinPhiC * sinPhiC))
+        val d2 = maxOf(d * d, 1.0)
+        val sgn = if (phiC < 0) -1.0 else 1.0
+        val fF = d + sqrt(d2 - 1) * sgn
+        h = fF * t0.pow(b)
+        val g = (fF - 1 / fF) / 2
+        val gamma0 = asin(sin(alphaC) / d)
+        // αc = 90° (EOV, LV03) iken G·tan γ0 = 1; yuvarlama asin'i NaN'a düşürmesin
+        lambda0 = lambdaC - asin((g * tan(gamma0)).coerceIn(-1.0, 1.0)) / b
+        invB = 1 / b
+        aOverB = a / b
+        sinG0 = sin(gamma0); cosG0 = cos(gamma0)
+        sinGc = sin(gammaC); cosGc = cos(gammaC)
+        uOffset = when (variant) {
+            Variant.A -> 0.0
+            Variant.B -> {
+                val uc = if (abs(abs(azimuthDeg) - 90.0) < 1e-12) a * (lambdaC - lambda0)
+                else aOverB * atan(sqrt(d2 - 1) / cos(alphaC)) * sgn
+                abs(uc) * sgn
+            }
+        }
+        val e4 = e2 * e2; val e6 = e4 * e2; val e8 = e4 * e4
+        c2 = e2 / 2 + 5 * e4 / 24 + e6 / 12 + 13 * e8 / 360
+        c4 = 7 * e4 / 48 + 29 * e6 / 240 + 811 * e8 / 11520
+        c6 = 7 * e6 / 120 + 81 * e8 / 1120
+        c8 = 4279 * e8 / 161280
+    }
+
+    private fun t(phi: Double): Double {
+        val es = e * sin(phi)
+        return tan(PI / 4 - phi / 2) / ((1 - es) / (1 + es)).pow(halfE)
+    }
+
+    /** Boylam farkını (-π, π] aralığına indirger; katalogdaki 0..360 merkez meridyenleri için. */
+    private fun wrap(x: Double): Double = x - 2 * PI * Math.floor((x + PI) / (2 * PI))
+
+    private inline fun <R> project(latDeg: Double, lonDeg: Double, sink: (Double, Double) -> R): R {
+        val q = h / t(Math.toRadians(latDeg)).pow(b)
+        val s = (q - 1 / q) / 2
+        val tt = (q + 1 / q) / 2
+        val bl = b * wrap(Math.toRadians(lonDeg) - lambda0)
+        val vv = sin(bl)
+        val uu = (-vv * cosG0 + s * sinG0) / tt
+        val v = a * ln((1 - uu) / (1 + uu)) / (2 * b)
+        val u = aOverB * atan2(s * cosG0 + vv * sinG0, cos(bl)) - uOffset
+        return sink(v * cosGc + u * sinGc + falseE, u * cosGc - v * sinGc + falseN)
+    }
+
+    private inline fun <R> unproject(x: Double, y: Double, sink: (Double, Double) -> R): R {
+        val dx = x - falseE
+        val dy = y - falseN
+        val v = dx * cosGc - dy * sinGc
+        val u = dy * cosGc + dx * sinGc + uOffset
+        val q = exp(-b * v / a)
+        val s = (q - 1 / q) / 2
+        val tt = (q + 1 / q) / 2
+        val bu = b * u / a
+        val vv = sin(bu)
+        val uu = (vv * cosG0 + s * sinG0) / tt
+        val tp = (h / sqrt((1 + uu) / (1 - uu))).pow(invB)
+        val chi = PI / 2 - 2 * atan(tp)
+        val s2 = sin(2 * chi); val k2 = cos(2 * chi)
+        // sin(4χ), sin(6χ), sin(8χ) açı toplamıyla
+        val s4 = 2 * s2 * k2; val k4 = k2 * k2 - s2 * s2
+        val s6 = s4 * k2 + k4 * s2
+        val s8 = 2 * s4 * k4
+        val phi = chi + c2 * s2 + c4 * s4 + c6 * s6 + c8 * s8
+        val lambda = lambda0 - atan2(s * cosG0 - vv * sinG0, cos(bu)) * invB
+        return sink(Math.toDegrees(phi), Math.toDegrees(wrap(lambda)))
+    }
+
+    override fun forward(latDeg: Double, lonDeg: Double) = project(latDeg, lonDeg) { x, y -> x to y }
+    override fun inverse(x: Double, y: Double) = unproject(x, y) { lat, lon -> lat to lon }
+
+    override fun forwardBatch(lat: DoubleArray, lon: DoubleArray, outX: DoubleArray, outY: DoubleArray, from: Int, to: Int) {
+        for (i in from until to) project(lat[i], lon[i]) { x, y -> outX[i] = x; outY[i] = y }
+    }
+
+    override fun inverseBatch(x: DoubleArray, y: DoubleArray, outLat: DoubleArray, outLon: DoubleArray, from: Int, to: Int) {
+        for (i in from until to) unproject(x[i], y[i]) { la, lo -> outLat[i] = la; outLon[i] = lo }
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.tugis3.coord.transform
+
+import kotlin.math.PI
+import kotlin.math.abs
+import kotlin.math.asin
+import kotlin.math.atan
+import kotlin.math.atan2
+import kotlin.math.cos
+import kotlin.math.pow
+import kotlin.math.sin
+import kotlin.math.sqrt
+import kotlin.math.tan
+
+/**
+ * Krovak eğik konform konik (EPSG yöntem 9819 / 1041, IOGP GN7-2 §3.2.1.3); S-JTSK (Çekya, Slovakya).
+ *
+ * Katalog satırı: merkez meridyen = λO (Greenwich'ten 24°50'), başlangıç enlemi = φC, StandardParallel1 = φP
+ * (sahte standart paralel, 78°30'), dAzimuth = αC (koni ekseninin eş-enlemi), k = kP.
+ *
+ * [northOrientated] true iken (varsayılan) çıkış uygulamanın diğer projeksiyonlarıyla aynı eksen düzenindedir:
+ * E = −Y (batı), N = −X (güney), yani EPSG 1041. false ise klasik pozitif güney/batı değerleri (X, Y)
+ * sırasıyla y ve x olarak döner.
+ */
+class Krovak(
+    semiMajor: Double,
+    invF: Double,
+    latCentreDeg: Double,
+    lonOriginDeg: Double,
+    coLatConeAxisDeg: Double,
+    latPseudoStdParallelDeg: Double,
+    scaleFactor: Double,
+    private val falseE: Double,
+    private val falseN: Double,
+    private val northOrientated: Boolean = true
+) : CoordinateTransformer {
+    private val f = if (invF.isInfinite()) 0.0 else 1.0 / invF
+    private val e2 = f * (2 - f)
+    private val e = sqrt(e2)
+    private val lambda0 = Math.toRadians(lonOriginDeg)
+    private val sinAlpha: Double
+    private val cosAlpha: Double
+    private val b: Double
+    private val t0: Double
+    private val n: Double
+    private val r0: Double
+    private val tanPhiP: Double
+
+    init {
+        val phiC = Math.toRadians(latCentreDeg)
+        val phiP = Math.toRadians(latPseudoStdParallelDeg)
+        val alpha = Math.toRadians(coLatConeAxisDeg)
+        sinAlpha = sin(alpha); cosAlpha = cos(alpha)
+        val sc = sin(phiC)
+        // Gauss küresi yarıçapı √(MN) φC'de; r0 = kP·R / tan φP
+        val gaussR = semiMajor * sqrt(1 - e2) / (1 - e2 * sc * sc)
+        b = sqrt(1 + e2 * cos(phiC).pow(4) / (1 - e2))
+        val gamma0 = asin(sc / b)
+        t0 = tan(PI / 4 + gamma0 / 2) * ((1 + e * sc) / (1 - e * sc)).pow(e * b / 2) / tan(PI / 4 + phiC / 2).pow(b)
+        n = sin(phiP)
+        r0 = scaleFactor * gaussR / tan(phiP)
+        tanPhiP = tan(PI / 4 + phiP / 2)
+    }
+
+    private inline fun <R> project(latDeg: Double, lonDeg: Double, sink: (Double, Double) -> R): R {
+        val phi = Math.toRadians(latDeg)
+        val es = e * sin(phi)
+        val u = 2 * (atan(t0 * tan(phi / 2 + PI / 4).pow(b) / ((1 + es) / (1 - es)).pow(e * b / 2)) - PI / 4)
+        val v = b * (lambda0 - Math.toRadians(lonDeg))
+        val cosU = cos(u)
+        val t = asin(cosAlpha * sin(u) + sinAlpha * cosU * cos(v))
+        val d = asin(cosU * sin(v) / cos(t))
+        val theta = n * d
+        val r = r0 * tanPhiP.pow(n) / tan(t / 2 + PI / 4).pow(n)
+        val southing = r * cos(theta) + falseN
+        val westing = r * sin(theta) + falseE
+        return if (northOrientated) sink(-westing, -southing) else sink(westing, southing)
+    }
+
+    private inline fun <R> unproject(x: Double, y: Double, sink: (Double, Double) -> R): R {
+        val xp = (if (northOrientated) -y else y) - falseN
+        val yp = (if (northOrientated) -x else x) - falseE
+        val r = sqrt(xp * xp + yp * yp)
+        val theta = atan2(yp, xp)
+        val d = theta / n
+        val t = 2 * (atan((r0 / r).pow(1 / n) * tanPhiP) - PI / 4)
+        val cosT = cos(t)
+        val u = asin(cosAlpha * sin(t) - sinAlpha * cosT * cos(d))
+        val v = asin(cosT * sin(d) / cos(u))
+        val lambda = lambda0 - v / b
+        val k = t0.pow(-1 / b) * tan(u / 2 + PI / 4).pow(1 / b)
+        var phi = u
+        for (i in 0 until MAX_ITER) {
+            val es = e * sin(phi)
+            val next = 2 * (atan(k * ((1 + es) / (1 - es)).pow(e / 2)) - PI / 4)
+            val done = abs(next - phi) < 1e-14
+            phi = next
+            if (done) break
+        }
+        return sink(Math.toDegrees(phi), Math.toDegrees(lambda))
+    }
+
+    override fun forward(latDeg: Double, lonDeg: Double) = project(latDeg, lonDeg) { x, y -> x to y }
+    override fun inverse(x: Double, y: Double) = unproject(x, y) { lat, lon -> lat to lon }
+
+    override fun forwardBatch(lat: DoubleArray, lon: DoubleArray, outX: DoubleArray, outY: DoubleArray, from: Int, to: Int) {
+        for (i in from until to) project(lat[i], lon[i]) { x, y -> outX[i] = x; outY[i] = y }
+    }
+
+    override fun inverseBatch(x: DoubleArray, y: DoubleArray, outLat: DoubleArray, outLon: DoubleArray, from: Int, to: Int) {
+        for (i in from until to) unproject(x[i], y[i]) { la, lo -> outLat[i] = la; outLon[i] = lo }
+    }
+
+    private companion object {
+        const val MAX_ITER = 15
+    }
+}
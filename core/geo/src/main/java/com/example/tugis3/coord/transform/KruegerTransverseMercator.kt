@@ -0,0 +1,158 @@
+package com.example.tugis3.coord.transform
+
+import kotlin.math.abs
+import kotlin.math.asinh
+import kotlin.math.atan
+import kotlin.math.atan2
+import kotlin.math.atanh
+import kotlin.math.cos
+import kotlin.math.cosh
+import kotlin.math.sin
+import kotlin.math.sinh
+import kotlin.math.sqrt
+import kotlin.math.tan
+
+/**
+ * Transverse Mercator, Krüger n-serisi (6. derece, Karney 2011).
+ *
+ * Merkez meridyenden uzakta (3° dilimler, geniş projeler) klasik Snyder serisinden çok daha doğrudur;
+ * ±30° içinde hata mm altındadır. α/β katsayıları elipsoit başına yapıcıda bir kez hesaplanır,
+ * seriler karmaşık Clenshaw toplamıyla değerlendirilir (nokta başına dört hiperbolik/trigonometrik çağrı).
+ */
+class KruegerTransverseMercator(
+    semiMajor: Double,
+    invF: Double,
+    centralMeridianDeg: Double,
+    latOriginDeg: Double = 0.0,
+    private val scaleFactor: Double = 1.0,
+    private val falseE: Double = 0.0,
+    private val falseN: Double = 0.0
+) : CoordinateTransformer {
+    private val f = if (invF.isInfinite()) 0.0 else 1.0 / invF
+    private val e2 = f * (2 - f)
+    private val e = sqrt(e2)
+    private val oneMinusE2 = 1 - e2
+    private val lambda0 = Math.toRadians(centralMeridianDeg)
+
+    /** k0 · A (A: rektifiye yarıçap). */
+    private val kA: Double
+    private val alpha = DoubleArray(ORDER + 1)
+    private val beta = DoubleArray(ORDER + 1)
+    /** Başlangıç enleminin merkez meridyendeki northing'i (false northing öncesi). */
+    private val yOrigin: Double
+
+    init {
+        val n = f / (2 - f)
+        val n2 = n * n; val n3 = n2 * n; val n4 = n3 * n; val n5 = n4 * n; val n6 = n5 * n
+        kA = scaleFactor * semiMajor / (1 + n) * (1 + n2 / 4 + n4 / 64 + n6 / 256)
+        alpha[1] = n / 2 - 2.0 / 3 * n2 + 5.0 / 16 * n3 + 41.0 / 180 * n4 - 127.0 / 288 * n5 + 7891.0 / 37800 * n6
+        alpha[2] = 13.0 / 48 * n2 - 3.0 / 5 * n3 + 557.0 / 1440 * n4 + 281.0 / 630 * n5 - 1983433.0 / 1935360 * n6
+        alpha[3] = 61.0 / 240 * n3 - 103.0 / 140 * n4 + 15061.0 / 26880 * n5 + 167603.0 / 181440 * n6
+        alpha[4] = 49561.0 / 161280 * n4 - 179.0 / 168 * n5 + 6601661.0 / 7257600 * n6
+        alpha[5] = 34729.0 / 80640 * n5 - 3418889.0 / 1995840 * n6
+        alpha[6] = 212378941.0 / 319334400 * n6
+        beta[1] = n / 2 - 2.0 / 3 * n2 + 37.0 / 96 * n3 - 1.0 / 360 * n4 - 81.0 / 512 * n5 + 96199.0 / 604800 * n6
+        beta[2] = 1.0 / 48 * n2 + 1.0 / 15 * n3 - 437.0 / 1440 * n4 + 46.0 / 105 * n5 - 1118711.0 / 3870720 * n6
+        beta[3] = 17.0 / 480 * n3 - 37.0 / 840 * n4 - 209.0 / 4480 * n5 + 5569.0 / 90720 * n6
+        beta[4] = 4397.0 / 161280 * n4 - 11.0 / 504 * n5 - 830251.0 / 7257600 * n6
+        beta[5] = 4583.0 / 161280 * n5 - 108847.0 / 3991680 * n6
+        beta[6] = 20648693.0 / 638668800 * n6
+        yOrigin = if (latOriginDeg == 0.0) 0.0 else kA * xiPrimeOnMeridian(Math.toRadians(latOriginDeg)).let { xi ->
+            // λ = 0 iken η' = 0: seri yalnız sinüs terimlerine iner
+            var s = xi
+            for (j in 1..ORDER) s += alpha[j] * sin(2 * j * xi)
+            s
+        }
+    }
+
+    /** Konform enlem tanjantı τ' = tan χ. */
+    private fun tauPrime(tau: Double): Double {
+        val sigma = sinh(e * atanh(e * tau / sqrt(1 + tau * tau)))
+        return tau * sqrt(1 + sigma * sigma) - sigma * sqrt(1 + tau * tau)
+    }
+
+    private fun xiPrimeOnMeridian(phi: Double): Double = atan(tauPrime(tan(phi)))
+
+    /** τ' -> τ Newton çözümü (2–3 iterasyonda yakınsar). */
+    private fun tauFromTauPrime(tp: Double): Double {
+        var tau = tp
+        repeat(MAX_NEWTON) {
+            val t1 = sqrt(1 + tau * tau)
+            val tpi = tauPrime(tau)
+            val d = (tp - tpi) / sqrt(1 + tpi * tpi) * (1 + oneMinusE2 * tau * tau) / (oneMinusE2 * t1)
+            tau += d
+            if (abs(d) < NEWTON_TOL * maxOf(1.0, abs(tau))) return tau
+        }
+        return tau
+    }
+
+    /**
+     * Karmaşık Clenshaw: Σ c[j]·sin(2jζ), ζ = ξ + iη. Gerçek kısmı [sink]'in ilk, sanal kısmı ikinci argümanıdır.
+     * Girdi sin/cos(2ξ) ve sinh/cosh(2η).
+     */
+    private inline fun <R> clenshaw(
+        c: DoubleArray, s2x: Double, c2x: Double, sh2y: Double, ch2y: Double, sink: (Double, Double) -> R
+    ): R {
+        // y = 2 cos(2ζ)
+        val yr = 2 * c2x * ch2y
+        val yi = -2 * s2x * sh2y
+        var b1r = 0.0; var b1i = 0.0
+        var b2r = 0.0; var b2i = 0.0
+        for (k in ORDER downTo 1) {
+            val br = c[k] + yr * b1r - yi * b1i - b2r
+            val bi = yr * b1i + yi * b1r - b2i
+            b2r = b1r; b2i = b1i
+            b1r = br; b1i = bi
+        }
+        // b1 · sin(2ζ)
+        val sr = s2x * ch2y
+        val si = c2x * sh2y
+        return sink(b1r * sr - b1i * si, b1r * si + b1i * sr)
+    }
+
+    private inline fun <R> project(latDeg: Double, lonDeg: Double, sink: (Double, Double) -> R): R {
+        val lam = Math.toRadians(lonDeg) - lambda0
+        val tp = tauPrime(tan(Math.toRadians(latDeg)))
+        val cl = cos(lam)
+        val xip = atan2(tp, cl)
+        val etap = asinh(sin(lam) / sqrt(tp * tp + cl * cl))
+        val s2x = sin(2 * xip); val c2x = cos(2 * xip)
+        val sh2y = sinh(2 * etap); val ch2y = cosh(2 * etap)
+        return clenshaw(alpha, s2x, c2x, sh2y, ch2y) { dXi, dEta ->
+            sink(falseE + kA * (etap + dEta), falseN + kA * (xip + dXi) - yOrigin)
+        }
+    }
+
+    private inline fun <R> unproject(x: Double, y: Double, sink: (Double, Double) -> R): R {
+        val xi = (y - falseN + yOrigin) / kA
+        val eta = (x - falseE) / kA
+        val s2x = sin(2 * xi); val c2x = cos(2 * xi)
+        val sh2y = sinh(2 * eta); val ch2y = cosh(2 * eta)
+        return clenshaw(beta, s2x, c2x, sh2y, ch2y) { dXi, dEta ->
+            val xip = xi - dXi
+            val etap = eta - dEta
+            val she = sinh(etap)
+            val cx = cos(xip)
+            val tp = sin(xip) / sqrt(she * she + cx * cx)
+            val lam = atan2(she, cx)
+            sink(Math.toDegrees(atan(tauFromTauPrime(tp))), Math.toDegrees(lambda0 + lam))
+        }
+    }
+
+    override fun forward(latDeg: Double, lonDeg: Double) = project(latDeg, lonDeg) { x, y -> x to y }
+    override fun inverse(x: Double, y: Double) = unproject(x, y) { lat, lon -> lat to lon }
+
+    override fun forwardBatch(lat: DoubleArray, lon: DoubleArray, outX: DoubleArray, outY: DoubleArray, from: Int, to: Int) {
+        for (i in from until to) project(lat[i], lon[i]) { x, y -> outX[i] = x; outY[i] = y }
+    }
+
+    override fun inverseBatch(x: DoubleArray, y: DoubleArray, outLat: DoubleArray, outLon: DoubleArray, from: Int, to: Int) {
+        for (i in from until to) unproject(x[i], y[i]) { la, lo -> outLat[i] = la; outLon[i] = lo }
+    }
+
+    private companion object {
+        const val ORDER = 6
+        const val MAX_NEWTON = 5
+        const val NEWTON_TOL = 1e-14
+    }
+}
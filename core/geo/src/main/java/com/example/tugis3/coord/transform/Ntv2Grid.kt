@@ -0,0 +1,243 @@
+package com.example.tugis3.coord.transform
+
+import java.io.File
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import java.nio.channels.FileChannel
+import java.nio.file.StandardOpenOption
+import kotlin.math.abs
+import kotlin.math.floor
+
+/**
+ * NTv2 yatay ızgara kaydırma dosyası (.gsb). Dosya bellek eşlemeli açılır; yüklemede yalnız alt ızgara
+ * başlıkları okunup sınır kutusu indeksi kurulur, kaydırmalar enterpolasyon sırasında doğrudan
+ * eşlemeden okunur (heap kopyası yok).
+ *
+ * Bir noktayı birden çok alt ızgara kapsıyorsa en sık (hücre alanı en küçük) olan kullanılır. NTv2
+ * boylamları batı pozitif, açı ve kaydırmaları `GS_TYPE` biriminde (genellikle yay saniyesi) tutar.
+ * Yön: dosyanın SYSTEM_F datumundan SYSTEM_T'ye (yerel -> WGS84/ETRS89/GDA vb.).
+ */
+class Ntv2Grid private constructor(private val buf: ByteBuffer) {
+
+    val fromSystem: String
+    val toSystem: String
+    val subgridCount: Int
+
+    // Alt ızgara indeksi (yay saniyesi, batı pozitif boylam); sıklık sırasına göre dizilir
+    private val sLat: DoubleArray
+    private val nLat: DoubleArray
+    private val eLon: DoubleArray
+    private val wLon: DoubleArray
+    private val latInc: DoubleArray
+    private val lonInc: DoubleArray
+    private val cols: IntArray
+    private val rowsOf: IntArray
+    private val dataOff: IntArray
+    private val names: Array<String>
+    private val unit: Double
+
+    @Volatile private var lastHit = 0
+
+    init {
+        val oRec = buf.getInt(8)
+        require(oRec == 11) { "NTv2 başlığı geçersiz (NUM_OREC=$oRec)" }
+        val sRec = buf.getInt(24)
+        subgridCount = buf.getInt(40)
+        unit = when (text(56).uppercase()) {
+            "MINUTES" -> 60.0
+            "DEGREES" -> 3600.0
+            else -> 1.0
+        }
+        fromSystem = text(88)
+        toSystem = text(104)
+        require(subgridCount >= 1) { "NTv2 dosyasında alt ızgara yok" }
+
+        val n = subgridCount
+        val s = DoubleArray(n); val no = DoubleArray(n); val e = DoubleArray(n); val w = DoubleArray(n)
+        val li = DoubleArray(n); val lo = DoubleArray(n); val c = IntArray(n); val r = IntArray(n); val off = IntArray(n)
+        val nm = Array(n) { "" }
+        var p = oRec * 16
+        for (i in 0 until n) {
+            nm[i] = text(p + 8)
+            s[i] = buf.getDouble(p + 4 * 16 + 8) * unit
+            no[i] = buf.getDouble(p + 5 * 16 + 8) * unit
+            e[i] = buf.getDouble(p + 6 * 16 + 8) * unit
+            w[i] = buf.getDouble(p + 7 * 16 + 8) * unit
+            li[i] = buf.getDouble(p + 8 * 16 + 8) * unit
+            lo[i] = buf.getDouble(p + 9 * 16 + 8) * unit
+            val count = buf.getInt(p + 10 * 16 + 8)
+            r[i] = Math.round((no[i] - s[i]) / li[i]).toInt() + 1
+            c[i] = Math.round((w[i] - e[i]) / lo[i]).toInt() + 1
+            require(r[i] >= 2 && c[i] >= 2 && r[i] * c[i] == count) { "NTv2 alt ızgara ${nm[i]}: düğüm sayısı tutarsız" }
+            off[i] = p + sRec * 16
+            p = off[i] + count * 16
+            require(p <= buf.capacity()) { "NTv2 dosyası kesik (${nm[i]})" }
+        }
+        // Sık ızgaralar önce: ilk kapsayan alt ızgara en sık olandır
+        val order = (0 until n).sortedBy { li[it] * lo[it] }
+        sLat = DoubleArray(n) { s[order[it]] }; nLat = DoubleArray(n) { no[order[it]] }
+        eLon = DoubleArray(n) { e[order[it]] }; wLon = DoubleArray(n) { w[order[it]] }
+        latInc = DoubleArray(n) { li[order[it]] }; lonInc = DoubleArray(n) { lo[order[it]] }
+        cols = IntArray(n) { c[order[it]] }; rowsOf = IntArray(n) { r[order[it]] }
+        dataOff = IntArray(n) { off[order[it]] }
+        names = Array(n) { nm[order[it]] }
+    }
+
+    private fun text(pos: Int): String {
+        val b = ByteArray(8)
+        for (i in 0 until 8) b[i] = buf.get(pos + i)
+        return String(b, Charsets.US_ASCII).trim().trimEnd('\u0000')
+    }
+
+    /** Noktayı kapsayan en sık alt ızgaranın indeksi, yoksa -1. */
+    private fun find(latSec: Double, lonWSec: Double): Int {
+        val last = lastHit
+        if (contains(last, latSec, lonWSec) && (last == 0 || !anyDenser(last, latSec, lonWSec))) return last
+        for (i in 0 until subgridCount) if (contains(i, latSec, lonWSec)) { lastHit = i; return i }
+        return -1
+    }
+
+    private fun anyDenser(idx: Int, latSec: Double, lonWSec: Double): Boolean {
+        for (i in 0 until idx) if (contains(i, latSec, lonWSec)) return true
+        return false
+    }
+
+    private fun contains(i: Int, latSec: Double, lonWSec: Double) =
+        latSec >= sLat[i] && latSec <= nLat[i] && lonWSec >= eLon[i] && lonWSec <= wLon[i]
+
+    /** Noktayı kapsayan alt ızgaranın adı (tanılama için); dışarıdaysa null. */
+    fun subgridAt(latDeg: Double, lonDeg: Double): String? =
+        find(latDeg * 3600.0, -lonDeg * 3600.0).takeIf { it >= 0 }?.let { names[it] }
+
+    /**
+     * (φ, λ) noktasındaki kaydırmayı [out]'a yazar: Δφ, Δλ derece (doğu pozitif). Kapsam dışında false döner.
+     */
+    fun shift(latDeg: Double, lonDeg: Double, out: DoubleArray): Boolean {
+        val latSec = latDeg * 3600.0
+        val lonWSec = -lonDeg * 3600.0
+        val i = find(latSec, lonWSec)
+        if (i < 0) return false
+        val fy = (latSec - sLat[i]) / latInc[i]
+        val fx = (lonWSec - eLon[i]) / lonInc[i]
+        val r = floor(fy).toInt().coerceIn(0, rowsOf[i] - 2)
+        val c = floor(fx).toInt().coerceIn(0, cols[i] - 2)
+        val ty = fy - r
+        val tx = fx - c
+        val p00 = dataOff[i] + (r * cols[i] + c) * 16
+        val p10 = p00 + cols[i] * 16
+        val dLat = bilinear(p00, p10, 0, tx, ty)
+        val dLonW = bilinear(p00, p10, 4, tx, ty)
+        out[0] = dLat * unit / 3600.0
+        out[1] = -dLonW * unit / 3600.0
+        return true
+    }
+
+    private fun bilinear(p00: Int, p10: Int, field: Int, tx: Double, ty: Double): Double {
+        val v00 = buf.getFloat(p00 + field).toDouble()
+        val v01 = buf.getFloat(p00 + 16 + field).toDouble()
+        val v10 = buf.getFloat(p10 + field).toDouble()
+        val v11 = buf.getFloat(p10 + 16 + field).toDouble()
+        return (v00 * (1 - tx) + v01 * tx) * (1 - ty) + (v10 * (1 - tx) + v11 * tx) * ty
+    }
+
+    override fun toString() = "Ntv2Grid($fromSystem -> $toSystem, $subgridCount alt ızgara)"
+
+    companion object {
+        private const val CACHE_SIZE = 4
+        private val cache = object : LinkedHashMap<String, Ntv2Grid>(CACHE_SIZE, 0.75f, true) {
+            override fun removeEldestEntry(eldest: MutableMap.MutableEntry<String, Ntv2Grid>?) = size > CACHE_SIZE
+        }
+
+        fun wrap(buffer: ByteBuffer): Ntv2Grid {
+            // Bayt sırası NUM_OREC (= 11) değerinden anlaşılır
+            val le = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN)
+            return Ntv2Grid(if (le.getInt(8) == 11) le else buffer.duplicate().order(ByteOrder.BIG_ENDIAN))
+        }
+
+        fun open(file: File): Ntv2Grid {
+            val mapped = FileChannel.open(file.toPath(), StandardOpenOption.READ).use { ch ->
+                ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size())
+            }
+            return wrap(mapped)
+        }
+
+        /** Aynı dosya için tek eşleme (yol + değişiklik zamanı anahtarıyla). */
+        fun cached(path: String): Ntv2Grid {
+            val file = File(path)
+            val key = "$path@${file.lastModified()}"
+            synchronized(cache) { cache[key]?.let { return it } }
+            val grid = open(file)
+            synchronized(cache) { return cache.getOrPut(key) { grid } }
+        }
+    }
+}
+
+/**
+ * NTv2 ızgarasını [DatumTransformation] olarak sunar: [Ntv2Grid] yerel -> WGS84 yönündedir, ters yön
+ * sabit nokta yinelemesiyle çözülür. Kapsam dışındaki noktalar [fallback] (7 parametre) ile, o da yoksa
+ * değişmeden geçer. Yükseklik değişmez.
+ */
+internal class GridShiftTransformation(
+    private val grid: Ntv2Grid,
+    private val fallback: DatumTransformation?
+) : DatumTransformation {
+
+    private inline fun <R> toWgs84Core(
+        lat: Double, lon: Double, h: Double, d: DoubleArray, sink: (Double, Double, Double) -> R
+    ): R = when {
+        grid.shift(lat, lon, d) -> sink(lat + d[0], lon + d[1], h)
+        fallback != null -> fallback.toWgs84(lat, lon, h).let { (a, b, c) -> sink(a, b, c) }
+        else -> sink(lat, lon, h)
+    }
+
+    private inline fun <R> toLocalCore(
+        lat: Double, lon: Double, h: Double, d: DoubleArray, sink: (Double, Double, Double) -> R
+    ): R {
+        // Yerel = WGS84 - kaydırma(yerel); kaydırma yavaş değiştiği için birkaç adımda mm altına iner
+        var la = lat
+        var lo = lon
+        for (k in 0 until MAX_ITER) {
+            if (!grid.shift(la, lo, d)) {
+                return if (fallback != null) fallback.toLocal(lat, lon, h).let { (a, b, c) -> sink(a, b, c) }
+                else sink(lat, lon, h)
+            }
+            val nLa = lat - d[0]
+            val nLo = lon - d[1]
+            val done = abs(nLa - la) < TOL_DEG && abs(nLo - lo) < TOL_DEG
+            la = nLa; lo = nLo
+            if (done) break
+        }
+        return sink(la, lo, h)
+    }
+
+    override fun toLocal(latDeg: Double, lonDeg: Double, h: Double) =
+        toLocalCore(latDeg, lonDeg, h, DoubleArray(2)) { a, b, c -> Triple(a, b, c) }
+
+    override fun toWgs84(latDeg: Double, lonDeg: Double, h: Double) =
+        toWgs84Core(latDeg, lonDeg, h, DoubleArray(2)) { a, b, c -> Triple(a, b, c) }
+
+    override fun toLocalBatch(
+        lat: DoubleArray, lon: DoubleArray, h: DoubleArray?,
+        outLat: DoubleArray, outLon: DoubleArray, outH: DoubleArray?, from: Int, to: Int
+    ) {
+        val d = DoubleArray(2)
+        for (i in from until to) toLocalCore(lat[i], lon[i], h?.get(i) ?: 0.0, d) { a, b, c ->
+            outLat[i] = a; outLon[i] = b; if (outH != null) outH[i] = c
+        }
+    }
+
+    override fun toWgs84Batch(
+        lat: DoubleArray, lon: DoubleArray, h: DoubleArray?,
+        outLat: DoubleArray, outLon: DoubleArray, outH: DoubleArray?, from: Int, to: Int
+    ) {
+        val d = DoubleArray(2)
+        for (i in from until to) toWgs84Core(lat[i], lon[i], h?.get(i) ?: 0.0, d) { a, b, c ->
+            outLat[i] = a; outLon[i] = b; if (outH != null) outH[i] = c
+        }
+    }
+
+    private companion object {
+        const val MAX_ITER = 8
+        const val TOL_DEG = 1e-12
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.tugis3.coord.transform
+
+import kotlin.math.PI
+import kotlin.math.abs
+import kotlin.math.asin
+import kotlin.math.atan
+import kotlin.math.cos
+import kotlin.math.exp
+import kotlin.math.ln
+import kotlin.math.pow
+import kotlin.math.sin
+import kotlin.math.sqrt
+import kotlin.math.tan
+
+/**
+ * Oblique Stereographic, "double" yöntemi (EPSG yöntem 9809, IOGP GN7-2 §3.3.1): elipsoit önce konform küreye,
+ * sonra küreden düzleme. Katalog satırları: Hollanda RD, Kanada New Brunswick / PEI, Lübnan, Navajo.
+ */
+class ObliqueStereographic(
+    semiMajor: Double,
+    invF: Double,
+    latOriginDeg: Double,
+    lonOriginDeg: Double,
+    scaleFactor: Double,
+    private val falseE: Double,
+    private val falseN: Double
+) : CoordinateTransformer {
+    private val f = if (invF.isInfinite()) 0.0 else 1.0 / invF
+    private val e2 = f * (2 - f)
+    private val e = sqrt(e2)
+    private val lambda0 = Math.toRadians(lonOriginDeg)
+    private val n: Double
+    private val c: Double
+    private val sinChi0: Double
+    private val cosChi0: Double
+    /** 2·R·k0 */
+    private val r2k: Double
+    private val g: Double
+    private val h: Double
+
+    init {
+        val phi0 = Math.toRadians(latOriginDeg)
+        val s0 = sin(phi0)
+        val w0 = 1 - e2 * s0 * s0
+        val rho0 = semiMajor * (1 - e2) / (w0 * sqrt(w0))
+        val nu0 = semiMajor / sqrt(w0)
+        val r = sqrt(rho0 * nu0)
+        n = sqrt(1 + e2 * cos(phi0).pow(4) / (1 - e2))
+        val s1 = (1 + s0) / (1 - s0)
+        val s2 = (1 - e * s0) / (1 + e * s0)
+        val w1 = (s1 * s2.pow(e)).pow(n)
+        val sinChi00 = (w1 - 1) / (w1 + 1)
+        c = (n + s0) * (1 - sinChi00) / ((n - s0) * (1 + sinChi00))
+        val w2 = c * w1
+        val chi0 = asin((w2 - 1) / (w2 + 1))
+        sinChi0 = sin(chi0); cosChi0 = cos(chi0)
+        r2k = 2 * r * scaleFactor
+        g = r2k * tan(PI / 4 - chi0 / 2)
+        h = 2 * r2k * tan(chi0) + g
+    }
+
+    private inline fun <R> project(latDeg: Double, lonDeg: Double, sink: (Double, Double) -> R): R {
+        val s = sin(Math.toRadians(latDeg))
+        val sa = (1 + s) / (1 - s)
+        val sb = (1 - e * s) / (1 + e * s)
+        val w = c * (sa * sb.pow(e)).pow(n)
+        val sinChi = (w - 1) / (w + 1)
+        val cosChi = sqrt(1 - sinChi * sinChi)
+        val dl = n * (Math.toRadians(lonDeg) - lambda0)
+        val cosDl = cos(dl)
+        val b = 1 + sinChi * sinChi0 + cosChi * cosChi0 * cosDl
+        return sink(
+            falseE + r2k * cosChi * sin(dl) / b,
+            falseN + r2k * (sinChi * cosChi0 - cosChi * sinChi0 * cosDl) / b
+        )
+    }
+
+    private inline fun <R> unproject(x: Double, y: Double, sink: (Double, Double) -> R): R {
+        val de = x - falseE
+        val dn = y - falseN
+        val i = atan(de / (h + dn))
+        val j = atan(de / (g - dn)) - i
+        val chi = asin(sinChi0) + 2 * atan((dn - de * tan(j / 2)) / r2k)
+        val lambda = lambda0 + (j + 2 * i) / n
+        val sinChi = sin(chi)
+        val psi = 0.5 * ln((1 + sinChi) / (c * (1 - sinChi))) / n
+        var phi = 2 * atan(exp(psi)) - PI / 2
+        for (k in 0 until MAX_ITER) {
+            val sp = sin(phi)
+            val psiI = ln(tan(phi / 2 + PI / 4) * ((1 - e * sp) / (1 + e * sp)).pow(e / 2))
+            val next = phi - (psiI - psi) * cos(phi) * (1 - e2 * sp * sp) / (1 - e2)
+            val done = abs(next - phi) < 1e-14
+            phi = next
+            if (done) break
+        }
+        return sink(Math.toDegrees(phi), Math.toDegrees(lambda))
+    }
+
+    override fun forward(latDeg: Double, lonDeg: Double) = project(latDeg, lonDeg) { x, y -> x to y }
+    override fun inverse(x: Double, y: Double) = unproject(x, y) { lat, lon -> lat to lon }
+
+    override fun forwardBatch(lat: DoubleArray, lon: DoubleArray, outX: DoubleArray, outY: DoubleArray, from: Int, to: Int) {
+        for (i in from until to) project(lat[i], lon[i]) { x, y -> outX[i] = x; outY[i] = y }
+    }
+
+    override fun inverseBatch(x: DoubleArray, y: DoubleArray, outLat: DoubleArray, outLon: DoubleArray, from: Int, to: Int) {
+        for (i in from until to) unproject(x[i], y[i]) { la, lo -> outLat[i] = la; outLon[i] = lo }
+    }
+
+    private companion object {
+        const val MAX_ITER = 10
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.tugis3.coord.transform
+
+import java.util.concurrent.ForkJoinPool
+import java.util.concurrent.Future
+
+/**
+ * Büyük nokta kümelerinde toplu dönüşümü çekirdeklere böler.
+ * Dönüştürücüler değişmez olduğundan aynı örnek birden çok thread'den güvenle çağrılabilir.
+ * [PARALLEL_THRESHOLD] altındaki kümeler çağıran thread'de tek parça işlenir.
+ */
+object ParallelTransform {
+    const val PARALLEL_THRESHOLD = 16_384
+
+    fun forward(
+        transformer: CoordinateTransformer,
+        lat: DoubleArray, lon: DoubleArray, outX: DoubleArray, outY: DoubleArray,
+        from: Int = 0, to: Int = lat.size,
+        parallelism: Int = Runtime.getRuntime().availableProcessors()
+    ) = split(from, to, parallelism) { s, e -> transformer.forwardBatch(lat, lon, outX, outY, s, e) }
+
+    fun inverse(
+        transformer: CoordinateTransformer,
+        x: DoubleArray, y: DoubleArray, outLat: DoubleArray, outLon: DoubleArray,
+        from: Int = 0, to: Int = x.size,
+        parallelism: Int = Runtime.getRuntime().availableProcessors()
+    ) = split(from, to, parallelism) { s, e -> transformer.inverseBatch(x, y, outLat, outLon, s, e) }
+
+    private fun split(from: Int, to: Int, parallelism: Int, block: (Int, Int) -> Unit) {
+        val n = to - from
+        if (n <= 0) return
+        val parts = minOf(parallelism, n / (PARALLEL_THRESHOLD / 2)).coerceAtLeast(1)
+        if (n < PARALLEL_THRESHOLD || parts == 1) { block(from, to); return }
+        val chunk = (n + parts - 1) / parts
+        val pool = ForkJoinPool.commonPool()
+        val futures = ArrayList<Future<*>>(parts - 1)
+        var start = from + chunk
+        while (start < to) {
+            val s = start
+            val e = minOf(s + chunk, to)
+            futures += pool.submit { block(s, e) }
+            start = e
+        }
+        // İlk parça çağıran thread'de
+        block(from, minOf(from + chunk, to))
+        futures.forEach { it.get() }
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.tugis3.coord.transform
+
+import kotlin.math.abs
+
+/**
+ * [ProjectionParams]'tan dönüştürücü kurar. Önbellek tutmaz; her çağrı ön hesaplı yeni bir zincir döndürür,
+ * tekrar kullanım çağıranın (uygulamadaki ProjectionEngine) işidir.
+ */
+object ProjectionFactory {
+    /**
+     * [build]'in kendi dönüştürücüsünü kurduğu projeksiyon tipleri (katalog adlarıyla).
+     * Listede olmayan bir tip seçilirse zincir UTM / NoOp'a düşer; seçim ekranı bu tipleri reddeder.
+     */
+    val SUPPORTED_TYPES: Set<String> = setOf(
+        "Transverse_Mercator", "Transverse Mercator", "Gauss_Kruger", "UTM",
+        "Transverse_Mercator_South_Orientated",
+        "Lambert_Conformal_Conic_2SP", "Lambert_Conformal_Conic_1SP",
+        "Hotine_Oblique_Mercator", "Oblique_Mercator",
+        "Cassini_Soldner", "Oblique_Stereographic", "Krovak_Oblique_Conic_Conformal"
+    )
+
+    /** Tip boşsa (yalnız UTM bölgesi) da desteklenir sayılır. */
+    fun isSupported(projectionType: String?): Boolean =
+        projectionType.isNullOrBlank() || projectionType in SUPPORTED_TYPES
+
+    /** Parametrelerden dönüştürücü zincirini kurar: projeksiyon, önünde datum / NTv2, ardından lokalizasyon. */
+    fun build(params: ProjectionParams): CoordinateTransformer {
+        val a = params.semiMajorA
+        val invF = params.invFlattening
+        var base: CoordinateTransformer? = null
+        if (a != null && invF != null) {
+            // Önce gelişmiş tipler; katalogda 0..360 verilen merkez meridyenleri (-180, 180]'e indirgenir
+            val cm = params.projCentralMeridianDeg?.let(::normalizeLonDeg)
+            val lat0 = params.projLatOrigin ?: 0.0
+            // Katalogda k = 0 "tanımsız" anlamında kullanılıyor
+            val k0 = params.projScaleFactor?.let { abs(it) }?.takeIf { it != 0.0 } ?: 1.0
+            val fe = params.projFalseEasting ?: 0.0
+            val fn = params.projFalseNorthing ?: 0.0
+            when(params.projectionType) {
+                "Transverse_Mercator", "Transverse Mercator", "Gauss_Kruger", "UTM" -> {
+                    if (cm != null) base = KruegerTransverseMercator(a, invF, cm, lat0, k0, fe, fn)
+                }
+                "Transverse_Mercator_South_Orientated" -> {
+                    if (cm != null) base = SouthOrientatedTransformer(KruegerTransverseMercator(a, invF, cm, lat0, k0), fe, fn)
+                }
+                "Lambert_Conformal_Conic_2SP" -> {
+                    val sp1 = params.projStdParallel1
+                    val sp2 = params.projStdParallel2
+                    if (cm != null && params.projLatOrigin != null && sp1 != null && sp2 != null) {
+                        base = LambertConic2SPTransformer(
+                            semiMajor = a,
+                            invF = invF,
+                            lat0Deg = lat0,
+                            lon0Deg = cm,
+                            lat1Deg = sp1,
+                            lat2Deg = sp2,
+                            falseE = fe,
+                            falseN = fn
+                        )
+                    }
+                }
+                "Lambert_Conformal_Conic_1SP" -> {
+                    if (cm != null && params.projLatOrigin != null) {
+                        base = LambertConic2SPTransformer(a, invF, lat0, cm, lat0, lat0, fe, fn, scaleFactor = k0)
+                    }
+                }
+                "Hotine_Oblique_Mercator", "Oblique_Mercator" -> {
+                    val azimuth = params.projAzimuthDeg
+                    if (cm != null && azimuth != null) {
+                        base = HotineObliqueMercator(
+                            semiMajor = a,
+                            invF = invF,
+                            latCentreDeg = lat0,
+                            lonCentreDeg = cm,
+                            azimuthDeg = azimuth,
+                            rectifiedGridAngleDeg = params.projGridAngleDeg ?: azimuth,
+                            scaleFactor = k0,
+                            falseE = fe,
+                            falseN = fn,
+                            variant = if (params.projectionType == "Oblique_Mercator") HotineObliqueMercator.Variant.B
+                            else HotineObliqueMercator.Variant.A
+                        )
+                    }
+                }
+                "Cassini_Soldner" -> {
+                    if (cm != null) base = CassiniSoldner(a, invF, lat0, cm, fe, fn)
+                }
+                "Oblique_Stereographic" -> {
+                    if (cm != null) base = ObliqueStereographic(a, invF, lat0, cm, k0, fe, fn)
+                }
+                "Krovak_Oblique_Conic_Conformal" -> {
+                    val alphaC = params.projAzimuthDeg
+                    val phiP = params.projStdParallel1
+                    if (cm != null && alphaC != null && phiP != null) {
+                        base = Krovak(a, invF, lat0, cm, alphaC, phiP, k0, fe, fn)
+                    }
+                }
+            }
+            // Gelişmiş tip yoksa (veya parametre eksikse) UTM kullan
+            if (base == null) {
+                val zone = params.utmZone
+                if (zone != null) base = UtmTransformer(zone, params.utmNorthHemisphere, a, invF)
+            }
+            // WGS84 -> yerel datum aşaması projeksiyonun önüne
+            val datum = params.datumMode?.let { mode ->
+                DatumTransformation.fromParameters(
+                    mode,
+                    params.datumDx ?: 0.0, params.datumDy ?: 0.0, params.datumDz ?: 0.0,
+                    params.datumRx ?: 0.0, params.datumRy ?: 0.0, params.datumRz ?: 0.0,
+                    params.datumScalePpm ?: 0.0,
+                    a, invF
+                )
+            }
+            // NTv2 ızgarası kapsadığı yerde parametrik datumun yerine geçer; dosya açılamazsa parametrik kalır
+            val gridShift = params.datumGridPath?.let { path ->
+                runCatching { GridShiftTransformation(Ntv2Grid.cached(path), datum) }.getOrNull()
+            }
+            val shift = gridShift ?: datum
+            if (base != null && shift != null) base = DatumShiftedTransformer(shift, base)
+        }
+        if (base == null) base = NoOpTransformer
+        val scale = params.locScale
+        val rot = params.locRotRad
+        val tx = params.locTx
+        val ty = params.locTy
+        return if (scale != null && rot != null && tx != null && ty != null) LocalizedTransformer(base, scale, rot, tx, ty) else base
+    }
+}
+
@@ -0,0 +1,63 @@
+package com.example.tugis3.coord.transform
+
+/**
+ * Bir dönüştürücüyü tam olarak belirleyen parametreler: elipsoit, projeksiyon, datum, yatay ve düşey lokalizasyon.
+ * Alan adları ve anlamları projenin kayıtlı alanlarıyla aynıdır; değer eşitliği önbellek anahtarı olarak kullanılır.
+ */
+data class ProjectionParams(
+    val semiMajorA: Double? = null,
+    val invFlattening: Double? = null,
+    val utmZone: Int? = null,
+    val utmNorthHemisphere: Boolean = true,
+    val projectionType: String? = null,
+    val projCentralMeridianDeg: Double? = null,
+    val projFalseNorthing: Double? = null,
+    val projFalseEasting: Double? = null,
+    val projScaleFactor: Double? = null,
+    val projLatOrigin: Double? = null,
+    val projStdParallel1: Double? = null,
+    val projStdParallel2: Double? = null,
+    val projAzimuthDeg: Double? = null,
+    val projGridAngleDeg: Double? = null,
+    // Katalog modu: 0 ve 1 Helmert (yerel -> WGS84), 2 Bursa-Wolf (WGS84 -> yerel); 4 Molodensky katalogda geçmez.
+    // Dönüklükler yay saniyesi, ölçek ppm
+    val datumMode: Int? = null,
+    val datumDx: Double? = null,
+    val datumDy: Double? = null,
+    val datumDz: Double? = null,
+    val datumRx: Double? = null,
+    val datumRy: Double? = null,
+    val datumRz: Double? = null,
+    val datumScalePpm: Double? = null,
+    val datumGridPath: String? = null,
+    /** [datumGridPath] dosyasının değişiklik zamanı; yalnız anahtar içindir, dosya yerinde değişince zincir yeniden kurulur. */
+    val datumGridModified: Long? = null,
+    val locScale: Double? = null,
+    val locRotRad: Double? = null,
+    val locTx: Double? = null,
+    val locTy: Double? = null,
+    // Düşey lokalizasyon (eğik düzlem); yatay dönüştürücüyü etkilemez, bkz. [verticalLocalization]
+    val locVertOffset: Double? = null,
+    val locVertSlopeN: Double? = null,
+    val locVertSlopeE: Double? = null,
+    val locVertN0: Double? = null,
+    val locVertE0: Double? = null
+) {
+    /** Kayıtlı düşey düzlem; ötelemesi yoksa null. Eğim ve merkez eksikse sıfır / eğimsiz kabul edilir. */
+    val verticalLocalization: VerticalLocalization?
+        get() = locVertOffset?.let { VerticalLocalization(it, locVertSlopeN ?: 0.0, locVertSlopeE ?: 0.0, locVertN0 ?: 0.0, locVertE0 ?: 0.0) }
+}
+
+/**
+ * Düşey lokalizasyon: H_lokal = H + offset + slopeN·(N - n0) + slopeE·(E - e0).
+ * E/N, düzlemin çözüldüğü kaynak koordinatlardır (projeksiyon + datum, yatay lokalizasyon uygulanmadan).
+ */
+data class VerticalLocalization(
+    val offset: Double,
+    val slopeN: Double,
+    val slopeE: Double,
+    val n0: Double,
+    val e0: Double
+) {
+    fun height(h: Double, srcE: Double, srcN: Double) = h + offset + slopeN * (srcN - n0) + slopeE * (srcE - e0)
+}
@@ -0,0 +1,85 @@
+package com.example.tugis3.coord.geoid
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.io.ByteArrayOutputStream
+import java.io.File
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+
+class GeoidGridTest {
+
+    /** Düzlem + eğrilik: bilineer düğümlerde tam, ikinci dereceden yüzeyde biquadratic tam. */
+    private fun surface(lat: Double, lon: Double) = 30.0 + 0.5 * lat - 0.25 * lon + 0.01 * lat * lat
+
+    /** 36°..42°K, 26°..45°D, 0.25° Surfer 6 ikili ızgara. */
+    private fun surferGrid(): ByteBuffer {
+        val nx = 77; val ny = 25
+        val buf = ByteBuffer.allocate(56 + nx * ny * 4).order(ByteOrder.LITTLE_ENDIAN)
+        buf.put("DSBB".toByteArray()).putShort(nx.toShort()).putShort(ny.toShort())
+        buf.putDouble(26.0).putDouble(45.0).putDouble(36.0).putDouble(42.0).putDouble(0.0).putDouble(100.0)
+        for (r in 0 until ny) for (c in 0 until nx) {
+            val v = if (r == 10 && c == 10) 1.70141e38f else surface(36.0 + r * 0.25, 26.0 + c * 0.25).toFloat()
+            buf.putFloat(v)
+        }
+        return buf
+    }
+
+    /** 30° aralıklı küresel GeographicLib PGM: N = lon/10 + lat/100 (boylam 0..330). */
+    private fun pgmGrid(): ByteArray {
+        val out = ByteArrayOutputStream()
+        out.write("P5\n# Geoid file in PGM format\n# Offset -100\n# Scale 0.01\n12 7\n65535\n".toByteArray())
+        for (r in 0 until 7) for (c in 0 until 12) {
+            val lat = 90.0 - r * 30
+            val n = c * 3.0 + lat / 100
+            val raw = Math.round((n + 100) / 0.01).toInt()
+            out.write(raw shr 8); out.write(raw and 0xFF)
+        }
+        return out.toByteArray()
+    }
+
+    @Test
+    fun surferBilinearAndBiquadratic() {
+        val grid = GeoidGrid.wrap(surferGrid())
+        assertEquals(42.0, grid.north, 1e-12)
+        // Düğümde tam değer
+        assertEquals(surface(39.0, 32.0), grid.undulation(39.0, 32.0), 1e-5)
+        // Düğüm arasında: bilineer eğrilik kadar sapar, biquadratic ikinci dereceden yüzeyi tam verir
+        val exact = surface(39.13, 32.07)
+        assertEquals(exact, grid.undulation(39.13, 32.07), 1e-3)
+        grid.interpolation = GeoidGrid.Interpolation.BIQUADRATIC
+        assertEquals(exact, grid.undulation(39.13, 32.07), 1e-5)
+        // Dışarıda ve boş düğüm komşuluğunda NaN
+        assertTrue(grid.undulation(43.0, 32.0).isNaN())
+        assertTrue(grid.undulation(39.0, 50.0).isNaN())
+        assertTrue(grid.undulation(36.0 + 10 * 0.25 + 0.1, 26.0 + 10 * 0.25 + 0.1).isNaN())
+    }
+
+    @Test
+    fun pgmMemoryMappedWithLongitudeWrap() {
+        val file = File.createTempFile("geoid", ".pgm").apply { deleteOnExit() }
+        file.writeBytes(pgmGrid())
+        val grid = GeoidGrid.open(file)
+        assertEquals(-90.0, grid.south, 0.0)
+        assertEquals(30.0, grid.dLon, 0.0)
+        assertEquals(15 * 0.1 + 0.3, grid.undulation(30.0, 15.0), 1e-2)
+        // -15° = 345°: 330° (33) ile 0° (0) arası sarılır
+        assertEquals((33.0 + 0.0) / 2 + 0.3, grid.undulation(30.0, -15.0), 1e-2)
+        assertEquals(grid.undulation(30.0, 345.0), grid.undulation(30.0, -15.0), 1e-12)
+        assertEquals(-0.9, grid.undulation(-90.0, 0.0), 1e-2)
+    }
+
+    @Test
+    fun tileCacheServesNeighbourhood() {
+        val grid = GeoidGrid.wrap(surferGrid())
+        // Karo sınırlarını (16 düğüm = 4°) geçen bir iz; değerler önbellekten de aynı gelmeli
+        val first = DoubleArray(200) { i -> grid.undulation(36.5 + i * 0.02, 27.0 + i * 0.05) }
+        // Çapraz iz 2 × 3 karo kutusunun dördünden geçer; her karo bir kez açılır
+        assertEquals(4L, grid.tileLoads)
+        for (i in 0 until 200) assertEquals(first[i], grid.undulation(36.5 + i * 0.02, 27.0 + i * 0.05), 0.0)
+        assertEquals(4L, grid.tileLoads)
+        assertEquals(surface(37.0, 28.0), grid.undulation(37.0, 28.0), 1e-5)
+        assertEquals(4L, grid.tileLoads)
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.tugis3.coord.transform
+
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+/**
+ * Toplu dönüşümün tekil forward/inverse ile aynı sonucu verdiğini doğrular.
+ */
+class BatchTransformTest {
+
+    private val projects = listOf(
+        "utm" to ProjectionParams(semiMajorA = 6378137.0, invFlattening = 298.257223563, utmZone = 36),
+        "tm" to ProjectionParams(
+            semiMajorA = 6378137.0, invFlattening = 298.257222101,
+            projectionType = "Transverse_Mercator", projCentralMeridianDeg = 33.0,
+            projScaleFactor = 1.0, projFalseEasting = 500000.0
+        ),
+        "lcc" to ProjectionParams(
+            semiMajorA = 6378137.0, invFlattening = 298.257222101,
+            projectionType = "Lambert_Conformal_Conic_2SP", projCentralMeridianDeg = 35.0, projLatOrigin = 39.0,
+            projStdParallel1 = 37.0, projStdParallel2 = 41.0, projFalseEasting = 1000000.0, projFalseNorthing = 500000.0
+        ),
+        "loc" to ProjectionParams(
+            semiMajorA = 6378137.0, invFlattening = 298.257223563, utmZone = 36,
+            locScale = 1.0001, locRotRad = 0.01, locTx = 10.0, locTy = -5.0
+        )
+    )
+
+    private fun sample(n: Int): Pair<DoubleArray, DoubleArray> =
+        DoubleArray(n) { 36.0 + (it % 97) * 0.05 } to DoubleArray(n) { 30.0 + (it % 89) * 0.06 }
+
+    @Test
+    fun batchMatchesSingle() {
+        val (lat, lon) = sample(500)
+        for ((name, p) in projects) {
+            val tf = ProjectionFactory.build(p)
+            val x = DoubleArray(lat.size)
+            val y = DoubleArray(lat.size)
+            tf.forwardBatch(lat, lon, x, y)
+            for (i in lat.indices) {
+                val (sx, sy) = tf.forward(lat[i], lon[i])
+                assertEquals("$name x[$i]", sx, x[i], 1e-9)
+                assertEquals("$name y[$i]", sy, y[i], 1e-9)
+            }
+            // Yerinde ters dönüşüm
+            tf.inverseBatch(x, y, x, y)
+            for (i in lat.indices) {
+                assertEquals("$name lat[$i]", lat[i], x[i], 1e-8)
+                assertEquals("$name lon[$i]", lon[i], y[i], 1e-8)
+            }
+        }
+    }
+
+    @Test
+    fun subrangeLeavesOthersUntouched() {
+        val (lat, lon) = sample(10)
+        val tf = ProjectionFactory.build(projects[0].second)
+        val x = DoubleArray(10) { -1.0 }
+        val y = DoubleArray(10) { -1.0 }
+        tf.forwardBatch(lat, lon, x, y, 3, 7)
+        assertEquals(-1.0, x[2], 0.0)
+        assertEquals(-1.0, y[7], 0.0)
+        assertEquals(tf.forward(lat[3], lon[3]).first, x[3], 1e-9)
+    }
+
+    @Test
+    fun parallelMatchesSerial() {
+        val n = ParallelTransform.PARALLEL_THRESHOLD * 3 + 17
+        val (lat, lon) = sample(n)
+        val tf = ProjectionFactory.build(projects[3].second)
+        val sx = DoubleArray(n); val sy = DoubleArray(n)
+        val px = DoubleArray(n); val py = DoubleArray(n)
+        tf.forwardBatch(lat, lon, sx, sy)
+        ParallelTransform.forward(tf, lat, lon, px, py, parallelism = 4)
+        for (i in 0 until n) {
+            assertEquals(sx[i], px[i], 0.0)
+            assertEquals(sy[i], py[i], 0.0)
+        }
+    }
+}
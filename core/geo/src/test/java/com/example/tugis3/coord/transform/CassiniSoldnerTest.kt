@@ -0,0 +1,39 @@
+package com.example.tugis3.coord.transform
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class CassiniSoldnerTest {
+
+    @Test
+    fun epsgWorkedExample() {
+        // IOGP GN7-2: Trinidad 1903 / Trinidad Grid (Clarke 1858, birim Clarke link)
+        val cass = CassiniSoldner(31706587.88, 294.2606764, 10.441666667, -61.333333333, 430000.0, 325000.0)
+        val (e, n) = cass.forward(10.0, -62.0)
+        assertEquals(66644.94, e, 0.01)
+        assertEquals(82536.22, n, 0.01)
+        val (lat, lon) = cass.inverse(e, n)
+        assertEquals(10.0, lat, 1e-8)
+        assertEquals(-62.0, lon, 1e-8)
+    }
+
+    @Test
+    fun catalogRowThroughFactory() {
+        // Kenya Cassini 37 (k = 0 katalogda "tanımsız")
+        val t = ProjectionFactory.build(
+            ProjectionParams(
+                semiMajorA = 6378235.6, invFlattening = 294.2606768,
+                projectionType = "Cassini_Soldner", projCentralMeridianDeg = 37.0, projScaleFactor = 0.0
+            )
+        )
+        assertTrue(t is CassiniSoldner)
+        val (x0, y0) = t.forward(0.0, 37.0)
+        assertEquals(0.0, x0, 1e-6)
+        assertEquals(0.0, y0, 1e-6)
+        val (x, y) = t.forward(-1.2921, 36.8219)
+        val (lat, lon) = t.inverse(x, y)
+        assertEquals(-1.2921, lat, 1e-9)
+        assertEquals(36.8219, lon, 1e-9)
+    }
+}
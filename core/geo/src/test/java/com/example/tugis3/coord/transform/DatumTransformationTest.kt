@@ -0,0 +1,92 @@
+package com.example.tugis3.coord.transform
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotNull
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class DatumTransformationTest {
+
+    private val bessel = 6377397.155 to 299.1528128
+
+    @Test
+    fun helmertKnownValueAndRoundTrip() {
+        // Katalogdaki Amersfoort -> WGS84 satırı (mod 0)
+        val t = DatumTransformation.fromParameters(
+            0, 565.417, 50.3319, 465.552, -0.398957, 0.343988, -1.87740, 4.0725,
+            bessel.first, bessel.second
+        )!!
+        // RD başlangıç noktası (Amersfoort): Bessel 52°09'22.178" 5°23'15.500" -> WGS84 52.15517440, 5.38720621
+        val (lat, lon, h) = t.toWgs84(52.156160556, 5.387638889)
+        assertEquals(52.15517440, lat, 1e-5)
+        assertEquals(5.38720621, lon, 1e-5)
+        val (bLat, bLon, bH) = t.toLocal(lat, lon, h)
+        assertEquals(52.156160556, bLat, 1e-8)
+        assertEquals(5.387638889, bLon, 1e-8)
+        assertEquals(0.0, bH, 1e-3)
+    }
+
+    @Test
+    fun bursaWolfDirectionAndZeroParameters() {
+        // HD72: katalog WGS84 -> yerel yönünde; EPSG 3 parametreli HD72 -> WGS84 (52.17, -71.82, -14.9) ile ~1 m uyumlu
+        val hd72 = DatumTransformation.fromParameters(
+            2, -52.729, 71.148, 13.832, 0.316647, 0.106728, 0.378279, -0.989578, 6378160.0, 298.247167427
+        )!!
+        val ref = DatumTransformation.fromParameters(0, 52.17, -71.82, -14.9, 0.0, 0.0, 0.0, 0.0, 6378160.0, 298.247167427)!!
+        val (lat, lon, _) = hd72.toWgs84(47.5, 19.0)
+        val (rLat, rLon, _) = ref.toWgs84(47.5, 19.0)
+        assertEquals(rLat, lat, 1e-5)
+        assertEquals(rLon, lon, 1e-5)
+        val (bLat, bLon, _) = hd72.toLocal(lat, lon)
+        assertEquals(47.5, bLat, 1e-8)
+        assertEquals(19.0, bLon, 1e-8)
+
+        assertNull(DatumTransformation.fromParameters(0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 6378137.0, 298.257223563))
+        // İlçe ızgara ofsetleri datum kayması değil: kayıtta reddedilir, sessizce atlanmaz
+        assertNotNull(DatumTransformation.validateParameters(-6187452.0, -3505207.0, -1693.0, 0.0, 0.0, 0.0, 0.0))
+        assertNull(DatumTransformation.validateParameters(565.04, 49.91, 465.84, -0.409394, 0.35971, -1.868491, 4.0772))
+        assertNotNull(DatumTransformation.fromParameters(0, 6000.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 6378137.0, 298.257222101))
+    }
+
+    @Test
+    fun molodenskyMatchesHelmertWithinAMetre() {
+        val dx = 565.0; val dy = 50.0; val dz = 465.0
+        val mol = DatumTransformation.fromParameters(4, dx, dy, dz, 0.0, 0.0, 0.0, 0.0, bessel.first, bessel.second)!!
+        val helm = DatumTransformation.fromParameters(0, dx, dy, dz, 0.0, 0.0, 0.0, 0.0, bessel.first, bessel.second)!!
+        val (mLat, mLon, _) = mol.toLocal(52.0, 5.0)
+        val (hLat, hLon, _) = helm.toLocal(52.0, 5.0)
+        assertEquals(hLat, mLat, 1e-5)
+        assertEquals(hLon, mLon, 1e-5)
+        val (rLat, rLon, _) = mol.toWgs84(mLat, mLon)
+        assertEquals(52.0, rLat, 1e-6)
+        assertEquals(5.0, rLon, 1e-6)
+    }
+
+    @Test
+    fun engineChainBatchMatchesSingle() {
+        val p = ProjectionParams(
+            semiMajorA = bessel.first, invFlattening = bessel.second,
+            projectionType = "Transverse_Mercator", projCentralMeridianDeg = 5.0, projScaleFactor = 0.9996,
+            projFalseEasting = 500000.0,
+            datumMode = 0, datumDx = 565.417, datumDy = 50.3319, datumDz = 465.552,
+            datumRx = -0.398957, datumRy = 0.343988, datumRz = -1.87740, datumScalePpm = 4.0725
+        )
+        val t = ProjectionFactory.build(p)
+        assertTrue(t is DatumShiftedTransformer)
+        val lat = doubleArrayOf(50.8, 51.5, 52.3, 53.4)
+        val lon = doubleArrayOf(3.4, 4.9, 6.1, 7.1)
+        val x = DoubleArray(4); val y = DoubleArray(4)
+        t.forwardBatch(lat, lon, x, y)
+        for (i in lat.indices) {
+            val (sx, sy) = t.forward(lat[i], lon[i])
+            assertEquals(sx, x[i], 1e-6)
+            assertEquals(sy, y[i], 1e-6)
+        }
+        t.inverseBatch(x, y, x, y)
+        for (i in lat.indices) {
+            assertEquals(lat[i], x[i], 1e-8)
+            assertEquals(lon[i], y[i], 1e-8)
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.tugis3.coord.transform
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class HotineObliqueMercatorTest {
+
+    @Test
+    fun epsgVariantBWorkedExample() {
+        // IOGP GN7-2: Timbalai 1948 / RSO Borneo (m)
+        val hom = HotineObliqueMercator(
+            6377298.556, 300.8017, 4.0, 115.0, 53.31582047, 53.13010236, 0.99984,
+            590476.87, 442857.65, HotineObliqueMercator.Variant.B
+        )
+        val (e, n) = hom.forward(5.387253583, 115.80550544)
+        assertEquals(679245.73, e, 0.01)
+        assertEquals(596562.78, n, 0.01)
+        val (lat, lon) = hom.inverse(e, n)
+        assertEquals(5.387253583, lat, 1e-9)
+        assertEquals(115.80550544, lon, 1e-9)
+    }
+
+    @Test
+    fun catalogRowsThroughEngine() {
+        // Macaristan EOV (varyant B, αc = γc = 90°): merkez false E/N'ye düşer
+        val eov = ProjectionParams(
+            semiMajorA = 6378160.0, invFlattening = 298.247167427,
+            projectionType = "Oblique_Mercator", projCentralMeridianDeg = 19.0485717778, projLatOrigin = 47.1443937222,
+            projScaleFactor = 0.99993, projFalseEasting = 650000.0, projFalseNorthing = 200000.0,
+            projAzimuthDeg = 90.0, projGridAngleDeg = 90.0
+        )
+        // Alaska zone 1 (varyant A, 0..360 merkez boylamı)
+        val alaska = ProjectionParams(
+            semiMajorA = 6378137.0, invFlattening = 298.257222101,
+            projectionType = "Hotine_Oblique_Mercator", projCentralMeridianDeg = 226.3333333333, projLatOrigin = 57.0,
+            projScaleFactor = 0.9999, projFalseEasting = 5000000.0, projFalseNorthing = -5000000.0,
+            projAzimuthDeg = 323.1301023542, projGridAngleDeg = 323.1301023542
+        )
+        val tEov = ProjectionFactory.build(eov)
+        assertTrue(tEov is HotineObliqueMercator)
+        val (x0, y0) = tEov.forward(47.1443937222, 19.0485717778)
+        assertEquals(650000.0, x0, 1e-6)
+        assertEquals(200000.0, y0, 1e-6)
+
+        for ((name, p, pos) in listOf(Triple("EOV", eov, 47.5 to 18.2), Triple("AK1", alaska, 56.2 to -132.1))) {
+            val (lat, lon) = pos
+            val t = ProjectionFactory.build(p)
+            val (x, y) = t.forward(lat, lon)
+            val (rLat, rLon) = t.inverse(x, y)
+            assertEquals("$name lat", lat, rLat, 1e-9)
+            assertEquals("$name lon", lon, rLon, 1e-9)
+        }
+    }
+
+    @Test
+    fun oregonOcrsZonesAreVariantB() {
+        // OCRS Columbia River West ve Oregon Coast (EPSG 9815): merkez (φc, λc) tam false E/N'ye düşer
+        for ((name, p) in listOf(
+            "CRW" to ProjectionParams(
+                semiMajorA = 6378137.0, invFlattening = 298.257222101,
+                projectionType = "Oblique_Mercator", projCentralMeridianDeg = 237.0, projLatOrigin = 45.9166666667,
+                projScaleFactor = 1.0, projFalseEasting = 7000000.0, projFalseNorthing = -3000000.0,
+                projAzimuthDeg = 295.0, projGridAngleDeg = 295.0
+            ),
+            "Coast" to ProjectionParams(
+                semiMajorA = 6378137.0, invFlattening = 298.257222101,
+                projectionType = "Oblique_Mercator", projCentralMeridianDeg = 235.95, projLatOrigin = 44.75,
+                projScaleFactor = 1.0, projFalseEasting = -300000.0, projFalseNorthing = -4600000.0,
+                projAzimuthDeg = 5.0, projGridAngleDeg = 5.0
+            )
+        )) {
+            val t = ProjectionFactory.build(p)
+            val (x0, y0) = t.forward(p.projLatOrigin!!, p.projCentralMeridianDeg!! - 360.0)
+            assertEquals("$name E0", p.projFalseEasting!!, x0, 1e-3)
+            assertEquals("$name N0", p.projFalseNorthing!!, y0, 1e-3)
+            val (x, y) = t.forward(45.5, -123.4)
+            val (lat, lon) = t.inverse(x, y)
+            assertEquals("$name lat", 45.5, lat, 1e-9)
+            assertEquals("$name lon", -123.4, lon, 1e-9)
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.tugis3.coord.transform
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class KrovakTest {
+    private val lat = 50 + 12 / 60.0 + 32.442 / 3600
+    private val lon = 16 + 50 / 60.0 + 59.179 / 3600
+
+    @Test
+    fun epsgWorkedExample() {
+        // IOGP GN7-2: S-JTSK / Krovak (güney X, batı Y)
+        val krovak = Krovak(6377397.155, 299.15281, 49.5, 24.833333333, 30.28813975, 78.5, 0.9999, 0.0, 0.0, northOrientated = false)
+        val (westing, southing) = krovak.forward(lat, lon)
+        assertEquals(568990.99, westing, 0.01)
+        assertEquals(1050538.63, southing, 0.01)
+        val (rLat, rLon) = krovak.inverse(westing, southing)
+        assertEquals(lat, rLat, 1e-10)
+        assertEquals(lon, rLon, 1e-10)
+    }
+
+    @Test
+    fun catalogRowIsNorthOrientated() {
+        // S-JTSK (Krovak): dAzimuth = αC, StandardParallel1 = φP
+        val t = ProjectionFactory.build(
+            ProjectionParams(
+                semiMajorA = 6377397.155, invFlattening = 299.1528128004,
+                projectionType = "Krovak_Oblique_Conic_Conformal", projCentralMeridianDeg = 24.8333333,
+                projLatOrigin = 49.5, projStdParallel1 = 78.5, projAzimuthDeg = 30.28813975, projScaleFactor = 0.9999
+            )
+        )
+        assertTrue(t is Krovak)
+        val (e, n) = t.forward(lat, lon)
+        assertEquals(-568990.99, e, 0.05)
+        assertEquals(-1050538.63, n, 0.05)
+        val (rLat, rLon) = t.inverse(e, n)
+        assertEquals(lat, rLat, 1e-10)
+        assertEquals(lon, rLon, 1e-10)
+    }
+
+    @Test
+    fun unsupportedTypesAreReported() {
+        assertTrue(ProjectionFactory.isSupported("Krovak_Oblique_Conic_Conformal"))
+        assertTrue(ProjectionFactory.isSupported(null))
+        assertFalse(ProjectionFactory.isSupported("0"))
+        assertFalse(ProjectionFactory.isSupported("Polyconic"))
+    }
+}
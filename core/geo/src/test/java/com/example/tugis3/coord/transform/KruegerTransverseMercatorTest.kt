@@ -0,0 +1,88 @@
+package com.example.tugis3.coord.transform
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import kotlin.math.abs
+import kotlin.math.max
+
+/**
+ * Krüger serisi doğruluk testleri ve klasik seriyle 1M noktalık ızgara karşılaştırması.
+ * Hız karşılaştırması JMH'dedir: `./gradlew :core:geo:jmh -Pjmh.includes=TransverseMercatorBenchmark`.
+ */
+class KruegerTransverseMercatorTest {
+
+    private val a = 6378137.0
+    private val invF = 298.257223563
+
+    @Test
+    fun snyderWorkedExample() {
+        // Snyder (1987) s.269: Clarke 1866, φ=40°30'N, λ=73°30'W, λ0=75°W, k0=0.9996
+        val tm = KruegerTransverseMercator(6378206.4, 294.9786982, -75.0, scaleFactor = 0.9996)
+        val (x, y) = tm.forward(40.5, -73.5)
+        assertEquals(127106.5, x, 0.05)
+        assertEquals(4484124.4, y, 0.05)
+    }
+
+    @Test
+    fun farFromMeridianMatchesExactGaussKrueger() {
+        // WGS84, λ0=0, k0=0.9996, FE/FN yok (Karney TMcoords düzeni). Başvuru değerleri seriden bağımsız
+        // kesin Gauss–Krüger ile hesaplandı: ψ + iλ'dan karmaşık enlem (Newton), meridyen yayı karmaşık
+        // yol boyunca Gauss–Legendre ile; yöntem küre kapalı formunu 1e-7 m içinde verir.
+        val tm = KruegerTransverseMercator(a, invF, 0.0, scaleFactor = 0.9996)
+        val ref = listOf(
+            doubleArrayOf(40.0, 10.0, 854342.842247, 4475948.549427),
+            doubleArrayOf(60.0, 15.0, 831808.333412, 6746522.323960),
+            doubleArrayOf(10.0, 20.0, 2235209.504622, 1175297.345031),
+            doubleArrayOf(-35.0, -25.0, -2305002.539862, -4172770.567832),
+            doubleArrayOf(5.0, 30.0, 3487311.019529, 638334.698374),
+            doubleArrayOf(45.0, 30.0, 2359847.360033, 5440824.092180),
+            doubleArrayOf(-70.0, 28.0, 1035723.957751, -8009658.844505),
+        )
+        for ((lat, lon, x, y) in ref.map { it.toList() }) {
+            val (fx, fy) = tm.forward(lat, lon)
+            assertEquals("x @ $lat,$lon", x, fx, 1e-4)
+            assertEquals("y @ $lat,$lon", y, fy, 1e-4)
+            val (rLat, rLon) = tm.inverse(x, y)
+            assertEquals("lat @ $lat,$lon", lat, rLat, 1e-9)
+            assertEquals("lon @ $lat,$lon", lon, rLon, 1e-9)
+        }
+    }
+
+    @Test
+    fun latitudeOfOriginMapsToFalseOrigin() {
+        val tm = KruegerTransverseMercator(a, invF, 30.0, latOriginDeg = 35.0, falseE = 500000.0, falseN = 100000.0)
+        val (x, y) = tm.forward(35.0, 30.0)
+        assertEquals(500000.0, x, 1e-6)
+        assertEquals(100000.0, y, 1e-6)
+    }
+
+    @Test
+    fun gridAccuracyAgainstClassicSeries() {
+        val side = 1000
+        val n = side * side
+        val lat = DoubleArray(n) { 30.0 + (it / side) * (20.0 / side) }
+        val lon = DoubleArray(n) { 33.0 - 10.0 + (it % side) * (20.0 / side) }
+        val kr = KruegerTransverseMercator(a, invF, 33.0, scaleFactor = 0.9996, falseE = 500000.0)
+        val sn = GenericTmTransformer(a, invF, 33.0, 0.0, 0.9996, 500000.0, 0.0)
+        val kx = DoubleArray(n); val ky = DoubleArray(n)
+        val sx = DoubleArray(n); val sy = DoubleArray(n)
+
+        kr.forwardBatch(lat, lon, kx, ky)
+        sn.forwardBatch(lat, lon, sx, sy)
+
+        // Merkez meridyene yakın (±1.5°) iki seri mm içinde uyuşmalı
+        var nearDiff = 0.0
+        for (i in 0 until n) {
+            if (abs(lon[i] - 33.0) <= 1.5) nearDiff = max(nearDiff, max(abs(kx[i] - sx[i]), abs(ky[i] - sy[i])))
+        }
+        assertTrue("yakın bölge farkı $nearDiff m", nearDiff < 1e-3)
+
+        // Krüger ters dönüşümü ±10° boyunca mikro-derece altında geri dönmeli
+        val rLat = DoubleArray(n); val rLon = DoubleArray(n)
+        kr.inverseBatch(kx, ky, rLat, rLon)
+        var rt = 0.0
+        for (i in 0 until n) rt = max(rt, max(abs(rLat[i] - lat[i]), abs(rLon[i] - lon[i])))
+        assertTrue("Krüger round-trip $rt°", rt < 1e-9)
+    }
+}
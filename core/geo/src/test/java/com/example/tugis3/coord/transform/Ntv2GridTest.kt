@@ -0,0 +1,111 @@
+package com.example.tugis3.coord.transform
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.io.File
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+
+class Ntv2GridTest {
+
+    private class Sub(
+        val name: String, val parent: String,
+        val s: Double, val n: Double, val e: Double, val w: Double, val inc: Double,
+        val shift: (latSec: Double, lonWSec: Double) -> Pair<Double, Double>
+    )
+
+    /** Yay saniyesi cinsinden küçük bir NTv2 dosyası üretir (boylam batı pozitif). */
+    private fun ntv2(order: ByteOrder, vararg subs: Sub): ByteBuffer {
+        val counts = subs.map { ((it.n - it.s) / it.inc + 1).toInt() * ((it.w - it.e) / it.inc + 1).toInt() }
+        val buf = ByteBuffer.allocate(176 + subs.size * 176 + counts.sum() * 16 + 16).order(order)
+        fun label(k: String) { buf.put(k.padEnd(8).toByteArray()) }
+        fun int(k: String, v: Int) { label(k); buf.putInt(v); buf.putInt(0) }
+        fun str(k: String, v: String) { label(k); label(v) }
+        fun dbl(k: String, v: Double) { label(k); buf.putDouble(v) }
+        int("NUM_OREC", 11); int("NUM_SREC", 11); int("NUM_FILE", subs.size)
+        str("GS_TYPE", "SECONDS"); str("VERSION", "NTv2.0"); str("SYSTEM_F", "LOCAL"); str("SYSTEM_T", "WGS84")
+        dbl("MAJOR_F", 6378388.0); dbl("MINOR_F", 6356911.946); dbl("MAJOR_T", 6378137.0); dbl("MINOR_T", 6356752.314)
+        subs.forEachIndexed { i, g ->
+            str("SUB_NAME", g.name); str("PARENT", g.parent); str("CREATED", ""); str("UPDATED", "")
+            dbl("S_LAT", g.s); dbl("N_LAT", g.n); dbl("E_LONG", g.e); dbl("W_LONG", g.w)
+            dbl("LAT_INC", g.inc); dbl("LONG_INC", g.inc); int("GS_COUNT", counts[i])
+            val rows = ((g.n - g.s) / g.inc + 1).toInt()
+            val cols = ((g.w - g.e) / g.inc + 1).toInt()
+            for (r in 0 until rows) for (c in 0 until cols) {
+                val (dLat, dLon) = g.shift(g.s + r * g.inc, g.e + c * g.inc)
+                buf.putFloat(dLat.toFloat()); buf.putFloat(dLon.toFloat()); buf.putFloat(0f); buf.putFloat(0f)
+            }
+        }
+        label("END"); label("")
+        return buf
+    }
+
+    // 40°..42°K, 30°..33°D (batı pozitif: -118800..-108000)
+    private val parent = Sub("PARENT", "NONE", 144000.0, 151200.0, -118800.0, -108000.0, 1800.0) { lat, lonW ->
+        (1.0 + (lat - 144000.0) / 7200.0) to (-2.0 + (lonW + 118800.0) / 10800.0)
+    }
+    // Çocuk: 41°..41.5°K, 31°..31.5°D, sabit farklı kaydırma
+    private val child = Sub("CHILD", "PARENT", 147600.0, 149400.0, -113400.0, -111600.0, 300.0) { _, _ -> 5.0 to 5.0 }
+
+    @Test
+    fun shiftsAreInterpolatedFromDensestSubgrid() {
+        for (order in listOf(ByteOrder.LITTLE_ENDIAN, ByteOrder.BIG_ENDIAN)) {
+            val grid = Ntv2Grid.wrap(ntv2(order, parent, child))
+            assertEquals("LOCAL", grid.fromSystem)
+            assertEquals("WGS84", grid.toSystem)
+            val d = DoubleArray(2)
+            // Ebeveyn bölgesi: doğrusal alan, bilineer tam verir
+            assertTrue(grid.shift(40.5, 32.5, d))
+            assertEquals(1.25 / 3600, d[0], 1e-12)
+            // batı pozitif kaydırma -> doğu pozitif
+            val lonW = -32.5 * 3600
+            assertEquals(-(-2.0 + (lonW + 118800.0) / 10800.0) / 3600, d[1], 1e-9)
+            assertEquals("PARENT", grid.subgridAt(40.5, 32.5))
+            // Çocuk bölge: sık ızgara seçilir
+            assertTrue(grid.shift(41.2, 31.2, d))
+            assertEquals(5.0 / 3600, d[0], 1e-12)
+            assertEquals(-5.0 / 3600, d[1], 1e-12)
+            assertEquals("CHILD", grid.subgridAt(41.2, 31.2))
+            // Tekrar ebeveyne dönüşte son isabet önbelleği yanıltmamalı
+            assertEquals("PARENT", grid.subgridAt(41.9, 30.1))
+            assertNull(grid.subgridAt(39.0, 31.0))
+        }
+    }
+
+    @Test
+    fun transformationRoundTripAndFallback() {
+        val file = File.createTempFile("shift", ".gsb").apply { deleteOnExit() }
+        file.writeBytes(ntv2(ByteOrder.LITTLE_ENDIAN, parent, child).array())
+        val t = GridShiftTransformation(Ntv2Grid.cached(file.path), null)
+        val (wLat, wLon, _) = t.toWgs84(40.7, 31.9)
+        val (lLat, lLon, _) = t.toLocal(wLat, wLon)
+        assertEquals(40.7, lLat, 1e-11)
+        assertEquals(31.9, lLon, 1e-11)
+        // Kapsam dışı: yedek dönüşüm yoksa değişmez
+        assertEquals(45.0, t.toWgs84(45.0, 31.0).first, 0.0)
+
+        val p = ProjectionParams(
+            semiMajorA = 6378388.0, invFlattening = 297.0,
+            projectionType = "Transverse_Mercator", projCentralMeridianDeg = 30.0, projScaleFactor = 1.0,
+            projFalseEasting = 500000.0, datumGridPath = file.path
+        )
+        val engine = ProjectionFactory.build(p)
+        assertTrue(engine is DatumShiftedTransformer)
+        val lat = doubleArrayOf(40.2, 41.25, 41.9)
+        val lon = doubleArrayOf(30.4, 31.25, 32.8)
+        val x = DoubleArray(3); val y = DoubleArray(3)
+        engine.forwardBatch(lat, lon, x, y)
+        for (i in lat.indices) {
+            val (sx, sy) = engine.forward(lat[i], lon[i])
+            assertEquals(sx, x[i], 1e-9)
+            assertEquals(sy, y[i], 1e-9)
+        }
+        engine.inverseBatch(x, y, x, y)
+        for (i in lat.indices) {
+            assertEquals(lat[i], x[i], 1e-9)
+            assertEquals(lon[i], y[i], 1e-9)
+        }
+    }
+}
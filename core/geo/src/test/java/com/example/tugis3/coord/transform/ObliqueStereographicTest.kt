@@ -0,0 +1,40 @@
+package com.example.tugis3.coord.transform
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class ObliqueStereographicTest {
+
+    @Test
+    fun epsgWorkedExample() {
+        // IOGP GN7-2: Amersfoort / RD New
+        val rd = ObliqueStereographic(6377397.155, 299.15281, 52.156160556, 5.387638889, 0.9999079, 155000.0, 463000.0)
+        val (e, n) = rd.forward(53.0, 6.0)
+        assertEquals(196105.283, e, 0.001)
+        assertEquals(557057.739, n, 0.001)
+        val (lat, lon) = rd.inverse(e, n)
+        assertEquals(53.0, lat, 1e-10)
+        assertEquals(6.0, lon, 1e-10)
+    }
+
+    @Test
+    fun catalogRowThroughFactory() {
+        // NAD83 / New Brunswick: merkez boylamı katalogda 0..360 (293.5 = -66.5)
+        val t = ProjectionFactory.build(
+            ProjectionParams(
+                semiMajorA = 6378137.0, invFlattening = 298.257222101,
+                projectionType = "Oblique_Stereographic", projCentralMeridianDeg = 293.5, projLatOrigin = 46.5,
+                projScaleFactor = 0.999912, projFalseEasting = 2500000.0, projFalseNorthing = 7500000.0
+            )
+        )
+        assertTrue(t is ObliqueStereographic)
+        val (x0, y0) = t.forward(46.5, -66.5)
+        assertEquals(2500000.0, x0, 1e-6)
+        assertEquals(7500000.0, y0, 1e-6)
+        val (x, y) = t.forward(45.9636, -66.6431)
+        val (lat, lon) = t.inverse(x, y)
+        assertEquals(45.9636, lat, 1e-10)
+        assertEquals(-66.6431, lon, 1e-10)
+    }
+}
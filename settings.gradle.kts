@@ -31,3 +31,4 @@ include(":app")
 include(":core:data")
 include(":core:ui")
 include(":core:cad")
+include(":core:geo")